@@ -0,0 +1,167 @@
+/**
+ * Benchmark de la compression des réponses (GET /api/sync/delta, page de 100 entités)
+ *
+ * Compare, sur la même page delta, la réponse non compressée (Accept-Encoding: identity)
+ * et la réponse gzip: octets sur le réseau, latence de bout en bout (décompression
+ * comprise) et temps de transfert estimé sur une liaison mobile lente.
+ *
+ * Usage:
+ *   node benchmark-delta-compression.js                       # mesure + affichage
+ *   node benchmark-delta-compression.js --save baseline.json  # enregistre le résultat
+ *   node benchmark-delta-compression.js --compare baseline.json
+ *
+ * Variables: BASE_URL (défaut http://localhost:8082), BENCH_USER, BENCH_PASSWORD,
+ *            REQUESTS (défaut 50), PAGE_SIZE (défaut 100),
+ *            LINK_KBPS (défaut 384, débit de la liaison mobile pour l'estimation)
+ */
+
+const axios = require("axios");
+const fs = require("fs");
+const zlib = require("zlib");
+
+const BASE_URL = process.env.BASE_URL || "http://localhost:8082";
+const USER = {
+  username: process.env.BENCH_USER || "testuser",
+  password: process.env.BENCH_PASSWORD || "password123",
+};
+const REQUESTS = parseInt(process.env.REQUESTS || "50", 10);
+const PAGE_SIZE = Math.min(parseInt(process.env.PAGE_SIZE || "100", 10), 100);
+const LINK_KBPS = parseInt(process.env.LINK_KBPS || "384", 10);
+const DEVICE_ID = "benchmark-delta-" + Date.now();
+
+function argValue(name) {
+  const index = process.argv.indexOf(name);
+  return index >= 0 ? process.argv[index + 1] : null;
+}
+
+async function authenticate() {
+  const response = await axios.post(`${BASE_URL}/auth/login`, USER);
+  return response.data.token;
+}
+
+// Produits créés via /api/sync/batch pour garantir une page delta pleine
+async function seedProducts(token) {
+  const operations = Array.from({ length: PAGE_SIZE }, (_, i) => ({
+    entity_type: "PRODUCT",
+    operation_type: "CREATE",
+    entity_id: `bench-delta-${i}`,
+    local_id: `bench-delta-${Date.now()}-${i}`,
+    entity_data: {
+      name: `Produit delta ${i}`,
+      description: "Généré par benchmark-delta-compression.js",
+      price: 1500 + (i % 50),
+      category: "Benchmark",
+      stock_quantity: 40 + (i % 10),
+    },
+  }));
+  await axios.post(
+    `${BASE_URL}/api/sync/batch`,
+    { operations, device_id: DEVICE_ID },
+    { headers: { Authorization: `Bearer ${token}` } }
+  );
+}
+
+async function fetchDelta(token, since, encoding) {
+  const started = process.hrtime.bigint();
+  const response = await axios.get(`${BASE_URL}/api/sync/delta`, {
+    params: { lastSyncTimestamp: since, deviceId: DEVICE_ID, limit: PAGE_SIZE },
+    headers: { Authorization: `Bearer ${token}`, "Accept-Encoding": encoding },
+    // octets bruts: la taille mesurée est celle reçue sur le réseau
+    decompress: false,
+    responseType: "arraybuffer",
+  });
+  const wire = Buffer.from(response.data);
+  const contentEncoding = response.headers["content-encoding"] || "identity";
+  const body = contentEncoding === "gzip" ? zlib.gunzipSync(wire) : wire;
+  JSON.parse(body.toString("utf8"));
+  const elapsedMs = Number(process.hrtime.bigint() - started) / 1e6;
+  return { elapsedMs, wireBytes: wire.length, bodyBytes: body.length, contentEncoding };
+}
+
+async function measure(token, since, encoding) {
+  for (let w = 0; w < 5; w++) {
+    await fetchDelta(token, since, encoding);
+  }
+  const timings = [];
+  let last;
+  for (let r = 0; r < REQUESTS; r++) {
+    last = await fetchDelta(token, since, encoding);
+    timings.push(last.elapsedMs);
+  }
+  const sorted = [...timings].sort((a, b) => a - b);
+  const percentile = (p) => sorted[Math.max(0, Math.ceil(sorted.length * p) - 1)];
+  return {
+    contentEncoding: last.contentEncoding,
+    wireBytes: last.wireBytes,
+    bodyBytes: last.bodyBytes,
+    avgMs: +(timings.reduce((a, b) => a + b, 0) / timings.length).toFixed(1),
+    p50Ms: +percentile(0.5).toFixed(1),
+    p95Ms: +percentile(0.95).toFixed(1),
+    // temps de transfert seul sur la liaison mobile (hors latence réseau)
+    linkMs: Math.round((last.wireBytes * 8) / LINK_KBPS),
+  };
+}
+
+function printMode(title, mode) {
+  console.log(`   ${title}`);
+  console.log(`     Encodage       : ${mode.contentEncoding}`);
+  console.log(`     Octets réseau  : ${mode.wireBytes} (JSON ${mode.bodyBytes})`);
+  console.log(`     Latence        : moy ${mode.avgMs} ms, p50 ${mode.p50Ms} ms, p95 ${mode.p95Ms} ms`);
+  console.log(`     Transfert ${LINK_KBPS} kbit/s : ~${mode.linkMs} ms`);
+}
+
+async function run() {
+  console.log("⏱️  Benchmark compression des réponses delta");
+  console.log(`   Page de ${PAGE_SIZE} entités, ${REQUESTS} requêtes par mode sur ${BASE_URL}\n`);
+
+  const token = await authenticate();
+  const since = new Date(Date.now() - 60 * 1000).toISOString().slice(0, 19);
+  await seedProducts(token);
+
+  const identity = await measure(token, since, "identity");
+  const gzip = await measure(token, since, "gzip");
+
+  const result = {
+    label: argValue("--label") || "current",
+    date: new Date().toISOString(),
+    pageSize: PAGE_SIZE,
+    requests: REQUESTS,
+    linkKbps: LINK_KBPS,
+    identity,
+    gzip,
+    ratio: +(gzip.wireBytes / identity.wireBytes).toFixed(3),
+  };
+
+  console.log("📊 Résultats");
+  printMode("Sans compression", identity);
+  printMode("Accept-Encoding: gzip", gzip);
+  console.log(`   Ratio octets   : ${result.ratio} (${((1 - result.ratio) * 100).toFixed(1)}% économisés)`);
+  if (gzip.contentEncoding !== "gzip") {
+    console.log("   ⚠️  Réponse non compressée: filtre désactivé ou page sous le seuil min-size");
+  }
+
+  const savePath = argValue("--save");
+  if (savePath) {
+    fs.writeFileSync(savePath, JSON.stringify(result, null, 2));
+    console.log(`\n💾 Résultat enregistré dans ${savePath}`);
+  }
+
+  const comparePath = argValue("--compare");
+  if (comparePath) {
+    const baseline = JSON.parse(fs.readFileSync(comparePath, "utf8"));
+    console.log(`\n📈 Comparaison avec "${baseline.label}" (${baseline.date})`);
+    console.log(
+      `   Avant : ${baseline.gzip.wireBytes} octets, moy ${baseline.gzip.avgMs} ms, transfert ~${baseline.gzip.linkMs} ms`
+    );
+    console.log(
+      `   Après : ${result.gzip.wireBytes} octets, moy ${result.gzip.avgMs} ms, transfert ~${result.gzip.linkMs} ms`
+    );
+    const gain = ((1 - result.gzip.wireBytes / baseline.gzip.wireBytes) * 100).toFixed(1);
+    console.log(`   Octets économisés : ${gain}%`);
+  }
+}
+
+run().catch((error) => {
+  console.error("❌ Erreur benchmark:", error.response?.data || error.message);
+  process.exit(1);
+});
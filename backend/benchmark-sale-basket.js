@@ -0,0 +1,155 @@
+/**
+ * Benchmark de création de ventes multi-lignes (POST /sales)
+ *
+ * Mesure la latence par taille de panier (nombre de lignes) : résolution des
+ * produits, décrément du stock et insertion des lignes de vente. Les lignes
+ * alternent référence par ID et par code-barres pour couvrir les deux chemins.
+ *
+ * Usage:
+ *   node benchmark-sale-basket.js                       # mesure + affichage
+ *   node benchmark-sale-basket.js --save baseline.json  # enregistre le résultat
+ *   node benchmark-sale-basket.js --compare baseline.json
+ *
+ * Variables: BASE_URL (défaut http://localhost:8082), BENCH_USER, BENCH_PASSWORD,
+ *            BASKET_SIZES (défaut "1,5,10,20,40,80"), ITERATIONS (défaut 20 ventes par taille)
+ */
+
+const axios = require("axios");
+const fs = require("fs");
+
+const BASE_URL = process.env.BASE_URL || "http://localhost:8082";
+const USER = {
+  username: process.env.BENCH_USER || "testuser",
+  password: process.env.BENCH_PASSWORD || "password123",
+};
+const BASKET_SIZES = (process.env.BASKET_SIZES || "1,5,10,20,40,80")
+  .split(",")
+  .map((s) => parseInt(s, 10))
+  .filter((n) => n > 0);
+const ITERATIONS = parseInt(process.env.ITERATIONS || "20", 10);
+const RUN_ID = Date.now();
+
+function argValue(name) {
+  const index = process.argv.indexOf(name);
+  return index >= 0 ? process.argv[index + 1] : null;
+}
+
+async function authenticate() {
+  const response = await axios.post(`${BASE_URL}/auth/login`, USER);
+  return response.data.token;
+}
+
+async function createProducts(token, count) {
+  const products = [];
+  for (let i = 0; i < count; i++) {
+    const response = await axios.post(
+      `${BASE_URL}/products`,
+      {
+        name: `Produit panier ${RUN_ID}-${i}`,
+        description: "Généré par benchmark-sale-basket.js",
+        barcode: `BENCH${RUN_ID}${String(i).padStart(3, "0")}`,
+        purchasePrice: 500,
+        sellingPrice: 1000 + i,
+        stockQuantity: 1000000,
+        minStockLevel: 0,
+        category: "Benchmark",
+      },
+      { headers: { Authorization: `Bearer ${token}` } }
+    );
+    products.push(response.data);
+  }
+  return products;
+}
+
+function basket(products, size) {
+  return Array.from({ length: size }, (_, i) => {
+    const product = products[i % products.length];
+    // Une ligne sur deux par code-barres: force la deuxième requête de résolution
+    const reference = i % 2 === 0 ? { productId: product.id } : { barcode: product.barcode };
+    return { ...reference, quantity: 1, unitPrice: product.sellingPrice, discount: 0 };
+  });
+}
+
+async function postSale(token, saleItems) {
+  const started = process.hrtime.bigint();
+  await axios.post(
+    `${BASE_URL}/sales`,
+    { paymentMethod: "CASH", notes: "benchmark-sale-basket", saleItems },
+    { headers: { Authorization: `Bearer ${token}` } }
+  );
+  return Number(process.hrtime.bigint() - started) / 1e6;
+}
+
+function percentile(sorted, p) {
+  return sorted[Math.max(0, Math.ceil(sorted.length * p) - 1)];
+}
+
+async function run() {
+  console.log("⏱️  Benchmark ventes multi-lignes");
+  console.log(`   Paniers ${BASKET_SIZES.join(", ")} lignes, ${ITERATIONS} ventes par taille sur ${BASE_URL}\n`);
+
+  const token = await authenticate();
+  const products = await createProducts(token, Math.max(...BASKET_SIZES));
+
+  // Warm-up (JIT, caches, pool de connexions)
+  for (let w = 0; w < 5; w++) {
+    await postSale(token, basket(products, BASKET_SIZES[BASKET_SIZES.length - 1]));
+  }
+
+  const sizes = {};
+  for (const size of BASKET_SIZES) {
+    const items = basket(products, size);
+    const timings = [];
+    for (let i = 0; i < ITERATIONS; i++) {
+      timings.push(await postSale(token, items));
+    }
+    const sorted = [...timings].sort((a, b) => a - b);
+    sizes[size] = {
+      avgMs: +(timings.reduce((a, b) => a + b, 0) / timings.length).toFixed(1),
+      p50Ms: +percentile(sorted, 0.5).toFixed(1),
+      p95Ms: +percentile(sorted, 0.95).toFixed(1),
+    };
+  }
+
+  const result = {
+    label: argValue("--label") || "current",
+    date: new Date().toISOString(),
+    iterations: ITERATIONS,
+    sizes,
+  };
+
+  console.log("📊 Résultats (latence par vente)");
+  console.log("   Lignes   moyenne     p50      p95");
+  for (const [size, s] of Object.entries(sizes)) {
+    console.log(
+      `   ${size.padStart(6)} ${String(s.avgMs).padStart(8)} ms ${String(s.p50Ms).padStart(6)} ms ${String(s.p95Ms).padStart(6)} ms`
+    );
+  }
+
+  const savePath = argValue("--save");
+  if (savePath) {
+    fs.writeFileSync(savePath, JSON.stringify(result, null, 2));
+    console.log(`\n💾 Résultat enregistré dans ${savePath}`);
+  }
+
+  const comparePath = argValue("--compare");
+  if (comparePath) {
+    const baseline = JSON.parse(fs.readFileSync(comparePath, "utf8"));
+    console.log(`\n📈 Comparaison avec "${baseline.label}" (${baseline.date})`);
+    for (const [size, s] of Object.entries(sizes)) {
+      const before = baseline.sizes?.[size];
+      if (!before) {
+        continue;
+      }
+      const gain = ((1 - s.avgMs / before.avgMs) * 100).toFixed(1);
+      console.log(
+        `   ${size.padStart(3)} lignes : ${before.avgMs} ms → ${s.avgMs} ms (${gain >= 0 ? "-" : "+"}${Math.abs(gain)}% de latence)`
+      );
+    }
+  }
+}
+
+run().catch((error) => {
+  console.error("❌ Erreur benchmark:", error.response?.data || error.message);
+  process.exit(1);
+});
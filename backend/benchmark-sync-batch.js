@@ -0,0 +1,189 @@
+/**
+ * Benchmark du traitement batch de synchronisation (POST /api/sync/batch)
+ *
+ * Mesure le débit (opérations/seconde) sur des lots mixtes de créations et
+ * mises à jour de produits + mouvements de stock, puis compare avec un
+ * résultat de référence enregistré sur une version précédente du backend.
+ *
+ * Usage:
+ *   node benchmark-sync-batch.js                       # mesure + affichage
+ *   node benchmark-sync-batch.js --save baseline.json  # enregistre le résultat
+ *   node benchmark-sync-batch.js --compare baseline.json
+ *
+ * Variables: BASE_URL (défaut http://localhost:8082), BENCH_USER, BENCH_PASSWORD,
+ *            BATCHES (défaut 20), BATCH_SIZE (défaut 100, maximum accepté par l'API)
+ */
+
+const axios = require("axios");
+const fs = require("fs");
+
+const BASE_URL = process.env.BASE_URL || "http://localhost:8082";
+const USER = {
+  username: process.env.BENCH_USER || "testuser",
+  password: process.env.BENCH_PASSWORD || "password123",
+};
+const BATCHES = parseInt(process.env.BATCHES || "20", 10);
+const BATCH_SIZE = Math.min(parseInt(process.env.BATCH_SIZE || "100", 10), 100);
+const DEVICE_ID = "benchmark-" + Date.now();
+
+function argValue(name) {
+  const index = process.argv.indexOf(name);
+  return index >= 0 ? process.argv[index + 1] : null;
+}
+
+async function authenticate() {
+  const response = await axios.post(`${BASE_URL}/auth/login`, USER);
+  return response.data.token;
+}
+
+async function postBatch(token, operations) {
+  const started = process.hrtime.bigint();
+  const response = await axios.post(
+    `${BASE_URL}/api/sync/batch`,
+    { operations, device_id: DEVICE_ID },
+    { headers: { Authorization: `Bearer ${token}` } }
+  );
+  const elapsedMs = Number(process.hrtime.bigint() - started) / 1e6;
+  return { elapsedMs, data: response.data };
+}
+
+function productCreate(i) {
+  return {
+    entity_type: "PRODUCT",
+    operation_type: "CREATE",
+    entity_id: `bench-p-${i}`,
+    local_id: `bench-p-${i}`,
+    entity_data: {
+      name: `Produit benchmark ${i}`,
+      description: "Généré par benchmark-sync-batch.js",
+      price: 1000 + (i % 50),
+      category: "Benchmark",
+      stock_quantity: 100,
+    },
+  };
+}
+
+function productUpdate(id, i) {
+  return {
+    entity_type: "PRODUCT",
+    operation_type: "UPDATE",
+    entity_id: String(id),
+    local_id: `bench-pu-${i}`,
+    entity_data: {
+      name: `Produit benchmark ${i} (maj)`,
+      description: "Mis à jour par benchmark-sync-batch.js",
+      price: 2000 + (i % 50),
+      category: "Benchmark",
+      stock_quantity: 90,
+    },
+  };
+}
+
+function movementCreate(productId, i) {
+  return {
+    entity_type: "STOCK_MOVEMENT",
+    operation_type: "CREATE",
+    entity_id: `bench-m-${i}`,
+    local_id: `bench-m-${i}`,
+    entity_data: {
+      product_id: productId,
+      quantity: 1 + (i % 5),
+      movement_type: "OUT",
+      reason: "benchmark",
+    },
+  };
+}
+
+async function run() {
+  console.log("⏱️  Benchmark sync batch");
+  console.log(`   ${BATCHES} lots x ${BATCH_SIZE} opérations sur ${BASE_URL}\n`);
+
+  const token = await authenticate();
+
+  // Préparation: un lot de créations pour disposer d'IDs à mettre à jour
+  const seed = await postBatch(
+    token,
+    Array.from({ length: BATCH_SIZE }, (_, i) => productCreate(i))
+  );
+  const productIds = (seed.data.results || [])
+    .filter((r) => r.status === "SUCCESS")
+    .map((r) => r.server_id);
+  if (productIds.length === 0) {
+    throw new Error("Aucun produit créé lors de la préparation");
+  }
+
+  // Warm-up (JIT, caches, pool de connexions)
+  for (let w = 0; w < 3; w++) {
+    await postBatch(
+      token,
+      Array.from({ length: BATCH_SIZE }, (_, i) =>
+        productUpdate(productIds[i % productIds.length], i)
+      )
+    );
+  }
+
+  const timings = [];
+  let totalOps = 0;
+  let failedOps = 0;
+  for (let b = 0; b < BATCHES; b++) {
+    const operations = [];
+    for (let i = 0; i < BATCH_SIZE; i++) {
+      const n = b * BATCH_SIZE + i;
+      const productId = productIds[n % productIds.length];
+      switch (i % 3) {
+        case 0:
+          operations.push(productCreate(n));
+          break;
+        case 1:
+          operations.push(productUpdate(productId, n));
+          break;
+        default:
+          operations.push(movementCreate(productId, n));
+      }
+    }
+    const { elapsedMs, data } = await postBatch(token, operations);
+    timings.push(elapsedMs);
+    totalOps += operations.length;
+    failedOps += data.error_count || 0;
+  }
+
+  const totalMs = timings.reduce((a, b) => a + b, 0);
+  const sorted = [...timings].sort((a, b) => a - b);
+  const result = {
+    label: argValue("--label") || "current",
+    date: new Date().toISOString(),
+    batches: BATCHES,
+    batchSize: BATCH_SIZE,
+    opsPerSecond: Math.round((totalOps / totalMs) * 1000),
+    avgBatchMs: +(totalMs / timings.length).toFixed(1),
+    p95BatchMs: +sorted[Math.max(0, Math.ceil(sorted.length * 0.95) - 1)].toFixed(1),
+    failedOps,
+  };
+
+  console.log("📊 Résultats");
+  console.log(`   Débit          : ${result.opsPerSecond} ops/s`);
+  console.log(`   Lot moyen      : ${result.avgBatchMs} ms`);
+  console.log(`   Lot p95        : ${result.p95BatchMs} ms`);
+  console.log(`   Opérations KO  : ${result.failedOps}`);
+
+  const savePath = argValue("--save");
+  if (savePath) {
+    fs.writeFileSync(savePath, JSON.stringify(result, null, 2));
+    console.log(`\n💾 Résultat enregistré dans ${savePath}`);
+  }
+
+  const comparePath = argValue("--compare");
+  if (comparePath) {
+    const baseline = JSON.parse(fs.readFileSync(comparePath, "utf8"));
+    const gain = ((result.opsPerSecond / baseline.opsPerSecond - 1) * 100).toFixed(1);
+    console.log(`\n📈 Comparaison avec "${baseline.label}" (${baseline.date})`);
+    console.log(`   Avant : ${baseline.opsPerSecond} ops/s, lot moyen ${baseline.avgBatchMs} ms`);
+    console.log(`   Après : ${result.opsPerSecond} ops/s, lot moyen ${result.avgBatchMs} ms`);
+    console.log(`   Gain  : ${gain >= 0 ? "+" : ""}${gain}%`);
+  }
+}
+
+run().catch((error) => {
+  console.error("❌ Erreur benchmark:", error.response?.data || error.message);
+  process.exit(1);
+});
@@ -1,44 +1,66 @@
 package com.salesmanager.config;
 
+import com.salesmanager.exception.PayloadTooLargeException;
+import com.salesmanager.service.SyncMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
+import org.springframework.util.unit.DataSize;
 
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.zip.GZIPInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
- * Configuration pour la décompression automatique des payloads gzip
- * 
- * Gère les requêtes avec header Content-Encoding: gzip
- * Décompresse automatiquement le body avant traitement
- * 
+ * Configuration pour la décompression automatique des payloads compressés
+ *
+ * Gère les requêtes avec header Content-Encoding: gzip (ou tout autre encodage fourni
+ * par un bean {@link RequestBodyDecoder}, ex: br, zstd). Le corps est décompressé au fil
+ * de la lecture par le contrôleur, sans copie complète en mémoire, et sa taille
+ * décompressée est bornée (http.request-decompression.max-decompressed-size).
+ *
  * @author Sales Manager Team
  * @version 1.0
  */
 @Configuration
 public class GzipConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(GzipConfiguration.class);
+
     /**
      * Filtre pour décompresser les requêtes gzip
      */
     @Bean
-    public FilterRegistrationBean<GzipRequestFilter> gzipFilter() {
+    public FilterRegistrationBean<GzipRequestFilter> gzipFilter(
+            SyncMetrics syncMetrics,
+            List<RequestBodyDecoder> decoders,
+            @Value("${http.request-decompression.max-decompressed-size:50MB}") DataSize maxDecompressedSize) {
         FilterRegistrationBean<GzipRequestFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new GzipRequestFilter());
+        registration.setFilter(new GzipRequestFilter(syncMetrics, decoders, maxDecompressedSize.toBytes()));
         registration.addUrlPatterns("/api/*");
         registration.setName("gzipRequestFilter");
         registration.setOrder(1);
@@ -46,13 +68,26 @@ public class GzipConfiguration {
     }
 
     /**
-     * Filtre personnalisé pour décompression gzip
+     * Filtre personnalisé pour décompression gzip (et encodages enregistrés)
+     * Mesure aussi la taille des payloads de synchronisation (sync.payload.bytes).
      */
     public static class GzipRequestFilter implements Filter {
 
+        private final SyncMetrics syncMetrics;
+        private final Map<String, RequestBodyDecoder> decoders = new HashMap<>();
+        private final long maxDecompressedBytes;
+
+        public GzipRequestFilter(SyncMetrics syncMetrics, List<RequestBodyDecoder> decoders, long maxDecompressedBytes) {
+            this.syncMetrics = syncMetrics;
+            for (RequestBodyDecoder decoder : decoders) {
+                decoder.encodings().forEach(encoding -> this.decoders.put(encoding, decoder));
+            }
+            this.maxDecompressedBytes = maxDecompressedBytes;
+        }
+
         @Override
         public void init(FilterConfig filterConfig) throws ServletException {
-            System.out.println("[GZIP_FILTER] Initialisé");
+            logger.debug("[GZIP_FILTER] Initialisé, encodages: {}", decoders.keySet());
         }
 
         @Override
@@ -61,88 +96,204 @@ public class GzipConfiguration {
 
             HttpServletRequest httpRequest = (HttpServletRequest) request;
             String contentEncoding = httpRequest.getHeader("Content-Encoding");
+            boolean syncRequest = httpRequest.getRequestURI().startsWith(httpRequest.getContextPath() + "/api/sync");
+            String encoding = contentEncoding == null ? "identity" : contentEncoding.trim().toLowerCase(Locale.ROOT);
 
-            // Si le contenu est gzip, décompresser
-            if (contentEncoding != null && contentEncoding.contains("gzip")) {
-                System.out.println("[GZIP_FILTER] Décompression du payload gzip...");
-
-                try {
-                    GzipHttpServletRequestWrapper wrappedRequest = new GzipHttpServletRequestWrapper(httpRequest);
-                    chain.doFilter(wrappedRequest, response);
-                } catch (Exception e) {
-                    System.err.println("[GZIP_FILTER] Erreur décompression: " + e.getMessage());
-                    throw new ServletException("Erreur lors de la décompression du payload gzip", e);
+            if (encoding.isEmpty() || "identity".equals(encoding)) {
+                if (syncRequest) {
+                    syncMetrics.recordPayload("request", "identity", httpRequest.getContentLengthLong());
                 }
-            } else {
                 // Pas de compression, passer la requête normale
                 chain.doFilter(request, response);
+                return;
+            }
+
+            RequestBodyDecoder decoder = decoders.get(encoding);
+            if (decoder == null) {
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+                        "Content-Encoding non supporté: " + contentEncoding);
+                return;
+            }
+
+            GzipHttpServletRequestWrapper wrappedRequest =
+                    new GzipHttpServletRequestWrapper(httpRequest, decoder, maxDecompressedBytes);
+            try {
+                chain.doFilter(wrappedRequest, response);
+            } finally {
+                wrappedRequest.release();
+                if (syncRequest) {
+                    syncMetrics.recordPayload("request", encoding, httpRequest.getContentLengthLong());
+                    syncMetrics.recordPayload("request", "decompressed", wrappedRequest.decodedBytes());
+                }
             }
         }
 
         @Override
         public void destroy() {
-            System.out.println("[GZIP_FILTER] Détruit");
+            logger.debug("[GZIP_FILTER] Détruit");
         }
     }
 
     /**
-     * Wrapper de requête pour gérer la décompression gzip
+     * Wrapper de requête pour gérer la décompression
+     * Le flux décodé est créé au premier getInputStream()/getReader(); rien n'est lu
+     * ni alloué avant. Au-delà de la taille maximale, la lecture échoue avec
+     * {@link PayloadTooLargeException} (réponse 413).
      */
     public static class GzipHttpServletRequestWrapper extends HttpServletRequestWrapper {
 
-        private byte[] decompressedBody;
+        private final RequestBodyDecoder decoder;
+        private final long maxDecompressedBytes;
+        private DecodedInputStream inputStream;
+        private BufferedReader reader;
 
-        public GzipHttpServletRequestWrapper(HttpServletRequest request) throws IOException {
+        public GzipHttpServletRequestWrapper(HttpServletRequest request, RequestBodyDecoder decoder,
+                                             long maxDecompressedBytes) {
             super(request);
+            this.decoder = decoder;
+            this.maxDecompressedBytes = maxDecompressedBytes;
+        }
 
-            try {
-                // Lire le body compressé
-                GZIPInputStream gzipStream = new GZIPInputStream(request.getInputStream());
-                ByteArrayInputStream decompressedStream = new ByteArrayInputStream(
-                        gzipStream.readAllBytes());
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (reader != null) {
+                throw new IllegalStateException("getReader() déjà appelé pour cette requête");
+            }
+            return decodedStream();
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                if (inputStream != null) {
+                    throw new IllegalStateException("getInputStream() déjà appelé pour cette requête");
+                }
+                String characterEncoding = getCharacterEncoding();
+                Charset charset = characterEncoding != null ? Charset.forName(characterEncoding) : StandardCharsets.UTF_8;
+                reader = new BufferedReader(new InputStreamReader(decodedStream(), charset));
+            }
+            return reader;
+        }
+
+        // Taille décodée inconnue avant lecture
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isEncodingHeader(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isEncodingHeader(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
 
-                decompressedBody = decompressedStream.readAllBytes();
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isEncodingHeader(name))
+                    .toList());
+        }
 
-                System.out.println("[GZIP_FILTER] Payload décompressé: " + decompressedBody.length + " bytes");
+        long decodedBytes() {
+            return inputStream != null ? inputStream.count : 0;
+        }
 
-            } catch (IOException e) {
-                System.err.println("[GZIP_FILTER] Erreur lors de la décompression: " + e.getMessage());
-                throw e;
+        /**
+         * Rend au pool les ressources du décodeur (fin de requête, corps lu ou non)
+         */
+        void release() throws IOException {
+            if (inputStream != null) {
+                inputStream.close();
             }
         }
 
+        private static boolean isEncodingHeader(String name) {
+            return "Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name);
+        }
+
+        private DecodedInputStream decodedStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new DecodedInputStream(decoder.decode(super.getInputStream()), maxDecompressedBytes);
+            }
+            return inputStream;
+        }
+    }
+
+    /**
+     * Flux décodé, compté et borné
+     */
+    private static final class DecodedInputStream extends ServletInputStream {
+        private final InputStream decoded;
+        private final long maxBytes;
+        private long count;
+        private boolean finished;
+        private boolean closed;
+
+        DecodedInputStream(InputStream decoded, long maxBytes) {
+            this.decoded = decoded;
+            this.maxBytes = maxBytes;
+        }
+
         @Override
-        public BufferedReader getReader() throws IOException {
-            return new BufferedReader(
-                    new InputStreamReader(new ByteArrayInputStream(decompressedBody)));
+        public int read() throws IOException {
+            int value = decoded.read();
+            if (value == -1) {
+                finished = true;
+            } else {
+                count(1);
+            }
+            return value;
         }
 
         @Override
-        public jakarta.servlet.ServletInputStream getInputStream() throws IOException {
-            final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(decompressedBody);
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = decoded.read(b, off, len);
+            if (n == -1) {
+                finished = true;
+            } else {
+                count(n);
+            }
+            return n;
+        }
 
-            return new jakarta.servlet.ServletInputStream() {
-                @Override
-                public int read() throws IOException {
-                    return byteArrayInputStream.read();
-                }
+        private void count(int n) throws PayloadTooLargeException {
+            count += n;
+            if (count > maxBytes) {
+                throw new PayloadTooLargeException("Corps de requête décompressé trop volumineux (maximum "
+                        + maxBytes + " octets)");
+            }
+        }
 
-                @Override
-                public boolean isFinished() {
-                    return byteArrayInputStream.available() == 0;
-                }
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
 
-                @Override
-                public boolean isReady() {
-                    return true;
-                }
+        @Override
+        public boolean isReady() {
+            return true;
+        }
 
-                @Override
-                public void setReadListener(jakarta.servlet.ReadListener readListener) {
-                    // Not implemented
-                }
-            };
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Lecture asynchrone non supportée pour un corps compressé");
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                decoded.close();
+            }
         }
     }
 }
-
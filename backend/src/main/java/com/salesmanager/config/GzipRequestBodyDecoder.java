@@ -0,0 +1,257 @@
+package com.salesmanager.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Décodeur gzip (RFC 1952) en flux, avec Inflater et tampons d'entrée réutilisés
+ * GZIPInputStream alloue un Inflater (état zlib natif) et un tampon par requête;
+ * ici ils viennent d'un pool borné et y retournent à la fermeture du flux.
+ * Gère les fichiers multi-membres et vérifie CRC32 / taille de chaque membre.
+ */
+@Component
+public class GzipRequestBodyDecoder implements RequestBodyDecoder {
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final BlockingQueue<Inflater> inflaters;
+    private final BlockingQueue<byte[]> buffers;
+    private final int bufferSize;
+
+    public GzipRequestBodyDecoder(
+            @Value("${http.request-decompression.pool-size:32}") int poolSize,
+            @Value("${http.request-decompression.buffer-size:8192}") int bufferSize) {
+        this.inflaters = new ArrayBlockingQueue<>(poolSize);
+        this.buffers = new ArrayBlockingQueue<>(poolSize);
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public Set<String> encodings() {
+        return Set.of("gzip", "x-gzip");
+    }
+
+    @Override
+    public InputStream decode(InputStream encoded) {
+        return new PooledGzipInputStream(encoded);
+    }
+
+    private Inflater acquireInflater() {
+        Inflater inflater = inflaters.poll();
+        // nowrap: en-tête et trailer gzip lus ici, l'Inflater ne voit que le flux deflate
+        return inflater != null ? inflater : new Inflater(true);
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * Flux gzip décodé à la demande: rien n'est lu avant le premier read()
+     */
+    private final class PooledGzipInputStream extends InputStream {
+        private final InputStream in;
+        private final CRC32 crc = new CRC32();
+        private Inflater inflater;
+        private byte[] buf;
+        // octets valides dans buf, et position des octets pas encore remis à l'Inflater
+        private int bufLen;
+        private int pos;
+        private boolean started;
+        private boolean eof;
+        private boolean closed;
+
+        PooledGzipInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Flux gzip fermé");
+            }
+            if (!started) {
+                started = true;
+                inflater = acquireInflater();
+                buf = acquireBuffer();
+                if (readUByte() != 0x1f || readUByte() != 0x8b) {
+                    throw new ZipException("Corps de requête non gzip");
+                }
+                readHeader();
+            }
+            if (eof) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int n;
+                try {
+                    n = inflater.inflate(b, off, len);
+                } catch (DataFormatException e) {
+                    throw new ZipException("Données gzip invalides: " + e.getMessage());
+                }
+                if (n > 0) {
+                    crc.update(b, off, n);
+                    return n;
+                }
+                if (inflater.finished()) {
+                    pos = bufLen - inflater.getRemaining();
+                    readTrailer();
+                    if (!nextMember()) {
+                        eof = true;
+                        release();
+                        return -1;
+                    }
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Données gzip invalides: dictionnaire requis");
+                } else if (inflater.needsInput()) {
+                    bufLen = in.read(buf, 0, buf.length);
+                    if (bufLen == -1) {
+                        throw new EOFException("Fin inattendue du flux gzip");
+                    }
+                    pos = bufLen;
+                    inflater.setInput(buf, 0, bufLen);
+                }
+            }
+        }
+
+        // En-tête après l'identifiant 1f 8b
+        private void readHeader() throws IOException {
+            if (readUByte() != 8) {
+                throw new ZipException("Méthode de compression gzip non supportée");
+            }
+            int flags = readUByte();
+            skip(6); // MTIME, XFL, OS
+            if ((flags & FEXTRA) != 0) {
+                skip(readUByte() | (readUByte() << 8));
+            }
+            if ((flags & FNAME) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FCOMMENT) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FHCRC) != 0) {
+                skip(2);
+            }
+            crc.reset();
+            inflater.reset();
+            if (pos < bufLen) {
+                inflater.setInput(buf, pos, bufLen - pos);
+                pos = bufLen;
+            }
+        }
+
+        private void readTrailer() throws IOException {
+            long expectedCrc = readUInt();
+            long expectedSize = readUInt();
+            if (expectedCrc != crc.getValue()) {
+                throw new ZipException("CRC gzip invalide");
+            }
+            if (expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Taille gzip invalide");
+            }
+        }
+
+        // Membre suivant (gzip concaténé); des octets qui ne sont pas un en-tête terminent le flux
+        private boolean nextMember() throws IOException {
+            int id1 = readUByteOrEof();
+            if (id1 != 0x1f) {
+                return false;
+            }
+            int id2 = readUByteOrEof();
+            if (id2 != 0x8b) {
+                return false;
+            }
+            readHeader();
+            return true;
+        }
+
+        private int readUByteOrEof() throws IOException {
+            if (pos >= bufLen) {
+                bufLen = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (bufLen == -1) {
+                    bufLen = 0;
+                    return -1;
+                }
+            }
+            return buf[pos++] & 0xff;
+        }
+
+        private int readUByte() throws IOException {
+            int value = readUByteOrEof();
+            if (value == -1) {
+                throw new EOFException("Fin inattendue du flux gzip");
+            }
+            return value;
+        }
+
+        private long readUInt() throws IOException {
+            return readUByte() | (readUByte() << 8) | (readUByte() << 16) | ((long) readUByte() << 24);
+        }
+
+        private void skip(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                readUByte();
+            }
+        }
+
+        private void skipZeroTerminated() throws IOException {
+            while (readUByte() != 0) {
+                // nom ou commentaire ignoré
+            }
+        }
+
+        private void release() {
+            if (inflater != null) {
+                releaseInflater(inflater);
+                inflater = null;
+            }
+            if (buf != null) {
+                buffers.offer(buf);
+                buf = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                release();
+                in.close();
+            }
+        }
+    }
+}
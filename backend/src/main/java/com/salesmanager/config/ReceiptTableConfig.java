@@ -1,5 +1,7 @@
 package com.salesmanager.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -20,6 +22,8 @@ import java.sql.ResultSet;
 @ConditionalOnProperty(name = "spring.datasource.url", havingValue = "jdbc:h2:mem:testdb")
 public class ReceiptTableConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptTableConfig.class);
+
     /**
      * Commande pour vérifier et créer la table receipts si nécessaire
      */
@@ -34,16 +38,15 @@ public class ReceiptTableConfig {
                 ResultSet tables = metaData.getTables(null, null, "RECEIPTS", new String[]{"TABLE"});
                 
                 if (!tables.next()) {
-                    System.out.println("🔧 Table RECEIPTS non trouvée, création en cours...");
+                    logger.info("Table RECEIPTS non trouvée, création en cours...");
                     createReceiptTable(connection);
-                    System.out.println("✅ Table RECEIPTS créée avec succès");
+                    logger.info("Table RECEIPTS créée avec succès");
                 } else {
-                    System.out.println("✅ Table RECEIPTS existe déjà");
+                    logger.debug("Table RECEIPTS existe déjà");
                 }
                 
             } catch (Exception e) {
-                System.err.println("❌ Erreur lors de la vérification/création de la table RECEIPTS: " + e.getMessage());
-                e.printStackTrace();
+                logger.error("Erreur lors de la vérification/création de la table RECEIPTS", e);
             }
         };
     }
@@ -0,0 +1,24 @@
+package com.salesmanager.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Décodeur d'un Content-Encoding de requête (gzip, br, zstd...)
+ * Toute implémentation déclarée comme bean est prise en charge par le filtre de
+ * décompression ({@link GzipConfiguration}), sans autre configuration.
+ */
+public interface RequestBodyDecoder {
+
+    /**
+     * Valeurs de Content-Encoding acceptées, en minuscules (ex: "gzip", "x-gzip")
+     */
+    Set<String> encodings();
+
+    /**
+     * Flux décodé, lu au fil de l'eau depuis {@code encoded}; sa fermeture doit libérer
+     * les ressources du décodeur et fermer {@code encoded}
+     */
+    InputStream decode(InputStream encoded) throws IOException;
+}
@@ -0,0 +1,514 @@
+package com.salesmanager.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression gzip des réponses (delta de synchronisation, listes produits / ventes,
+ * analytics) pour les liaisons mobiles lentes
+ *
+ * Seuls les types de http.response-compression.mime-types sont compressés, et seulement
+ * au-delà de min-size (en dessous, l'en-tête gzip coûte plus qu'il ne rapporte).
+ * Les réponses GET jusqu'à precompressed-max-size sont mises en tampon: leur variante
+ * compressée est gardée en cache par empreinte SHA-256 du contenu, si bien qu'une même
+ * page (liste inchangée, page delta demandée par plusieurs appareils) n'est compressée
+ * qu'une fois et part avec un Content-Length. Au-delà, la réponse est compressée au fil
+ * de l'eau. PDF, ZIP et réponses déjà encodées passent sans modification.
+ * Métriques: http.response.compression (result), cache "http.response.gzip".
+ */
+@Configuration
+@ConditionalOnProperty(name = "http.response-compression.enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCompressionConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(
+            MeterRegistry meterRegistry,
+            @Value("${http.response-compression.min-size:1KB}") DataSize minSize,
+            @Value("${http.response-compression.mime-types:application/json,text/plain,text/csv,text/html}") List<String> mimeTypes,
+            @Value("${http.response-compression.precompressed-max-size:256KB}") DataSize precompressedMaxSize,
+            @Value("${http.response-compression.precompressed-cache-size:16MB}") DataSize precompressedCacheSize,
+            @Value("${http.response-compression.level:6}") int level) {
+        FilterRegistrationBean<ResponseCompressionFilter> registration = new FilterRegistrationBean<>();
+        registration.setFilter(new ResponseCompressionFilter(meterRegistry, (int) minSize.toBytes(), mimeTypes,
+                (int) precompressedMaxSize.toBytes(), precompressedCacheSize.toBytes(), level));
+        registration.addUrlPatterns("/*");
+        registration.setName("responseCompressionFilter");
+        registration.setOrder(2);
+        return registration;
+    }
+
+    public static class ResponseCompressionFilter extends OncePerRequestFilter {
+
+        private final int minSize;
+        private final List<String> mimeTypes;
+        private final int precompressedMaxSize;
+        private final int level;
+        private final Cache<String, byte[]> variants;
+        private final Counter precomputed;
+        private final Counter compressed;
+        private final Counter streamed;
+
+        public ResponseCompressionFilter(MeterRegistry meterRegistry, int minSize, List<String> mimeTypes,
+                                         int precompressedMaxSize, long precompressedCacheSize, int level) {
+            this.minSize = minSize;
+            this.mimeTypes = mimeTypes.stream().map(type -> type.trim().toLowerCase(Locale.ROOT)).toList();
+            this.precompressedMaxSize = Math.max(precompressedMaxSize, minSize);
+            this.level = level;
+            this.variants = Caffeine.newBuilder()
+                    .maximumWeight(precompressedCacheSize)
+                    .<String, byte[]>weigher((key, value) -> value.length)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, variants, "http.response.gzip");
+            this.precomputed = counter(meterRegistry, "precomputed");
+            this.compressed = counter(meterRegistry, "compressed");
+            this.streamed = counter(meterRegistry, "streamed");
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String result) {
+            return Counter.builder("http.response.compression")
+                    .description("Réponses compressées (precomputed: variante gzip reprise du cache)")
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            if ("HEAD".equals(request.getMethod())) {
+                chain.doFilter(request, response);
+                return;
+            }
+            CompressingResponse wrapped = new CompressingResponse(response, acceptsGzip(request),
+                    "GET".equals(request.getMethod()));
+            chain.doFilter(request, wrapped);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        wrapped.finish();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                wrapped.finish();
+            }
+        }
+
+        // Accept-Encoding: gzip, sauf "gzip;q=0"; une mention explicite de gzip prime sur "*"
+        static boolean acceptsGzip(HttpServletRequest request) {
+            String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (header == null) {
+                return false;
+            }
+            boolean wildcard = false;
+            for (String part : header.split(",")) {
+                String[] tokens = part.trim().split(";");
+                String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+                if ("gzip".equals(coding)) {
+                    return quality(tokens) > 0;
+                }
+                if ("*".equals(coding)) {
+                    wildcard = quality(tokens) > 0;
+                }
+            }
+            return wildcard;
+        }
+
+        // q absent ou illisible ("q=", "q=high"): 1, comme un codage sans paramètre
+        private static double quality(String[] tokens) {
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim().replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        return 1;
+                    }
+                }
+            }
+            return 1;
+        }
+
+        private boolean compressibleType(String contentType) {
+            if (contentType == null) {
+                return false;
+            }
+            String mimeType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            return mimeTypes.contains(mimeType);
+        }
+
+        private byte[] gzip(byte[] body, int length) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+            try (GZIPOutputStream gzip = gzipStream(out)) {
+                gzip.write(body, 0, length);
+            }
+            return out.toByteArray();
+        }
+
+        private GZIPOutputStream gzipStream(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, 8192, true) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        private static String digest(byte[] body, int length) {
+            try {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                sha256.update(body, 0, length);
+                return HexFormat.of().formatHex(sha256.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private enum State {
+            UNDECIDED, BUFFERING, PASSTHROUGH, STREAMING
+        }
+
+        /**
+         * Réponse mise en tampon jusqu'à la décision: brute (petite ou non compressible),
+         * variante gzip mise en cache (GET), ou gzip au fil de l'eau (volumineuse)
+         */
+        private final class CompressingResponse extends HttpServletResponseWrapper {
+            private final boolean acceptsGzip;
+            private final int bufferLimit;
+            private final Buffer buffer = new Buffer();
+            private State state = State.UNDECIDED;
+            private long contentLength = -1;
+            private ServletOutputStream outputStream;
+            private PrintWriter writer;
+            private GZIPOutputStream gzip;
+            private boolean finished;
+
+            CompressingResponse(HttpServletResponse response, boolean acceptsGzip, boolean get) {
+                super(response);
+                this.acceptsGzip = acceptsGzip;
+                this.bufferLimit = get ? precompressedMaxSize : minSize;
+            }
+
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                if (writer != null) {
+                    throw new IllegalStateException("getWriter() déjà appelé pour cette réponse");
+                }
+                if (outputStream == null) {
+                    outputStream = new CompressingOutputStream();
+                }
+                return outputStream;
+            }
+
+            @Override
+            public PrintWriter getWriter() throws IOException {
+                if (writer == null) {
+                    if (outputStream != null) {
+                        throw new IllegalStateException("getOutputStream() déjà appelé pour cette réponse");
+                    }
+                    outputStream = new CompressingOutputStream();
+                    writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+                }
+                return writer;
+            }
+
+            // Content-Length fourni par l'application: appliqué seulement si le corps part tel quel
+            @Override
+            public void setContentLength(int len) {
+                setContentLengthLong(len);
+            }
+
+            @Override
+            public void setContentLengthLong(long len) {
+                if (state == State.PASSTHROUGH) {
+                    super.setContentLengthLong(len);
+                } else {
+                    contentLength = len;
+                }
+            }
+
+            @Override
+            public void setHeader(String name, String value) {
+                if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && value != null) {
+                    setContentLengthLong(Long.parseLong(value));
+                } else {
+                    super.setHeader(name, value);
+                }
+            }
+
+            @Override
+            public void addHeader(String name, String value) {
+                if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && value != null) {
+                    setContentLengthLong(Long.parseLong(value));
+                } else {
+                    super.addHeader(name, value);
+                }
+            }
+
+            @Override
+            public void setIntHeader(String name, int value) {
+                if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                    setContentLengthLong(value);
+                } else {
+                    super.setIntHeader(name, value);
+                }
+            }
+
+            @Override
+            public void sendError(int sc, String msg) throws IOException {
+                abandon();
+                super.sendError(sc, msg);
+            }
+
+            @Override
+            public void sendError(int sc) throws IOException {
+                abandon();
+                super.sendError(sc);
+            }
+
+            @Override
+            public void sendRedirect(String location) throws IOException {
+                abandon();
+                super.sendRedirect(location);
+            }
+
+            @Override
+            public void flushBuffer() throws IOException {
+                // en tampon: la décision (et les en-têtes) n'est pas encore prise
+                if (state == State.PASSTHROUGH || state == State.STREAMING) {
+                    if (writer != null) {
+                        writer.flush();
+                    }
+                    super.flushBuffer();
+                }
+            }
+
+            @Override
+            public void resetBuffer() {
+                super.resetBuffer();
+                buffer.reset();
+            }
+
+            @Override
+            public void reset() {
+                super.reset();
+                buffer.reset();
+                if (state == State.BUFFERING) {
+                    state = State.UNDECIDED;
+                }
+                contentLength = -1;
+            }
+
+            private void decide() {
+                if (state != State.UNDECIDED) {
+                    return;
+                }
+                boolean compressible = compressibleType(getContentType())
+                        && getHeader(HttpHeaders.CONTENT_ENCODING) == null;
+                if (compressible) {
+                    addVary();
+                }
+                int status = getStatus();
+                if (compressible && acceptsGzip && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED) {
+                    state = State.BUFFERING;
+                } else {
+                    passthrough();
+                }
+            }
+
+            private void addVary() {
+                String vary = getHeader(HttpHeaders.VARY);
+                if (vary == null) {
+                    super.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+                    super.setHeader(HttpHeaders.VARY, vary + ", " + HttpHeaders.ACCEPT_ENCODING);
+                }
+            }
+
+            // Erreur / redirection: le conteneur écrit sa propre réponse, le tampon est abandonné
+            private void abandon() {
+                if (state == State.BUFFERING) {
+                    buffer.release();
+                    state = State.UNDECIDED;
+                }
+                passthrough();
+            }
+
+            private void passthrough() {
+                if (state == State.UNDECIDED) {
+                    state = State.PASSTHROUGH;
+                    if (contentLength >= 0) {
+                        super.setContentLengthLong(contentLength);
+                    }
+                }
+            }
+
+            private void write(byte[] b, int off, int len) throws IOException {
+                decide();
+                switch (state) {
+                    case PASSTHROUGH -> getResponse().getOutputStream().write(b, off, len);
+                    case STREAMING -> gzip.write(b, off, len);
+                    default -> {
+                        buffer.write(b, off, len);
+                        if (buffer.size() > bufferLimit) {
+                            startStreaming();
+                        }
+                    }
+                }
+            }
+
+            private void startStreaming() throws IOException {
+                state = State.STREAMING;
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                gzip = gzipStream(getResponse().getOutputStream());
+                gzip.write(buffer.bytes(), 0, buffer.size());
+                buffer.release();
+                streamed.increment();
+            }
+
+            void finish() throws IOException {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                if (writer != null) {
+                    writer.flush();
+                }
+                switch (state) {
+                    case STREAMING -> gzip.finish();
+                    case BUFFERING -> writeBuffered();
+                    default -> {
+                    }
+                }
+            }
+
+            private void writeBuffered() throws IOException {
+                byte[] body = buffer.bytes();
+                int length = buffer.size();
+                byte[] encoded = null;
+                if (length >= minSize) {
+                    if (length <= precompressedMaxSize && bufferLimit == precompressedMaxSize) {
+                        String key = digest(body, length);
+                        encoded = variants.getIfPresent(key);
+                        if (encoded != null) {
+                            precomputed.increment();
+                        } else {
+                            encoded = gzip(body, length);
+                            variants.put(key, encoded);
+                            compressed.increment();
+                        }
+                    } else {
+                        encoded = gzip(body, length);
+                        compressed.increment();
+                    }
+                }
+                OutputStream out = getResponse().getOutputStream();
+                if (encoded != null && encoded.length < length) {
+                    super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    super.setContentLength(encoded.length);
+                    out.write(encoded);
+                } else {
+                    super.setContentLength(length);
+                    out.write(body, 0, length);
+                }
+                buffer.release();
+            }
+
+            private final class CompressingOutputStream extends ServletOutputStream {
+                @Override
+                public void write(int b) throws IOException {
+                    CompressingResponse.this.write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    CompressingResponse.this.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (state == State.STREAMING) {
+                        gzip.flush();
+                    } else if (state == State.PASSTHROUGH) {
+                        getResponse().getOutputStream().flush();
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    finish();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException("Écriture asynchrone non supportée");
+                }
+            }
+        }
+
+        // Tampon exposant son tableau interne (pas de copie toByteArray())
+        private static final class Buffer extends ByteArrayOutputStream {
+            Buffer() {
+                super(1024);
+            }
+
+            byte[] bytes() {
+                return buf;
+            }
+
+            void release() {
+                buf = new byte[0];
+                count = 0;
+            }
+        }
+    }
+}
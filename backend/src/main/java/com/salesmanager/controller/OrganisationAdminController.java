@@ -19,6 +19,7 @@ import com.salesmanager.repository.OrganisationMemberRepository;
 import com.salesmanager.repository.OrganisationRepository;
 import com.salesmanager.repository.StoreRepository;
 import com.salesmanager.repository.UserRepository;
+import com.salesmanager.security.AuthPrincipalCache;
 import com.salesmanager.security.UserDetailsImpl;
 import com.salesmanager.service.OrganisationAdminAccessService;
 import jakarta.validation.Valid;
@@ -57,6 +58,7 @@ public class OrganisationAdminController {
     private final OrganisationMemberRepository organisationMemberRepository;
     private final UserRepository userRepository;
     private final OrganisationAdminAccessService organisationAdminAccessService;
+    private final AuthPrincipalCache authPrincipalCache;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -66,13 +68,15 @@ public class OrganisationAdminController {
             StoreRepository storeRepository,
             OrganisationMemberRepository organisationMemberRepository,
             UserRepository userRepository,
-            OrganisationAdminAccessService organisationAdminAccessService
+            OrganisationAdminAccessService organisationAdminAccessService,
+            AuthPrincipalCache authPrincipalCache
     ) {
         this.organisationRepository = organisationRepository;
         this.storeRepository = storeRepository;
         this.organisationMemberRepository = organisationMemberRepository;
         this.userRepository = userRepository;
         this.organisationAdminAccessService = organisationAdminAccessService;
+        this.authPrincipalCache = authPrincipalCache;
     }
 
     @PostMapping
@@ -104,6 +108,7 @@ public class OrganisationAdminController {
             member.setRole(OrganisationAdminAccessService.ORGANISATION_ADMIN_ROLE);
             member.setStatus("ACTIVE");
             organisationMemberRepository.save(member);
+            authPrincipalCache.invalidateMemberships(user.getId());
         }
 
         return ResponseEntity.status(HttpStatus.CREATED).body(toDto(saved));
@@ -208,6 +213,7 @@ public class OrganisationAdminController {
         member.setStatus((request.status() == null || request.status().isBlank()) ? "ACTIVE" : request.status());
 
         OrganisationMember saved = organisationMemberRepository.save(member);
+        authPrincipalCache.invalidateMemberships(user.getId());
 
         // Important: OrganisationMember.user est LAZY, éviter d'accéder au proxy ici (sinon 500).
         OrganisationMemberDto dto = new OrganisationMemberDto(
@@ -262,6 +268,7 @@ public class OrganisationAdminController {
         organisationRepository.save(org);
         storeRepository.deactivateAllByOrganisationId(organisationId);
         organisationMemberRepository.deactivateAllByOrganisationId(organisationId);
+        authPrincipalCache.invalidateOrganisation(organisationId);
         return ResponseEntity.noContent().build();
     }
 
@@ -293,6 +300,7 @@ public class OrganisationAdminController {
             }
             organisationMemberRepository.saveAll(members);
         }
+        authPrincipalCache.invalidateOrganisation(organisationId);
 
         return ResponseEntity.noContent().build();
     }
@@ -396,6 +404,7 @@ public class OrganisationAdminController {
 
         member.setStatus("INACTIVE");
         organisationMemberRepository.save(member);
+        authPrincipalCache.invalidateMemberships(userId);
         return ResponseEntity.noContent().build();
     }
 
@@ -415,6 +424,7 @@ public class OrganisationAdminController {
 
         member.setStatus("ACTIVE");
         organisationMemberRepository.save(member);
+        authPrincipalCache.invalidateMemberships(userId);
         return ResponseEntity.noContent().build();
     }
 
@@ -439,6 +449,7 @@ public class OrganisationAdminController {
         member.setRole(request.role());
         member.setStatus(request.status());
         OrganisationMember saved = organisationMemberRepository.save(member);
+        authPrincipalCache.invalidateMemberships(userId);
         OrganisationMemberDto dto = new OrganisationMemberDto(
                 org.getId(),
                 user.getId(),
@@ -2,6 +2,8 @@ package com.salesmanager.controller;
 
 import com.salesmanager.dto.ProductRequest;
 import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.dto.ProductSuggestionDto;
+import com.salesmanager.service.ProductAlertService;
 import com.salesmanager.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -88,6 +90,14 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
     
+    // Autocomplétion (préfixe du nom, sans accents)
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<ProductSuggestionDto>> autocompleteProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.autocompleteProducts(q, limit));
+    }
+    
     // Get products by category
     @GetMapping("/category/{category}")
     public ResponseEntity<Page<ProductResponse>> getProductsByCategory(
@@ -155,6 +165,15 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
     
+    // Paged alerts from the alert engine (low stock by ID, expiring / expired by expiry date)
+    @GetMapping("/alerts")
+    public ResponseEntity<Page<ProductResponse>> getAlerts(
+            @RequestParam ProductAlertService.AlertType type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productService.getAlerts(type, PageRequest.of(page, size)));
+    }
+    
     // Get low stock products
     @GetMapping("/alerts/low-stock")
     public ResponseEntity<List<ProductResponse>> getLowStockProducts() {
@@ -165,7 +184,7 @@ public class ProductController {
     // Get expiring products
     @GetMapping("/alerts/expiring")
     public ResponseEntity<List<ProductResponse>> getExpiringProducts(
-            @RequestParam(defaultValue = "7") int warningDays) {
+            @RequestParam(defaultValue = "${business.notifications.expiry-warning-days:7}") int warningDays) {
         List<ProductResponse> products = productService.getExpiringProducts(warningDays);
         return ResponseEntity.ok(products);
     }
@@ -184,24 +203,18 @@ public class ProductController {
         return ResponseEntity.ok(categories);
     }
     
-    // Get product statistics
+    // Get product statistics: compteurs précalculés par le moteur d'alertes, listes via /alerts
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getProductStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        List<ProductResponse> lowStockProducts = productService.getLowStockProducts();
-        List<ProductResponse> expiringProducts = productService.getExpiringProducts(7);
-        List<ProductResponse> expiredProducts = productService.getExpiredProducts();
-        List<String> categories = productService.getAllCategories();
+        ProductAlertService.AlertCounts counts = productService.getAlertCounts();
         
-        stats.put("lowStockCount", lowStockProducts.size());
-        stats.put("expiringCount", expiringProducts.size());
-        stats.put("expiredCount", expiredProducts.size());
-        stats.put("categoriesCount", categories.size());
-        stats.put("lowStockProducts", lowStockProducts);
-        stats.put("expiringProducts", expiringProducts);
-        stats.put("expiredProducts", expiredProducts);
-        stats.put("categories", categories);
+        stats.put("lowStockCount", counts.lowStock());
+        stats.put("expiringCount", counts.expiring());
+        stats.put("expiredCount", counts.expired());
+        stats.put("categoriesCount", counts.categories());
+        stats.put("expiryWarningDays", counts.warningDays());
         
         return ResponseEntity.ok(stats);
     }
@@ -2,10 +2,13 @@ package com.salesmanager.controller;
 
 import com.salesmanager.entity.Receipt;
 import com.salesmanager.entity.User;
+import com.salesmanager.exception.BadRequestException;
 import com.salesmanager.security.UserDetailsImpl;
+import com.salesmanager.service.ReceiptExportService;
 import com.salesmanager.service.ReceiptService;
 import com.salesmanager.dto.ReceiptResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -13,9 +16,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/receipts")
@@ -25,6 +31,9 @@ public class ReceiptController {
     @Autowired
     private ReceiptService receiptService;
 
+    @Autowired
+    private ReceiptExportService receiptExportService;
+
     /**
      * Crée un nouveau reçu pour une vente
      */
@@ -80,21 +89,12 @@ public class ReceiptController {
      */
     @GetMapping("/{receiptId}/pdf")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
-    public ResponseEntity<?> downloadReceiptPdf(@PathVariable Long receiptId,
+    public ResponseEntity<StreamingResponseBody> downloadReceiptPdf(@PathVariable Long receiptId,
             @AuthenticationPrincipal UserDetailsImpl userDetails,
             @RequestHeader(value = "Accept-Language", defaultValue = "fr") String acceptLanguage) {
         User user = userDetails.getUser();
         Locale locale = parseLocale(acceptLanguage);
-        byte[] pdfBytes = receiptService.generateReceiptPdf(receiptId, user, locale);
-
-        Receipt receipt = receiptService.getReceiptById(receiptId, user);
-        String fileName = "receipt_" + receipt.getReceiptNumber() + ".pdf";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData("attachment", fileName);
-        headers.setContentLength(pdfBytes.length);
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        return pdfResponse(receiptService.prepareReceiptPdf(receiptId, user, locale));
     }
 
     /**
@@ -102,19 +102,81 @@ public class ReceiptController {
      */
     @GetMapping("/number/{receiptNumber}/pdf")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
-    public ResponseEntity<?> downloadReceiptPdfByNumber(@PathVariable String receiptNumber,
+    public ResponseEntity<StreamingResponseBody> downloadReceiptPdfByNumber(@PathVariable String receiptNumber,
             @AuthenticationPrincipal UserDetailsImpl userDetails,
             @RequestHeader(value = "Accept-Language", defaultValue = "fr") String acceptLanguage) {
         User user = userDetails.getUser();
         Locale locale = parseLocale(acceptLanguage);
-        byte[] pdfBytes = receiptService.generateReceiptPdfByNumber(receiptNumber, user, locale);
+        return pdfResponse(receiptService.prepareReceiptPdfByNumber(receiptNumber, user, locale));
+    }
+
+    /**
+     * Exporte les reçus d'une période (dates de création incluses) en un PDF fusionné
+     * ou une archive ZIP, rendus au fil de l'eau. L'en-tête X-Export-Id permet de suivre
+     * la progression ou d'annuler l'export.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportReceipts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) UUID storeId,
+            @RequestParam(defaultValue = "zip") String format,
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @RequestHeader(value = "Accept-Language", defaultValue = "fr") String acceptLanguage) {
+        User user = userDetails.getUser();
+        ReceiptExportService.ExportFormat exportFormat = switch (format.toLowerCase(Locale.ROOT)) {
+            case "zip" -> ReceiptExportService.ExportFormat.ZIP;
+            case "pdf" -> ReceiptExportService.ExportFormat.PDF;
+            default -> throw new BadRequestException("Format d'export inconnu: " + format + " (zip ou pdf)");
+        };
+        List<Long> receiptIds = receiptService.findReceiptIdsForExport(user, storeId, from, to);
+        String exportId = receiptExportService.start(user, receiptIds, exportFormat, parseLocale(acceptLanguage));
 
-        String fileName = "receipt_" + receiptNumber + ".pdf";
+        HttpHeaders headers = new HttpHeaders();
+        String extension = exportFormat == ReceiptExportService.ExportFormat.PDF ? "pdf" : "zip";
+        headers.setContentType(exportFormat == ReceiptExportService.ExportFormat.PDF
+                ? MediaType.APPLICATION_PDF
+                : MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "receipts_" + from + "_" + to + "." + extension);
+        headers.set("X-Export-Id", exportId);
+        headers.set("X-Export-Total", String.valueOf(receiptIds.size()));
+        headers.setAccessControlExposeHeaders(List.of("X-Export-Id", "X-Export-Total", HttpHeaders.CONTENT_DISPOSITION));
+        return new ResponseEntity<>(outputStream -> receiptExportService.write(exportId, outputStream), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Progression d'un export en cours ou terminé
+     */
+    @GetMapping("/export/{exportId}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<?> getExportProgress(@PathVariable String exportId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return ResponseEntity.ok(receiptExportService.getProgress(exportId, userDetails.getUser()));
+    }
+
+    /**
+     * Annule un export: le flux en cours s'arrête au prochain reçu
+     */
+    @DeleteMapping("/export/{exportId}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<?> cancelExport(@PathVariable String exportId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return ResponseEntity.ok(receiptExportService.cancel(exportId, userDetails.getUser()));
+    }
+
+    /**
+     * PDF écrit directement dans la réponse: Content-Length quand il vient du cache,
+     * sinon rendu au fil de l'eau (transfert chunked)
+     */
+    private ResponseEntity<StreamingResponseBody> pdfResponse(ReceiptService.PdfDownload pdf) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData("attachment", fileName);
-        headers.setContentLength(pdfBytes.length);
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        headers.setContentDispositionFormData("attachment", "receipt_" + pdf.receiptNumber() + ".pdf");
+        if (pdf.cachedPdf() != null) {
+            headers.setContentLength(pdf.cachedPdf().length);
+        }
+        return new ResponseEntity<>(pdf.body()::writeTo, headers, HttpStatus.OK);
     }
 
     /**
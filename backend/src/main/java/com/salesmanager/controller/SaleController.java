@@ -4,6 +4,7 @@ import com.salesmanager.dto.SaleRequest;
 import com.salesmanager.dto.SaleResponse;
 import com.salesmanager.entity.Sale;
 import com.salesmanager.service.SaleService;
+import com.salesmanager.service.SalesRollupService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -170,4 +171,24 @@ public class SaleController {
         return ResponseEntity.ok(customers);
     }
     
+    // Agrégat journalier: backfill / réparation et contrôle contre les tables brutes
+    @PostMapping("/analytics/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildSalesRollup() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rows", saleService.rebuildSalesRollup());
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/analytics/rollup/check")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<Map<String, Object>> checkSalesRollup() {
+        List<SalesRollupService.Mismatch> mismatches = saleService.checkSalesRollup();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("consistent", mismatches.isEmpty());
+        response.put("mismatches", mismatches);
+        return ResponseEntity.ok(response);
+    }
+    
 }
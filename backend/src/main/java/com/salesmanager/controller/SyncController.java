@@ -52,6 +52,7 @@ public class SyncController {
      * @param appVersion        Version de l'application
      * @param entityTypes       Types d'entités à synchroniser (optionnel)
      * @param limit             Limite du nombre d'entités à retourner (optionnel)
+     * @param continuationToken Jeton de reprise renvoyé par la page précédente (optionnel)
      * @param authHeader        Header d'authentification
      * @return Réponse avec les modifications serveur
      */
@@ -62,7 +63,8 @@ public class SyncController {
             @RequestParam(required = false) String deviceId,
             @RequestParam(required = false) String appVersion,
             @RequestParam(required = false) List<String> entityTypes,
-            @RequestParam(required = false, defaultValue = "100") Integer limit) {
+            @RequestParam(required = false, defaultValue = "100") Integer limit,
+            @RequestParam(required = false) String continuationToken) {
 
         SyncDeltaRequest request = new SyncDeltaRequest();
         request.setLastSyncTimestamp(java.time.LocalDateTime.parse(lastSyncTimestamp));
@@ -70,6 +72,7 @@ public class SyncController {
         request.setAppVersion(appVersion);
         request.setEntityTypes(entityTypes);
         request.setLimit(limit);
+        request.setContinuationToken(continuationToken);
 
         SyncDeltaResponse response = syncService.processDeltaSync(request);
         return ResponseEntity.ok(response);
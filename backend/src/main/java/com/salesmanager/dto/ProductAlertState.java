@@ -0,0 +1,22 @@
+package com.salesmanager.dto;
+
+import java.time.LocalDate;
+
+/**
+ * État d'un produit pour le moteur d'alertes (ProductAlertService): seuls les champs
+ * qui décident des alertes d'expiration et de stock bas
+ */
+public record ProductAlertState(
+        Long id,
+        LocalDate expiryDate,
+        Integer stockQuantity,
+        Integer minStockLevel,
+        String category,
+        Boolean isActive
+) {
+
+    // même règle que la requête findLowStockProducts
+    public boolean lowStock() {
+        return stockQuantity != null && minStockLevel != null && stockQuantity <= minStockLevel;
+    }
+}
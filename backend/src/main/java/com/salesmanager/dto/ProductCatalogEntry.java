@@ -0,0 +1,37 @@
+package com.salesmanager.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Produit tel que gardé dans le catalogue en mémoire (ProductCatalogCache):
+ * les champs de ProductResponse, sans les champs calculés (recalculés à chaque lecture,
+ * ils dépendent de la date du jour).
+ */
+public record ProductCatalogEntry(
+        Long id,
+        String name,
+        String description,
+        String barcode,
+        BigDecimal purchasePrice,
+        BigDecimal sellingPrice,
+        Integer stockQuantity,
+        Integer minStockLevel,
+        LocalDate expiryDate,
+        LocalDate manufacturingDate,
+        String category,
+        String unit,
+        String imageUrl,
+        Boolean isActive,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        String createdByUsername
+) {
+
+    public ProductResponse toResponse() {
+        return new ProductResponse(id, name, description, barcode, purchasePrice, sellingPrice, stockQuantity,
+                minStockLevel, expiryDate, manufacturingDate, category, unit, imageUrl, isActive, createdAt,
+                updatedAt, createdByUsername);
+    }
+}
@@ -0,0 +1,14 @@
+package com.salesmanager.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Suggestion d'autocomplétion produit (saisie caisse / recherche)
+ */
+public record ProductSuggestionDto(
+        Long id,
+        String name,
+        String barcode,
+        String category,
+        BigDecimal sellingPrice
+) {}
@@ -32,6 +32,18 @@ public class SaleResponse {
     public SaleResponse() {}
     
     public SaleResponse(Sale sale) {
+        this(sale, sale.getSaleItems().stream().map(SaleItemResponse::new).toList());
+    }
+
+    /**
+     * Vente et lignes déjà converties (listes paginées: lignes chargées en une requête
+     * pour toute la page, sans parcourir sale.getSaleItems())
+     */
+    public SaleResponse(Sale sale, List<SaleItemResponse> saleItems) {
+        this(sale, sale.getCreatedBy() != null ? sale.getCreatedBy().getUsername() : null, saleItems);
+    }
+
+    public SaleResponse(Sale sale, String createdByUsername, List<SaleItemResponse> saleItems) {
         this.id = sale.getId();
         this.saleNumber = sale.getSaleNumber();
         this.saleDate = sale.getSaleDate();
@@ -47,9 +59,14 @@ public class SaleResponse {
         this.status = sale.getStatus();
         this.createdAt = sale.getCreatedAt();
         this.updatedAt = sale.getUpdatedAt();
-        this.createdByUsername = sale.getCreatedBy() != null ? sale.getCreatedBy().getUsername() : null;
-        this.totalProfit = sale.getTotalProfit();
-        this.totalQuantity = sale.getTotalQuantity();
+        this.createdByUsername = createdByUsername;
+        this.saleItems = saleItems;
+        this.totalProfit = saleItems.stream()
+            .map(SaleItemResponse::getProfit)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.totalQuantity = saleItems.stream()
+            .mapToInt(SaleItemResponse::getQuantity)
+            .sum();
     }
     
     // Getters and Setters
@@ -1,6 +1,8 @@
 package com.salesmanager.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -99,6 +101,7 @@ public class SyncBatchRequest {
     /**
      * Classe interne pour représenter une opération de synchronisation
      */
+    @JsonDeserialize(using = SyncOperationDeserializer.class)
     public static class SyncOperation {
 
         @NotNull(message = "Le type d'entité ne peut pas être nul")
@@ -116,8 +119,13 @@ public class SyncBatchRequest {
         @JsonProperty("local_id")
         private String localId;
 
+        // type concret déterminé par entity_type (absent pour un DELETE sans données)
         @JsonProperty("entity_data")
-        private Object entityData;
+        private SyncEntityData entityData;
+
+        // entity_data illisible pour son type (ex. "price": "abc"): l'opération seule échoue
+        @JsonIgnore
+        private String entityDataError;
 
         @JsonProperty("timestamp")
         private LocalDateTime timestamp;
@@ -141,7 +149,7 @@ public class SyncBatchRequest {
          * Constructeur avec paramètres principaux
          */
         public SyncOperation(EntityType entityType, OperationType operationType,
-                String entityId, Object entityData) {
+                String entityId, SyncEntityData entityData) {
             this();
             this.entityType = entityType;
             this.operationType = operationType;
@@ -183,14 +191,22 @@ public class SyncBatchRequest {
             this.localId = localId;
         }
 
-        public Object getEntityData() {
+        public SyncEntityData getEntityData() {
             return entityData;
         }
 
-        public void setEntityData(Object entityData) {
+        public void setEntityData(SyncEntityData entityData) {
             this.entityData = entityData;
         }
 
+        public String getEntityDataError() {
+            return entityDataError;
+        }
+
+        public void setEntityDataError(String entityDataError) {
+            this.entityDataError = entityDataError;
+        }
+
         public LocalDateTime getTimestamp() {
             return timestamp;
         }
@@ -220,20 +236,29 @@ public class SyncBatchRequest {
      * Énumération pour les types d'entités
      */
     public enum EntityType {
-        PRODUCT("product"),
-        SALE("sale"),
-        STOCK_MOVEMENT("stock_movement");
+        PRODUCT("product", SyncEntityData.ProductData.class),
+        SALE("sale", SyncEntityData.SaleData.class),
+        STOCK_MOVEMENT("stock_movement", SyncEntityData.StockMovementData.class);
 
         private final String value;
+        private final Class<? extends SyncEntityData> dataType;
 
-        EntityType(String value) {
+        EntityType(String value, Class<? extends SyncEntityData> dataType) {
             this.value = value;
+            this.dataType = dataType;
         }
 
         public String getValue() {
             return value;
         }
 
+        /**
+         * Type des données (entity_data) d'une opération sur ce type d'entité
+         */
+        public Class<? extends SyncEntityData> getDataType() {
+            return dataType;
+        }
+
         @Override
         public String toString() {
             return value;
@@ -34,6 +34,9 @@ public class SyncDeltaRequest {
     @JsonProperty("sync_session_id")
     private String syncSessionId;
 
+    @JsonProperty("continuation_token")
+    private String continuationToken;
+
     /**
      * Constructeur par défaut
      */
@@ -108,6 +111,12 @@ public class SyncDeltaRequest {
     public void setSyncSessionId(String syncSessionId) {
         this.syncSessionId = syncSessionId;
     }
-}
 
+    public String getContinuationToken() {
+        return continuationToken;
+    }
 
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+}
@@ -39,6 +39,9 @@ public class SyncDeltaResponse {
     @JsonProperty("next_sync_timestamp")
     private LocalDateTime nextSyncTimestamp;
 
+    @JsonProperty("continuation_token")
+    private String continuationToken;
+
     @JsonProperty("statistics")
     private DeltaStatistics statistics;
 
@@ -132,6 +135,14 @@ public class SyncDeltaResponse {
         this.nextSyncTimestamp = nextSyncTimestamp;
     }
 
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
     public DeltaStatistics getStatistics() {
         return statistics;
     }
@@ -0,0 +1,66 @@
+package com.salesmanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Données typées d'une opération de synchronisation (champ entity_data)
+ * Le type concret est celui de entity_type (EntityType.getDataType()), lié par
+ * SyncOperationDeserializer: nombres et dates sont lus directement, sans Map
+ * intermédiaire. Les contraintes sont vérifiées une fois par opération CREATE /
+ * UPDATE, avant traitement.
+ */
+public sealed interface SyncEntityData {
+
+    /**
+     * Utilisateur à l'origine de la modification côté appareil (conflits)
+     */
+    Long userId();
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ProductData(
+            @NotBlank(message = "Le nom du produit est obligatoire")
+            @Size(max = 100, message = "Le nom du produit ne doit pas dépasser 100 caractères")
+            @JsonProperty("name") String name,
+            @Size(max = 500, message = "La description ne doit pas dépasser 500 caractères")
+            @JsonProperty("description") String description,
+            @NotNull(message = "Le prix est obligatoire")
+            @DecimalMin(value = "0.0", inclusive = false, message = "Le prix doit être positif")
+            @JsonProperty("price") BigDecimal price,
+            @Size(max = 50, message = "La catégorie ne doit pas dépasser 50 caractères")
+            @JsonProperty("category") String category,
+            @NotNull(message = "La quantité en stock est obligatoire")
+            @JsonProperty("stock_quantity") Integer stockQuantity,
+            // version connue de l'appareil, pour la détection de conflits
+            @JsonProperty("updated_at") LocalDateTime updatedAt,
+            @JsonProperty("user_id") Long userId) implements SyncEntityData {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SaleData(
+            @NotNull(message = "Le montant est obligatoire")
+            @JsonProperty("amount") BigDecimal amount,
+            @JsonProperty("customer_name") String customerName,
+            @JsonProperty("user_id") Long userId) implements SyncEntityData {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record StockMovementData(
+            @NotNull(message = "Le produit est obligatoire")
+            @JsonProperty("product_id") Long productId,
+            @NotNull(message = "La quantité est obligatoire")
+            @JsonProperty("quantity") Integer quantity,
+            @Size(max = 50, message = "Le type de mouvement ne doit pas dépasser 50 caractères")
+            @JsonProperty("movement_type") String movementType,
+            @Size(max = 255, message = "Le motif ne doit pas dépasser 255 caractères")
+            @JsonProperty("reason") String reason,
+            @JsonProperty("user_id") Long userId) implements SyncEntityData {
+    }
+}
@@ -0,0 +1,121 @@
+package com.salesmanager.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Lecture en flux d'une opération de synchronisation
+ * entity_data est lié directement au type donné par entity_type (SyncEntityData):
+ * ni Map intermédiaire, ni copie du payload quand entity_type le précède (ordre
+ * envoyé par l'application mobile). Dans le cas contraire seulement, entity_data
+ * est mis en tampon jusqu'à la fin de l'objet.
+ * Une erreur de type dans entity_data (ex. "price": "abc") est rattachée à l'opération
+ * (entityDataError) au lieu de rejeter tout le lot.
+ */
+public class SyncOperationDeserializer extends StdDeserializer<SyncBatchRequest.SyncOperation>
+        implements ResolvableDeserializer {
+
+    private final Map<SyncBatchRequest.EntityType, JsonDeserializer<Object>> dataDeserializers =
+            new EnumMap<>(SyncBatchRequest.EntityType.class);
+    private JsonDeserializer<Object> entityTypeDeserializer;
+    private JsonDeserializer<Object> operationTypeDeserializer;
+    private JsonDeserializer<Object> timestampDeserializer;
+
+    public SyncOperationDeserializer() {
+        super(SyncBatchRequest.SyncOperation.class);
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        for (SyncBatchRequest.EntityType entityType : SyncBatchRequest.EntityType.values()) {
+            dataDeserializers.put(entityType,
+                    ctxt.findRootValueDeserializer(ctxt.constructType(entityType.getDataType())));
+        }
+        entityTypeDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(SyncBatchRequest.EntityType.class));
+        operationTypeDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(SyncBatchRequest.OperationType.class));
+        timestampDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(LocalDateTime.class));
+    }
+
+    @Override
+    public SyncBatchRequest.SyncOperation deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation();
+        TokenBuffer pendingData = null;
+
+        JsonToken token = p.currentToken() == JsonToken.START_OBJECT ? p.nextToken() : p.currentToken();
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String name = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (name) {
+                case "entity_type" -> operation.setEntityType(value == JsonToken.VALUE_NULL ? null
+                        : (SyncBatchRequest.EntityType) entityTypeDeserializer.deserialize(p, ctxt));
+                case "operation_type" -> operation.setOperationType(value == JsonToken.VALUE_NULL ? null
+                        : (SyncBatchRequest.OperationType) operationTypeDeserializer.deserialize(p, ctxt));
+                case "entity_id" -> operation.setEntityId(_parseString(p, ctxt, this));
+                case "local_id" -> operation.setLocalId(_parseString(p, ctxt, this));
+                case "entity_data" -> {
+                    if (value == JsonToken.VALUE_NULL) {
+                        operation.setEntityData(null);
+                    } else if (operation.getEntityType() != null) {
+                        readData(p, ctxt, operation);
+                    } else {
+                        pendingData = ctxt.bufferAsCopyOfValue(p);
+                    }
+                }
+                case "timestamp" -> operation.setTimestamp(value == JsonToken.VALUE_NULL ? null
+                        : (LocalDateTime) timestampDeserializer.deserialize(p, ctxt));
+                case "priority" -> operation.setPriority(_parseInteger(p, ctxt, Integer.class));
+                case "retry_count" -> operation.setRetryCount(_parseInteger(p, ctxt, Integer.class));
+                default -> handleUnknownProperty(p, ctxt, operation, name);
+            }
+        }
+
+        if (pendingData != null) {
+            if (operation.getEntityType() == null) {
+                return ctxt.reportInputMismatch(this, "entity_data fourni sans entity_type");
+            }
+            try (JsonParser dataParser = pendingData.asParserOnFirstToken()) {
+                readData(dataParser, ctxt, operation);
+            }
+        }
+        return operation;
+    }
+
+    private void readData(JsonParser p, DeserializationContext ctxt, SyncBatchRequest.SyncOperation operation)
+            throws IOException {
+        // contexte englobant entity_data: atteint de nouveau une fois la valeur entièrement lue
+        JsonStreamContext parent = p.currentToken().isStructStart()
+                ? p.getParsingContext().getParent()
+                : p.getParsingContext();
+        try {
+            operation.setEntityData((SyncEntityData) dataDeserializers.get(operation.getEntityType()).deserialize(p, ctxt));
+        } catch (JsonMappingException e) {
+            operation.setEntityDataError(bindingError(e));
+            // reste de entity_data ignoré, lecture reprise au champ suivant de l'opération
+            while (p.getParsingContext() != parent) {
+                p.nextToken();
+            }
+        }
+    }
+
+    private static String bindingError(JsonMappingException e) {
+        StringBuilder field = new StringBuilder();
+        for (JsonMappingException.Reference reference : e.getPath()) {
+            if (reference.getFieldName() != null) {
+                field.append(field.isEmpty() ? "" : ".").append(reference.getFieldName());
+            }
+        }
+        return "Données invalides: " + (field.isEmpty() ? "entity_data" : field) + " de type incorrect";
+    }
+}
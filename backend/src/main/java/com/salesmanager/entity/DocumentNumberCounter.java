@@ -0,0 +1,89 @@
+package com.salesmanager.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Compteur de numérotation des documents (ventes, reçus) par organisation et magasin.
+ * Les blocs de numéros sont réservés par nextval sur la séquence document_number_seq_{id},
+ * dont le pas est la taille de bloc.
+ * L'ID de la ligne entre dans le numéro formaté, ce qui le rend unique entre périmètres.
+ *
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "document_number_counters")
+public class DocumentNumberCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Type de document + organisation + magasin ("-" sans magasin); NULL non comparable en unique
+    @Column(name = "scope_key", nullable = false, unique = true, length = 100)
+    private String scopeKey;
+
+    @Column(name = "kind", nullable = false, length = 20)
+    private String kind;
+
+    @Column(name = "organisation_id", nullable = false)
+    private UUID organisationId;
+
+    @Column(name = "store_id")
+    private UUID storeId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Getters et Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getScopeKey() {
+        return scopeKey;
+    }
+
+    public void setScopeKey(String scopeKey) {
+        this.scopeKey = scopeKey;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public UUID getOrganisationId() {
+        return organisationId;
+    }
+
+    public void setOrganisationId(UUID organisationId) {
+        this.organisationId = organisationId;
+    }
+
+    public UUID getStoreId() {
+        return storeId;
+    }
+
+    public void setStoreId(UUID storeId) {
+        this.storeId = storeId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
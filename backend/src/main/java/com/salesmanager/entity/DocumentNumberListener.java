@@ -0,0 +1,33 @@
+package com.salesmanager.entity;
+
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Attribue le numéro de vente / de reçu à la persistance (avant le @PrePersist de l'entité)
+ * Instancié par Hibernate via le conteneur de beans Spring; la source est résolue au premier
+ * usage pour ne pas dépendre de l'EntityManagerFactory en cours de construction.
+ */
+public class DocumentNumberListener {
+
+    private final ObjectProvider<DocumentNumberSource> documentNumberSource;
+
+    public DocumentNumberListener(ObjectProvider<DocumentNumberSource> documentNumberSource) {
+        this.documentNumberSource = documentNumberSource;
+    }
+
+    @PrePersist
+    public void assignNumber(Object entity) {
+        if (entity instanceof Sale sale) {
+            if (sale.getSaleNumber() == null && sale.getOrganisation() != null) {
+                sale.setSaleNumber(documentNumberSource.getObject().nextSaleNumber(
+                        sale.getOrganisation().getId(), sale.getStore() != null ? sale.getStore().getId() : null));
+            }
+        } else if (entity instanceof Receipt receipt) {
+            if (receipt.getReceiptNumber() == null && receipt.getOrganisation() != null) {
+                receipt.setReceiptNumber(documentNumberSource.getObject().nextReceiptNumber(
+                        receipt.getOrganisation().getId(), receipt.getStore() != null ? receipt.getStore().getId() : null));
+            }
+        }
+    }
+}
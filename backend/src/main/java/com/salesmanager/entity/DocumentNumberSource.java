@@ -0,0 +1,20 @@
+package com.salesmanager.entity;
+
+import java.util.UUID;
+
+/**
+ * Source des numéros de vente et de reçu, utilisée par DocumentNumberListener
+ * Implémentée par la couche service (DocumentNumberService): les entités n'en dépendent pas.
+ */
+public interface DocumentNumberSource {
+
+    /**
+     * Prochain numéro de vente de l'organisation et du magasin (null = niveau organisation)
+     */
+    String nextSaleNumber(UUID organisationId, UUID storeId);
+
+    /**
+     * Prochain numéro de reçu de l'organisation et du magasin (null = niveau organisation)
+     */
+    String nextReceiptNumber(UUID organisationId, UUID storeId);
+}
@@ -1,5 +1,7 @@
 package com.salesmanager.entity;
 
+import com.salesmanager.util.BarcodeNormalizer;
+import com.salesmanager.util.SearchTextNormalizer;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -12,11 +14,18 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    // base H2 (schéma généré): préfixe du nom normalisé; PostgreSQL: index V20 (text_pattern_ops, trigrammes)
+    @Index(name = "idx_products_org_search_name", columnList = "organisation_id, search_name")
+})
 public class Product {
+
+    public static final int SEARCH_NAME_LENGTH = 200;
+    public static final int SEARCH_TEXT_LENGTH = 1000;
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "products_id_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -29,6 +38,17 @@ public class Product {
     @Column(name = "barcode", length = 50)
     private String barcode;
 
+    // Forme GTIN-14 du code-barres (recherche indexée), dérivée de barcode
+    @Column(name = "barcode_canonical", length = 14)
+    private String barcodeCanonical;
+
+    // Formes de recherche (SearchTextNormalizer), dérivées du nom et de la description
+    @Column(name = "search_name", length = SEARCH_NAME_LENGTH)
+    private String searchName;
+
+    @Column(name = "search_text", length = SEARCH_TEXT_LENGTH)
+    private String searchText;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "organisation_id", nullable = false)
     private Organisation organisation;
@@ -129,6 +149,7 @@ public class Product {
     
     public void setName(String name) {
         this.name = name;
+        refreshSearchText();
     }
     
     public String getDescription() {
@@ -137,6 +158,21 @@ public class Product {
     
     public void setDescription(String description) {
         this.description = description;
+        refreshSearchText();
+    }
+
+    public String getSearchName() {
+        return searchName;
+    }
+
+    public String getSearchText() {
+        return searchText;
+    }
+
+    private void refreshSearchText() {
+        this.searchName = SearchTextNormalizer.normalize(name, SEARCH_NAME_LENGTH);
+        this.searchText = SearchTextNormalizer.normalize(
+                description == null ? name : name + " " + description, SEARCH_TEXT_LENGTH);
     }
     
     public String getBarcode() {
@@ -145,6 +181,11 @@ public class Product {
     
     public void setBarcode(String barcode) {
         this.barcode = barcode;
+        this.barcodeCanonical = BarcodeNormalizer.gtin14(barcode);
+    }
+
+    public String getBarcodeCanonical() {
+        return barcodeCanonical;
     }
 
     public Organisation getOrganisation() {
@@ -10,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "receipts")
+@EntityListeners(DocumentNumberListener.class)
 public class Receipt {
 
     @Id
@@ -111,6 +112,7 @@ public class Receipt {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        // normalement attribué par DocumentNumberListener; repli sans organisation
         if (receiptNumber == null) {
             receiptNumber = generateReceiptNumber();
         }
@@ -11,10 +11,12 @@ import java.util.List;
 
 @Entity
 @Table(name = "sales")
+@EntityListeners(DocumentNumberListener.class)
 public class Sale {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_seq")
+    @SequenceGenerator(name = "sale_seq", sequenceName = "sales_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "sale_number", unique = true)
@@ -90,6 +92,7 @@ public class Sale {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        // normalement attribué par DocumentNumberListener; repli sans organisation
         if (saleNumber == null) {
             saleNumber = generateSaleNumber();
         }
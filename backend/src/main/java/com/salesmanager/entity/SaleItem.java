@@ -12,7 +12,8 @@ import java.math.BigDecimal;
 public class SaleItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_item_seq")
+    @SequenceGenerator(name = "sale_item_seq", sequenceName = "sale_items_id_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
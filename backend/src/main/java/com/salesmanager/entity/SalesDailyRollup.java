@@ -0,0 +1,127 @@
+package com.salesmanager.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Agrégat journalier des ventes par (organisation, magasin, jour, moyen de paiement, statut).
+ * Maintenu de façon incrémentale à chaque écriture de vente; sert les endpoints /sales/analytics.
+ * Une seule ligne par clé (index unique sur la clé, colonnes nullables comprises: V16).
+ *
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "sales_daily_rollups",
+       indexes = @Index(name = "idx_sales_daily_rollups_org_day", columnList = "organisation_id, sale_day"))
+public class SalesDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "organisation_id", nullable = false)
+    private UUID organisationId;
+
+    // NULL pour les ventes sans magasin (niveau organisation)
+    @Column(name = "store_id")
+    private UUID storeId;
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @Column(name = "payment_method")
+    @Enumerated(EnumType.STRING)
+    private Sale.PaymentMethod paymentMethod;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private Sale.SaleStatus status;
+
+    // Somme de sales.final_amount
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    // Somme de quantity * product_purchase_price des lignes de vente
+    @Column(name = "total_cost", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalCost = BigDecimal.ZERO;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    // Getters et Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getOrganisationId() {
+        return organisationId;
+    }
+
+    public void setOrganisationId(UUID organisationId) {
+        this.organisationId = organisationId;
+    }
+
+    public UUID getStoreId() {
+        return storeId;
+    }
+
+    public void setStoreId(UUID storeId) {
+        this.storeId = storeId;
+    }
+
+    public LocalDate getSaleDay() {
+        return saleDay;
+    }
+
+    public void setSaleDay(LocalDate saleDay) {
+        this.saleDay = saleDay;
+    }
+
+    public Sale.PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(Sale.PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    public Sale.SaleStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Sale.SaleStatus status) {
+        this.status = status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(BigDecimal totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public long getSaleCount() {
+        return saleCount;
+    }
+
+    public void setSaleCount(long saleCount) {
+        this.saleCount = saleCount;
+    }
+}
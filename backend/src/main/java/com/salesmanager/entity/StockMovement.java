@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 public class StockMovement {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    @SequenceGenerator(name = "stock_movement_seq", sequenceName = "stock_movements_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "product_id", nullable = false)
@@ -0,0 +1,77 @@
+package com.salesmanager.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Position de synchronisation delta d'un device pour une organisation
+ * Sert à déterminer jusqu'où les tombstones peuvent être purgés
+ * 
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "sync_device_states",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"organisation_id", "device_id"}))
+public class SyncDeviceState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "organisation_id", nullable = false)
+    private UUID organisationId;
+
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    // Position confirmée par le device: tout ce qui est antérieur a été reçu
+    @Column(name = "last_sync_position", nullable = false)
+    private LocalDateTime lastSyncPosition;
+
+    @Column(name = "last_seen_at", nullable = false)
+    private LocalDateTime lastSeenAt;
+
+    // Getters et Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getOrganisationId() {
+        return organisationId;
+    }
+
+    public void setOrganisationId(UUID organisationId) {
+        this.organisationId = organisationId;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getLastSyncPosition() {
+        return lastSyncPosition;
+    }
+
+    public void setLastSyncPosition(LocalDateTime lastSyncPosition) {
+        this.lastSyncPosition = lastSyncPosition;
+    }
+
+    public LocalDateTime getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(LocalDateTime lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+}
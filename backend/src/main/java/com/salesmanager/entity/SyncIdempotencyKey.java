@@ -0,0 +1,159 @@
+package com.salesmanager.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Opération de synchronisation déjà appliquée, identifiée par la clé fournie par le device
+ * Un rejeu de la même opération (même device, local_id, type d'entité et opération)
+ * reçoit le résultat enregistré (server_id, statut, message) au lieu d'être réappliqué
+ * 
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "sync_idempotency_keys",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sync_idempotency_keys",
+               columnNames = {"organisation_id", "device_id", "local_id", "entity_type", "operation_type"}),
+       indexes = @Index(name = "idx_sync_idempotency_keys_created_at", columnList = "created_at"))
+public class SyncIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sync_idempotency_key_seq")
+    @SequenceGenerator(name = "sync_idempotency_key_seq", sequenceName = "sync_idempotency_keys_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "organisation_id", nullable = false)
+    private UUID organisationId;
+
+    @Column(name = "device_id", nullable = false, length = 255)
+    private String deviceId;
+
+    @Column(name = "local_id", nullable = false, length = 255)
+    private String localId;
+
+    @Column(name = "entity_type", nullable = false, length = 50)
+    private String entityType; // product, sale, stock_movement
+
+    @Column(name = "operation_type", nullable = false, length = 20)
+    private String operationType; // create
+
+    @Column(name = "server_id", nullable = false, length = 255)
+    private String serverId;
+
+    // Statut et message du résultat initial, renvoyés tels quels aux rejeux
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "message", length = 500)
+    private String message;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Constructeur par défaut
+     */
+    public SyncIdempotencyKey() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * Constructeur avec paramètres
+     */
+    public SyncIdempotencyKey(UUID organisationId, String deviceId, String localId, String entityType,
+                              String operationType, String serverId, String status, String message) {
+        this();
+        this.organisationId = organisationId;
+        this.deviceId = deviceId;
+        this.localId = localId;
+        this.entityType = entityType;
+        this.operationType = operationType;
+        this.serverId = serverId;
+        this.status = status;
+        this.message = message;
+    }
+
+    // Getters et Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getOrganisationId() {
+        return organisationId;
+    }
+
+    public void setOrganisationId(UUID organisationId) {
+        this.organisationId = organisationId;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public String getLocalId() {
+        return localId;
+    }
+
+    public void setLocalId(String localId) {
+        this.localId = localId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public String getOperationType() {
+        return operationType;
+    }
+
+    public void setOperationType(String operationType) {
+        this.operationType = operationType;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    public void setServerId(String serverId) {
+        this.serverId = serverId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,106 @@
+package com.salesmanager.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Entité représentant la suppression d'une entité synchronisée (tombstone)
+ * Permet aux devices d'apprendre les suppressions via la synchronisation delta
+ * sans resynchronisation complète
+ * 
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "sync_tombstones")
+public class SyncTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sync_tombstone_seq")
+    @SequenceGenerator(name = "sync_tombstone_seq", sequenceName = "sync_tombstones_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "organisation_id", nullable = false)
+    private UUID organisationId;
+
+    @Column(name = "store_id")
+    private UUID storeId; // renseigné pour les ventes uniquement
+
+    @Column(name = "entity_type", nullable = false, length = 50)
+    private String entityType; // product, sale, stock_movement
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    /**
+     * Constructeur par défaut
+     */
+    public SyncTombstone() {
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Constructeur avec paramètres
+     */
+    public SyncTombstone(UUID organisationId, UUID storeId, String entityType, Long entityId) {
+        this();
+        this.organisationId = organisationId;
+        this.storeId = storeId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+    }
+
+    // Getters et Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getOrganisationId() {
+        return organisationId;
+    }
+
+    public void setOrganisationId(UUID organisationId) {
+        this.organisationId = organisationId;
+    }
+
+    public UUID getStoreId() {
+        return storeId;
+    }
+
+    public void setStoreId(UUID storeId) {
+        this.storeId = storeId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
@@ -9,6 +9,7 @@ import org.hibernate.LazyInitializationException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -94,6 +95,37 @@ public class GlobalExceptionHandler {
                 .body(response);
     }
 
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ApiResponse<?>> handleUnreadableBody(
+            HttpMessageNotReadableException ex,
+            Locale locale) {
+        boolean tooLarge = PayloadTooLargeException.isCauseOf(ex);
+        ApiResponse<?> response = new ApiResponse<>(
+                false,
+                tooLarge ? "Corps de requête trop volumineux" : "Corps de requête invalide",
+                null,
+                locale.getLanguage());
+
+        return ResponseEntity
+                .status(tooLarge ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST)
+                .body(response);
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ApiResponse<?>> handleInsufficientStock(
+            InsufficientStockException ex,
+            Locale locale) {
+        ApiResponse<?> response = new ApiResponse<>(
+                false,
+                ex.getMessage(),
+                ex.getShortages(),
+                locale.getLanguage());
+
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(response);
+    }
+
     @ExceptionHandler(ForbiddenException.class)
     public ResponseEntity<ApiResponse<?>> handleForbidden(
             ForbiddenException ex,
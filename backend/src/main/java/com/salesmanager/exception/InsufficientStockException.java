@@ -0,0 +1,43 @@
+package com.salesmanager.exception;
+
+import java.util.List;
+
+/**
+ * Stock insuffisant pour un ou plusieurs produits d'une vente
+ * Détaille chaque produit en défaut (quantité demandée / disponible)
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    /**
+     * @param lineNumber première ligne de la vente portant le produit
+     * @param requested  quantité totale demandée pour le produit, toutes lignes confondues
+     */
+    public record Shortage(int lineNumber, Long productId, String productName, int requested, int available) {
+    }
+
+    private final List<Shortage> shortages;
+
+    public InsufficientStockException(List<Shortage> shortages) {
+        super(buildMessage(shortages));
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<Shortage> getShortages() {
+        return shortages;
+    }
+
+    private static String buildMessage(List<Shortage> shortages) {
+        StringBuilder message = new StringBuilder("Stock insuffisant: ");
+        for (int i = 0; i < shortages.size(); i++) {
+            Shortage shortage = shortages.get(i);
+            if (i > 0) {
+                message.append("; ");
+            }
+            message.append("ligne ").append(shortage.lineNumber())
+                    .append(" '").append(shortage.productName()).append("'")
+                    .append(" (demandé ").append(shortage.requested())
+                    .append(", disponible ").append(shortage.available()).append(")");
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.salesmanager.exception;
+
+import java.io.IOException;
+
+/**
+ * Corps de requête décompressé au-delà de la taille autorisée (protection contre les
+ * bombes de décompression). IOException: levée pendant la lecture du corps.
+ */
+public class PayloadTooLargeException extends IOException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+
+    /** Vrai si l'erreur (ex: HttpMessageNotReadableException) vient d'un dépassement de taille */
+    public static boolean isCauseOf(Throwable ex) {
+        for (Throwable current = ex; current != null; current = current.getCause()) {
+            if (current instanceof PayloadTooLargeException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -5,6 +5,7 @@ import com.salesmanager.dto.SyncErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -26,6 +27,13 @@ public class SyncExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, ex, request);
     }
 
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<SyncErrorResponse> handleUnreadableBody(HttpMessageNotReadableException ex,
+                                                                  HttpServletRequest request) {
+        HttpStatus status = PayloadTooLargeException.isCauseOf(ex) ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+        return build(status, ex, request);
+    }
+
     @ExceptionHandler({
             ForbiddenException.class
     })
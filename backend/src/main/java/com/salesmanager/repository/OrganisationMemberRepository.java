@@ -14,6 +14,13 @@ import java.util.UUID;
 public interface OrganisationMemberRepository extends JpaRepository<OrganisationMember, OrganisationMemberId> {
     List<OrganisationMember> findByUser_Id(Long userId);
 
+    @Query("""
+            select m from OrganisationMember m
+            join fetch m.organisation o
+            where m.user.id = :userId
+            """)
+    List<OrganisationMember> findByUserIdWithOrganisation(Long userId);
+
     @Query("""
             select m from OrganisationMember m
             join fetch m.organisation o
@@ -1,5 +1,8 @@
 package com.salesmanager.repository;
 
+import com.salesmanager.dto.ProductAlertState;
+import com.salesmanager.dto.ProductCatalogEntry;
+import com.salesmanager.dto.ProductResponse;
 import com.salesmanager.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -10,6 +13,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,35 +26,101 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findByBarcodeAndOrganisation_IdAndIsActiveTrue(String barcode, UUID organisationId);
 
+    // Résolution multi-variantes en une requête: GTIN-14 indexé ou variantes brutes
     @Query("""
             SELECT p FROM Product p
             LEFT JOIN FETCH p.createdBy
             WHERE p.organisation.id = :organisationId
-              AND p.barcode = :barcode
               AND p.isActive = true
+              AND (p.barcodeCanonical = :canonical OR p.barcode IN :variants)
             """)
-    Optional<Product> findByBarcodeAndOrganisation_IdAndIsActiveTrueWithDetails(
-            @Param("barcode") String barcode,
+    List<Product> findActiveByBarcodeVariantsWithDetails(
+            @Param("organisationId") UUID organisationId,
+            @Param("canonical") String canonical,
+            @Param("variants") Collection<String> variants);
+
+    // Idem, produits inactifs compris (réactivation à la création)
+    @Query("""
+            SELECT p FROM Product p
+            WHERE p.organisation.id = :organisationId
+              AND (p.barcodeCanonical = :canonical OR p.barcode IN :variants)
+            """)
+    List<Product> findByBarcodeVariants(
+            @Param("organisationId") UUID organisationId,
+            @Param("canonical") String canonical,
+            @Param("variants") Collection<String> variants);
+
+    @Query("""
+            SELECT p FROM Product p
+            LEFT JOIN FETCH p.createdBy
+            WHERE p.id = :id
+              AND p.organisation.id = :organisationId
+              AND p.isActive = true
+            """)
+    Optional<Product> findActiveByIdAndOrganisation_IdWithDetails(
+            @Param("id") Long id,
             @Param("organisationId") UUID organisationId);
 
     // Find active products
     List<Product> findByIsActiveTrue();
 
     Page<Product> findByIsActiveTrue(Pageable pageable);
-    Page<Product> findByOrganisation_IdAndIsActiveTrue(java.util.UUID organisationId, Pageable pageable);
+
+    // Listes paginées projetées directement en ProductResponse: une requête par page
+    // (plus le count), créateur joint, aucune entité chargée dans le contexte de persistance
+    String RESPONSE_SELECT = "SELECT new com.salesmanager.dto.ProductResponse(p.id, p.name, p.description, " +
+            "p.barcode, p.purchasePrice, p.sellingPrice, p.stockQuantity, p.minStockLevel, p.expiryDate, " +
+            "p.manufacturingDate, p.category, p.unit, p.imageUrl, p.isActive, p.createdAt, p.updatedAt, u.username) " +
+            "FROM Product p LEFT JOIN p.createdBy u ";
+
+    @Query(value = RESPONSE_SELECT + "WHERE p.organisation.id = :organisationId AND p.isActive = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.organisation.id = :organisationId AND p.isActive = true")
+    Page<ProductResponse> findActiveResponses(@Param("organisationId") UUID organisationId, Pageable pageable);
+
+    // Catalogue en mémoire (ProductCatalogCache): chargement complet des produits actifs,
+    // puis relecture des seules lignes modifiées (désactivations comprises)
+    String CATALOG_SELECT = "SELECT new com.salesmanager.dto.ProductCatalogEntry(p.id, p.name, p.description, " +
+            "p.barcode, p.purchasePrice, p.sellingPrice, p.stockQuantity, p.minStockLevel, p.expiryDate, " +
+            "p.manufacturingDate, p.category, p.unit, p.imageUrl, p.isActive, p.createdAt, p.updatedAt, u.username) " +
+            "FROM Product p LEFT JOIN p.createdBy u ";
+
+    @Query(CATALOG_SELECT + "WHERE p.organisation.id = :organisationId AND p.isActive = true")
+    List<ProductCatalogEntry> findCatalog(@Param("organisationId") UUID organisationId);
+
+    @Query(CATALOG_SELECT + "WHERE p.organisation.id = :organisationId AND p.updatedAt >= :since")
+    List<ProductCatalogEntry> findCatalogChanges(@Param("organisationId") UUID organisationId,
+                                                 @Param("since") LocalDateTime since);
+
+    long countByOrganisation_IdAndIsActiveTrue(UUID organisationId);
+
+    // Moteur d'alertes (ProductAlertService): état minimal des produits, complet puis modifications
+    String ALERT_STATE_SELECT = "SELECT new com.salesmanager.dto.ProductAlertState(p.id, p.expiryDate, " +
+            "p.stockQuantity, p.minStockLevel, p.category, p.isActive) FROM Product p ";
+
+    @Query(ALERT_STATE_SELECT + "WHERE p.organisation.id = :organisationId AND p.isActive = true")
+    List<ProductAlertState> findAlertStates(@Param("organisationId") UUID organisationId);
+
+    @Query(ALERT_STATE_SELECT + "WHERE p.organisation.id = :organisationId AND p.updatedAt >= :since")
+    List<ProductAlertState> findAlertStateChanges(@Param("organisationId") UUID organisationId,
+                                                  @Param("since") LocalDateTime since);
+
+    // Contenu d'une page d'alertes (IDs déjà ordonnés par le moteur)
+    @Query(RESPONSE_SELECT + "WHERE p.organisation.id = :organisationId AND p.isActive = true AND p.id IN :ids")
+    List<ProductResponse> findActiveResponsesByIds(@Param("organisationId") UUID organisationId,
+                                                   @Param("ids") Collection<Long> ids);
 
     // Find by category
     List<Product> findByCategoryAndIsActiveTrue(String category);
 
-    Page<Product> findByOrganisation_IdAndCategoryAndIsActiveTrue(java.util.UUID organisationId, String category, Pageable pageable);
+    @Query(value = RESPONSE_SELECT + "WHERE p.organisation.id = :organisationId AND p.isActive = true " +
+            "AND p.category = :category",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.organisation.id = :organisationId " +
+                    "AND p.isActive = true AND p.category = :category")
+    Page<ProductResponse> findActiveResponsesByCategory(@Param("organisationId") UUID organisationId,
+                                                        @Param("category") String category,
+                                                        Pageable pageable);
 
-    // Search by name or description
-    @Query("SELECT p FROM Product p WHERE p.organisation.id = :organisationId AND p.isActive = true AND " +
-            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchByNameOrDescription(@Param("organisationId") java.util.UUID organisationId,
-                                            @Param("searchTerm") String searchTerm,
-                                            Pageable pageable);
+    // Recherche plein texte: ProductSearchService (colonnes search_name / search_text)
 
     // Find low stock products
     @Query("SELECT p FROM Product p WHERE p.organisation.id = :organisationId AND p.isActive = true AND p.stockQuantity <= p.minStockLevel")
@@ -65,8 +135,11 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findExpiredProducts(@Param("organisationId") java.util.UUID organisationId, @Param("currentDate") LocalDate currentDate);
 
     // Find products by price range
-    @Query("SELECT p FROM Product p WHERE p.organisation.id = :organisationId AND p.isActive = true AND p.sellingPrice BETWEEN :minPrice AND :maxPrice")
-    Page<Product> findByPriceRange(@Param("organisationId") java.util.UUID organisationId,
+    @Query(value = RESPONSE_SELECT + "WHERE p.organisation.id = :organisationId AND p.isActive = true " +
+            "AND p.sellingPrice BETWEEN :minPrice AND :maxPrice",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.organisation.id = :organisationId " +
+                    "AND p.isActive = true AND p.sellingPrice BETWEEN :minPrice AND :maxPrice")
+    Page<ProductResponse> findActiveResponsesByPriceRange(@Param("organisationId") UUID organisationId,
             @Param("minPrice") java.math.BigDecimal minPrice,
             @Param("maxPrice") java.math.BigDecimal maxPrice,
             Pageable pageable);
@@ -88,7 +161,22 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findByIdAndOrganisation_Id(Long id, java.util.UUID organisationId);
 
+    // Chargement ensembliste (sync batch): une seule requête IN (...) par lot
+    List<Product> findByIdInAndOrganisation_Id(Collection<Long> ids, UUID organisationId);
+
+    // Résolution des lignes d'une vente par code-barres exact (une requête pour tout le panier)
+    List<Product> findByBarcodeInAndOrganisation_IdOrderByIdAsc(Collection<String> barcodes, UUID organisationId);
+
     // Find products updated after a specific timestamp (for sync)
     List<Product> findByUpdatedAtAfter(LocalDateTime timestamp);
-    List<Product> findByOrganisation_IdAndUpdatedAtAfter(UUID organisationId, LocalDateTime timestamp);
+
+    // Page delta par curseur (updated_at, id): LIMIT appliqué en SQL via pageable.
+    // Produits actifs seulement: une désactivation (suppression douce) part en tombstone
+    @Query("SELECT p FROM Product p WHERE p.organisation.id = :organisationId AND p.isActive = true " +
+           "AND (p.updatedAt > :updatedAt OR (p.updatedAt = :updatedAt AND p.id > :afterId)) " +
+           "ORDER BY p.updatedAt ASC, p.id ASC")
+    List<Product> findDeltaPage(@Param("organisationId") UUID organisationId,
+                                @Param("updatedAt") LocalDateTime updatedAt,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
 }
@@ -3,6 +3,7 @@ package com.salesmanager.repository;
 import com.salesmanager.entity.Receipt;
 import com.salesmanager.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -82,6 +83,38 @@ public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
     @Query("SELECT r FROM Receipt r LEFT JOIN FETCH r.sale LEFT JOIN FETCH r.user WHERE r.id = :id")
     Optional<Receipt> findByIdWithSaleAndUser(@Param("id") Long id);
 
+    /**
+     * Reçu avec tout ce que le PDF affiche (vente, lignes, produits, vendeur): le rendu
+     * peut se faire hors transaction, pendant l'écriture de la réponse
+     */
+    @Query("SELECT DISTINCT r FROM Receipt r JOIN FETCH r.sale s LEFT JOIN FETCH s.saleItems i "
+            + "LEFT JOIN FETCH i.product LEFT JOIN FETCH r.user WHERE r.id = :id")
+    Optional<Receipt> findByIdForPdf(@Param("id") Long id);
+
+    /**
+     * IDs des reçus d'une période (export en masse), dans l'ordre chronologique
+     */
+    @Query("SELECT r.id FROM Receipt r WHERE r.organisation.id = :organisationId "
+            + "AND r.createdAt >= :start AND r.createdAt < :end ORDER BY r.createdAt, r.id")
+    List<Long> findIdsForExport(@Param("organisationId") UUID organisationId,
+                                @Param("start") java.time.LocalDateTime start,
+                                @Param("end") java.time.LocalDateTime end);
+
+    @Query("SELECT r.id FROM Receipt r WHERE r.organisation.id = :organisationId AND r.store.id = :storeId "
+            + "AND r.createdAt >= :start AND r.createdAt < :end ORDER BY r.createdAt, r.id")
+    List<Long> findIdsForExportByStore(@Param("organisationId") UUID organisationId,
+                                       @Param("storeId") UUID storeId,
+                                       @Param("start") java.time.LocalDateTime start,
+                                       @Param("end") java.time.LocalDateTime end);
+
+    /**
+     * Compte un téléchargement sans passer par @PreUpdate: updated_at reste celui du
+     * contenu du reçu (clé du cache des PDF rendus)
+     */
+    @Modifying
+    @Query("UPDATE Receipt r SET r.downloadCount = COALESCE(r.downloadCount, 0) + 1, r.downloadedAt = :downloadedAt WHERE r.id = :id")
+    int incrementDownloadCount(@Param("id") Long id, @Param("downloadedAt") java.time.LocalDateTime downloadedAt);
+
     /**
      * Trouve le dernier reçu généré par un utilisateur
      */
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,6 +22,9 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
     List<SaleItem> findByProduct(Product product);
     
     List<SaleItem> findBySaleId(Long saleId);
+
+    // Lignes d'une page de ventes, en une requête (listes paginées)
+    List<SaleItem> findBySale_IdInOrderByIdAsc(Collection<Long> saleIds);
     
     List<SaleItem> findByProductId(Long productId);
     
@@ -132,4 +136,8 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
 
     @Query("SELECT si.product, COUNT(DISTINCT si.sale) FROM SaleItem si WHERE si.sale.organisation.id = :organisationId AND si.sale.store.id = :storeId AND si.sale.saleDate BETWEEN :startDate AND :endDate GROUP BY si.product")
     List<Object[]> getProductFrequencyByStore(@Param("organisationId") UUID organisationId, @Param("storeId") UUID storeId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // Quantité totale par vente pour une page de synchronisation delta (id de vente, somme)
+    @Query("SELECT si.sale.id, SUM(si.quantity) FROM SaleItem si WHERE si.sale.id IN :saleIds GROUP BY si.sale.id")
+    List<Object[]> sumQuantityBySaleIds(@Param("saleIds") List<Long> saleIds);
 }
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,8 +25,15 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
 
     Page<Sale> findByCreatedBy(User user, Pageable pageable);
     Page<Sale> findByOrganisation_Id(java.util.UUID organisationId, Pageable pageable);
+
+    // Liste paginée: [vente, nom d'utilisateur du créateur] (nom projeté, l'utilisateur et ses rôles ne sont pas chargés)
+    @Query(value = "SELECT s, u.username FROM Sale s LEFT JOIN s.createdBy u WHERE s.organisation.id = :organisationId",
+           countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.organisation.id = :organisationId")
+    Page<Object[]> findPageWithCreatorUsername(@Param("organisationId") java.util.UUID organisationId, Pageable pageable);
     Optional<Sale> findByIdAndOrganisation_Id(Long id, java.util.UUID organisationId);
     Optional<Sale> findByIdAndOrganisation_IdAndStore_Id(Long id, UUID organisationId, UUID storeId);
+    List<Sale> findByIdInAndOrganisation_Id(Collection<Long> ids, UUID organisationId);
+    List<Sale> findByIdInAndOrganisation_IdAndStore_Id(Collection<Long> ids, UUID organisationId, UUID storeId);
 
     List<Sale> findBySaleDateBetween(LocalDateTime startDate, LocalDateTime endDate);
 
@@ -121,6 +129,28 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
+    // Totaux sur une fenêtre intra-journalière (bords de plage non couverts par sales_daily_rollups)
+    @Query("SELECT s.paymentMethod, SUM(s.finalAmount), COUNT(s) FROM Sale s WHERE s.organisation.id = :organisationId AND s.saleDate BETWEEN :startDate AND :endDate GROUP BY s.paymentMethod")
+    List<Object[]> getPaymentMethodTotals(@Param("organisationId") UUID organisationId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT s.paymentMethod, SUM(s.finalAmount), COUNT(s) FROM Sale s WHERE s.organisation.id = :organisationId AND s.store.id = :storeId AND s.saleDate BETWEEN :startDate AND :endDate GROUP BY s.paymentMethod")
+    List<Object[]> getPaymentMethodTotalsByStore(@Param("organisationId") UUID organisationId,
+            @Param("storeId") UUID storeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    // Agrégats bruts aux clés de sales_daily_rollups (reconstruction / contrôle de cohérence)
+    @Query("SELECT st.id, cast(s.saleDate as LocalDate), s.paymentMethod, s.status, SUM(s.finalAmount), COUNT(s) FROM Sale s LEFT JOIN s.store st WHERE s.organisation.id = :organisationId GROUP BY st.id, cast(s.saleDate as LocalDate), s.paymentMethod, s.status")
+    List<Object[]> aggregateForRollup(@Param("organisationId") UUID organisationId);
+
+    @Query("SELECT st.id, cast(s.saleDate as LocalDate), s.paymentMethod, s.status, SUM(i.productPurchasePrice * i.quantity) FROM SaleItem i JOIN i.sale s LEFT JOIN s.store st WHERE s.organisation.id = :organisationId AND i.productPurchasePrice IS NOT NULL GROUP BY st.id, cast(s.saleDate as LocalDate), s.paymentMethod, s.status")
+    List<Object[]> aggregateCostForRollup(@Param("organisationId") UUID organisationId);
+
+    @Query("SELECT DISTINCT s.organisation.id FROM Sale s")
+    List<UUID> findOrganisationIds();
+
     // Top customers
     @Query("SELECT s.customerName, s.customerPhone, SUM(s.finalAmount), COUNT(s) FROM Sale s WHERE s.organisation.id = :organisationId AND s.customerName IS NOT NULL AND s.saleDate BETWEEN :startDate AND :endDate GROUP BY s.customerName, s.customerPhone ORDER BY SUM(s.finalAmount) DESC")
     List<Object[]> getTopCustomers(@Param("organisationId") java.util.UUID organisationId,
@@ -144,6 +174,22 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
 
     // Find sales updated after a specific timestamp (for sync)
     List<Sale> findByUpdatedAtAfter(LocalDateTime timestamp);
-    List<Sale> findByOrganisation_IdAndUpdatedAtAfter(UUID organisationId, LocalDateTime timestamp);
-    List<Sale> findByOrganisation_IdAndStore_IdAndUpdatedAtAfter(UUID organisationId, UUID storeId, LocalDateTime timestamp);
+
+    // Pages delta par curseur (updated_at, id): LIMIT appliqué en SQL via pageable
+    @Query("SELECT s FROM Sale s WHERE s.organisation.id = :organisationId " +
+           "AND (s.updatedAt > :updatedAt OR (s.updatedAt = :updatedAt AND s.id > :afterId)) " +
+           "ORDER BY s.updatedAt ASC, s.id ASC")
+    List<Sale> findDeltaPage(@Param("organisationId") UUID organisationId,
+                             @Param("updatedAt") LocalDateTime updatedAt,
+                             @Param("afterId") Long afterId,
+                             Pageable pageable);
+
+    @Query("SELECT s FROM Sale s WHERE s.organisation.id = :organisationId AND s.store.id = :storeId " +
+           "AND (s.updatedAt > :updatedAt OR (s.updatedAt = :updatedAt AND s.id > :afterId)) " +
+           "ORDER BY s.updatedAt ASC, s.id ASC")
+    List<Sale> findDeltaPageByStore(@Param("organisationId") UUID organisationId,
+                                    @Param("storeId") UUID storeId,
+                                    @Param("updatedAt") LocalDateTime updatedAt,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
 }
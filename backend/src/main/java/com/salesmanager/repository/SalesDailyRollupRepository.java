@@ -0,0 +1,82 @@
+package com.salesmanager.repository;
+
+import com.salesmanager.entity.Sale;
+import com.salesmanager.entity.SalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository de l'agrégat journalier des ventes (sales_daily_rollups)
+ *
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, Long> {
+
+    /**
+     * Incrément atomique en SQL de la ligne de la clé (colonnes nullables comparées NULL-safe):
+     * deux transactions concurrentes sur la même ligne se sérialisent
+     *
+     * @return 0 si la clé n'a pas encore de ligne
+     */
+    @Modifying
+    @Query("UPDATE SalesDailyRollup r SET r.totalAmount = r.totalAmount + :amount, " +
+           "r.totalCost = r.totalCost + :cost, r.saleCount = r.saleCount + :count " +
+           "WHERE r.organisationId = :organisationId " +
+           "AND (r.storeId = :storeId OR (r.storeId IS NULL AND :storeId IS NULL)) " +
+           "AND r.saleDay = :saleDay " +
+           "AND (r.paymentMethod = :paymentMethod OR (r.paymentMethod IS NULL AND :paymentMethod IS NULL)) " +
+           "AND (r.status = :status OR (r.status IS NULL AND :status IS NULL))")
+    int incrementKey(@Param("organisationId") UUID organisationId,
+                     @Param("storeId") UUID storeId,
+                     @Param("saleDay") LocalDate saleDay,
+                     @Param("paymentMethod") Sale.PaymentMethod paymentMethod,
+                     @Param("status") Sale.SaleStatus status,
+                     @Param("amount") BigDecimal amount,
+                     @Param("cost") BigDecimal cost,
+                     @Param("count") long count);
+
+    /**
+     * Totaux par jour et moyen de paiement (tous magasins et statuts confondus)
+     */
+    @Query("SELECT r.saleDay, r.paymentMethod, SUM(r.totalAmount), SUM(r.saleCount) FROM SalesDailyRollup r " +
+           "WHERE r.organisationId = :organisationId AND r.saleDay BETWEEN :fromDay AND :toDay " +
+           "GROUP BY r.saleDay, r.paymentMethod")
+    List<Object[]> sumByDayAndPaymentMethod(@Param("organisationId") UUID organisationId,
+                                            @Param("fromDay") LocalDate fromDay,
+                                            @Param("toDay") LocalDate toDay);
+
+    @Query("SELECT r.saleDay, r.paymentMethod, SUM(r.totalAmount), SUM(r.saleCount) FROM SalesDailyRollup r " +
+           "WHERE r.organisationId = :organisationId AND r.storeId = :storeId " +
+           "AND r.saleDay BETWEEN :fromDay AND :toDay " +
+           "GROUP BY r.saleDay, r.paymentMethod")
+    List<Object[]> sumByDayAndPaymentMethodByStore(@Param("organisationId") UUID organisationId,
+                                                   @Param("storeId") UUID storeId,
+                                                   @Param("fromDay") LocalDate fromDay,
+                                                   @Param("toDay") LocalDate toDay);
+
+    /**
+     * Agrégat complet d'une organisation par clé (contrôle de cohérence)
+     */
+    @Query("SELECT r.storeId, r.saleDay, r.paymentMethod, r.status, " +
+           "SUM(r.totalAmount), SUM(r.totalCost), SUM(r.saleCount) FROM SalesDailyRollup r " +
+           "WHERE r.organisationId = :organisationId " +
+           "GROUP BY r.storeId, r.saleDay, r.paymentMethod, r.status")
+    List<Object[]> sumByKey(@Param("organisationId") UUID organisationId);
+
+    @Query("SELECT DISTINCT r.organisationId FROM SalesDailyRollup r")
+    List<UUID> findOrganisationIds();
+
+    @Modifying
+    @Query("DELETE FROM SalesDailyRollup r WHERE r.organisationId = :organisationId")
+    int deleteByOrganisationId(@Param("organisationId") UUID organisationId);
+}
@@ -163,9 +163,17 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, Lo
      */
     List<StockMovement> findByUpdatedAtAfter(LocalDateTime timestamp);
 
-    @Query("SELECT sm FROM StockMovement sm JOIN Product p ON p.id = sm.productId WHERE p.organisation.id = :organisationId AND sm.updatedAt > :timestamp")
-    List<StockMovement> findByOrganisationAndUpdatedAtAfter(@Param("organisationId") UUID organisationId,
-                                                            @Param("timestamp") LocalDateTime timestamp);
+    /**
+     * Page delta par curseur (updated_at, id) pour la synchronisation
+     * Le LIMIT est appliqué en SQL via le pageable
+     */
+    @Query("SELECT sm FROM StockMovement sm JOIN Product p ON p.id = sm.productId WHERE p.organisation.id = :organisationId " +
+           "AND (sm.updatedAt > :updatedAt OR (sm.updatedAt = :updatedAt AND sm.id > :afterId)) " +
+           "ORDER BY sm.updatedAt ASC, sm.id ASC")
+    List<StockMovement> findDeltaPage(@Param("organisationId") UUID organisationId,
+                                      @Param("updatedAt") LocalDateTime updatedAt,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
 
     /**
      * Trouve les mouvements créés après un timestamp
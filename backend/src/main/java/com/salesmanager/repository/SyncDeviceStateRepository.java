@@ -0,0 +1,31 @@
+package com.salesmanager.repository;
+
+import com.salesmanager.entity.SyncDeviceState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository pour les positions de synchronisation des devices
+ * 
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Repository
+public interface SyncDeviceStateRepository extends JpaRepository<SyncDeviceState, Long> {
+
+    Optional<SyncDeviceState> findByOrganisationIdAndDeviceId(UUID organisationId, String deviceId);
+
+    /**
+     * Position la plus ancienne parmi les devices vus depuis {@code activeSince}
+     */
+    @Query("SELECT MIN(d.lastSyncPosition) FROM SyncDeviceState d " +
+           "WHERE d.organisationId = :organisationId AND d.lastSeenAt >= :activeSince")
+    LocalDateTime findOldestActivePosition(@Param("organisationId") UUID organisationId,
+                                           @Param("activeSince") LocalDateTime activeSince);
+}
@@ -0,0 +1,39 @@
+package com.salesmanager.repository;
+
+import com.salesmanager.entity.SyncIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository pour les clés d'idempotence des opérations de synchronisation
+ * 
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Repository
+public interface SyncIdempotencyKeyRepository extends JpaRepository<SyncIdempotencyKey, Long> {
+
+    /**
+     * Opérations déjà appliquées d'un device parmi des local_id (une requête par lot)
+     */
+    @Query("SELECT k FROM SyncIdempotencyKey k WHERE k.organisationId = :organisationId " +
+           "AND k.deviceId = :deviceId AND k.localId IN :localIds")
+    List<SyncIdempotencyKey> findApplied(@Param("organisationId") UUID organisationId,
+                                         @Param("deviceId") String deviceId,
+                                         @Param("localIds") Collection<String> localIds);
+
+    /**
+     * Purge les clés antérieures à la rétention
+     */
+    @Modifying
+    @Query("DELETE FROM SyncIdempotencyKey k WHERE k.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,65 @@
+package com.salesmanager.repository;
+
+import com.salesmanager.entity.SyncTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository pour les tombstones de synchronisation (entités supprimées)
+ * 
+ * @author Sales Manager Team
+ * @version 1.0
+ */
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    /**
+     * Page delta par curseur (deleted_at, id) pour une organisation
+     * Le LIMIT est appliqué en SQL via le pageable
+     */
+    @Query("SELECT t FROM SyncTombstone t WHERE t.organisationId = :organisationId AND t.entityType IN :entityTypes " +
+           "AND (t.deletedAt > :deletedAt OR (t.deletedAt = :deletedAt AND t.id > :afterId)) " +
+           "ORDER BY t.deletedAt ASC, t.id ASC")
+    List<SyncTombstone> findDeltaPage(@Param("organisationId") UUID organisationId,
+                                      @Param("entityTypes") Collection<String> entityTypes,
+                                      @Param("deletedAt") LocalDateTime deletedAt,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
+
+    /**
+     * Variante limitée à un magasin: les suppressions sans magasin (produits,
+     * mouvements) restent visibles, les ventes uniquement pour ce magasin
+     */
+    @Query("SELECT t FROM SyncTombstone t WHERE t.organisationId = :organisationId AND t.entityType IN :entityTypes " +
+           "AND (t.storeId IS NULL OR t.storeId = :storeId) " +
+           "AND (t.deletedAt > :deletedAt OR (t.deletedAt = :deletedAt AND t.id > :afterId)) " +
+           "ORDER BY t.deletedAt ASC, t.id ASC")
+    List<SyncTombstone> findDeltaPageByStore(@Param("organisationId") UUID organisationId,
+                                             @Param("storeId") UUID storeId,
+                                             @Param("entityTypes") Collection<String> entityTypes,
+                                             @Param("deletedAt") LocalDateTime deletedAt,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    /**
+     * Organisations ayant des tombstones (pour la compaction)
+     */
+    @Query("SELECT DISTINCT t.organisationId FROM SyncTombstone t")
+    List<UUID> findOrganisationIds();
+
+    /**
+     * Purge les tombstones d'une organisation antérieurs à un horizon
+     */
+    @Modifying
+    @Query("DELETE FROM SyncTombstone t WHERE t.organisationId = :organisationId AND t.deletedAt < :before")
+    int deleteOlderThan(@Param("organisationId") UUID organisationId, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,120 @@
+package com.salesmanager.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.salesmanager.entity.OrganisationMember;
+import com.salesmanager.repository.OrganisationMemberRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cache court (TTL) du principal et des appartenances organisation par utilisateur:
+ * une requête authentifiée en régime établi ne fait plus de SQL d'authentification.
+ * Invalidé explicitement par les écritures profil / membres; le TTL borne la durée
+ * pendant laquelle une modification faite hors de ces chemins reste invisible.
+ * Métriques Actuator "auth.principal" et "auth.membership" (cache.gets hit/miss...).
+ */
+@Component
+public class AuthPrincipalCache {
+
+    /** Appartenance figée au chargement (organisation déjà lue, pas de proxy LAZY). */
+    private record Membership(UUID organisationId, String status, boolean organisationActive) {
+    }
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final OrganisationMemberRepository organisationMemberRepository;
+    private final Cache<String, UserDetailsImpl> principals;
+    private final Cache<Long, List<Membership>> memberships;
+
+    public AuthPrincipalCache(
+            UserDetailsServiceImpl userDetailsService,
+            OrganisationMemberRepository organisationMemberRepository,
+            MeterRegistry meterRegistry,
+            @Value("${auth.cache.maximum-size:10000}") long maximumSize,
+            @Value("${auth.cache.ttl:60s}") Duration ttl) {
+        this.userDetailsService = userDetailsService;
+        this.organisationMemberRepository = organisationMemberRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.memberships = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "auth.principal");
+        CaffeineCacheMetrics.monitor(meterRegistry, memberships, "auth.membership");
+    }
+
+    /**
+     * Principal de l'utilisateur, chargé via UserDetailsServiceImpl au premier accès.
+     * L'entité User portée est détachée: ne pas la modifier, relire par ID pour écrire.
+     */
+    public UserDetailsImpl loadUserByUsername(String username) {
+        return principals.get(username, u -> (UserDetailsImpl) userDetailsService.loadUserByUsername(u));
+    }
+
+    /** Membre de l'organisation, quel que soit son statut (contrôle des services). */
+    public boolean isMember(Long userId, UUID organisationId) {
+        return membershipsOf(userId).stream()
+                .anyMatch(m -> organisationId.equals(m.organisationId()));
+    }
+
+    /** Membre ACTIVE d'une organisation active (choix du tenant via en-têtes). */
+    public boolean isActiveMember(Long userId, UUID organisationId) {
+        return membershipsOf(userId).stream()
+                .anyMatch(m -> organisationId.equals(m.organisationId())
+                        && "ACTIVE".equalsIgnoreCase(m.status())
+                        && m.organisationActive());
+    }
+
+    public void invalidateUser(String username) {
+        afterCommitToo(() -> principals.invalidate(username));
+    }
+
+    public void invalidateMemberships(Long userId) {
+        afterCommitToo(() -> memberships.invalidate(userId));
+    }
+
+    /** Activation / désactivation d'organisation: tous ses membres sont concernés. */
+    public void invalidateOrganisation(UUID organisationId) {
+        afterCommitToo(() -> memberships.asMap().values().removeIf(list -> list.stream()
+                .anyMatch(m -> organisationId.equals(m.organisationId()))));
+    }
+
+    private List<Membership> membershipsOf(Long userId) {
+        return memberships.get(userId, id -> organisationMemberRepository.findByUserIdWithOrganisation(id).stream()
+                .map(AuthPrincipalCache::snapshot)
+                .toList());
+    }
+
+    private static Membership snapshot(OrganisationMember member) {
+        return new Membership(
+                member.getOrganisation().getId(),
+                member.getStatus(),
+                Boolean.TRUE.equals(member.getOrganisation().getIsActive()));
+    }
+
+    // Immédiatement puis après commit: une requête concurrente a pu recharger l'ancien état entre-temps
+    private static void afterCommitToo(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
@@ -9,8 +9,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -26,7 +24,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private AuthPrincipalCache authPrincipalCache;
 
     @Autowired
     private TenantContextResolver tenantContextResolver;
@@ -36,10 +34,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // une seule vérification/parse du token, claims partagés avec le résolveur de tenant
+            JwtClaims claims = jwt != null ? jwtUtils.parseToken(jwt).orElse(null) : null;
+            if (claims != null) {
+                UserDetailsImpl userDetails = authPrincipalCache.loadUserByUsername(claims.username());
                 UsernamePasswordAuthenticationToken authentication = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -48,8 +46,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                 boolean platformAdmin = userDetails.getAuthorities().stream()
                         .anyMatch(a -> "ROLE_PLATFORM_ADMIN".equals(a.getAuthority()));
-                Long userId = userDetails instanceof UserDetailsImpl impl ? impl.getId() : null;
-                tenantContextResolver.apply(request, userId, platformAdmin);
+                Long userId = userDetails.getId();
+                tenantContextResolver.apply(request, claims, userId, platformAdmin);
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
@@ -0,0 +1,14 @@
+package com.salesmanager.security;
+
+import java.time.Instant;
+
+/**
+ * Claims d'un JWT validé, extraits en une seule vérification de signature.
+ * Immuable: partagé entre JwtAuthenticationFilter et TenantContextResolver
+ * et conservé dans le cache de JwtUtils jusqu'à expiration du token.
+ *
+ * @param organisationId claim "orgId" brut (peut être null)
+ * @param storeId        claim "storeId" brut (peut être null)
+ */
+public record JwtClaims(String username, String organisationId, String storeId, Instant expiresAt) {
+}
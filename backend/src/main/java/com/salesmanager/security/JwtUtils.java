@@ -1,15 +1,21 @@
 package com.salesmanager.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
 
 @Component
@@ -22,6 +28,44 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
+    @Value("${jwt.claims-cache.maximum-size:10000}")
+    private long claimsCacheMaximumSize;
+
+    // Construits une seule fois: la clé (décodage base64 du secret) et le parser sont thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+
+    // token -> claims, chaque entrée expire avec son token
+    private Cache<String, JwtClaims> claimsCache;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaximumSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String token, JwtClaims claims, long currentTime) {
+                        long remainingMs = claims.expiresAt().toEpochMilli() - System.currentTimeMillis();
+                        return Math.max(0, remainingMs) * 1_000_000L;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, JwtClaims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, JwtClaims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     public String generateJwtToken(UserDetailsImpl userDetails, UUID organisationId, UUID storeId) {
         return generateTokenFromUsername(userDetails.getUsername(), organisationId, storeId);
     }
@@ -33,35 +77,36 @@ public class JwtUtils {
                 .claim("storeId", storeId != null ? storeId.toString() : null)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
-    }
-
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
-    }
-
-    public String getOrganisationIdFromJwtToken(String token) {
-        Object value = Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().get("orgId");
-        return value != null ? value.toString() : null;
-    }
-
-    public String getStoreIdFromJwtToken(String token) {
-        Object value = Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().get("storeId");
-        return value != null ? value.toString() : null;
-    }
+    /**
+     * Valide le token (signature + expiration) et retourne ses claims.
+     * Une seule vérification HMAC par token tant qu'il reste en cache.
+     *
+     * @return les claims, ou vide si le token est invalide ou expiré
+     */
+    public Optional<JwtClaims> parseToken(String token) {
+        JwtClaims cached = claimsCache.getIfPresent(token);
+        if (cached != null) {
+            // le cache expire à l'échéance du token, la vérification reste une sécurité
+            return cached.expiresAt().isAfter(Instant.now()) ? Optional.of(cached) : Optional.empty();
+        }
 
-    public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parse(authToken);
-            return true;
+            Claims body = parser.parseClaimsJws(token).getBody();
+            Object orgId = body.get("orgId");
+            Object storeId = body.get("storeId");
+            JwtClaims claims = new JwtClaims(
+                    body.getSubject(),
+                    orgId != null ? orgId.toString() : null,
+                    storeId != null ? storeId.toString() : null,
+                    body.getExpiration() != null
+                            ? body.getExpiration().toInstant()
+                            : Instant.now().plusMillis(jwtExpirationMs));
+            claimsCache.put(token, claims);
+            return Optional.of(claims);
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -70,18 +115,39 @@ public class JwtUtils {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
         }
 
-        return false;
+        return Optional.empty();
+    }
+
+    public String getUserNameFromJwtToken(String token) {
+        return requireClaims(token).username();
+    }
+
+    public String getOrganisationIdFromJwtToken(String token) {
+        return requireClaims(token).organisationId();
+    }
+
+    public String getStoreIdFromJwtToken(String token) {
+        return requireClaims(token).storeId();
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return parseToken(authToken).isPresent();
     }
 
     public Date getExpirationDateFromToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getExpiration();
+        return Date.from(requireClaims(token).expiresAt());
     }
 
     public Boolean isTokenExpired(String token) {
         final Date expiration = getExpirationDateFromToken(token);
         return expiration.before(new Date());
     }
+
+    private JwtClaims requireClaims(String token) {
+        return parseToken(token).orElseThrow(() -> new MalformedJwtException("Invalid JWT token"));
+    }
 }
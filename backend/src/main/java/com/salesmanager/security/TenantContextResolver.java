@@ -1,6 +1,5 @@
 package com.salesmanager.security;
 
-import com.salesmanager.repository.OrganisationMemberRepository;
 import com.salesmanager.service.TenantResolutionService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Component;
@@ -14,27 +13,24 @@ import java.util.UUID;
 @Component
 public class TenantContextResolver {
 
-    private final JwtUtils jwtUtils;
-    private final OrganisationMemberRepository organisationMemberRepository;
+    private final AuthPrincipalCache authPrincipalCache;
 
-    public TenantContextResolver(
-            JwtUtils jwtUtils,
-            OrganisationMemberRepository organisationMemberRepository
-    ) {
-        this.jwtUtils = jwtUtils;
-        this.organisationMemberRepository = organisationMemberRepository;
+    public TenantContextResolver(AuthPrincipalCache authPrincipalCache) {
+        this.authPrincipalCache = authPrincipalCache;
     }
 
-    public void apply(HttpServletRequest request, Long userId, boolean platformAdmin) {
+    /**
+     * @param claims claims du JWT déjà validé par JwtAuthenticationFilter (null si absent)
+     */
+    public void apply(HttpServletRequest request, JwtClaims claims, Long userId, boolean platformAdmin) {
         TenantContext.clear();
 
-        String jwt = parseBearer(request);
         UUID orgId = null;
         UUID storeId = null;
 
-        if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-            String orgClaim = jwtUtils.getOrganisationIdFromJwtToken(jwt);
-            String storeClaim = jwtUtils.getStoreIdFromJwtToken(jwt);
+        if (claims != null) {
+            String orgClaim = claims.organisationId();
+            String storeClaim = claims.storeId();
             if (orgClaim != null && !orgClaim.isBlank()) {
                 orgId = UUID.fromString(orgClaim);
             }
@@ -68,8 +64,7 @@ public class TenantContextResolver {
         if (userId == null) {
             return false;
         }
-        return organisationMemberRepository.findActiveMembershipsWithOrganisationByUserId(userId).stream()
-                .anyMatch(m -> organisationId.equals(m.getOrganisation().getId()));
+        return authPrincipalCache.isActiveMember(userId, organisationId);
     }
 
     private static UUID parseUuidHeader(HttpServletRequest request, String headerName) {
@@ -83,12 +78,4 @@ public class TenantContextResolver {
             return null;
         }
     }
-
-    private static String parseBearer(HttpServletRequest request) {
-        String headerAuth = request.getHeader("Authorization");
-        if (headerAuth != null && headerAuth.startsWith("Bearer ")) {
-            return headerAuth.substring(7);
-        }
-        return null;
-    }
 }
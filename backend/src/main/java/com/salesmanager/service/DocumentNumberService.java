@@ -0,0 +1,200 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.DocumentNumberSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numérotation des ventes et des reçus par organisation et magasin
+ * Chaque périmètre a sa séquence en base (document_number_seq_{id du compteur}, pas = taille
+ * de bloc): un nextval réserve un bloc, dont les numéros sont ensuite attribués en mémoire
+ * sans verrou ni accès base. Les numéros sont uniques et croissants par nœud; un bloc entamé
+ * est perdu au redémarrage (trous possibles, jamais de doublon).
+ *
+ * Le nextval passe par la connexion de la transaction appelante (vente, reçu) et n'est pas
+ * annulé avec elle: le renouvellement d'un bloc n'emprunte jamais de seconde connexion au pool.
+ * Seule la création du compteur, une fois par périmètre, se fait dans sa propre transaction,
+ * hors du verrou du bail.
+ *
+ * La séquence est créée si absente (CREATE SEQUENCE IF NOT EXISTS), jamais supprimée ni
+ * réinitialisée: une séquence existante garde sa position et son pas, et la taille de bloc
+ * est toujours lue sur la séquence elle-même (information_schema), pas dans la configuration.
+ *
+ * Format: préfixe + ID du compteur + numéro sur 6 chiffres minimum (ex. SALE-3-000042),
+ * l'ID du compteur rendant le numéro unique dans toute la base.
+ */
+@Service
+public class DocumentNumberService implements DocumentNumberSource {
+
+    public enum DocumentKind {
+        SALE("SALE-"),
+        RECEIPT("REC-");
+
+        private final String prefix;
+
+        DocumentKind(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static final String SEQUENCE_PREFIX = "document_number_seq_";
+
+    private static final String READ_SQL = "SELECT id FROM document_number_counters WHERE scope_key = ?";
+
+    private static final String CREATE_SQL =
+            "INSERT INTO document_number_counters (scope_key, kind, organisation_id, store_id, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+
+    // Nom en minuscules: H2 range les identifiants non quotés en majuscules, PostgreSQL en minuscules
+    private static final String INCREMENT_SQL =
+            "SELECT CAST(increment AS BIGINT) FROM information_schema.sequences WHERE LOWER(sequence_name) = ?";
+
+    private record Scope(DocumentKind kind, UUID organisationId, UUID storeId) {
+
+        String key() {
+            return kind.name() + ":" + organisationId + ":" + (storeId == null ? "-" : storeId.toString());
+        }
+    }
+
+    // Compteur du périmètre: pas lu sur sa séquence (indépendant de la configuration courante)
+    private record Counter(long id, long blockSize, String nextValueSql) {
+    }
+
+    // Bloc réservé: [cursor, end) ; le curseur avance sans verrou
+    private record Block(long counterId, AtomicLong cursor, long end) {
+    }
+
+    private static final class Lease {
+        private volatile Counter counter;
+        private volatile Block block;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate createTransaction;
+    private final SequenceSupport sequenceSupport;
+    private final int blockSize;
+    private final Map<Scope, Lease> leases = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DocumentNumberService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 EntityManagerFactory entityManagerFactory,
+                                 @Value("${documents.numbering.block-size:100}") int blockSize) {
+        this(jdbcTemplate, transactionManager, entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport(), blockSize);
+    }
+
+    public DocumentNumberService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 SequenceSupport sequenceSupport,
+                                 int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.createTransaction = new TransactionTemplate(transactionManager);
+        // Transaction séparée: le compteur reste créé même si la vente appelante est annulée
+        this.createTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.sequenceSupport = sequenceSupport;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    @Override
+    public String nextSaleNumber(UUID organisationId, UUID storeId) {
+        return next(DocumentKind.SALE, organisationId, storeId);
+    }
+
+    @Override
+    public String nextReceiptNumber(UUID organisationId, UUID storeId) {
+        return next(DocumentKind.RECEIPT, organisationId, storeId);
+    }
+
+    /**
+     * Prochain numéro formaté du document pour l'organisation et le magasin (null = niveau organisation)
+     */
+    public String next(DocumentKind kind, UUID organisationId, UUID storeId) {
+        Scope scope = new Scope(kind, organisationId, storeId);
+        Lease lease = leases.computeIfAbsent(scope, s -> new Lease());
+        while (true) {
+            Block block = lease.block;
+            if (block != null) {
+                long value = block.cursor().getAndIncrement();
+                if (value < block.end()) {
+                    return format(kind, block.counterId(), value);
+                }
+            }
+            Counter counter = lease.counter;
+            if (counter == null) {
+                // hors verrou: la création éventuelle emprunte sa propre connexion
+                counter = resolveCounter(scope);
+                lease.counter = counter;
+            }
+            synchronized (lease) {
+                // un autre thread a pu renouveler le bloc pendant l'attente
+                if (lease.block == block) {
+                    lease.block = reserve(counter);
+                }
+            }
+        }
+    }
+
+    // nextval sur la connexion courante: aucune seconde connexion sous le verrou du bail
+    private Block reserve(Counter counter) {
+        Long start = jdbcTemplate.queryForObject(counter.nextValueSql(), Long.class);
+        return new Block(counter.id(), new AtomicLong(start), start + counter.blockSize());
+    }
+
+    private Counter resolveCounter(Scope scope) {
+        String key = scope.key();
+        List<Long> ids = jdbcTemplate.queryForList(READ_SQL, Long.class, key);
+        if (ids.isEmpty()) {
+            createCounter(scope, key);
+            ids = jdbcTemplate.queryForList(READ_SQL, Long.class, key);
+        }
+        long id = ids.get(0);
+        String sequence = SEQUENCE_PREFIX + id;
+        List<Long> increments = jdbcTemplate.queryForList(INCREMENT_SQL, Long.class, sequence);
+        if (increments.isEmpty()) {
+            createSequence(sequence);
+            increments = jdbcTemplate.queryForList(INCREMENT_SQL, Long.class, sequence);
+        }
+        return new Counter(id, increments.get(0), sequenceSupport.getSequenceNextValString(sequence));
+    }
+
+    private void createCounter(Scope scope, String key) {
+        try {
+            createTransaction.executeWithoutResult(status -> jdbcTemplate.update(CREATE_SQL, key, scope.kind().name(),
+                    scope.organisationId(), scope.storeId(), Timestamp.valueOf(LocalDateTime.now())));
+        } catch (DataIntegrityViolationException e) {
+            // créé en parallèle par un autre nœud: la lecture suivante le trouvera
+        }
+    }
+
+    // Idempotent et sans effet sur une séquence existante (créée en parallèle par un autre nœud)
+    private void createSequence(String sequence) {
+        createTransaction.executeWithoutResult(status -> jdbcTemplate.execute(
+                "CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH 1 INCREMENT BY " + blockSize));
+    }
+
+    private static String format(DocumentKind kind, long counterId, long value) {
+        StringBuilder number = new StringBuilder(24).append(kind.prefix).append(counterId).append('-');
+        for (long pad = 100000; pad > 1 && value < pad; pad /= 10) {
+            number.append('0');
+        }
+        return number.append(value).toString();
+    }
+}
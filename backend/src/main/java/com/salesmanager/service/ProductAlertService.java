@@ -0,0 +1,387 @@
+package com.salesmanager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.salesmanager.dto.ProductAlertState;
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.util.LongHashIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Moteur d'alertes produit (expiration, stock bas), par organisation.
+ * L'état minimal des produits actifs est chargé une fois (ProductAlertState), puis tenu à
+ * jour par relecture des seules lignes dont updated_at a bougé: après le commit des
+ * écritures produit, synchronisation et stock, et périodiquement (autres instances).
+ * Les relectures après commit passent par un thread dédié, jamais par le thread de la
+ * requête: une seule relecture en attente par organisation, qui couvre toutes les
+ * écritures validées avant son démarrage (les caisses d'une même organisation ne
+ * s'attendent pas les unes les autres).
+ * Les produits sont rangés par date d'expiration (seaux ordonnés) et dans l'ensemble des
+ * stocks bas; les compteurs sont recalculés à chaque modification et au changement de
+ * jour, si bien que /products/stats ne fait qu'une lecture.
+ *
+ * "Expirant" suit business.notifications.expiry-warning-days et, comme l'ancienne
+ * requête findExpiringProducts, compte les produits déjà expirés
+ * (expiryDate <= aujourd'hui + délai). Les listes paginées chargent seulement
+ * les produits de la page (une requête par ID).
+ */
+@Service
+public class ProductAlertService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAlertService.class);
+
+    public enum AlertType {
+        LOW_STOCK, EXPIRING, EXPIRED
+    }
+
+    /**
+     * Compteurs publiés pour une organisation, évalués pour la date evaluatedOn
+     */
+    public record AlertCounts(int lowStock, int expiring, int expired, int categories, int warningDays,
+                              LocalDate evaluatedOn) {
+    }
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readTransaction;
+    private final int warningDays;
+    private final Duration refreshOverlap;
+    private final Cache<UUID, TenantAlerts> tenants;
+    private final ExecutorService refreshExecutor;
+
+    public ProductAlertService(
+            ProductRepository productRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${business.notifications.expiry-warning-days:7}") int warningDays,
+            @Value("${business.alerts.maximum-organisations:10000}") long maximumOrganisations,
+            @Value("${business.alerts.expire-after-access:2h}") Duration expireAfterAccess,
+            @Value("${business.alerts.refresh-overlap:5s}") Duration refreshOverlap) {
+        this.productRepository = productRepository;
+        this.warningDays = warningDays;
+        this.refreshOverlap = refreshOverlap;
+        // hors de la transaction appelante: jamais de lecture d'écritures non validées
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tenants = Caffeine.newBuilder()
+                .maximumSize(maximumOrganisations)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tenants, "product.alerts");
+        // Un thread: la file ne contient qu'une relecture au plus par organisation chargée
+        this.refreshExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "product-alerts-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    public int getWarningDays() {
+        return warningDays;
+    }
+
+    /**
+     * Compteurs de l'organisation (chargée au premier appel)
+     */
+    public AlertCounts counts(UUID organisationId) {
+        TenantAlerts alerts = tenant(organisationId);
+        AlertCounts counts = alerts.counts;
+        LocalDate today = LocalDate.now();
+        if (!counts.evaluatedOn().equals(today)) {
+            // changement de jour: des produits passent "expirant" ou "expiré" sans écriture
+            counts = alerts.write(() -> alerts.recount(today));
+        }
+        return counts;
+    }
+
+    /**
+     * Page d'alertes: stock bas par ID, expirés / expirant par date d'expiration puis ID
+     */
+    public Page<ProductResponse> alerts(UUID organisationId, AlertType type, Pageable pageable) {
+        TenantAlerts alerts = tenant(organisationId);
+        LocalDate today = LocalDate.now();
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        List<Long> ids = new ArrayList<>();
+        int total = alerts.read(() -> {
+            Iterator<Long> matching = switch (type) {
+                case LOW_STOCK -> alerts.lowStock.iterator();
+                case EXPIRED -> ids(alerts.expiryBuckets.headMap(today, false));
+                case EXPIRING -> ids(alerts.expiryBuckets.headMap(today.plusDays(warningDays), true));
+            };
+            int count = 0;
+            while (matching.hasNext()) {
+                Long id = matching.next();
+                if (count >= offset && ids.size() < limit) {
+                    ids.add(id);
+                }
+                count++;
+            }
+            return count;
+        });
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+        Map<Long, ProductResponse> loaded = new HashMap<>();
+        for (ProductResponse product : productRepository.findActiveResponsesByIds(organisationId, ids)) {
+            loaded.put(product.getId(), product);
+        }
+        // ordre du moteur; un produit désactivé entre-temps est omis
+        List<ProductResponse> content = ids.stream().map(loaded::get).filter(p -> p != null).toList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Programme la relecture des produits modifiés de l'organisation après le commit de la
+     * transaction courante (immédiatement hors transaction), en arrière-plan. Sans effet si
+     * l'organisation n'est pas chargée.
+     */
+    public void refreshAfterCommit(UUID organisationId) {
+        if (organisationId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueRefresh(organisationId);
+                }
+            });
+        } else {
+            queueRefresh(organisationId);
+        }
+    }
+
+    private void queueRefresh(UUID organisationId) {
+        TenantAlerts alerts = tenants.asMap().get(organisationId);
+        // déjà en file: la relecture, pas encore démarrée, verra aussi ce commit
+        if (alerts != null && alerts.refreshQueued.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                alerts.refreshQueued.set(false);
+                refresh(organisationId);
+            });
+        }
+    }
+
+    /**
+     * Attend la fin des relectures déjà en file (tests)
+     */
+    void awaitQueuedRefreshes() throws InterruptedException, ExecutionException {
+        refreshExecutor.submit(() -> { }).get();
+    }
+
+    /**
+     * Relecture périodique des organisations chargées (écritures des autres instances)
+     * et recalcul des compteurs au changement de jour
+     */
+    @Scheduled(fixedDelayString = "${business.alerts.refresh-interval:PT1M}",
+            initialDelayString = "${business.alerts.refresh-interval:PT1M}")
+    public void refreshAll() {
+        // parcours de asMap(): ne compte pas comme un accès, les organisations inactives expirent
+        for (UUID organisationId : List.copyOf(tenants.asMap().keySet())) {
+            refresh(organisationId);
+        }
+    }
+
+    void refresh(UUID organisationId) {
+        TenantAlerts alerts = tenants.asMap().get(organisationId);
+        if (alerts == null) {
+            return;
+        }
+        try {
+            alerts.refresh();
+        } catch (RuntimeException e) {
+            // état peut-être incomplet: rechargé entièrement au prochain appel
+            logger.warn("Rafraîchissement des alertes de l'organisation {} impossible, invalidé: {}",
+                    organisationId, e.getMessage());
+            tenants.invalidate(organisationId);
+        }
+    }
+
+    private TenantAlerts tenant(UUID organisationId) {
+        return tenants.get(organisationId, this::load);
+    }
+
+    private TenantAlerts load(UUID organisationId) {
+        return readTransaction.execute(status -> {
+            LocalDateTime started = LocalDateTime.now();
+            List<ProductAlertState> states = productRepository.findAlertStates(organisationId);
+            TenantAlerts alerts = new TenantAlerts(organisationId, states.size());
+            alerts.write(() -> {
+                alerts.apply(states, started);
+                return null;
+            });
+            return alerts;
+        });
+    }
+
+    private static Iterator<Long> ids(NavigableMap<LocalDate, TreeSet<Long>> buckets) {
+        return buckets.values().stream().flatMap(TreeSet::stream).iterator();
+    }
+
+    /**
+     * Alertes d'une organisation. Lectures sous verrou partagé; une relecture à la fois,
+     * requête hors verrou, application sous verrou exclusif.
+     */
+    private final class TenantAlerts {
+
+        private final UUID organisationId;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final ReentrantLock refreshLock = new ReentrantLock();
+        private final AtomicBoolean refreshQueued = new AtomicBoolean();
+        private final LongHashIndex<ProductAlertState> states;
+        private final TreeMap<LocalDate, TreeSet<Long>> expiryBuckets = new TreeMap<>();
+        private final TreeSet<Long> lowStock = new TreeSet<>();
+        // produits actifs par catégorie: le nombre de catégories sans requête DISTINCT
+        private final Map<String, Integer> categories = new HashMap<>();
+        private volatile AlertCounts counts;
+        private LocalDateTime lastRefreshStarted;
+
+        TenantAlerts(UUID organisationId, int expectedSize) {
+            this.organisationId = organisationId;
+            this.states = new LongHashIndex<>(expectedSize);
+        }
+
+        <T> T read(Supplier<T> reader) {
+            lock.readLock().lock();
+            try {
+                return reader.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        <T> T write(Supplier<T> writer) {
+            lock.writeLock().lock();
+            try {
+                return writer.get();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Relit les lignes modifiées depuis la relecture précédente, moins refresh-overlap:
+         * une transaction validée après ce point avec un updated_at antérieur reste couverte
+         */
+        void refresh() {
+            refreshLock.lock();
+            try {
+                LocalDateTime started = LocalDateTime.now();
+                List<ProductAlertState> changes = readTransaction.execute(status -> productRepository
+                        .findAlertStateChanges(organisationId, lastRefreshStarted.minus(refreshOverlap)));
+                write(() -> {
+                    apply(changes, started);
+                    return null;
+                });
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        // sous verrou exclusif
+        void apply(List<ProductAlertState> changes, LocalDateTime started) {
+            for (ProductAlertState state : changes) {
+                ProductAlertState previous = states.get(state.id());
+                if (previous != null) {
+                    unindex(previous);
+                }
+                if (Boolean.TRUE.equals(state.isActive())) {
+                    states.put(state.id(), state);
+                    index(state);
+                } else {
+                    states.remove(state.id());
+                }
+            }
+            lastRefreshStarted = started;
+            recount(LocalDate.now());
+        }
+
+        private void index(ProductAlertState state) {
+            if (state.expiryDate() != null) {
+                expiryBuckets.computeIfAbsent(state.expiryDate(), d -> new TreeSet<>()).add(state.id());
+            }
+            if (state.lowStock()) {
+                lowStock.add(state.id());
+            }
+            if (state.category() != null) {
+                categories.merge(state.category(), 1, Integer::sum);
+            }
+        }
+
+        private void unindex(ProductAlertState state) {
+            if (state.expiryDate() != null) {
+                TreeSet<Long> bucket = expiryBuckets.get(state.expiryDate());
+                bucket.remove(state.id());
+                if (bucket.isEmpty()) {
+                    expiryBuckets.remove(state.expiryDate());
+                }
+            }
+            lowStock.remove(state.id());
+            if (state.category() != null) {
+                categories.computeIfPresent(state.category(), (c, n) -> n == 1 ? null : n - 1);
+            }
+        }
+
+        // sous verrou exclusif; parcourt les seaux jusqu'à la fin de la fenêtre d'alerte
+        AlertCounts recount(LocalDate today) {
+            int expired = size(expiryBuckets.headMap(today, false));
+            int expiring = expired + size(expiryBuckets.subMap(today, true, today.plusDays(warningDays), true));
+            counts = new AlertCounts(lowStock.size(), expiring, expired, categories.size(), warningDays, today);
+            return counts;
+        }
+
+        private int size(Map<LocalDate, TreeSet<Long>> buckets) {
+            int size = 0;
+            for (TreeSet<Long> bucket : buckets.values()) {
+                size += bucket.size();
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.salesmanager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Cache en mémoire de la résolution code-barres -> produit, par organisation.
+ * Stocke l'ID du produit (ou son absence: cache négatif, TTL plus court) et non
+ * l'entité: le produit est relu par clé primaire, donc prix/stock restent à jour.
+ * Métriques exposées via Actuator sous le nom "product.barcode.lookup"
+ * (cache.gets hit/miss, cache.load.duration, cache.evictions...).
+ */
+@Component
+public class ProductBarcodeCache {
+
+    private record Key(UUID organisationId, String barcode) {
+    }
+
+    private final Cache<Key, Optional<Long>> cache;
+
+    public ProductBarcodeCache(
+            MeterRegistry meterRegistry,
+            @Value("${barcode.cache.maximum-size:50000}") long maximumSize,
+            @Value("${barcode.cache.ttl:10m}") Duration ttl,
+            @Value("${barcode.cache.negative-ttl:1m}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Key, Optional<Long>>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Optional<Long> value, long currentTime) {
+                        return (value.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Optional<Long> value, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Optional<Long> value, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product.barcode.lookup");
+    }
+
+    /**
+     * Retourne l'ID produit en cache pour ce code-barres, ou le charge via {@code loader}
+     */
+    public Optional<Long> get(UUID organisationId, String rawBarcode, Supplier<Optional<Long>> loader) {
+        return cache.get(key(organisationId, rawBarcode), k -> loader.get());
+    }
+
+    public void invalidate(UUID organisationId, String rawBarcode) {
+        cache.invalidate(key(organisationId, rawBarcode));
+    }
+
+    /**
+     * Invalide toutes les entrées d'une organisation, immédiatement puis après le
+     * commit de la transaction courante (une lecture concurrente a pu recharger
+     * l'ancien état entre-temps). Les écritures produit étant rares comparées aux
+     * scans, le parcours des clés est acceptable.
+     */
+    public void invalidateOrganisation(UUID organisationId) {
+        Runnable invalidation = () -> cache.asMap().keySet().removeIf(k -> k.organisationId().equals(organisationId));
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    // Clé = saisie brute sans espaces: la résolution (ordre des variantes, donc le produit retenu
+    // quand plusieurs partagent un GTIN) ne dépend que d'elle; UPC-A, EAN-13 et GTIN-14 d'un
+    // même article ont chacun leur entrée
+    private static Key key(UUID organisationId, String rawBarcode) {
+        return new Key(organisationId, rawBarcode == null ? "" : rawBarcode.trim());
+    }
+}
@@ -6,6 +6,7 @@ import com.salesmanager.util.BarcodeNormalizer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,20 +16,58 @@ import java.util.UUID;
 public class ProductBarcodeLookupService {
 
     private final ProductRepository productRepository;
+    private final ProductBarcodeCache productBarcodeCache;
 
-    public ProductBarcodeLookupService(ProductRepository productRepository) {
+    public ProductBarcodeLookupService(ProductRepository productRepository, ProductBarcodeCache productBarcodeCache) {
         this.productRepository = productRepository;
+        this.productBarcodeCache = productBarcodeCache;
     }
 
     public Optional<Product> findActiveByBarcode(UUID organisationId, String rawBarcode) {
+        // Sur un miss, le produit chargé est réutilisé tel quel (pas de seconde requête)
+        Product[] loaded = new Product[1];
+        Optional<Long> productId = productBarcodeCache.get(organisationId, rawBarcode, () -> {
+            Optional<Product> found = findActiveByBarcodeVariants(organisationId, rawBarcode);
+            found.ifPresent(p -> loaded[0] = p);
+            return found.map(Product::getId);
+        });
+        if (loaded[0] != null) {
+            return Optional.of(loaded[0]);
+        }
+        if (productId.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<Product> product = productRepository
+                .findActiveByIdAndOrganisation_IdWithDetails(productId.get(), organisationId);
+        if (product.isEmpty()) {
+            // entrée périmée (produit désactivé / code-barres modifié hors invalidation)
+            productBarcodeCache.invalidate(organisationId, rawBarcode);
+            return findActiveByBarcodeVariants(organisationId, rawBarcode);
+        }
+        return product;
+    }
+
+    private Optional<Product> findActiveByBarcodeVariants(UUID organisationId, String rawBarcode) {
         List<String> candidates = BarcodeNormalizer.candidates(rawBarcode);
-        for (String candidate : candidates) {
-            Optional<Product> found = productRepository
-                    .findByBarcodeAndOrganisation_IdAndIsActiveTrueWithDetails(candidate, organisationId);
-            if (found.isPresent()) {
-                return found;
-            }
+        if (candidates.isEmpty()) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        List<Product> matches = productRepository.findActiveByBarcodeVariantsWithDetails(
+                organisationId, BarcodeNormalizer.gtin14(rawBarcode), candidates);
+        return bestMatch(matches, candidates);
+    }
+
+    /**
+     * Meilleure correspondance: variante la plus prioritaire de {@code candidates}
+     * (même ordre que l'ancienne recherche variante par variante), puis GTIN-14 seul.
+     */
+    static Optional<Product> bestMatch(List<Product> matches, List<String> candidates) {
+        return matches.stream().min(Comparator
+                .comparingInt((Product p) -> {
+                    int rank = candidates.indexOf(p.getBarcode());
+                    return rank < 0 ? candidates.size() : rank;
+                })
+                .thenComparing(Product::getId));
     }
 }
@@ -0,0 +1,495 @@
+package com.salesmanager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.salesmanager.dto.ProductCatalogEntry;
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.util.BarcodeNormalizer;
+import com.salesmanager.util.LongHashIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Catalogue produit en mémoire, par organisation (optionnel: products.catalog.enabled).
+ * Chargé à la première lecture (produits actifs, une requête projetée), puis tenu à jour
+ * par relecture des seules lignes dont updated_at a bougé: après le commit des écritures
+ * de ProductService / SyncService, et périodiquement pour les mouvements de stock des
+ * ventes et les écritures des autres instances (retard maximal: refresh-interval).
+ * Les lectures par ID, code-barres, catégorie, fourchette de prix et stock bas sont
+ * servies sans requête; un ID ou un code-barres absent du catalogue (produit inactif ou
+ * pas encore relu) et un tri non géré retombent sur la base.
+ *
+ * Index: ID -> produit, GTIN-14 -> produit et ID -> produit par catégorie sur des tables
+ * à clés long primitives (LongHashIndex), les codes non GTIN dans une HashMap. Catégories,
+ * unités, créateurs, prix et dates identiques partagent la même instance.
+ * Mémoire mesurée (ProductCatalogBenchmark): environ 540 octets par produit, soit
+ * 5 Mo pour 10 000 produits, index compris. Le total est borné par max-products (toutes
+ * organisations confondues, éviction de l'organisation la moins récemment lue);
+ * une organisation qui dépasse seule la borne est lue en base.
+ *
+ * Métriques Caffeine "product.catalog" et jauge "product.catalog.products".
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    private static final Map<String, Comparator<ProductCatalogEntry>> SORTABLE = Map.of(
+            "id", Comparator.comparing(ProductCatalogEntry::id),
+            "name", nullable(ProductCatalogEntry::name, String.CASE_INSENSITIVE_ORDER),
+            "category", nullable(ProductCatalogEntry::category, String.CASE_INSENSITIVE_ORDER),
+            "sellingPrice", nullable(ProductCatalogEntry::sellingPrice, Comparator.naturalOrder()),
+            "purchasePrice", nullable(ProductCatalogEntry::purchasePrice, Comparator.naturalOrder()),
+            "stockQuantity", nullable(ProductCatalogEntry::stockQuantity, Comparator.naturalOrder()),
+            "expiryDate", nullable(ProductCatalogEntry::expiryDate, Comparator.naturalOrder()),
+            "createdAt", nullable(ProductCatalogEntry::createdAt, Comparator.naturalOrder()),
+            "updatedAt", nullable(ProductCatalogEntry::updatedAt, Comparator.naturalOrder()));
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readTransaction;
+    private final boolean enabled;
+    private final long maxProducts;
+    private final Duration refreshOverlap;
+    private final Cache<UUID, Snapshot> cache;
+
+    public ProductCatalogCache(
+            ProductRepository productRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${products.catalog.enabled:false}") boolean enabled,
+            @Value("${products.catalog.max-products:100000}") long maxProducts,
+            @Value("${products.catalog.expire-after-access:30m}") Duration expireAfterAccess,
+            @Value("${products.catalog.refresh-overlap:5s}") Duration refreshOverlap) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.maxProducts = maxProducts;
+        this.refreshOverlap = refreshOverlap;
+        // hors de la transaction appelante: jamais de lecture d'écritures non validées
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxProducts)
+                .weigher((UUID organisationId, Snapshot snapshot) -> Math.max(1, snapshot.size()))
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product.catalog");
+        Gauge.builder("product.catalog.products", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Produits gardés en mémoire, toutes organisations")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<ProductResponse> findById(UUID organisationId, Long id) {
+        Snapshot snapshot = snapshot(organisationId);
+        if (snapshot == null || id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot.read(() -> snapshot.byId.get(id))).map(ProductCatalogEntry::toResponse);
+    }
+
+    /**
+     * Produit actif pour ce code-barres: même GTIN-14, sinon l'une des variantes brutes
+     */
+    public Optional<ProductResponse> findByBarcode(UUID organisationId, String rawBarcode) {
+        Snapshot snapshot = snapshot(organisationId);
+        if (snapshot == null || rawBarcode == null) {
+            return Optional.empty();
+        }
+        long gtin = gtinKey(BarcodeNormalizer.gtin14(rawBarcode));
+        List<String> candidates = BarcodeNormalizer.candidates(rawBarcode);
+        return Optional.ofNullable(snapshot.read(() -> {
+            ProductCatalogEntry entry = gtin != 0 ? snapshot.byGtin.get(gtin) : null;
+            for (int i = 0; entry == null && i < candidates.size(); i++) {
+                entry = snapshot.byOtherBarcode.get(candidates.get(i));
+            }
+            return entry;
+        })).map(ProductCatalogEntry::toResponse);
+    }
+
+    /**
+     * Page des produits actifs d'une catégorie; vide (lecture en base) si le catalogue
+     * n'est pas disponible ou si le tri n'est pas géré
+     */
+    public Optional<Page<ProductResponse>> findByCategory(UUID organisationId, String category, Pageable pageable) {
+        if (category == null) {
+            return Optional.empty();
+        }
+        return page(organisationId, snapshot -> snapshot.byCategory.get(category), e -> true, pageable);
+    }
+
+    public Optional<Page<ProductResponse>> findByPriceRange(UUID organisationId, BigDecimal minPrice,
+                                                            BigDecimal maxPrice, Pageable pageable) {
+        if (minPrice == null || maxPrice == null) {
+            return Optional.empty();
+        }
+        return page(organisationId, snapshot -> snapshot.byId, e -> e.sellingPrice() != null
+                && e.sellingPrice().compareTo(minPrice) >= 0 && e.sellingPrice().compareTo(maxPrice) <= 0, pageable);
+    }
+
+    public Optional<List<ProductResponse>> findLowStock(UUID organisationId) {
+        return page(organisationId, snapshot -> snapshot.byId, e -> e.stockQuantity() != null
+                && e.minStockLevel() != null && e.stockQuantity() <= e.minStockLevel(), Pageable.unpaged())
+                .map(Page::getContent);
+    }
+
+    /**
+     * Relit les produits modifiés de l'organisation après le commit de la transaction
+     * courante (immédiatement hors transaction). Sans effet si l'organisation n'est pas en mémoire.
+     */
+    public void refreshAfterCommit(UUID organisationId) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(organisationId);
+                }
+            });
+        } else {
+            refresh(organisationId);
+        }
+    }
+
+    /**
+     * Relecture périodique de toutes les organisations en mémoire (stock des ventes,
+     * écritures des autres instances)
+     */
+    @Scheduled(fixedDelayString = "${products.catalog.refresh-interval:PT30S}",
+            initialDelayString = "${products.catalog.refresh-interval:PT30S}")
+    public void refreshAll() {
+        if (!enabled) {
+            return;
+        }
+        // parcours de asMap(): ne compte pas comme un accès, les organisations inactives expirent
+        for (UUID organisationId : List.copyOf(cache.asMap().keySet())) {
+            refresh(organisationId);
+        }
+    }
+
+    void refresh(UUID organisationId) {
+        Snapshot snapshot = cache.asMap().get(organisationId);
+        if (snapshot == null || snapshot.oversized) {
+            return;
+        }
+        try {
+            int before = snapshot.size();
+            snapshot.refresh();
+            if (snapshot.size() != before) {
+                // nouveau poids pour la borne max-products
+                cache.asMap().computeIfPresent(organisationId, (id, current) -> current);
+            }
+        } catch (RuntimeException e) {
+            // catalogue peut-être incomplet: rechargé entièrement à la prochaine lecture
+            logger.warn("Rafraîchissement du catalogue de l'organisation {} impossible, invalidé: {}",
+                    organisationId, e.getMessage());
+            cache.invalidate(organisationId);
+        }
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // produits de source (index complet ou d'une catégorie) retenus par filter, triés puis paginés
+    private Optional<Page<ProductResponse>> page(UUID organisationId,
+                                                 Function<Snapshot, LongHashIndex<ProductCatalogEntry>> source,
+                                                 Predicate<ProductCatalogEntry> filter, Pageable pageable) {
+        Snapshot snapshot = snapshot(organisationId);
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        Comparator<ProductCatalogEntry> order = comparator(pageable.getSort());
+        if (order == null) {
+            return Optional.empty();
+        }
+        List<ProductCatalogEntry> matches = snapshot.read(() -> {
+            List<ProductCatalogEntry> found = new ArrayList<>();
+            LongHashIndex<ProductCatalogEntry> entries = source.apply(snapshot);
+            if (entries == null) {
+                return found;
+            }
+            entries.forEachValue(e -> {
+                if (filter.test(e)) {
+                    found.add(e);
+                }
+            });
+            return found;
+        });
+        List<ProductCatalogEntry> content = matches;
+        if (pageable.isPaged()) {
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            int to = Math.min(from + pageable.getPageSize(), matches.size());
+            List<ProductCatalogEntry> head = firstSorted(matches, to, order);
+            content = head.subList(from, to);
+        } else {
+            matches.sort(order);
+        }
+        return Optional.of(new PageImpl<>(content.stream().map(ProductCatalogEntry::toResponse).toList(),
+                pageable, matches.size()));
+    }
+
+    // les limit premiers dans l'ordre: tas borné plutôt qu'un tri complet (pages du début)
+    private static List<ProductCatalogEntry> firstSorted(List<ProductCatalogEntry> entries, int limit,
+                                                         Comparator<ProductCatalogEntry> order) {
+        if (limit * 4 >= entries.size()) {
+            entries.sort(order);
+            return entries;
+        }
+        PriorityQueue<ProductCatalogEntry> top = new PriorityQueue<>(limit + 1, order.reversed());
+        for (ProductCatalogEntry entry : entries) {
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<ProductCatalogEntry> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    private Snapshot snapshot(UUID organisationId) {
+        if (!enabled || organisationId == null) {
+            return null;
+        }
+        Snapshot snapshot = cache.get(organisationId, this::load);
+        return snapshot.oversized ? null : snapshot;
+    }
+
+    private Snapshot load(UUID organisationId) {
+        return readTransaction.execute(status -> {
+            long count = productRepository.countByOrganisation_IdAndIsActiveTrue(organisationId);
+            if (count > maxProducts) {
+                logger.info("Catalogue de l'organisation {} non chargé en mémoire: {} produits (borne {})",
+                        organisationId, count, maxProducts);
+                return new Snapshot(organisationId, 0, true);
+            }
+            LocalDateTime started = LocalDateTime.now();
+            List<ProductCatalogEntry> entries = productRepository.findCatalog(organisationId);
+            Snapshot snapshot = new Snapshot(organisationId, entries.size(), false);
+            snapshot.apply(entries, started);
+            return snapshot;
+        });
+    }
+
+    // Ordre de la page, puis ID (ordre stable); null si une propriété n'est pas triable en mémoire
+    private static Comparator<ProductCatalogEntry> comparator(Sort sort) {
+        Comparator<ProductCatalogEntry> order = null;
+        for (Sort.Order o : sort) {
+            Comparator<ProductCatalogEntry> property = SORTABLE.get(o.getProperty());
+            if (property == null) {
+                return null;
+            }
+            // ASC nulls en dernier, DESC nulls en premier, comme PostgreSQL
+            property = o.isAscending() ? property : property.reversed();
+            order = order == null ? property : order.thenComparing(property);
+        }
+        Comparator<ProductCatalogEntry> byId = SORTABLE.get("id");
+        return order == null ? byId : order.thenComparing(byId);
+    }
+
+    private static <T> Comparator<ProductCatalogEntry> nullable(Function<ProductCatalogEntry, T> property,
+                                                                Comparator<? super T> order) {
+        return Comparator.comparing(property, Comparator.nullsLast(order));
+    }
+
+    // GTIN-14: 14 chiffres, tient dans un long; 0 (clé réservée de l'index) pour un code non GTIN
+    private static long gtinKey(String gtin14) {
+        return gtin14 == null ? 0 : Long.parseLong(gtin14);
+    }
+
+    private static long gtinKey(ProductCatalogEntry entry) {
+        return entry.barcode() == null ? 0 : gtinKey(BarcodeNormalizer.gtin14(entry.barcode()));
+    }
+
+    /**
+     * Catalogue d'une organisation. Lectures sous verrou partagé; une relecture à la fois,
+     * requête hors verrou, application sous verrou exclusif.
+     */
+    private final class Snapshot {
+
+        private final UUID organisationId;
+        private final boolean oversized;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final ReentrantLock refreshLock = new ReentrantLock();
+        private final LongHashIndex<ProductCatalogEntry> byId;
+        private final LongHashIndex<ProductCatalogEntry> byGtin;
+        private final Map<String, ProductCatalogEntry> byOtherBarcode = new HashMap<>();
+        private final Map<String, LongHashIndex<ProductCatalogEntry>> byCategory = new HashMap<>();
+        // valeurs répétées d'un produit à l'autre (catégorie, unité, créateur, prix, dates)
+        private final Map<Object, Object> shared = new HashMap<>();
+        private LocalDateTime lastRefreshStarted;
+
+        Snapshot(UUID organisationId, int expectedSize, boolean oversized) {
+            this.organisationId = organisationId;
+            this.oversized = oversized;
+            this.byId = new LongHashIndex<>(expectedSize);
+            this.byGtin = new LongHashIndex<>(expectedSize);
+        }
+
+        int size() {
+            return byId.size();
+        }
+
+        <T> T read(Supplier<T> reader) {
+            lock.readLock().lock();
+            try {
+                return reader.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Relit les lignes modifiées depuis la relecture précédente, moins refresh-overlap:
+         * une transaction validée après ce point avec un updated_at antérieur reste couverte
+         */
+        void refresh() {
+            refreshLock.lock();
+            try {
+                LocalDateTime started = LocalDateTime.now();
+                List<ProductCatalogEntry> changes = readTransaction.execute(status -> productRepository
+                        .findCatalogChanges(organisationId, lastRefreshStarted.minus(refreshOverlap)));
+                apply(changes, started);
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        void apply(List<ProductCatalogEntry> entries, LocalDateTime started) {
+            lock.writeLock().lock();
+            try {
+                for (ProductCatalogEntry entry : entries) {
+                    ProductCatalogEntry previous = byId.get(entry.id());
+                    if (previous != null && previous.category() != null) {
+                        byCategory.get(previous.category()).remove(previous.id());
+                    }
+                    if (!Boolean.TRUE.equals(entry.isActive())) {
+                        byId.remove(entry.id());
+                        if (previous != null) {
+                            unindexBarcode(previous);
+                        }
+                        continue;
+                    }
+                    ProductCatalogEntry compact = compact(entry);
+                    byId.put(compact.id(), compact);
+                    if (compact.category() != null) {
+                        byCategory.computeIfAbsent(compact.category(), c -> new LongHashIndex<>(16))
+                                .put(compact.id(), compact);
+                    }
+                    if (previous != null && Objects.equals(previous.barcode(), compact.barcode())) {
+                        replaceBarcode(previous, compact);
+                    } else {
+                        if (previous != null) {
+                            unindexBarcode(previous);
+                        }
+                        indexBarcode(compact);
+                    }
+                }
+                lastRefreshStarted = started;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void indexBarcode(ProductCatalogEntry entry) {
+            long gtin = gtinKey(entry);
+            if (gtin != 0) {
+                // deux produits de même GTIN (saisies différentes): le plus ancien, comme la recherche en base
+                ProductCatalogEntry current = byGtin.get(gtin);
+                if (current == null || current.id() > entry.id()) {
+                    byGtin.put(gtin, entry);
+                }
+            } else if (entry.barcode() != null) {
+                byOtherBarcode.merge(entry.barcode(), entry, (a, b) -> a.id() < b.id() ? a : b);
+            }
+        }
+
+        // même code-barres: l'index pointe sur la nouvelle version s'il pointait sur l'ancienne
+        private void replaceBarcode(ProductCatalogEntry previous, ProductCatalogEntry entry) {
+            long gtin = gtinKey(entry);
+            if (gtin != 0) {
+                if (byGtin.get(gtin) == previous) {
+                    byGtin.put(gtin, entry);
+                }
+            } else if (entry.barcode() != null) {
+                byOtherBarcode.replace(entry.barcode(), previous, entry);
+            }
+        }
+
+        // code-barres retiré ou modifié (rare): un autre produit actif de même code reprend l'entrée
+        private void unindexBarcode(ProductCatalogEntry previous) {
+            long gtin = gtinKey(previous);
+            boolean removed;
+            if (gtin != 0) {
+                removed = byGtin.get(gtin) == previous;
+                if (removed) {
+                    byGtin.remove(gtin);
+                }
+            } else {
+                removed = previous.barcode() != null && byOtherBarcode.remove(previous.barcode(), previous);
+            }
+            if (removed) {
+                byId.forEachValue(other -> {
+                    if (!other.id().equals(previous.id()) && gtinKey(other) == gtin
+                            && (gtin != 0 || previous.barcode().equals(other.barcode()))) {
+                        indexBarcode(other);
+                    }
+                });
+            }
+        }
+
+        private ProductCatalogEntry compact(ProductCatalogEntry e) {
+            return new ProductCatalogEntry(e.id(), e.name(), e.description(), e.barcode(),
+                    share(e.purchasePrice()), share(e.sellingPrice()), e.stockQuantity(), e.minStockLevel(),
+                    share(e.expiryDate()), share(e.manufacturingDate()), share(e.category()), share(e.unit()),
+                    e.imageUrl(), e.isActive(), e.createdAt(), e.updatedAt(), share(e.createdByUsername()));
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T share(T value) {
+            return value == null ? null : (T) shared.computeIfAbsent(value, v -> v);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.dto.ProductSuggestionDto;
+import com.salesmanager.entity.Product;
+import com.salesmanager.exception.BadRequestException;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.util.SearchTextNormalizer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Recherche produit plein texte
+ * Nom et description sont stockés sous forme normalisée (SearchTextNormalizer:
+ * minuscules, sans accents) dans search_name / search_text; la requête est normalisée
+ * de la même façon. Chaque terme doit apparaître (LIKE '%terme%', index trigrammes
+ * pg_trgm sur PostgreSQL); les résultats sont classés: nom exact, nom commençant par
+ * la requête, mot du nom commençant par la requête, terme dans le nom, puis
+ * description seule. L'autocomplétion ne cherche que des préfixes du nom (index
+ * btree text_pattern_ops, ou trigrammes pour un début de mot).
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final int MAX_TERMS = 5;
+    // en dessous, pas de trigramme exploitable: préfixe du nom uniquement
+    private static final int WORD_PREFIX_MIN_LENGTH = 3;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final Set<String> SORTABLE = Set.of("id", "name", "category", "sellingPrice", "purchasePrice",
+            "stockQuantity", "expiryDate", "createdAt", "updatedAt");
+
+    private static final String SCOPE = "WHERE p.organisation.id = :organisationId AND p.isActive = true";
+    private static final String SUGGESTION_SELECT = "SELECT new com.salesmanager.dto.ProductSuggestionDto(p.id, "
+            + "p.name, p.barcode, p.category, p.sellingPrice) FROM Product p " + SCOPE;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int autocompleteMaxLimit;
+
+    public ProductSearchService(ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                @Value("${products.search.autocomplete-max-limit:20}") int autocompleteMaxLimit) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.autocompleteMaxLimit = autocompleteMaxLimit;
+    }
+
+    /**
+     * Produits actifs de l'organisation correspondant à tous les termes, classés par pertinence
+     * (le tri demandé départage les résultats de même rang)
+     */
+    public Page<ProductResponse> search(UUID organisationId, String query, Pageable pageable) {
+        String[] terms = SearchTextNormalizer.terms(query, MAX_TERMS);
+        if (terms.length == 0) {
+            return productRepository.findActiveResponses(organisationId, pageable);
+        }
+        String phrase = String.join(" ", terms);
+
+        StringBuilder where = new StringBuilder(SCOPE);
+        for (int i = 0; i < terms.length; i++) {
+            where.append(" AND p.searchText LIKE :term").append(i);
+        }
+        String jpql = ProductRepository.RESPONSE_SELECT + where
+                + " ORDER BY CASE WHEN p.searchName = :phrase THEN 0"
+                + " WHEN p.searchName LIKE :phrasePrefix THEN 1"
+                + " WHEN p.searchName LIKE :wordPrefix THEN 2"
+                + " WHEN p.searchName LIKE :term0 THEN 3 ELSE 4 END" + orderBy(pageable.getSort());
+
+        TypedQuery<ProductResponse> page = entityManager.createQuery(jpql, ProductResponse.class)
+                .setParameter("organisationId", organisationId)
+                .setParameter("phrase", phrase)
+                .setParameter("phrasePrefix", phrase + "%")
+                .setParameter("wordPrefix", "% " + phrase + "%");
+        TypedQuery<Long> count = entityManager.createQuery("SELECT COUNT(p) FROM Product p " + where, Long.class)
+                .setParameter("organisationId", organisationId);
+        // les termes normalisés ne contiennent que lettres, chiffres et espaces: rien à échapper pour LIKE
+        for (int i = 0; i < terms.length; i++) {
+            page.setParameter("term" + i, "%" + terms[i] + "%");
+            count.setParameter("term" + i, "%" + terms[i] + "%");
+        }
+        if (pageable.isPaged()) {
+            page.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+
+        // count seulement si la page ne suffit pas à déduire le total
+        return PageableExecutionUtils.getPage(page.getResultList(), pageable, count::getSingleResult);
+    }
+
+    /**
+     * Suggestions pour une saisie en cours: nom commençant par la saisie, complété si besoin
+     * par les noms dont un mot commence par la saisie (au moins 3 caractères). Deux requêtes
+     * plutôt qu'un OR: la première reste un parcours d'index par préfixe (y compris sur H2)
+     * et suffit le plus souvent.
+     */
+    public List<ProductSuggestionDto> autocomplete(UUID organisationId, String prefix, int limit) {
+        String normalized = SearchTextNormalizer.normalize(prefix, Product.SEARCH_NAME_LENGTH);
+        if (normalized == null) {
+            return List.of();
+        }
+        int max = Math.max(1, Math.min(limit, autocompleteMaxLimit));
+        List<ProductSuggestionDto> suggestions = new ArrayList<>(entityManager
+                .createQuery(SUGGESTION_SELECT + " AND p.searchName LIKE :prefix ORDER BY p.searchName, p.id",
+                        ProductSuggestionDto.class)
+                .setParameter("organisationId", organisationId)
+                .setParameter("prefix", normalized + "%")
+                .setMaxResults(max)
+                .getResultList());
+        if (suggestions.size() < max && normalized.length() >= WORD_PREFIX_MIN_LENGTH) {
+            suggestions.addAll(entityManager
+                    .createQuery(SUGGESTION_SELECT + " AND p.searchName LIKE :wordPrefix"
+                            + " AND p.searchName NOT LIKE :prefix ORDER BY p.searchName, p.id",
+                            ProductSuggestionDto.class)
+                    .setParameter("organisationId", organisationId)
+                    .setParameter("prefix", normalized + "%")
+                    .setParameter("wordPrefix", "% " + normalized + "%")
+                    .setMaxResults(max - suggestions.size())
+                    .getResultList());
+        }
+        return suggestions;
+    }
+
+    /**
+     * Remplit search_name / search_text des produits qui n'en ont pas encore (après la
+     * migration V20, ou base H2 mise à jour par Hibernate). Normalisation Java, identique
+     * à celle des écritures; mise à jour JDBC directe pour ne pas modifier updated_at
+     * (sinon tout le catalogue repartirait en synchronisation delta).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillSearchColumns() {
+        int updated = 0;
+        List<Object[]> batch;
+        do {
+            batch = new ArrayList<>();
+            for (var row : jdbcTemplate.queryForList(
+                    "SELECT id, name, description FROM products WHERE search_name IS NULL AND name IS NOT NULL "
+                            + "ORDER BY id LIMIT " + BACKFILL_BATCH_SIZE)) {
+                String name = (String) row.get("name");
+                String description = (String) row.get("description");
+                String searchName = SearchTextNormalizer.normalize(name, Product.SEARCH_NAME_LENGTH);
+                if (searchName == null) {
+                    // nom sans lettre ni chiffre: marqué vide pour ne pas le reprendre à chaque lot
+                    searchName = "";
+                }
+                batch.add(new Object[] {
+                        searchName,
+                        SearchTextNormalizer.normalize(description == null ? name : name + " " + description,
+                                Product.SEARCH_TEXT_LENGTH),
+                        ((Number) row.get("id")).longValue()});
+            }
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE products SET search_name = ?, search_text = ? WHERE id = ?", batch);
+                updated += batch.size();
+            }
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+        if (updated > 0) {
+            logger.info("Colonnes de recherche produit remplies pour {} produits", updated);
+        }
+    }
+
+    private static String orderBy(Sort sort) {
+        StringBuilder order = new StringBuilder();
+        for (Sort.Order o : sort) {
+            if (!SORTABLE.contains(o.getProperty())) {
+                throw new BadRequestException("Tri non supporté pour la recherche: " + o.getProperty());
+            }
+            order.append(", p.").append(o.getProperty()).append(o.isAscending() ? " ASC" : " DESC");
+        }
+        return order.append(", p.id").toString();
+    }
+}
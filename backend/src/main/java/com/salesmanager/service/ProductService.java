@@ -2,6 +2,7 @@ package com.salesmanager.service;
 
 import com.salesmanager.dto.ProductRequest;
 import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.dto.ProductSuggestionDto;
 import com.salesmanager.entity.Product;
 import com.salesmanager.entity.User;
 import com.salesmanager.exception.ProductNotFoundException;
@@ -43,6 +44,21 @@ public class ProductService {
     @Autowired
     private ProductBarcodeLookupService productBarcodeLookupService;
 
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private SyncTombstoneService syncTombstoneService;
+
+    @Autowired
+    private ProductBarcodeCache productBarcodeCache;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductAlertService productAlertService;
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -65,6 +81,9 @@ public class ProductService {
                 applyRequestToProduct(inactiveOrActive, request, barcode);
                 inactiveOrActive.setIsActive(true);
                 Product reactivated = productRepository.save(inactiveOrActive);
+                productBarcodeCache.invalidateOrganisation(organisationId);
+                productCatalogCache.refreshAfterCommit(organisationId);
+                productAlertService.refreshAfterCommit(organisationId);
                 return mapToResponse(reactivated);
             }
         }
@@ -81,6 +100,10 @@ public class ProductService {
         }
         
         Product savedProduct = productRepository.save(product);
+        // lève aussi les entrées négatives de ce code-barres
+        productBarcodeCache.invalidateOrganisation(organisationId);
+        productCatalogCache.refreshAfterCommit(organisationId);
+        productAlertService.refreshAfterCommit(organisationId);
         return mapToResponse(savedProduct);
     }
     
@@ -88,6 +111,10 @@ public class ProductService {
     @Transactional(readOnly = true)
     public ProductResponse getProductById(Long id) {
         UUID organisationId = requireOrganisationId();
+        Optional<ProductResponse> cached = productCatalogCache.findById(organisationId, id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         Product product = productRepository.findByIdAndOrganisation_Id(id, organisationId)
             .orElseThrow(() -> new ProductNotFoundException(id));
         return mapToResponse(product);
@@ -97,32 +124,37 @@ public class ProductService {
     @Transactional(readOnly = true)
     public Page<ProductResponse> getAllProducts(Pageable pageable) {
         UUID organisationId = requireOrganisationId();
-        Page<Product> products = productRepository.findByOrganisation_IdAndIsActiveTrue(organisationId, pageable);
-        return products.map(this::mapToResponse);
+        return productRepository.findActiveResponses(organisationId, pageable);
     }
     
     // Search products
     @Transactional(readOnly = true)
     public Page<ProductResponse> searchProducts(String searchTerm, Pageable pageable) {
         UUID organisationId = requireOrganisationId();
-        Page<Product> products = productRepository.searchByNameOrDescription(organisationId, searchTerm, pageable);
-        return products.map(this::mapToResponse);
+        return productSearchService.search(organisationId, searchTerm, pageable);
+    }
+    
+    // Autocomplete product names
+    @Transactional(readOnly = true)
+    public List<ProductSuggestionDto> autocompleteProducts(String prefix, int limit) {
+        UUID organisationId = requireOrganisationId();
+        return productSearchService.autocomplete(organisationId, prefix, limit);
     }
     
     // Get products by category
     @Transactional(readOnly = true)
     public Page<ProductResponse> getProductsByCategory(String category, Pageable pageable) {
         UUID organisationId = requireOrganisationId();
-        Page<Product> products = productRepository.findByOrganisation_IdAndCategoryAndIsActiveTrue(organisationId, category, pageable);
-        return products.map(this::mapToResponse);
+        return productCatalogCache.findByCategory(organisationId, category, pageable)
+            .orElseGet(() -> productRepository.findActiveResponsesByCategory(organisationId, category, pageable));
     }
     
     // Get products by price range
     @Transactional(readOnly = true)
     public Page<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         UUID organisationId = requireOrganisationId();
-        Page<Product> products = productRepository.findByPriceRange(organisationId, minPrice, maxPrice, pageable);
-        return products.map(this::mapToResponse);
+        return productCatalogCache.findByPriceRange(organisationId, minPrice, maxPrice, pageable)
+            .orElseGet(() -> productRepository.findActiveResponsesByPriceRange(organisationId, minPrice, maxPrice, pageable));
     }
     
     // Update product
@@ -154,6 +186,9 @@ public class ProductService {
         existingProduct.setIsActive(request.getIsActive());
         
         Product updatedProduct = productRepository.save(existingProduct);
+        productBarcodeCache.invalidateOrganisation(organisationId);
+        productCatalogCache.refreshAfterCommit(organisationId);
+        productAlertService.refreshAfterCommit(organisationId);
         return mapToResponse(updatedProduct);
     }
     
@@ -165,6 +200,10 @@ public class ProductService {
         
         product.setIsActive(false);
         productRepository.save(product);
+        syncTombstoneService.recordDeletion(organisationId, null, "product", product.getId());
+        productBarcodeCache.invalidateOrganisation(organisationId);
+        productCatalogCache.refreshAfterCommit(organisationId);
+        productAlertService.refreshAfterCommit(organisationId);
     }
     
     // Update stock quantity
@@ -175,6 +214,8 @@ public class ProductService {
         
         product.setStockQuantity(newQuantity);
         Product updatedProduct = productRepository.save(product);
+        productCatalogCache.refreshAfterCommit(organisationId);
+        productAlertService.refreshAfterCommit(organisationId);
         return mapToResponse(updatedProduct);
     }
     
@@ -182,6 +223,10 @@ public class ProductService {
     @Transactional(readOnly = true)
     public List<ProductResponse> getLowStockProducts() {
         UUID organisationId = requireOrganisationId();
+        Optional<List<ProductResponse>> cached = productCatalogCache.findLowStock(organisationId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         List<Product> products = productRepository.findLowStockProducts(organisationId);
         return products.stream().map(this::mapToResponse).collect(Collectors.toList());
     }
@@ -203,6 +248,20 @@ public class ProductService {
         return products.stream().map(this::mapToResponse).collect(Collectors.toList());
     }
     
+    // Alert counts (precomputed, dashboard)
+    @Transactional(readOnly = true)
+    public ProductAlertService.AlertCounts getAlertCounts() {
+        UUID organisationId = requireOrganisationId();
+        return productAlertService.counts(organisationId);
+    }
+    
+    // Paged alerts (low stock / expiring / expired)
+    @Transactional(readOnly = true)
+    public Page<ProductResponse> getAlerts(ProductAlertService.AlertType type, Pageable pageable) {
+        UUID organisationId = requireOrganisationId();
+        return productAlertService.alerts(organisationId, type, pageable);
+    }
+    
     // Get all categories
     @Transactional(readOnly = true)
     public List<String> getAllCategories() {
@@ -214,6 +273,10 @@ public class ProductService {
     @Transactional(readOnly = true)
     public ProductResponse getProductByBarcode(String barcode) {
         UUID organisationId = requireOrganisationId();
+        Optional<ProductResponse> cached = productCatalogCache.findByBarcode(organisationId, barcode);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         Product product = productBarcodeLookupService.findActiveByBarcode(organisationId, barcode)
             .orElseThrow(() -> new ProductNotFoundException("Produit non trouvé avec le code-barres: " + barcode));
         return mapToResponse(product);
@@ -228,13 +291,13 @@ public class ProductService {
     }
 
     private Optional<Product> findAnyByBarcodeVariants(UUID organisationId, String rawBarcode) {
-        for (String candidate : BarcodeNormalizer.candidates(rawBarcode)) {
-            Optional<Product> found = productRepository.findByBarcodeAndOrganisation_Id(candidate, organisationId);
-            if (found.isPresent()) {
-                return found;
-            }
+        List<String> candidates = BarcodeNormalizer.candidates(rawBarcode);
+        if (candidates.isEmpty()) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        List<Product> matches = productRepository.findByBarcodeVariants(
+                organisationId, BarcodeNormalizer.gtin14(rawBarcode), candidates);
+        return ProductBarcodeLookupService.bestMatch(matches, candidates);
     }
 
     private void applyRequestToProduct(Product product, ProductRequest request, String barcode) {
@@ -0,0 +1,146 @@
+package com.salesmanager.service;
+
+import com.salesmanager.exception.InsufficientStockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Mouvements de stock atomiques en base pour les ventes
+ * Pas de lecture-vérification-écriture en Java: chaque produit est décrémenté par un
+ * UPDATE conditionnel (stock_quantity >= quantité), tous les produits d'une vente dans
+ * un seul batch JDBC. Deux caisses qui vendent les derniers articles ne peuvent plus
+ * passer toutes les deux.
+ *
+ * Les entités Product déjà chargées dans la transaction gardent l'ancien stock en mémoire;
+ * elles ne sont pas modifiées, donc jamais réécrites par Hibernate.
+ */
+@Service
+@Transactional
+public class ProductStockService {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? "
+                    + "WHERE id = ? AND organisation_id = ? AND stock_quantity >= ?";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ? AND organisation_id = ?";
+
+    /**
+     * Ligne de vente à imputer sur le stock
+     *
+     * @param lineNumber position de la ligne dans la vente (à partir de 1), pour les messages d'erreur
+     */
+    public record StockLine(int lineNumber, Long productId, String productName, int quantity) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductAlertService productAlertService;
+
+    public ProductStockService(JdbcTemplate jdbcTemplate, ProductAlertService productAlertService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productAlertService = productAlertService;
+    }
+
+    /**
+     * Décrémente le stock de toutes les lignes, tout ou rien: si une ligne manque de stock,
+     * l'exception annule la transaction appelante (et les décréments déjà appliqués).
+     *
+     * @throws InsufficientStockException avec le détail de chaque produit en défaut
+     */
+    public void decrement(UUID organisationId, List<StockLine> lines) {
+        Map<Long, Integer> quantities = totalsByProduct(lines);
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        List<Object[]> batch = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            int quantity = quantities.get(productId);
+            batch.add(new Object[] { quantity, now, productId, organisationId, quantity });
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, batch);
+
+        List<Long> shortProductIds = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            // 0 ligne: stock insuffisant (ou produit hors organisation); un compte inconnu est traité comme un échec
+            if (updated[i] != 1) {
+                shortProductIds.add(productIds.get(i));
+            }
+        }
+        if (!shortProductIds.isEmpty()) {
+            throw shortages(lines, quantities, shortProductIds);
+        }
+        // alertes de stock bas réévaluées après le commit
+        productAlertService.refreshAfterCommit(organisationId);
+    }
+
+    /**
+     * Remet en stock les quantités des lignes (annulation / remboursement / suppression de vente)
+     */
+    public void increment(UUID organisationId, List<StockLine> lines) {
+        Map<Long, Integer> quantities = totalsByProduct(lines);
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> batch.add(new Object[] { quantity, now, productId, organisationId }));
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+        productAlertService.refreshAfterCommit(organisationId);
+    }
+
+    // Trié par ID: toutes les ventes verrouillent les lignes produits dans le même ordre (pas d'interblocage)
+    private static Map<Long, Integer> totalsByProduct(List<StockLine> lines) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (StockLine line : lines) {
+            if (line.productId() != null && line.quantity() > 0) {
+                quantities.merge(line.productId(), line.quantity(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    // Une entrée par produit en défaut: quantité totale demandée sur la vente (c'est elle qui est
+    // comparée au stock), rattachée à la première ligne du produit
+    private InsufficientStockException shortages(List<StockLine> lines, Map<Long, Integer> quantities,
+                                                 List<Long> shortProductIds) {
+        Map<Long, Integer> available = currentStock(shortProductIds);
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        Set<Long> reported = new HashSet<>();
+        for (StockLine line : lines) {
+            Long productId = line.productId();
+            if (shortProductIds.contains(productId) && reported.add(productId)) {
+                shortages.add(new InsufficientStockException.Shortage(line.lineNumber(), productId,
+                        line.productName(), quantities.get(productId), available.getOrDefault(productId, 0)));
+            }
+        }
+        return new InsufficientStockException(shortages);
+    }
+
+    private Map<Long, Integer> currentStock(List<Long> productIds) {
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    stock.put(rs.getLong("id"), rs.getInt("stock_quantity"));
+                },
+                productIds.toArray());
+        return stock;
+    }
+}
@@ -9,6 +9,7 @@ import com.salesmanager.exception.InvalidPasswordException;
 import com.salesmanager.exception.ResourceAlreadyExistsException;
 import com.salesmanager.exception.ResourceNotFoundException;
 import com.salesmanager.repository.UserRepository;
+import com.salesmanager.security.AuthPrincipalCache;
 import com.salesmanager.util.SupportedCurrency;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -21,10 +22,13 @@ public class ProfileService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuthPrincipalCache authPrincipalCache;
 
-    public ProfileService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public ProfileService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+            AuthPrincipalCache authPrincipalCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.authPrincipalCache = authPrincipalCache;
     }
 
     @Transactional(readOnly = true)
@@ -36,6 +40,8 @@ public class ProfileService {
     @Transactional
     public ProfileResponse updateProfile(Long userId, UpdateProfileRequest request) {
         User user = findUserById(userId);
+        // principal mis en cache sous le nom de connexion lu avant la modification
+        String previousUsername = user.getUsername();
 
         if (request.email() != null && !request.email().isBlank()) {
             String email = request.email().trim();
@@ -54,6 +60,10 @@ public class ProfileService {
         }
 
         User saved = userRepository.save(user);
+        authPrincipalCache.invalidateUser(previousUsername);
+        if (!previousUsername.equals(saved.getUsername())) {
+            authPrincipalCache.invalidateUser(saved.getUsername());
+        }
         return toProfileResponse(saved);
     }
 
@@ -71,6 +81,7 @@ public class ProfileService {
 
         user.setPassword(passwordEncoder.encode(request.newPassword()));
         userRepository.save(user);
+        authPrincipalCache.invalidateUser(user.getUsername());
     }
 
     private User findUserById(Long userId) {
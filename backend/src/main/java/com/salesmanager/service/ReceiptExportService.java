@@ -0,0 +1,343 @@
+package com.salesmanager.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.utils.PdfMerger;
+import com.salesmanager.entity.Receipt;
+import com.salesmanager.entity.User;
+import com.salesmanager.exception.BadRequestException;
+import com.salesmanager.exception.NotFoundException;
+import com.salesmanager.repository.ReceiptRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export en masse des reçus (journée, mois...) en un PDF fusionné ou une archive ZIP
+ * Les reçus sont rendus en parallèle sur un pool borné partagé par tous les exports;
+ * chaque export garde au plus une fenêtre de reçus rendus d'avance et les écrit dans
+ * l'ordre au fil de l'eau: la mémoire ne dépend pas de la taille de la période.
+ * Chaque export a un identifiant pour suivre sa progression ou l'annuler.
+ */
+@Service
+public class ReceiptExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptExportService.class);
+
+    public enum ExportFormat {
+        PDF, ZIP
+    }
+
+    public enum ExportStatus {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    public record ExportProgress(String exportId, ExportFormat format, int total, int done, ExportStatus status,
+                                 LocalDateTime startedAt, LocalDateTime finishedAt) {
+    }
+
+    private record RenderedReceipt(String receiptNumber, byte[] pdf) {
+    }
+
+    private static final class ExportJob {
+        private final String id = UUID.randomUUID().toString();
+        private final String username;
+        private final ExportFormat format;
+        private final Locale locale;
+        private final String currencyCode;
+        private final List<Long> receiptIds;
+        private final AtomicInteger done = new AtomicInteger();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile ExportStatus status = ExportStatus.RUNNING;
+        private volatile boolean writeStarted;
+        private volatile boolean cancelRequested;
+        private volatile LocalDateTime finishedAt;
+
+        private ExportJob(String username, ExportFormat format, Locale locale, String currencyCode, List<Long> receiptIds) {
+            this.username = username;
+            this.format = format;
+            this.locale = locale;
+            this.currencyCode = currencyCode;
+            this.receiptIds = receiptIds;
+        }
+
+        private ExportProgress progress() {
+            return new ExportProgress(id, format, receiptIds.size(), done.get(), status, startedAt, finishedAt);
+        }
+    }
+
+    private final ReceiptRepository receiptRepository;
+    private final ReceiptPdfService receiptPdfService;
+    private final ReceiptPdfCache receiptPdfCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService renderExecutor;
+    private final int window;
+    private final int maxReceipts;
+    private final Duration retention;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ReceiptExportService(
+            ReceiptRepository receiptRepository,
+            ReceiptPdfService receiptPdfService,
+            ReceiptPdfCache receiptPdfCache,
+            PlatformTransactionManager transactionManager,
+            @Value("${receipts.export.threads:4}") int threads,
+            @Value("${receipts.export.max-receipts:20000}") int maxReceipts,
+            @Value("${receipts.export.retention:1h}") Duration retention) {
+        this.receiptRepository = receiptRepository;
+        this.receiptPdfService = receiptPdfService;
+        this.receiptPdfCache = receiptPdfCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "receipt-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // rendus d'avance par export: borne la mémoire et la part du pool prise par un export
+        this.window = threads * 2;
+        this.maxReceipts = maxReceipts;
+        this.retention = retention;
+    }
+
+    /**
+     * Enregistre un export; le contenu est produit par {@link #write}
+     *
+     * @return l'identifiant de l'export (progression, annulation)
+     */
+    public String start(User user, List<Long> receiptIds, ExportFormat format, Locale locale) {
+        if (receiptIds.isEmpty()) {
+            throw new NotFoundException("Aucun reçu sur cette période");
+        }
+        if (receiptIds.size() > maxReceipts) {
+            throw new BadRequestException("Trop de reçus pour un export (" + receiptIds.size()
+                    + ", maximum " + maxReceipts + "): réduisez la période");
+        }
+        purgeFinishedJobs();
+        ExportJob job = new ExportJob(user.getUsername(), format, locale, ReceiptService.currencyOf(user),
+                List.copyOf(receiptIds));
+        jobs.put(job.id, job);
+        logger.info("Export de {} reçus ({}) démarré par {}: {}", receiptIds.size(), format, user.getUsername(), job.id);
+        return job.id;
+    }
+
+    /**
+     * Rend les reçus de l'export et les écrit dans {@code outputStream} (non fermé)
+     * Une annulation ou une déconnexion du client arrête les rendus en cours.
+     */
+    public void write(String exportId, OutputStream outputStream) throws IOException {
+        ExportJob job = jobs.get(exportId);
+        if (job == null) {
+            throw new NotFoundException("Export introuvable: " + exportId);
+        }
+        job.writeStarted = true;
+        Deque<Future<RenderedReceipt>> pending = new ArrayDeque<>();
+        int next = 0;
+        try (ExportSink sink = job.format == ExportFormat.ZIP ? new ZipSink(outputStream) : new MergedPdfSink(outputStream)) {
+            while (next < job.receiptIds.size() || !pending.isEmpty()) {
+                while (pending.size() < window && next < job.receiptIds.size()) {
+                    Long receiptId = job.receiptIds.get(next++);
+                    pending.add(renderExecutor.submit(() -> render(receiptId, job.locale, job.currencyCode)));
+                }
+                if (job.cancelRequested) {
+                    job.status = ExportStatus.CANCELLED;
+                    throw new IOException("Export annulé: " + exportId);
+                }
+                RenderedReceipt rendered = await(pending.poll());
+                if (rendered != null) {
+                    sink.add(rendered);
+                }
+                job.done.incrementAndGet();
+            }
+            sink.finish();
+            job.status = ExportStatus.COMPLETED;
+            logger.info("Export {} terminé: {} reçus", exportId, job.done.get());
+        } catch (IOException | RuntimeException e) {
+            if (job.status == ExportStatus.RUNNING) {
+                job.status = ExportStatus.FAILED;
+            }
+            logger.warn("Export {} interrompu après {} reçus ({})", exportId, job.done.get(), job.status);
+            throw e;
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    public ExportProgress getProgress(String exportId, User user) {
+        return requireJob(exportId, user).progress();
+    }
+
+    public ExportProgress cancel(String exportId, User user) {
+        ExportJob job = requireJob(exportId, user);
+        job.cancelRequested = true;
+        return job.progress();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
+    private ExportJob requireJob(String exportId, User user) {
+        ExportJob job = jobs.get(exportId);
+        if (job == null || !job.username.equals(user.getUsername())) {
+            throw new NotFoundException("Export introuvable: " + exportId);
+        }
+        return job;
+    }
+
+    // Exports terminés, et exports jamais écrits (client parti avant le flux de la réponse)
+    private void purgeFinishedJobs() {
+        LocalDateTime limit = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null
+                ? job.finishedAt.isBefore(limit)
+                : !job.writeStarted && job.startedAt.isBefore(limit));
+    }
+
+    // Reçu supprimé ou non téléchargeable depuis le début de l'export: ignoré (null)
+    private RenderedReceipt render(Long receiptId, Locale locale, String currencyCode) {
+        return readOnlyTransaction.execute(status -> receiptRepository.findByIdForPdf(receiptId)
+                .filter(Receipt::isDownloadable)
+                .map(receipt -> {
+                    try {
+                        byte[] cached = receiptPdfCache.getIfCached(receipt, locale, currencyCode);
+                        byte[] pdf = cached != null ? cached : receiptPdfService.generatePdf(receipt, locale, currencyCode);
+                        return new RenderedReceipt(receipt.getReceiptNumber(), pdf);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .orElse(null));
+    }
+
+    private static RenderedReceipt await(Future<RenderedReceipt> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erreur lors du rendu d'un reçu", e.getCause());
+        }
+    }
+
+    private interface ExportSink extends AutoCloseable {
+        void add(RenderedReceipt receipt) throws IOException;
+
+        void finish() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    // Le flux de la réponse reste à la charge du conteneur
+    private static OutputStream nonClosing(OutputStream outputStream) {
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    private static final class ZipSink implements ExportSink {
+        private final ZipOutputStream zip;
+
+        ZipSink(OutputStream outputStream) {
+            this.zip = new ZipOutputStream(nonClosing(outputStream));
+        }
+
+        @Override
+        public void add(RenderedReceipt receipt) throws IOException {
+            zip.putNextEntry(new ZipEntry("receipt_" + receipt.receiptNumber() + ".pdf"));
+            zip.write(receipt.pdf());
+            zip.closeEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    // Pages copiées puis vidées vers le client reçu par reçu (flushCopiedObjects)
+    private static final class MergedPdfSink implements ExportSink {
+        private final PdfDocument merged;
+        private final PdfMerger merger;
+        private int pages;
+
+        MergedPdfSink(OutputStream outputStream) {
+            PdfWriter writer = new PdfWriter(outputStream);
+            writer.setCloseStream(false);
+            this.merged = new PdfDocument(writer);
+            this.merger = new PdfMerger(merged);
+        }
+
+        @Override
+        public void add(RenderedReceipt receipt) throws IOException {
+            PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(receipt.pdf())));
+            try {
+                merger.merge(source, 1, source.getNumberOfPages());
+                pages += source.getNumberOfPages();
+                merged.flushCopiedObjects(source);
+            } finally {
+                source.close();
+            }
+        }
+
+        @Override
+        public void finish() {
+            if (pages == 0) {
+                // tous les reçus ont disparu en cours d'export: un PDF doit avoir au moins une page
+                merged.addNewPage();
+            }
+            merged.close();
+        }
+
+        @Override
+        public void close() {
+            if (!merged.isClosed()) {
+                merged.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.salesmanager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.salesmanager.entity.Receipt;
+import com.salesmanager.repository.ReceiptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Cache des PDF de reçus rendus, par (reçu, langue, devise, updatedAt du reçu).
+ * Une modification du reçu change la clé: les anciennes versions sortent par éviction.
+ * Mémoire bornée en octets; les entrées évincées pour la taille sont déversées sur disque
+ * (nombre de fichiers borné), relues et remontées en mémoire au prochain accès.
+ * Le PDF d'un nouveau reçu est pré-rendu après le commit sur un pool dédié, pour que
+ * la première impression ne bloque pas un thread Tomcat.
+ *
+ * Métriques: "receipts.pdf.render" (durée de rendu, tag source=request|prerender),
+ * "receipts.pdf.cache" (tag result=memory|disk|miss) et les métriques Caffeine "receipts.pdf".
+ */
+@Component
+public class ReceiptPdfCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptPdfCache.class);
+
+    // Langue et devise par défaut des téléchargements (ReceiptController, ReceiptService)
+    public static final Locale DEFAULT_LOCALE = Locale.FRENCH;
+    public static final String DEFAULT_CURRENCY = "EUR";
+
+    private record Key(Long receiptId, String language, String currency, LocalDateTime updatedAt) {
+
+        String fileName() {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(toString().getBytes(StandardCharsets.UTF_8));
+                return receiptId + "-" + HexFormat.of().formatHex(digest, 0, 12) + ".pdf";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final ReceiptPdfService receiptPdfService;
+    private final ReceiptRepository receiptRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long maxEntryBytes;
+    private final Path spillDirectory;
+    private final Cache<Key, byte[]> memory;
+    private final Cache<Key, Path> disk;
+    private final ThreadPoolExecutor prerenderExecutor;
+    private final Timer requestRenderTimer;
+    private final Timer prerenderTimer;
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    public ReceiptPdfCache(
+            ReceiptPdfService receiptPdfService,
+            ReceiptRepository receiptRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${receipts.pdf-cache.max-memory-bytes:33554432}") long maxMemoryBytes,
+            @Value("${receipts.pdf-cache.max-entry-bytes:262144}") long maxEntryBytes,
+            @Value("${receipts.pdf-cache.max-disk-entries:10000}") long maxDiskEntries,
+            @Value("${receipts.pdf-cache.spill-dir:${java.io.tmpdir}/sales-manager/receipt-pdf}") String spillDir,
+            @Value("${receipts.pdf-cache.prerender-threads:2}") int prerenderThreads,
+            @Value("${receipts.pdf-cache.prerender-queue:500}") int prerenderQueue) throws IOException {
+        this.receiptPdfService = receiptPdfService;
+        this.receiptRepository = receiptRepository;
+        this.maxEntryBytes = maxEntryBytes;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        // Un répertoire par instance (l'index disque ne survit pas au redémarrage), supprimé à l'arrêt
+        Path spillRoot = Path.of(spillDir);
+        Files.createDirectories(spillRoot);
+        this.spillDirectory = Files.createTempDirectory(spillRoot, "run-");
+
+        this.disk = Caffeine.newBuilder()
+                .maximumSize(maxDiskEntries)
+                .removalListener((Key key, Path path, RemovalCause cause) -> {
+                    if (path != null && cause != RemovalCause.REPLACED) {
+                        deleteQuietly(path);
+                    }
+                })
+                .build();
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((Key key, byte[] pdf) -> pdf.length)
+                .removalListener((Key key, byte[] pdf, RemovalCause cause) -> {
+                    if (key != null && pdf != null && cause == RemovalCause.SIZE) {
+                        spill(key, pdf);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "receipts.pdf");
+
+        this.requestRenderTimer = Timer.builder("receipts.pdf.render").tag("source", "request").register(meterRegistry);
+        this.prerenderTimer = Timer.builder("receipts.pdf.render").tag("source", "prerender").register(meterRegistry);
+        this.memoryHits = Counter.builder("receipts.pdf.cache").tag("result", "memory").register(meterRegistry);
+        this.diskHits = Counter.builder("receipts.pdf.cache").tag("result", "disk").register(meterRegistry);
+        this.misses = Counter.builder("receipts.pdf.cache").tag("result", "miss").register(meterRegistry);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // File bornée; au-delà le pré-rendu est abandonné (le PDF sera rendu à la demande)
+        this.prerenderExecutor = new ThreadPoolExecutor(prerenderThreads, prerenderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(prerenderQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "receipt-pdf-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * PDF du reçu, depuis le cache ou rendu (une seule fois par clé, même en accès concurrent)
+     * Le reçu doit être attaché à une session ouverte (lignes de vente chargées à la demande).
+     */
+    public byte[] get(Receipt receipt, Locale locale, String currencyCode) throws IOException {
+        return get(receipt, locale, currencyCode, requestRenderTimer);
+    }
+
+    /**
+     * PDF du reçu s'il est en cache (mémoire ou disque), sans le rendre; null sinon
+     */
+    public byte[] getIfCached(Receipt receipt, Locale locale, String currencyCode) throws IOException {
+        Key key = key(receipt, locale, currencyCode);
+        byte[] pdf = memory.getIfPresent(key);
+        if (pdf != null) {
+            memoryHits.increment();
+            return pdf;
+        }
+        Path spilled = disk.getIfPresent(key);
+        if (spilled == null || !Files.exists(spilled)) {
+            return null;
+        }
+        diskHits.increment();
+        pdf = Files.readAllBytes(spilled);
+        memory.put(key, pdf);
+        return pdf;
+    }
+
+    /**
+     * Rend le PDF directement dans {@code outputStream} (téléchargement non servi par le cache).
+     * Une copie est gardée tant que le document reste sous receipts.pdf-cache.max-entry-bytes,
+     * puis mise en cache; au-delà le document est seulement diffusé.
+     * Le graphe du reçu (vente, lignes, produits, vendeur) doit être chargé.
+     */
+    public void render(Receipt receipt, Locale locale, String currencyCode, OutputStream outputStream)
+            throws IOException {
+        misses.increment();
+        CapturingOutputStream capture = new CapturingOutputStream(outputStream, maxEntryBytes);
+        Timer.Sample sample = Timer.start();
+        receiptPdfService.writePdf(receipt, locale, currencyCode, capture);
+        sample.stop(requestRenderTimer);
+        byte[] pdf = capture.captured();
+        if (pdf != null) {
+            memory.put(key(receipt, locale, currencyCode), pdf);
+        }
+    }
+
+    /**
+     * Programme le rendu du PDF après le commit de la transaction courante
+     */
+    public void prerenderAfterCommit(Long receiptId, Locale locale, String currencyCode) {
+        Runnable submit = () -> prerenderExecutor.execute(() -> prerender(receiptId, locale, currencyCode));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit.run();
+                }
+            });
+        } else {
+            submit.run();
+        }
+    }
+
+    public void evict(Long receiptId) {
+        memory.asMap().keySet().removeIf(key -> key.receiptId().equals(receiptId));
+        disk.asMap().keySet().removeIf(key -> key.receiptId().equals(receiptId));
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        prerenderExecutor.shutdownNow();
+        disk.invalidateAll();
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            files.forEach(ReceiptPdfCache::deleteQuietly);
+        }
+        deleteQuietly(spillDirectory);
+    }
+
+    private void prerender(Long receiptId, Locale locale, String currencyCode) {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> receiptRepository.findByIdForPdf(receiptId)
+                    .filter(Receipt::isDownloadable)
+                    .ifPresent(receipt -> {
+                        try {
+                            get(receipt, locale, currencyCode, prerenderTimer);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            logger.warn("Pré-rendu du PDF impossible pour le reçu ID: {}", receiptId, e);
+        }
+    }
+
+    private static Key key(Receipt receipt, Locale locale, String currencyCode) {
+        return new Key(receipt.getId(), locale.getLanguage(),
+                currencyCode == null ? DEFAULT_CURRENCY : currencyCode.toUpperCase(Locale.ROOT),
+                receipt.getUpdatedAt());
+    }
+
+    private byte[] get(Receipt receipt, Locale locale, String currencyCode, Timer renderTimer) throws IOException {
+        Key key = key(receipt, locale, currencyCode);
+        boolean[] loaded = { false };
+        try {
+            byte[] pdf = memory.get(key, k -> {
+                loaded[0] = true;
+                return load(k, receipt, locale, currencyCode, renderTimer);
+            });
+            if (!loaded[0]) {
+                memoryHits.increment();
+            }
+            return pdf;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private byte[] load(Key key, Receipt receipt, Locale locale, String currencyCode, Timer renderTimer) {
+        try {
+            Path spilled = disk.getIfPresent(key);
+            if (spilled != null && Files.exists(spilled)) {
+                diskHits.increment();
+                return Files.readAllBytes(spilled);
+            }
+            misses.increment();
+            Timer.Sample sample = Timer.start();
+            byte[] pdf = receiptPdfService.generatePdf(receipt, locale, currencyCode);
+            sample.stop(renderTimer);
+            return pdf;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void spill(Key key, byte[] pdf) {
+        if (disk.getIfPresent(key) != null) {
+            return;
+        }
+        Path path = spillDirectory.resolve(key.fileName());
+        try {
+            Files.write(path, pdf);
+            disk.put(key, path);
+        } catch (IOException e) {
+            logger.warn("Écriture sur disque du PDF en cache impossible: {}", path, e);
+        }
+    }
+
+    // Recopie ce qui est écrit vers le client, jusqu'à la limite (au-delà la copie est abandonnée)
+    private static final class CapturingOutputStream extends OutputStream {
+        private final OutputStream target;
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(16 * 1024);
+
+        CapturingOutputStream(OutputStream target, long limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            capture(1);
+            if (copy != null) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            capture(len);
+            if (copy != null) {
+                copy.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        private void capture(int len) {
+            if (copy != null && copy.size() + len > limit) {
+                copy = null;
+            }
+        }
+
+        byte[] captured() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Suppression du PDF en cache impossible: {}", path, e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.salesmanager.service;
 
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.font.PdfFontFactory;
@@ -22,6 +25,7 @@ import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.util.Currency;
@@ -34,6 +38,24 @@ public class ReceiptPdfService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReceiptPdfService.class);
 
+    private static final int ITEMS_FLUSH_ROWS = 50;
+
+    private static final DateTimeFormatter SALE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm");
+    private static final DateTimeFormatter GENERATED_AT_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm:ss");
+
+    // Un PdfFont appartient à un seul document; les programmes de police (métriques) sont partagés
+    private static final FontProgram BOLD_FONT_PROGRAM;
+    private static final FontProgram REGULAR_FONT_PROGRAM;
+
+    static {
+        try {
+            BOLD_FONT_PROGRAM = FontProgramFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            REGULAR_FONT_PROGRAM = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     @Autowired
     private MessageHelper messageHelper;
 
@@ -41,19 +63,34 @@ public class ReceiptPdfService {
     // polices personnalisées
 
     public byte[] generatePdf(Receipt receipt, Locale locale, String currencyCode) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(16 * 1024);
+        writePdf(receipt, locale, currencyCode, outputStream);
+
+        byte[] pdfBytes = outputStream.toByteArray();
+        logger.info("PDF généré avec succès. Taille: {} bytes", pdfBytes.length);
+        return pdfBytes;
+    }
+
+    /**
+     * Écrit le PDF au fil de la mise en page dans {@code outputStream} (non fermé)
+     * Les pages terminées et les lignes d'articles sont vidées au fur et à mesure:
+     * la mémoire ne dépend plus du nombre d'articles.
+     */
+    public void writePdf(Receipt receipt, Locale locale, String currencyCode, OutputStream outputStream)
+            throws IOException {
         logger.info("Génération du PDF pour le reçu: {}", receipt.getReceiptNumber());
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         PdfWriter writer = new PdfWriter(outputStream);
+        writer.setCloseStream(false);
         PdfDocument pdfDoc = new PdfDocument(writer);
         Document document = new Document(pdfDoc);
 
         try {
-            // Configuration des polices
-            PdfFont titleFont = PdfFontFactory.createFont(com.itextpdf.io.font.constants.StandardFonts.HELVETICA_BOLD);
-            PdfFont headerFont = PdfFontFactory.createFont(com.itextpdf.io.font.constants.StandardFonts.HELVETICA_BOLD);
-            PdfFont normalFont = PdfFontFactory.createFont(com.itextpdf.io.font.constants.StandardFonts.HELVETICA);
-            PdfFont smallFont = PdfFontFactory.createFont(com.itextpdf.io.font.constants.StandardFonts.HELVETICA);
+            // Configuration des polices (titre/en-têtes en gras, texte courant/petit texte en normal)
+            PdfFont titleFont = PdfFontFactory.createFont(BOLD_FONT_PROGRAM);
+            PdfFont headerFont = titleFont;
+            PdfFont normalFont = PdfFontFactory.createFont(REGULAR_FONT_PROGRAM);
+            PdfFont smallFont = normalFont;
 
             // En-tête du document
             addHeader(document, receipt, titleFont, headerFont, locale);
@@ -75,11 +112,6 @@ public class ReceiptPdfService {
 
             document.close();
 
-            byte[] pdfBytes = outputStream.toByteArray();
-            logger.info("PDF généré avec succès. Taille: {} bytes", pdfBytes.length);
-
-            return pdfBytes;
-
         } catch (Exception e) {
             logger.error("Erreur lors de la génération du PDF pour le reçu: {}", receipt.getReceiptNumber(), e);
             throw new IOException("Erreur lors de la génération du PDF", e);
@@ -158,8 +190,7 @@ public class ReceiptPdfService {
         infoTable.addCell(createCell(receipt.getReceiptNumber(), normalFont, false));
 
         // Date de vente
-        String saleDate = receipt.getSale().getSaleDate().format(
-                DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm"));
+        String saleDate = receipt.getSale().getSaleDate().format(SALE_DATE_FORMAT);
         String dateLabel = messageHelper.getMessage("receipt.date", locale);
         infoTable.addCell(createCell(dateLabel, headerFont, true));
         infoTable.addCell(createCell(saleDate, normalFont, false));
@@ -187,7 +218,8 @@ public class ReceiptPdfService {
                 .setFontColor(ColorConstants.DARK_GRAY);
         document.add(itemsTitle);
 
-        Table itemsTable = new Table(5).setWidth(UnitValue.createPercentValue(100));
+        // Table "large": ajoutée au document avant ses lignes, puis vidée par paquets
+        Table itemsTable = new Table(5, true).setWidth(UnitValue.createPercentValue(100));
 
         // En-têtes des colonnes
         String itemLabel = messageHelper.getMessage("receipt.item", locale);
@@ -202,17 +234,22 @@ public class ReceiptPdfService {
         itemsTable.addHeaderCell(createHeaderCell(discountLabel, headerFont));
         itemsTable.addHeaderCell(createHeaderCell(totalLabel, headerFont));
 
+        document.add(itemsTable);
+
         // Articles
         List<SaleItem> items = receipt.getSale().getSaleItems();
+        int rows = 0;
         for (SaleItem item : items) {
             itemsTable.addCell(createCell(item.getProduct().getName(), normalFont, false));
             itemsTable.addCell(createCell(String.valueOf(item.getQuantity()), normalFont, false));
             itemsTable.addCell(createCell(formatCurrency(item.getUnitPrice(), locale, currencyCode), normalFont, false));
             itemsTable.addCell(createCell(formatCurrency(item.getDiscount(), locale, currencyCode), normalFont, false));
             itemsTable.addCell(createCell(formatCurrency(item.getSubtotal(), locale, currencyCode), normalFont, false));
+            if (++rows % ITEMS_FLUSH_ROWS == 0) {
+                itemsTable.flush();
+            }
         }
-
-        document.add(itemsTable);
+        itemsTable.complete();
         document.add(new Paragraph().setMarginBottom(15));
     }
 
@@ -306,8 +343,7 @@ public class ReceiptPdfService {
 
         // Timestamp de génération
         String generatedAtLabel = messageHelper.getMessage("receipt.generatedAt", locale);
-        String generatedAt = generatedAtLabel + " " + receipt.getCreatedAt().format(
-                DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm:ss"));
+        String generatedAt = generatedAtLabel + " " + receipt.getCreatedAt().format(GENERATED_AT_FORMAT);
         Paragraph timestamp = new Paragraph(generatedAt)
                 .setFont(smallFont)
                 .setFontSize(7)
@@ -9,7 +9,6 @@ import com.salesmanager.exception.BadRequestException;
 import com.salesmanager.exception.ForbiddenException;
 import com.salesmanager.exception.NotFoundException;
 import com.salesmanager.exception.TenantContextMissingException;
-import com.salesmanager.repository.OrganisationMemberRepository;
 import com.salesmanager.repository.ReceiptRepository;
 import com.salesmanager.repository.SaleRepository;
 import org.slf4j.Logger;
@@ -22,11 +21,15 @@ import org.springframework.security.core.context.SecurityContextHolder;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import com.salesmanager.security.AuthPrincipalCache;
 import com.salesmanager.security.TenantContext;
 
 @Service
@@ -42,10 +45,10 @@ public class ReceiptService {
     private SaleRepository saleRepository;
 
     @Autowired
-    private ReceiptPdfService receiptPdfService;
+    private ReceiptPdfCache receiptPdfCache;
 
     @Autowired
-    private OrganisationMemberRepository organisationMemberRepository;
+    private AuthPrincipalCache authPrincipalCache;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -132,9 +135,16 @@ public class ReceiptService {
 
         logger.info("Reçu créé avec succès. ID: {}, Numéro: {}", hydrated.getId(), hydrated.getReceiptNumber());
 
+        // Pré-rendu du PDF (langue par défaut, devise de l'utilisateur) une fois le reçu commité
+        receiptPdfCache.prerenderAfterCommit(hydrated.getId(), ReceiptPdfCache.DEFAULT_LOCALE, currencyOf(user));
+
         return hydrated;
     }
 
+    static String currencyOf(User user) {
+        return user.getPreferredCurrency() != null ? user.getPreferredCurrency() : ReceiptPdfCache.DEFAULT_CURRENCY;
+    }
+
     private static BigDecimal coalesceAmount(BigDecimal value) {
         return value != null ? value : BigDecimal.ZERO;
     }
@@ -203,70 +213,97 @@ public class ReceiptService {
     }
 
     /**
-     * Génère le PDF d'un reçu
+     * PDF prêt à envoyer: octets en cache (taille connue) ou rendu à écrire dans la réponse
      */
-    public byte[] generateReceiptPdf(Long receiptId, User user, Locale locale) {
-        logger.info("Génération du PDF pour le reçu ID: {} par l'utilisateur: {}", receiptId, user.getUsername());
+    public record PdfDownload(String receiptNumber, byte[] cachedPdf, PdfBody body) {
 
-        Receipt receipt = getReceiptById(receiptId, user);
-
-        // Vérifier que le reçu peut être téléchargé
-        if (!receipt.isDownloadable()) {
-            throw new RuntimeException("Ce reçu ne peut pas être téléchargé");
+        @FunctionalInterface
+        public interface PdfBody {
+            void writeTo(OutputStream outputStream) throws IOException;
         }
+    }
 
-        try {
-            // Incrémenter le compteur de téléchargements
-            receipt.incrementDownloadCount();
-            receiptRepository.save(receipt);
-
-            // Générer le PDF avec la langue appropriée
-            String currencyCode = user.getPreferredCurrency() != null ? user.getPreferredCurrency() : "EUR";
-            byte[] pdfBytes = receiptPdfService.generatePdf(receipt, locale, currencyCode);
-
-            logger.info("PDF généré avec succès pour le reçu: {}. Taille: {} bytes",
-                    receipt.getReceiptNumber(), pdfBytes.length);
-
-            return pdfBytes;
+    /**
+     * Prépare le téléchargement du PDF d'un reçu
+     */
+    public PdfDownload prepareReceiptPdf(Long receiptId, User user, Locale locale) {
+        logger.info("Génération du PDF pour le reçu ID: {} par l'utilisateur: {}", receiptId, user.getUsername());
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération du PDF pour le reçu: {}", receipt.getReceiptNumber(), e);
-            throw new RuntimeException("Erreur lors de la génération du PDF", e);
-        }
+        return preparePdf(getReceiptById(receiptId, user), user, locale);
     }
 
     /**
-     * Génère le PDF d'un reçu par son numéro
+     * Prépare le téléchargement du PDF d'un reçu par son numéro
      */
-    public byte[] generateReceiptPdfByNumber(String receiptNumber, User user, Locale locale) {
+    public PdfDownload prepareReceiptPdfByNumber(String receiptNumber, User user, Locale locale) {
         logger.info("Génération du PDF pour le reçu numéro: {} par l'utilisateur: {}", receiptNumber,
                 user.getUsername());
 
-        Receipt receipt = getReceiptByNumber(receiptNumber, user);
+        return preparePdf(getReceiptByNumber(receiptNumber, user), user, locale);
+    }
 
+    private PdfDownload preparePdf(Receipt receipt, User user, Locale locale) {
         // Vérifier que le reçu peut être téléchargé
         if (!receipt.isDownloadable()) {
             throw new RuntimeException("Ce reçu ne peut pas être téléchargé");
         }
 
-        try {
-            // Incrémenter le compteur de téléchargements
-            receipt.incrementDownloadCount();
-            receiptRepository.save(receipt);
+        // Incrémenter le compteur de téléchargements
+        receiptRepository.incrementDownloadCount(receipt.getId(), LocalDateTime.now());
 
-            // Générer le PDF avec la langue appropriée
-            String currencyCode = user.getPreferredCurrency() != null ? user.getPreferredCurrency() : "EUR";
-            byte[] pdfBytes = receiptPdfService.generatePdf(receipt, locale, currencyCode);
+        String currencyCode = currencyOf(user);
+        String receiptNumber = receipt.getReceiptNumber();
+        try {
+            byte[] cached = receiptPdfCache.getIfCached(receipt, locale, currencyCode);
+            if (cached != null) {
+                logger.info("PDF servi depuis le cache pour le reçu: {}. Taille: {} bytes", receiptNumber, cached.length);
+                return new PdfDownload(receiptNumber, cached, outputStream -> outputStream.write(cached));
+            }
+        } catch (IOException e) {
+            logger.warn("Lecture du PDF en cache impossible pour le reçu: {}", receiptNumber, e);
+        }
 
-            logger.info("PDF généré avec succès pour le reçu: {}. Taille: {} bytes",
-                    receipt.getReceiptNumber(), pdfBytes.length);
+        // Graphe complet chargé maintenant: le rendu a lieu pendant l'écriture de la réponse, hors transaction
+        Receipt full = receiptRepository.findByIdForPdf(receipt.getId()).orElse(receipt);
+        return new PdfDownload(receiptNumber, null, outputStream -> {
+            try {
+                receiptPdfCache.render(full, locale, currencyCode, outputStream);
+            } catch (IOException e) {
+                logger.error("Erreur lors de la génération du PDF pour le reçu: {}", receiptNumber, e);
+                throw e;
+            }
+        });
+    }
 
-            return pdfBytes;
+    /**
+     * IDs des reçus à exporter, par date de création (bornes incluses), dans l'ordre chronologique
+     * Utilisateur non admin: limité à sa boutique; admin: boutique demandée ou toute l'organisation.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findReceiptIdsForExport(User user, UUID requestedStoreId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new BadRequestException("Période d'export invalide");
+        }
+        UUID organisationId = requireOrganisationId();
+        requireMembership(user, organisationId);
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération du PDF pour le reçu: {}", receipt.getReceiptNumber(), e);
-            throw new RuntimeException("Erreur lors de la génération du PDF", e);
+        UUID storeId = requestedStoreId;
+        if (!isElevated()) {
+            UUID ownStoreId = TenantContext.getStoreId();
+            if (ownStoreId == null) {
+                throw new BadRequestException("Boutique requise pour accéder aux reçus");
+            }
+            if (storeId != null && !storeId.equals(ownStoreId)) {
+                throw new ForbiddenException("Accès non autorisé à cette boutique");
+            }
+            storeId = ownStoreId;
         }
+
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        return storeId == null
+                ? receiptRepository.findIdsForExport(organisationId, start, end)
+                : receiptRepository.findIdsForExportByStore(organisationId, storeId, start, end);
     }
 
     /**
@@ -277,6 +314,7 @@ public class ReceiptService {
 
         Receipt receipt = getReceiptById(receiptId, user);
         receiptRepository.delete(receipt);
+        receiptPdfCache.evict(receiptId);
 
         logger.info("Reçu supprimé avec succès: {}", receipt.getReceiptNumber());
     }
@@ -379,9 +417,7 @@ public class ReceiptService {
         if (isPlatformAdmin()) {
             return;
         }
-        boolean isMember = organisationMemberRepository.findByUser_Id(user.getId()).stream()
-                .anyMatch(m -> organisationId.equals(m.getOrganisation().getId()));
-        if (!isMember) {
+        if (!authPrincipalCache.isMember(user.getId(), organisationId)) {
             throw new ForbiddenException("Accès non autorisé à cette organisation");
         }
     }
@@ -7,6 +7,7 @@ import com.salesmanager.exception.NotFoundException;
 import com.salesmanager.exception.ProductNotFoundException;
 import com.salesmanager.exception.TenantContextMissingException;
 import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.SaleItemRepository;
 import com.salesmanager.repository.SaleRepository;
 import com.salesmanager.security.UserDetailsImpl;
 import com.salesmanager.security.TenantContext;
@@ -22,9 +23,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import jakarta.persistence.EntityManager;
@@ -37,11 +47,22 @@ public class SaleService {
     @Autowired
     private SaleRepository saleRepository;
     
-    // NOTE: SaleItemRepository non utilisé actuellement (cascade via Sale).
+    // Écritures des lignes en cascade via Sale; lecture seule pour les listes paginées
+    @Autowired
+    private SaleItemRepository saleItemRepository;
     
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private SyncTombstoneService syncTombstoneService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ProductStockService productStockService;
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -71,15 +92,15 @@ public class SaleService {
         }
         sale.setStatus(Sale.SaleStatus.COMPLETED);
         
-        // Process sale items
-        for (SaleItemRequest itemRequest : saleRequest.getSaleItems()) {
-            Product product = resolveProduct(itemRequest);
-            
-            // Check stock availability
-            if (product.getStockQuantity() < itemRequest.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName() + 
-                    ". Available: " + product.getStockQuantity() + ", Requested: " + itemRequest.getQuantity());
-            }
+        // Process sale items (products resolved for the whole basket in at most two queries)
+        List<SaleItemRequest> itemRequests = saleRequest.getSaleItems();
+        List<Product> products = resolveProducts(itemRequests, organisationId);
+        List<ProductStockService.StockLine> stockLines = new ArrayList<>();
+        for (int i = 0; i < itemRequests.size(); i++) {
+            SaleItemRequest itemRequest = itemRequests.get(i);
+            Product product = products.get(i);
+            stockLines.add(new ProductStockService.StockLine(stockLines.size() + 1, product.getId(),
+                product.getName(), itemRequest.getQuantity()));
             
             // Create sale item
             SaleItem saleItem = new SaleItem();
@@ -88,47 +109,76 @@ public class SaleService {
             saleItem.setUnitPrice(itemRequest.getUnitPrice());
             saleItem.setDiscount(itemRequest.getDiscount());
             
-            // Update product stock
-            product.setStockQuantity(product.getStockQuantity() - itemRequest.getQuantity());
-            productRepository.save(product);
-            
             sale.addSaleItem(saleItem);
         }
         
+        // Check and update stock in one conditional batch (names every short line, rolls back on failure)
+        productStockService.decrement(organisationId, stockLines);
+        
         // Calculate totals
         sale.calculateTotals();
         
         // Save sale
         Sale savedSale = saleRepository.save(sale);
+        salesRollupService.apply(null, SalesRollupService.contributionOf(savedSale));
         
         return convertToResponse(savedSale);
     }
 
-    private Product resolveProduct(SaleItemRequest itemRequest) {
-        UUID organisationId = requireOrganisationId();
-        Long productId = itemRequest.getProductId();
-        if (productId != null) {
-            Optional<Product> byId = productRepository.findByIdAndOrganisation_Id(productId, organisationId);
-            if (byId.isPresent()) {
-                return byId.get();
+    /**
+     * Résout les produits de toutes les lignes: une requête IN sur les IDs, puis une sur
+     * les codes-barres des lignes restantes. Même priorité et mêmes erreurs que la
+     * résolution ligne par ligne (ID dans l'organisation, sinon code-barres exact).
+     *
+     * @return les produits dans l'ordre des lignes
+     */
+    private List<Product> resolveProducts(List<SaleItemRequest> itemRequests, UUID organisationId) {
+        Set<Long> productIds = new HashSet<>();
+        for (SaleItemRequest itemRequest : itemRequests) {
+            if (itemRequest.getProductId() != null) {
+                productIds.add(itemRequest.getProductId());
             }
         }
-
-        String barcode = itemRequest.getBarcode();
-        if (barcode != null && !barcode.isBlank()) {
-            Optional<Product> byBarcode = productRepository.findByBarcodeAndOrganisation_Id(barcode.trim(), organisationId);
-            if (byBarcode.isPresent()) {
-                return byBarcode.get();
+        Map<Long, Product> byId = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Product product : productRepository.findByIdInAndOrganisation_Id(productIds, organisationId)) {
+                byId.put(product.getId(), product);
             }
         }
 
-        if (productId == null && (barcode == null || barcode.isBlank())) {
-            throw new ProductNotFoundException("Product reference is required (productId or barcode)");
+        Set<String> barcodes = new HashSet<>();
+        for (SaleItemRequest itemRequest : itemRequests) {
+            String barcode = itemRequest.getBarcode();
+            if (!byId.containsKey(itemRequest.getProductId()) && barcode != null && !barcode.isBlank()) {
+                barcodes.add(barcode.trim());
+            }
+        }
+        Map<String, Product> byBarcode = new HashMap<>();
+        if (!barcodes.isEmpty()) {
+            for (Product product : productRepository.findByBarcodeInAndOrganisation_IdOrderByIdAsc(barcodes, organisationId)) {
+                byBarcode.putIfAbsent(product.getBarcode(), product);
+            }
         }
 
-        throw new ProductNotFoundException(
-            "Product not found (id=" + productId + ", barcode=" + (barcode == null ? "null" : "'" + barcode + "'") + ")"
-        );
+        List<Product> products = new ArrayList<>(itemRequests.size());
+        for (SaleItemRequest itemRequest : itemRequests) {
+            Long productId = itemRequest.getProductId();
+            String barcode = itemRequest.getBarcode();
+            Product product = byId.get(productId);
+            if (product == null && barcode != null && !barcode.isBlank()) {
+                product = byBarcode.get(barcode.trim());
+            }
+            if (product == null) {
+                if (productId == null && (barcode == null || barcode.isBlank())) {
+                    throw new ProductNotFoundException("Product reference is required (productId or barcode)");
+                }
+                throw new ProductNotFoundException(
+                    "Product not found (id=" + productId + ", barcode=" + (barcode == null ? "null" : "'" + barcode + "'") + ")"
+                );
+            }
+            products.add(product);
+        }
+        return products;
     }
     
     public SaleResponse getSaleById(Long id) {
@@ -144,17 +194,24 @@ public class SaleService {
         return convertToResponse(sale);
     }
     
+    @Transactional(readOnly = true)
     public Page<SaleResponse> getAllSales(int page, int size, String sortBy, String sortDir) {
         UUID organisationId = requireOrganisationId();
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Sale> sales = saleRepository.findByOrganisation_Id(organisationId, pageable);
+        Page<Object[]> rows = saleRepository.findPageWithCreatorUsername(organisationId, pageable);
+        Map<Long, List<SaleItemResponse>> items = loadSaleItems(
+            rows.getContent().stream().map(row -> (Sale) row[0]).toList());
         
-        return sales.map(this::convertToResponse);
+        return rows.map(row -> {
+            Sale sale = (Sale) row[0];
+            return new SaleResponse(sale, (String) row[1], items.getOrDefault(sale.getId(), List.of()));
+        });
     }
     
+    @Transactional(readOnly = true)
     public Page<SaleResponse> getSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate, 
                                                   int page, int size, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
@@ -163,9 +220,10 @@ public class SaleService {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Sale> sales = saleRepository.findBySaleDateBetween(startDate, endDate, pageable);
         
-        return sales.map(this::convertToResponse);
+        return toResponses(sales);
     }
     
+    @Transactional(readOnly = true)
     public Page<SaleResponse> getSalesByUser(int page, int size, String sortBy, String sortDir) {
         User currentUser = getCurrentUser();
         
@@ -175,21 +233,24 @@ public class SaleService {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Sale> sales = saleRepository.findByCreatedBy(currentUser, pageable);
         
-        return sales.map(this::convertToResponse);
+        return toResponses(sales);
     }
     
+    @Transactional(readOnly = true)
     public List<SaleResponse> getRecentSales(int limit) {
         Pageable pageable = PageRequest.of(0, limit);
         List<Sale> sales = saleRepository.findRecentSales(pageable);
         
+        Map<Long, List<SaleItemResponse>> items = loadSaleItems(sales);
         return sales.stream()
-            .map(this::convertToResponse)
+            .map(sale -> new SaleResponse(sale, items.getOrDefault(sale.getId(), List.of())))
             .collect(Collectors.toList());
     }
     
     public SaleResponse updateSaleStatus(Long id, Sale.SaleStatus status) {
         Sale sale = saleRepository.findById(id)
             .orElseThrow(() -> new NotFoundException("Sale not found with id: " + id));
+        SalesRollupService.Contribution before = SalesRollupService.contributionOf(sale);
         
         // If cancelling or refunding, restore stock
         if ((status == Sale.SaleStatus.CANCELLED || status == Sale.SaleStatus.REFUNDED) 
@@ -199,6 +260,7 @@ public class SaleService {
         
         sale.setStatus(status);
         Sale updatedSale = saleRepository.save(sale);
+        salesRollupService.apply(before, SalesRollupService.contributionOf(updatedSale));
         
         return convertToResponse(updatedSale);
     }
@@ -212,71 +274,89 @@ public class SaleService {
             restoreStock(sale);
         }
         
+        salesRollupService.apply(SalesRollupService.contributionOf(sale), null);
         saleRepository.delete(sale);
+        syncTombstoneService.recordDeletion(sale.getOrganisation().getId(),
+            sale.getStore() != null ? sale.getStore().getId() : null, "sale", sale.getId());
     }
     
-    // Analytics methods
+    // Analytics methods (agrégat journalier sales_daily_rollups)
     public BigDecimal getTotalSalesAmount(LocalDateTime startDate, LocalDateTime endDate) {
-        UUID organisationId = requireOrganisationId();
-        BigDecimal total;
-        if (isElevated()) {
-            total = saleRepository.getTotalSalesAmount(organisationId, startDate, endDate);
-        } else {
-            UUID storeId = requireStoreId();
-            total = saleRepository.getTotalSalesAmountByStore(organisationId, storeId, startDate, endDate);
-        }
-        return total != null ? total : BigDecimal.ZERO;
+        return dailyTotals(startDate, endDate).stream()
+            .map(SalesRollupService.DailyTotal::amount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
     public Long getTotalSalesCount(LocalDateTime startDate, LocalDateTime endDate) {
-        UUID organisationId = requireOrganisationId();
-        Long count;
-        if (isElevated()) {
-            count = saleRepository.getTotalSalesCount(organisationId, startDate, endDate);
-        } else {
-            UUID storeId = requireStoreId();
-            count = saleRepository.getTotalSalesCountByStore(organisationId, storeId, startDate, endDate);
-        }
-        return count != null ? count : 0L;
+        return dailyTotals(startDate, endDate).stream()
+            .mapToLong(SalesRollupService.DailyTotal::count)
+            .sum();
     }
     
     public BigDecimal getAverageSaleAmount(LocalDateTime startDate, LocalDateTime endDate) {
-        UUID organisationId = requireOrganisationId();
-        BigDecimal average;
-        if (isElevated()) {
-            average = saleRepository.getAverageSaleAmount(organisationId, startDate, endDate);
-        } else {
-            UUID storeId = requireStoreId();
-            average = saleRepository.getAverageSaleAmountByStore(organisationId, storeId, startDate, endDate);
+        List<SalesRollupService.DailyTotal> totals = dailyTotals(startDate, endDate);
+        long count = totals.stream().mapToLong(SalesRollupService.DailyTotal::count).sum();
+        if (count == 0) {
+            return BigDecimal.ZERO;
         }
-        return average != null ? average : BigDecimal.ZERO;
+        BigDecimal amount = totals.stream()
+            .map(SalesRollupService.DailyTotal::amount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return amount.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
     }
     
     public List<Object[]> getPaymentMethodStats(LocalDateTime startDate, LocalDateTime endDate) {
-        UUID organisationId = requireOrganisationId();
-        if (isElevated()) {
-            return saleRepository.getPaymentMethodStats(organisationId, startDate, endDate);
+        Map<Sale.PaymentMethod, Long> counts = new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder()));
+        for (SalesRollupService.DailyTotal total : dailyTotals(startDate, endDate)) {
+            counts.merge(total.paymentMethod(), total.count(), Long::sum);
         }
-        UUID storeId = requireStoreId();
-        return saleRepository.getPaymentMethodStatsByStore(organisationId, storeId, startDate, endDate);
+        return counts.entrySet().stream()
+            .map(e -> new Object[] { e.getKey(), e.getValue() })
+            .collect(Collectors.toList());
     }
     
     public List<Object[]> getDailySalesStats(LocalDateTime startDate, LocalDateTime endDate) {
-        UUID organisationId = requireOrganisationId();
-        if (isElevated()) {
-            return saleRepository.getDailySalesStats(organisationId, startDate, endDate);
+        Map<LocalDate, Object[]> byDay = new TreeMap<>();
+        for (SalesRollupService.DailyTotal total : dailyTotals(startDate, endDate)) {
+            accumulate(byDay.computeIfAbsent(total.day(), day -> new Object[] { day, BigDecimal.ZERO, 0L }), 1, total);
         }
-        UUID storeId = requireStoreId();
-        return saleRepository.getDailySalesStatsByStore(organisationId, storeId, startDate, endDate);
+        return new ArrayList<>(byDay.values());
     }
     
     public List<Object[]> getMonthlySalesStats(LocalDateTime startDate, LocalDateTime endDate) {
-        UUID organisationId = requireOrganisationId();
-        if (isElevated()) {
-            return saleRepository.getMonthlySalesStats(organisationId, startDate, endDate);
+        Map<YearMonth, Object[]> byMonth = new TreeMap<>();
+        for (SalesRollupService.DailyTotal total : dailyTotals(startDate, endDate)) {
+            YearMonth month = YearMonth.from(total.day());
+            accumulate(byMonth.computeIfAbsent(month,
+                m -> new Object[] { m.getYear(), m.getMonthValue(), BigDecimal.ZERO, 0L }), 2, total);
         }
-        UUID storeId = requireStoreId();
-        return saleRepository.getMonthlySalesStatsByStore(organisationId, storeId, startDate, endDate);
+        return new ArrayList<>(byMonth.values());
+    }
+
+    /**
+     * Recalcule l'agrégat des ventes de l'organisation courante depuis les tables brutes
+     */
+    public int rebuildSalesRollup() {
+        return salesRollupService.rebuild(requireOrganisationId());
+    }
+
+    /**
+     * Contrôle de cohérence de l'agrégat de l'organisation courante
+     */
+    public List<SalesRollupService.Mismatch> checkSalesRollup() {
+        return salesRollupService.check(requireOrganisationId());
+    }
+
+    private List<SalesRollupService.DailyTotal> dailyTotals(LocalDateTime startDate, LocalDateTime endDate) {
+        UUID organisationId = requireOrganisationId();
+        UUID storeId = isElevated() ? null : requireStoreId();
+        return salesRollupService.dailyTotals(organisationId, storeId, startDate, endDate);
+    }
+
+    // row[offset] = montant, row[offset + 1] = nombre de ventes
+    private static void accumulate(Object[] row, int offset, SalesRollupService.DailyTotal total) {
+        row[offset] = ((BigDecimal) row[offset]).add(total.amount());
+        row[offset + 1] = (Long) row[offset + 1] + total.count();
     }
     
     public List<Object[]> getTopCustomers(LocalDateTime startDate, LocalDateTime endDate, int limit) {
@@ -333,25 +413,40 @@ public class SaleService {
     }
     
     private void restoreStock(Sale sale) {
+        List<ProductStockService.StockLine> stockLines = new ArrayList<>();
         for (SaleItem saleItem : sale.getSaleItems()) {
             Product product = saleItem.getProduct();
             if (product != null) {
-                product.setStockQuantity(product.getStockQuantity() + saleItem.getQuantity());
-                productRepository.save(product);
+                stockLines.add(new ProductStockService.StockLine(stockLines.size() + 1, product.getId(),
+                    saleItem.getProductName(), saleItem.getQuantity()));
             }
         }
+        productStockService.increment(sale.getOrganisation().getId(), stockLines);
     }
     
     private SaleResponse convertToResponse(Sale sale) {
-        SaleResponse response = new SaleResponse(sale);
-        
-        // Convert sale items
-        List<SaleItemResponse> saleItemResponses = sale.getSaleItems().stream()
-            .map(SaleItemResponse::new)
-            .collect(Collectors.toList());
-        
-        response.setSaleItems(saleItemResponses);
-        
-        return response;
+        return new SaleResponse(sale);
+    }
+
+    /**
+     * Conversion d'une page de ventes: lignes de toute la page en une requête, au lieu
+     * d'un chargement de sale.getSaleItems() par vente
+     */
+    private Page<SaleResponse> toResponses(Page<Sale> sales) {
+        Map<Long, List<SaleItemResponse>> items = loadSaleItems(sales.getContent());
+        return sales.map(sale -> new SaleResponse(sale, items.getOrDefault(sale.getId(), List.of())));
+    }
+
+    private Map<Long, List<SaleItemResponse>> loadSaleItems(List<Sale> sales) {
+        if (sales.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<SaleItemResponse>> items = new HashMap<>();
+        for (SaleItem saleItem : saleItemRepository.findBySale_IdInOrderByIdAsc(
+                sales.stream().map(Sale::getId).toList())) {
+            items.computeIfAbsent(saleItem.getSale().getId(), id -> new ArrayList<>())
+                .add(new SaleItemResponse(saleItem));
+        }
+        return items;
     }
 }
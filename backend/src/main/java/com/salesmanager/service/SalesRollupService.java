@@ -0,0 +1,361 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.Sale;
+import com.salesmanager.entity.SaleItem;
+import com.salesmanager.entity.SalesDailyRollup;
+import com.salesmanager.repository.SaleRepository;
+import com.salesmanager.repository.SalesDailyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Agrégat journalier des ventes (sales_daily_rollups)
+ * Maintenu dans la transaction de chaque écriture de vente (création, changement de
+ * statut, suppression, synchronisation); les analytics lisent l'agrégat pour les jours
+ * complets et la table sales uniquement pour les bords de plage intra-journaliers.
+ * Une seule ligne par clé (index unique uk_sales_daily_rollups_key): incrément de la ligne,
+ * sinon insertion sous point de sauvegarde; si une transaction concurrente a inséré la clé
+ * entre-temps, l'insertion échoue sur l'index et l'incrément est rejoué sur sa ligne.
+ * Reconstruction et contrôle de cohérence par organisation contre les tables brutes.
+ */
+@Service
+@Transactional
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    // Une borne de fin à 23:59:59 couvre le jour (les fractions de la dernière seconde sont incluses)
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sales_daily_rollups (organisation_id, store_id, sale_day, payment_method, status, "
+                    + "total_amount, total_cost, sale_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Part d'une vente dans l'agrégat, figée avant/après modification
+     */
+    public record Contribution(Key key, BigDecimal amount, BigDecimal cost) {
+    }
+
+    public record Key(UUID organisationId, UUID storeId, LocalDate saleDay,
+                      Sale.PaymentMethod paymentMethod, Sale.SaleStatus status) {
+    }
+
+    public record Totals(BigDecimal amount, BigDecimal cost, long count) {
+
+        static final Totals ZERO = new Totals(BigDecimal.ZERO, BigDecimal.ZERO, 0);
+
+        Totals plus(BigDecimal otherAmount, BigDecimal otherCost, long otherCount) {
+            return new Totals(amount.add(otherAmount), cost.add(otherCost), count + otherCount);
+        }
+
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0 && cost.signum() == 0;
+        }
+
+        boolean sameAs(Totals other) {
+            return count == other.count && amount.compareTo(other.amount) == 0 && cost.compareTo(other.cost) == 0;
+        }
+    }
+
+    /**
+     * Totaux d'un jour pour un moyen de paiement (tous statuts, magasins filtrés en amont)
+     */
+    public record DailyTotal(LocalDate day, Sale.PaymentMethod paymentMethod, BigDecimal amount, long count) {
+    }
+
+    public record Mismatch(Key key, Totals expected, Totals actual) {
+    }
+
+    /**
+     * Variations accumulées par clé, appliquées en une passe (lot de synchronisation)
+     */
+    public static final class Changes {
+
+        private final Map<Key, Totals> deltas = new LinkedHashMap<>();
+
+        public void add(Contribution contribution) {
+            merge(contribution, 1);
+        }
+
+        public void subtract(Contribution contribution) {
+            merge(contribution, -1);
+        }
+
+        public boolean isEmpty() {
+            return deltas.isEmpty();
+        }
+
+        private void merge(Contribution contribution, int sign) {
+            if (contribution == null) {
+                return;
+            }
+            BigDecimal amount = sign < 0 ? contribution.amount().negate() : contribution.amount();
+            BigDecimal cost = sign < 0 ? contribution.cost().negate() : contribution.cost();
+            deltas.merge(contribution.key(), new Totals(amount, cost, sign),
+                    (current, delta) -> current.plus(delta.amount(), delta.cost(), delta.count()));
+        }
+    }
+
+    @Autowired
+    private SalesDailyRollupRepository salesDailyRollupRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${sales.rollup.auto-repair:false}")
+    private boolean autoRepair;
+
+    /**
+     * Part de la vente dans l'agrégat; null si elle n'a pas encore d'organisation ou de date
+     */
+    public static Contribution contributionOf(Sale sale) {
+        if (sale == null || sale.getOrganisation() == null || sale.getSaleDate() == null) {
+            return null;
+        }
+        BigDecimal cost = BigDecimal.ZERO;
+        for (SaleItem item : sale.getSaleItems()) {
+            if (item.getProductPurchasePrice() != null && item.getQuantity() != null) {
+                cost = cost.add(item.getProductPurchasePrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+        }
+        Key key = new Key(
+                sale.getOrganisation().getId(),
+                sale.getStore() != null ? sale.getStore().getId() : null,
+                sale.getSaleDate().toLocalDate(),
+                sale.getPaymentMethod(),
+                sale.getStatus());
+        return new Contribution(key, sale.getFinalAmount() != null ? sale.getFinalAmount() : BigDecimal.ZERO, cost);
+    }
+
+    /**
+     * Remplace la part {@code before} d'une vente par {@code after} (null pour création / suppression)
+     */
+    public void apply(Contribution before, Contribution after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        Changes changes = new Changes();
+        changes.subtract(before);
+        changes.add(after);
+        apply(changes);
+    }
+
+    public void apply(Changes changes) {
+        for (Map.Entry<Key, Totals> entry : changes.deltas.entrySet()) {
+            Key key = entry.getKey();
+            Totals delta = entry.getValue();
+            if (delta.isZero()) {
+                continue;
+            }
+            // Au plus une insertion perdue par clé: la ligne concurrente existe alors
+            while (salesDailyRollupRepository.incrementKey(key.organisationId(), key.storeId(), key.saleDay(),
+                    key.paymentMethod(), key.status(), delta.amount(), delta.cost(), delta.count()) == 0
+                    && !insert(key, delta)) {
+                logger.debug("Clé d'agrégat {} insérée en parallèle, incrément rejoué", key);
+            }
+        }
+    }
+
+    // Point de sauvegarde JDBC sur la connexion de la transaction (HibernateJpaDialect n'en gère pas):
+    // l'échec sur l'index (clé insérée en parallèle) n'annule pas la transaction appelante
+    private boolean insert(Key key, Totals delta) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                jdbcTemplate.update(INSERT_SQL, key.organisationId(), key.storeId(), key.saleDay(),
+                        key.paymentMethod() != null ? key.paymentMethod().name() : null,
+                        key.status() != null ? key.status().name() : null,
+                        delta.amount(), delta.cost(), delta.count());
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                return false;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+
+    /**
+     * Totaux par jour et moyen de paiement sur [start, end] (bornes incluses, comme les
+     * requêtes brutes): jours complets depuis l'agrégat, jours partiels depuis sales.
+     *
+     * @param storeId magasin, ou null pour toute l'organisation
+     */
+    @Transactional(readOnly = true)
+    public List<DailyTotal> dailyTotals(UUID organisationId, UUID storeId, LocalDateTime start, LocalDateTime end) {
+        List<DailyTotal> totals = new ArrayList<>();
+        if (start == null || end == null || start.isAfter(end)) {
+            return totals;
+        }
+
+        LocalDate startDay = start.toLocalDate();
+        LocalDate endDay = end.toLocalDate();
+        boolean startPartial = !start.toLocalTime().equals(LocalTime.MIDNIGHT);
+        boolean endPartial = end.toLocalTime().isBefore(END_OF_DAY);
+
+        if (startDay.equals(endDay) && (startPartial || endPartial)) {
+            addRawTotals(totals, organisationId, storeId, startDay, start, end);
+            return totals;
+        }
+
+        if (startPartial) {
+            addRawTotals(totals, organisationId, storeId, startDay, start, startDay.atTime(LocalTime.MAX));
+        }
+        LocalDate fromDay = startPartial ? startDay.plusDays(1) : startDay;
+        LocalDate toDay = endPartial ? endDay.minusDays(1) : endDay;
+        if (!fromDay.isAfter(toDay)) {
+            List<Object[]> rows = storeId == null
+                    ? salesDailyRollupRepository.sumByDayAndPaymentMethod(organisationId, fromDay, toDay)
+                    : salesDailyRollupRepository.sumByDayAndPaymentMethodByStore(organisationId, storeId, fromDay, toDay);
+            for (Object[] row : rows) {
+                long count = ((Number) row[3]).longValue();
+                if (count > 0) {
+                    totals.add(new DailyTotal((LocalDate) row[0], (Sale.PaymentMethod) row[1],
+                            (BigDecimal) row[2], count));
+                }
+            }
+        }
+        if (endPartial) {
+            addRawTotals(totals, organisationId, storeId, endDay, endDay.atStartOfDay(), end);
+        }
+        return totals;
+    }
+
+    /**
+     * Recalcule l'agrégat d'une organisation depuis sales / sale_items (backfill, réparation).
+     * Les écritures concurrentes pendant la reconstruction peuvent être comptées deux fois
+     * ou pas du tout: à lancer hors activité, puis vérifier avec {@link #check(UUID)}.
+     *
+     * @return nombre de lignes d'agrégat écrites
+     */
+    public int rebuild(UUID organisationId) {
+        salesDailyRollupRepository.deleteByOrganisationId(organisationId);
+        List<SalesDailyRollup> rows = new ArrayList<>();
+        for (Map.Entry<Key, Totals> entry : expectedTotals(organisationId).entrySet()) {
+            rows.add(newRow(entry.getKey(), entry.getValue()));
+        }
+        salesDailyRollupRepository.saveAll(rows);
+        logger.info("Agrégat des ventes reconstruit pour l'organisation {}: {} lignes", organisationId, rows.size());
+        return rows.size();
+    }
+
+    /**
+     * Compare l'agrégat aux tables brutes, clé par clé
+     *
+     * @return les clés divergentes (vide si cohérent)
+     */
+    @Transactional(readOnly = true)
+    public List<Mismatch> check(UUID organisationId) {
+        Map<Key, Totals> expected = expectedTotals(organisationId);
+        Map<Key, Totals> actual = new HashMap<>();
+        for (Object[] row : salesDailyRollupRepository.sumByKey(organisationId)) {
+            Key key = new Key(organisationId, (UUID) row[0], (LocalDate) row[1],
+                    (Sale.PaymentMethod) row[2], (Sale.SaleStatus) row[3]);
+            actual.put(key, new Totals((BigDecimal) row[4], (BigDecimal) row[5], ((Number) row[6]).longValue()));
+        }
+
+        Set<Key> keys = new LinkedHashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        List<Mismatch> mismatches = new ArrayList<>();
+        for (Key key : keys) {
+            Totals expectedTotals = expected.getOrDefault(key, Totals.ZERO);
+            Totals actualTotals = actual.getOrDefault(key, Totals.ZERO);
+            if (!expectedTotals.sameAs(actualTotals)) {
+                mismatches.add(new Mismatch(key, expectedTotals, actualTotals));
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Contrôle périodique de toutes les organisations; réparation automatique si
+     * sales.rollup.auto-repair est activé, sinon simple avertissement dans les logs
+     */
+    @Scheduled(cron = "${sales.rollup.check-cron:0 15 4 * * *}")
+    public void checkAll() {
+        Set<UUID> organisationIds = new LinkedHashSet<>(saleRepository.findOrganisationIds());
+        organisationIds.addAll(salesDailyRollupRepository.findOrganisationIds());
+        for (UUID organisationId : organisationIds) {
+            List<Mismatch> mismatches = check(organisationId);
+            if (mismatches.isEmpty()) {
+                continue;
+            }
+            logger.warn("Agrégat des ventes incohérent pour l'organisation {}: {} clés divergentes (ex. {})",
+                    organisationId, mismatches.size(), mismatches.get(0));
+            if (autoRepair) {
+                rebuild(organisationId);
+            }
+        }
+    }
+
+    private void addRawTotals(List<DailyTotal> totals, UUID organisationId, UUID storeId, LocalDate day,
+                              LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = storeId == null
+                ? saleRepository.getPaymentMethodTotals(organisationId, from, to)
+                : saleRepository.getPaymentMethodTotalsByStore(organisationId, storeId, from, to);
+        for (Object[] row : rows) {
+            totals.add(new DailyTotal(day, (Sale.PaymentMethod) row[0],
+                    row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO, ((Number) row[2]).longValue()));
+        }
+    }
+
+    private Map<Key, Totals> expectedTotals(UUID organisationId) {
+        Map<Key, Totals> expected = new LinkedHashMap<>();
+        for (Object[] row : saleRepository.aggregateForRollup(organisationId)) {
+            BigDecimal amount = row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO;
+            expected.merge(rawKey(organisationId, row), new Totals(amount, BigDecimal.ZERO, ((Number) row[5]).longValue()),
+                    (current, more) -> current.plus(more.amount(), more.cost(), more.count()));
+        }
+        for (Object[] row : saleRepository.aggregateCostForRollup(organisationId)) {
+            BigDecimal cost = row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO;
+            expected.merge(rawKey(organisationId, row), new Totals(BigDecimal.ZERO, cost, 0),
+                    (current, more) -> current.plus(more.amount(), more.cost(), more.count()));
+        }
+        return expected;
+    }
+
+    private static Key rawKey(UUID organisationId, Object[] row) {
+        return new Key(organisationId, (UUID) row[0], (LocalDate) row[1],
+                (Sale.PaymentMethod) row[2], (Sale.SaleStatus) row[3]);
+    }
+
+    private static SalesDailyRollup newRow(Key key, Totals totals) {
+        SalesDailyRollup row = new SalesDailyRollup();
+        row.setOrganisationId(key.organisationId());
+        row.setStoreId(key.storeId());
+        row.setSaleDay(key.saleDay());
+        row.setPaymentMethod(key.paymentMethod());
+        row.setStatus(key.status());
+        row.setTotalAmount(totals.amount());
+        row.setTotalCost(totals.cost());
+        row.setSaleCount(totals.count());
+        return row;
+    }
+}
@@ -0,0 +1,57 @@
+package com.salesmanager.service;
+
+import com.salesmanager.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position de reprise de la synchronisation delta: clé (updated_at, entity_type, id).
+ * Les types sont ordonnés product < sale < stock_movement < tombstone, ce qui donne
+ * un ordre total sur les entités modifiées et les suppressions (deleted_at, id du tombstone).
+ * Encodé en jeton opaque (base64url) pour le client.
+ */
+record SyncDeltaCursor(LocalDateTime updatedAt, String entityType, long id) {
+
+    static final List<String> ENTITY_TYPE_ORDER = List.of("product", "sale", "stock_movement", "tombstone");
+
+    private static final String VERSION = "v1";
+
+    /** Curseur initial: tout ce qui a été modifié strictement après {@code since}. */
+    static SyncDeltaCursor after(LocalDateTime since) {
+        return new SyncDeltaCursor(since, ENTITY_TYPE_ORDER.get(ENTITY_TYPE_ORDER.size() - 1), Long.MAX_VALUE);
+    }
+
+    /**
+     * Borne "id > afterId" à appliquer pour un type donné à updated_at égal:
+     * les types déjà dépassés sont exclus, les suivants repartent du début.
+     */
+    long afterIdFor(String type) {
+        int compare = Integer.compare(ENTITY_TYPE_ORDER.indexOf(type), ENTITY_TYPE_ORDER.indexOf(entityType));
+        if (compare < 0) {
+            return Long.MAX_VALUE;
+        }
+        return compare == 0 ? id : Long.MIN_VALUE;
+    }
+
+    String encode() {
+        String raw = VERSION + "|" + updatedAt + "|" + entityType + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SyncDeltaCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !VERSION.equals(parts[0]) || !ENTITY_TYPE_ORDER.contains(parts[2])) {
+                throw new BadRequestException("Jeton de continuation invalide");
+            }
+            return new SyncDeltaCursor(LocalDateTime.parse(parts[1]), parts[2], Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Jeton de continuation invalide");
+        }
+    }
+}
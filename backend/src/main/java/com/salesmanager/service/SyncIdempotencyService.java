@@ -0,0 +1,236 @@
+package com.salesmanager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.salesmanager.dto.SyncBatchRequest;
+import com.salesmanager.dto.SyncBatchResponse;
+import com.salesmanager.entity.SyncIdempotencyKey;
+import com.salesmanager.repository.SyncIdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Idempotence des créations synchronisées
+ * Une création appliquée est enregistrée sous la clé (device, local_id, type d'entité,
+ * opération) de son organisation avec son résultat (server_id, statut, message); un lot
+ * rejoué après un timeout reçoit ce résultat à l'identique sans rien réécrire. Les clés récentes sont en cache mémoire (fenêtre des
+ * rejeux), les autres relues en une requête par lot dans sync_idempotency_keys,
+ * purgée après sync.idempotency.retention.
+ *
+ * Seules les créations sont concernées: local_id désigne l'enregistrement local, pas
+ * l'opération, et deux mises à jour successives du même enregistrement le partagent.
+ * Mises à jour et suppressions sont de toute façon sans effet si elles sont rejouées.
+ * Deux rejeux concurrents du même lot: le second échoue sur la contrainte d'unicité et
+ * est annulé entièrement, le rejeu suivant reçoit les résultats du premier.
+ * Métriques: cache "sync.idempotency", compteur sync.idempotency.replays.
+ */
+@Service
+public class SyncIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncIdempotencyService.class);
+
+    private record Key(UUID organisationId, String deviceId, String localId, String entityType,
+                       String operationType) {
+    }
+
+    /**
+     * Résultat renvoyé au premier passage de l'opération
+     */
+    public record AppliedResult(String serverId, SyncBatchResponse.OperationStatus status, String message) {
+    }
+
+    // colonne message de sync_idempotency_keys
+    private static final int MESSAGE_MAX_LENGTH = 500;
+
+    private final SyncIdempotencyKeyRepository syncIdempotencyKeyRepository;
+    private final Cache<Key, AppliedResult> applied;
+    private final Counter replays;
+    private final boolean enabled;
+    private final Duration retention;
+
+    public SyncIdempotencyService(
+            SyncIdempotencyKeyRepository syncIdempotencyKeyRepository,
+            MeterRegistry meterRegistry,
+            @Value("${sync.idempotency.enabled:true}") boolean enabled,
+            @Value("${sync.idempotency.cache.maximum-size:100000}") long cacheMaximumSize,
+            @Value("${sync.idempotency.cache.ttl:30m}") Duration cacheTtl,
+            @Value("${sync.idempotency.retention:7d}") Duration retention) {
+        this.syncIdempotencyKeyRepository = syncIdempotencyKeyRepository;
+        this.enabled = enabled;
+        this.retention = retention;
+        this.applied = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, applied, "sync.idempotency");
+        this.replays = Counter.builder("sync.idempotency.replays")
+                .description("Opérations de synchronisation rejouées, résultat renvoyé sans réécriture")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prépare un lot: résout en une fois (cache puis base) les opérations déjà appliquées
+     */
+    public Batch begin(UUID organisationId, String deviceId, List<SyncBatchRequest.SyncOperation> operations) {
+        Batch batch = new Batch(organisationId, deviceId);
+        Set<Key> keys = new HashSet<>();
+        for (SyncBatchRequest.SyncOperation operation : operations) {
+            Key key = batch.key(operation);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return batch;
+        }
+        batch.known.putAll(applied.getAllPresent(keys));
+        Set<String> missingLocalIds = new HashSet<>();
+        for (Key key : keys) {
+            if (!batch.known.containsKey(key)) {
+                missingLocalIds.add(key.localId());
+            }
+        }
+        if (!missingLocalIds.isEmpty()) {
+            for (SyncIdempotencyKey row : syncIdempotencyKeyRepository.findApplied(organisationId, deviceId,
+                    missingLocalIds)) {
+                Key key = new Key(organisationId, deviceId, row.getLocalId(), row.getEntityType(),
+                        row.getOperationType());
+                if (keys.contains(key)) {
+                    AppliedResult result = resultOf(row);
+                    batch.known.put(key, result);
+                    applied.put(key, result);
+                }
+            }
+        }
+        return batch;
+    }
+
+    private static AppliedResult resultOf(SyncIdempotencyKey row) {
+        return new AppliedResult(row.getServerId(), SyncBatchResponse.OperationStatus.valueOf(row.getStatus()),
+                row.getMessage());
+    }
+
+    /**
+     * Purge quotidienne des clés au-delà de la rétention (un device ne rejoue plus un lot aussi ancien)
+     */
+    @Scheduled(cron = "${sync.idempotency.cleanup-cron:0 45 3 * * *}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        int purged = syncIdempotencyKeyRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        logger.info("Purge des clés d'idempotence terminée: {} clés supprimées", purged);
+    }
+
+    /**
+     * Clés d'un lot de synchronisation: rejeux connus et créations appliquées par le lot
+     * (un doublon à l'intérieur du même lot est lui aussi rejoué)
+     */
+    public final class Batch {
+        private final UUID organisationId;
+        private final String deviceId;
+        private final Map<Key, AppliedResult> known = new HashMap<>();
+        private final List<SyncIdempotencyKey> recorded = new ArrayList<>();
+
+        private Batch(UUID organisationId, String deviceId) {
+            this.organisationId = organisationId;
+            this.deviceId = deviceId;
+        }
+
+        /**
+         * Vrai si l'opération a déjà été appliquée avant ce lot (sans la compter comme rejeu)
+         */
+        public boolean isApplied(SyncBatchRequest.SyncOperation operation) {
+            Key key = key(operation);
+            return key != null && known.containsKey(key);
+        }
+
+        /**
+         * Résultat déjà renvoyé pour cette opération, ou null si elle doit être appliquée
+         */
+        public AppliedResult replayOf(SyncBatchRequest.SyncOperation operation) {
+            Key key = key(operation);
+            AppliedResult result = key != null ? known.get(key) : null;
+            if (result != null) {
+                replays.increment();
+            }
+            return result;
+        }
+
+        /**
+         * Enregistre le résultat d'une opération appliquée avec succès
+         */
+        public void recordApplied(SyncBatchRequest.SyncOperation operation, SyncBatchResponse.OperationResult result) {
+            Key key = key(operation);
+            if (key == null || result.getServerId() == null) {
+                return;
+            }
+            String message = result.getMessage();
+            if (message != null && message.length() > MESSAGE_MAX_LENGTH) {
+                message = message.substring(0, MESSAGE_MAX_LENGTH);
+            }
+            AppliedResult applied = new AppliedResult(result.getServerId(), result.getStatus(), message);
+            known.put(key, applied);
+            recorded.add(new SyncIdempotencyKey(organisationId, deviceId, key.localId(), key.entityType(),
+                    key.operationType(), applied.serverId(), applied.status().name(), applied.message()));
+        }
+
+        /**
+         * Persiste les clés dans la transaction du lot (insérées au flush, en batch JDBC);
+         * elles n'entrent dans le cache qu'après le commit
+         */
+        public void flush() {
+            if (recorded.isEmpty()) {
+                return;
+            }
+            syncIdempotencyKeyRepository.saveAll(recorded);
+            Map<Key, AppliedResult> committed = new HashMap<>();
+            for (SyncIdempotencyKey row : recorded) {
+                committed.put(new Key(organisationId, deviceId, row.getLocalId(), row.getEntityType(),
+                        row.getOperationType()), resultOf(row));
+            }
+            recorded.clear();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        applied.putAll(committed);
+                    }
+                });
+            } else {
+                applied.putAll(committed);
+            }
+        }
+
+        private Key key(SyncBatchRequest.SyncOperation operation) {
+            // clé trop longue pour la table: opération traitée sans idempotence plutôt que lot en échec
+            if (!enabled || deviceId == null || deviceId.isBlank() || deviceId.length() > 255
+                    || operation.getLocalId() == null || operation.getLocalId().isBlank()
+                    || operation.getLocalId().length() > 255
+                    || operation.getEntityType() == null
+                    || operation.getOperationType() != SyncBatchRequest.OperationType.CREATE) {
+                return null;
+            }
+            return new Key(organisationId, deviceId, operation.getLocalId(), operation.getEntityType().getValue(),
+                    operation.getOperationType().getValue());
+        }
+    }
+}
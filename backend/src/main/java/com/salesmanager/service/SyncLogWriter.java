@@ -0,0 +1,208 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.SyncLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture asynchrone des logs de synchronisation (table sync_logs)
+ * Les logs sont mis dans une file bornée après le commit de la synchronisation, puis
+ * insérés par un thread dédié en batchs JDBC: un appel de synchronisation ne paie plus
+ * d'INSERT et les écritures concurrentes sur sync_logs sont regroupées.
+ *
+ * File pleine: la politique sync.log-writer.overflow-policy choisit entre abandonner
+ * le log (DROP, compté dans sync.logs.dropped) et attendre une place au plus
+ * sync.log-writer.block-timeout (BLOCK) avant de l'abandonner.
+ * À l'arrêt, la file est vidée avant la fermeture de la source de données.
+ */
+@Component
+public class SyncLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncLogWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sync_logs (sync_type, device_id, operations_count, success_count, error_count, "
+                    + "conflict_count, processing_time_ms, timestamp, app_version, sync_session_id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<SyncLog> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final Duration shutdownTimeout;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Thread worker;
+    private volatile boolean stopping;
+
+    public SyncLogWriter(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${sync.log-writer.queue-capacity:10000}") int queueCapacity,
+            @Value("${sync.log-writer.batch-size:500}") int batchSize,
+            @Value("${sync.log-writer.flush-interval:1s}") Duration flushInterval,
+            @Value("${sync.log-writer.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+            @Value("${sync.log-writer.block-timeout:200ms}") Duration blockTimeout,
+            @Value("${sync.log-writer.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+        this.written = Counter.builder("sync.logs.written")
+                .description("Logs de synchronisation insérés")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("sync.logs.dropped")
+                .description("Logs de synchronisation abandonnés (file pleine)")
+                .register(meterRegistry);
+        this.failed = Counter.builder("sync.logs.failed")
+                .description("Logs de synchronisation perdus sur erreur d'insertion")
+                .register(meterRegistry);
+        Gauge.builder("sync.logs.queued", queue, BlockingQueue::size).register(meterRegistry);
+        this.worker = new Thread(this::run, "sync-log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Planifie l'écriture d'un log: après le commit de la transaction courante s'il y en a une
+     * (rien n'est journalisé pour une synchronisation annulée), sinon immédiatement.
+     */
+    public void submit(SyncLog log) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(log);
+                }
+            });
+        } else {
+            enqueue(log);
+        }
+    }
+
+    private void enqueue(SyncLog log) {
+        if (stopping) {
+            // writer arrêté: écriture directe plutôt que perte
+            write(List.of(log));
+            return;
+        }
+        boolean accepted;
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = queue.offer(log, blockTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(log);
+        }
+        if (!accepted) {
+            dropped.increment();
+        }
+    }
+
+    // Un batch part dès qu'il est plein, ou flush-interval après son premier log
+    private void run() {
+        List<SyncLog> batch = new ArrayList<>(batchSize);
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                SyncLog first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize && !stopping) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    SyncLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<SyncLog> logs) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, log) -> {
+                ps.setString(1, log.getSyncType());
+                ps.setString(2, log.getDeviceId());
+                ps.setObject(3, log.getOperationsCount());
+                ps.setObject(4, log.getSuccessCount());
+                ps.setObject(5, log.getErrorCount());
+                ps.setObject(6, log.getConflictCount());
+                ps.setObject(7, log.getProcessingTimeMs());
+                ps.setTimestamp(8, Timestamp.valueOf(log.getTimestamp()));
+                ps.setString(9, log.getAppVersion());
+                ps.setString(10, log.getSyncSessionId());
+            });
+            written.increment(logs.size());
+        } catch (RuntimeException e) {
+            failed.increment(logs.size());
+            logger.warn("Échec d'écriture de {} logs de synchronisation: {}", logs.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Arrêt propre: les logs en file sont écrits avant la fermeture de la source de données
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // pas d'interruption: un batch en cours d'insertion se termine normalement
+        stopping = true;
+        worker.join(shutdownTimeout.toMillis());
+        if (worker.isAlive()) {
+            logger.warn("Writer des logs de synchronisation toujours actif après {}", shutdownTimeout);
+            return;
+        }
+        // logs mis en file pendant l'arrêt du thread
+        List<SyncLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.salesmanager.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Télémétrie de la synchronisation, exposée sur /actuator/metrics:
+ * <ul>
+ *   <li>sync.batch.duration, sync.batch.size: durée et nombre d'opérations par lot</li>
+ *   <li>sync.operation.duration (entity_type, operation, status): latence par opération;
+ *       le taux de conflits est le ratio status=conflict / total</li>
+ *   <li>sync.delta.duration, sync.delta.page.size: durée et taille des pages delta</li>
+ *   <li>sync.payload.bytes (direction, encoding): taille des requêtes reçues, compressées
+ *       (gzip) ou non (identity), et après décompression (decompressed)</li>
+ * </ul>
+ * Les lots plus lents que sync.metrics.slow-batch-threshold sont journalisés en DEBUG,
+ * au plus un par sync.metrics.slow-batch-log-interval (les autres sont seulement comptés).
+ */
+@Component
+public class SyncMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Timer batchDuration;
+    private final DistributionSummary batchSize;
+    private final Timer deltaDuration;
+    private final DistributionSummary deltaPageSize;
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> payloadSummaries = new ConcurrentHashMap<>();
+    private final long slowBatchThresholdNanos;
+    private final long slowBatchLogIntervalNanos;
+    private final AtomicLong lastSlowBatchLog = new AtomicLong(System.nanoTime());
+    private final AtomicLong unloggedSlowBatches = new AtomicLong();
+
+    public SyncMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${sync.metrics.slow-batch-threshold:2s}") Duration slowBatchThreshold,
+            @Value("${sync.metrics.slow-batch-log-interval:10s}") Duration slowBatchLogInterval) {
+        this.meterRegistry = meterRegistry;
+        this.batchDuration = Timer.builder("sync.batch.duration")
+                .description("Durée de traitement d'un lot de synchronisation")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("sync.batch.size")
+                .description("Nombre d'opérations par lot de synchronisation")
+                .baseUnit("operations")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.deltaDuration = Timer.builder("sync.delta.duration")
+                .description("Durée de calcul d'une page delta")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.deltaPageSize = DistributionSummary.builder("sync.delta.page.size")
+                .description("Entités (modifiées + supprimées) par page delta")
+                .baseUnit("entities")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.slowBatchThresholdNanos = slowBatchThreshold.toNanos();
+        this.slowBatchLogIntervalNanos = slowBatchLogInterval.toNanos();
+        // le premier lot lent est journalisé sans attendre un intervalle
+        this.lastSlowBatchLog.addAndGet(-slowBatchLogIntervalNanos);
+    }
+
+    public void recordOperation(String entityType, String operationType, String status, long elapsedNanos) {
+        String key = entityType + '|' + operationType + '|' + status;
+        operationTimers.computeIfAbsent(key, k -> Timer.builder("sync.operation.duration")
+                        .description("Latence d'une opération de synchronisation batch")
+                        .tag("entity_type", entityType)
+                        .tag("operation", operationType)
+                        .tag("status", status)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Enregistre un lot terminé; un lot lent est journalisé en DEBUG (échantillonné)
+     */
+    public void recordBatch(String deviceId, int operations, int conflicts, int errors, long elapsedNanos) {
+        batchDuration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        batchSize.record(operations);
+        if (elapsedNanos < slowBatchThresholdNanos || !logger.isDebugEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastSlowBatchLog.get();
+        if (now - last >= slowBatchLogIntervalNanos && lastSlowBatchLog.compareAndSet(last, now)) {
+            logger.debug("Lot de synchronisation lent: {} ms, {} opérations, {} conflits, {} erreurs (device: {}, "
+                            + "{} autres lots lents non journalisés)",
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), operations, conflicts, errors, deviceId,
+                    unloggedSlowBatches.getAndSet(0));
+        } else {
+            unloggedSlowBatches.incrementAndGet();
+        }
+    }
+
+    public void recordDelta(int pageSize, long elapsedNanos) {
+        deltaDuration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        deltaPageSize.record(pageSize);
+    }
+
+    /**
+     * @param direction "request"
+     * @param encoding  "gzip" (octets compressés), "identity", ou "decompressed"
+     */
+    public void recordPayload(String direction, String encoding, long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        payloadSummaries.computeIfAbsent(direction + '|' + encoding, k -> DistributionSummary.builder("sync.payload.bytes")
+                        .description("Taille des payloads de synchronisation")
+                        .baseUnit("bytes")
+                        .tag("direction", direction)
+                        .tag("encoding", encoding)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(bytes);
+    }
+}
@@ -6,6 +6,7 @@ import com.salesmanager.entity.Sale;
 import com.salesmanager.entity.StockMovement;
 import com.salesmanager.entity.SyncConflict;
 import com.salesmanager.entity.SyncLog;
+import com.salesmanager.entity.SyncTombstone;
 import com.salesmanager.entity.Organisation;
 import com.salesmanager.entity.Store;
 import com.salesmanager.exception.ConflictException;
@@ -13,27 +14,47 @@ import com.salesmanager.exception.BadRequestException;
 import com.salesmanager.exception.ForbiddenException;
 import com.salesmanager.exception.NotFoundException;
 import com.salesmanager.exception.TenantContextMissingException;
-import com.salesmanager.repository.OrganisationMemberRepository;
 import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.SaleItemRepository;
 import com.salesmanager.repository.SaleRepository;
 import com.salesmanager.repository.StockMovementRepository;
 import com.salesmanager.repository.SyncConflictRepository;
-import com.salesmanager.repository.SyncLogRepository;
+import com.salesmanager.repository.SyncTombstoneRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.UUID;
+import com.salesmanager.security.AuthPrincipalCache;
 import com.salesmanager.security.TenantContext;
 import com.salesmanager.security.UserDetailsImpl;
 
@@ -48,23 +69,55 @@ import com.salesmanager.security.UserDetailsImpl;
 @Transactional
 public class SyncService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SyncService.class);
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private SaleRepository saleRepository;
 
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
     @Autowired
     private StockMovementRepository stockMovementRepository;
 
     @Autowired
-    private SyncLogRepository syncLogRepository;
+    private SyncLogWriter syncLogWriter;
 
     @Autowired
     private SyncConflictRepository syncConflictRepository;
 
     @Autowired
-    private OrganisationMemberRepository organisationMemberRepository;
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private AuthPrincipalCache authPrincipalCache;
+
+    @Autowired
+    private SyncTombstoneService syncTombstoneService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ProductBarcodeCache productBarcodeCache;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductAlertService productAlertService;
+
+    @Autowired
+    private SyncMetrics syncMetrics;
+
+    @Autowired
+    private SyncIdempotencyService syncIdempotencyService;
+
+    @Autowired
+    private Validator validator;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -72,19 +125,62 @@ public class SyncService {
     @Value("${multitenancy.require-tenant-claims:false}")
     private boolean requireTenantClaims;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Value("${sync.delta.max-limit:1000}")
+    private int deltaMaxLimit;
+
+    @Value("${sync.delta.parallel.threads:6}")
+    private int deltaThreads;
+
+    @Value("${sync.delta.parallel.queue-capacity:100}")
+    private int deltaQueueCapacity;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Requêtes delta par type, chacune dans sa transaction en lecture seule (sa connexion)
+    private ThreadPoolExecutor deltaExecutor;
+    private TransactionTemplate deltaReadTransaction;
+
+    // ObjectMapper Spring (module java.time): payloads et données serveur contiennent des LocalDateTime
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    void startDeltaExecutor() {
+        deltaReadTransaction = new TransactionTemplate(transactionManager);
+        deltaReadTransaction.setReadOnly(true);
+        deltaReadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Pool borné (chaque tâche tient une connexion); file pleine: la requête est
+        // exécutée par le thread appelant, sans parallélisme mais sans rejet
+        deltaExecutor = new ThreadPoolExecutor(deltaThreads, deltaThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(deltaQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "sync-delta-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void stopDeltaExecutor() {
+        deltaExecutor.shutdownNow();
+    }
 
     /**
      * Traite une synchronisation batch
-     * 
+     * Les entités référencées sont chargées en une requête IN (...) par type, le
+     * tenant est vérifié une seule fois, et les écritures partent en batch JDBC
+     * lors d'un flush unique en fin de lot.
+     *
      * @param request Requête de synchronisation batch
      * @return Réponse avec les résultats du traitement
      */
     public SyncBatchResponse processBatchSync(SyncBatchRequest request) {
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
 
-        System.out.println("[SYNC_SERVICE] Début du traitement batch: " +
-                request.getOperations().size() + " opérations");
+        logger.debug("Début du traitement batch: {} opérations", request.getOperations().size());
 
         SyncBatchResponse response = new SyncBatchResponse();
         response.setSyncSessionId(UUID.randomUUID().toString());
@@ -97,11 +193,16 @@ public class SyncService {
         Map<String, Integer> byEntityType = new ConcurrentHashMap<>();
         Map<String, Integer> byOperationType = new ConcurrentHashMap<>();
 
-        // Traitement des opérations
+        // Pré-chargement ensembliste des entités référencées par le lot
+        BatchContext context = prepareBatch(request.getOperations(), request.getDeviceId());
+
+        // Traitement des opérations (dans l'ordre de la requête)
         for (SyncBatchRequest.SyncOperation operation : request.getOperations()) {
+            long operationStart = System.nanoTime();
             try {
-                SyncBatchResponse.OperationResult result = processOperation(operation, request);
+                SyncBatchResponse.OperationResult result = processOperation(operation, context);
                 results.add(result);
+                recordOperation(operation, result.getStatus(), operationStart);
 
                 // Mise à jour des statistiques
                 byEntityType.merge(operation.getEntityType().getValue(), 1, Integer::sum);
@@ -114,7 +215,7 @@ public class SyncService {
                         response.setConflictCount(response.getConflictCount() + 1);
                         // Création d'un conflit si nécessaire
                         if (result.getMessage() != null && result.getMessage().contains("conflit")) {
-                            conflicts.add(createConflict(operation, result));
+                            conflicts.add(createConflict(operation, result, context));
                         }
                     }
                     case FAILED -> {
@@ -127,8 +228,8 @@ public class SyncService {
                 }
 
             } catch (Exception e) {
-                System.err.println("[SYNC_SERVICE] Erreur traitement opération " +
-                        operation.getEntityId() + ": " + e.getMessage());
+                logger.warn("Erreur traitement opération {}: {}", operation.getEntityId(), e.getMessage());
+                recordOperation(operation, SyncBatchResponse.OperationStatus.FAILED, operationStart);
 
                 response.setErrorCount(response.getErrorCount() + 1);
                 errors.add(createError(operation, e.getMessage()));
@@ -143,6 +244,18 @@ public class SyncService {
             }
         }
 
+        // Écritures différées: un seul flush, regroupé en batchs JDBC
+        if (context.idempotency != null) {
+            context.idempotency.flush();
+        }
+        entityManager.flush();
+        salesRollupService.apply(context.rollupChanges);
+        if (context.productsChanged) {
+            productBarcodeCache.invalidateOrganisation(context.organisationId);
+            productCatalogCache.refreshAfterCommit(context.organisationId);
+            productAlertService.refreshAfterCommit(context.organisationId);
+        }
+
         // Finalisation de la réponse
         response.setTotalProcessed(request.getOperations().size());
         response.setProcessingTimeMs(System.currentTimeMillis() - startTime);
@@ -160,20 +273,118 @@ public class SyncService {
         // Log de la synchronisation
         logSyncOperation(request, response);
 
-        System.out.println("[SYNC_SERVICE] Fin du traitement batch: " +
-                response.getSuccessCount() + " succès, " +
-                response.getConflictCount() + " conflits, " +
-                response.getErrorCount() + " erreurs");
+        syncMetrics.recordBatch(request.getDeviceId(), request.getOperations().size(),
+                response.getConflictCount(), response.getErrorCount(), System.nanoTime() - startNanos);
+        logger.debug("Fin du traitement batch: {} succès, {} conflits, {} erreurs",
+                response.getSuccessCount(), response.getConflictCount(), response.getErrorCount());
 
         return response;
     }
 
+    private void recordOperation(SyncBatchRequest.SyncOperation operation, SyncBatchResponse.OperationStatus status,
+                                 long startNanos) {
+        syncMetrics.recordOperation(
+                operation.getEntityType() != null ? operation.getEntityType().getValue() : "unknown",
+                operation.getOperationType() != null ? operation.getOperationType().getValue() : "unknown",
+                status.name().toLowerCase(Locale.ROOT),
+                System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Résout le tenant une fois pour tout le lot et charge les entités référencées:
+     * une requête par type d'entité au lieu d'un findById par opération. Les créations
+     * déjà appliquées (rejeux) sont identifiées d'abord et ne sont ni validées ni chargées.
+     */
+    private BatchContext prepareBatch(List<SyncBatchRequest.SyncOperation> operations, String deviceId) {
+        BatchContext context = new BatchContext();
+        try {
+            context.organisationId = requireOrganisationId();
+            requireMembership(context.organisationId);
+        } catch (RuntimeException e) {
+            // chaque opération échouera individuellement avec cette erreur
+            context.tenantFailure = e;
+            return context;
+        }
+        context.elevated = isElevated();
+        try {
+            context.storeId = context.elevated ? TenantContext.getStoreId() : requireStoreId();
+        } catch (RuntimeException e) {
+            context.storeFailure = e;
+        }
+        context.idempotency = syncIdempotencyService.begin(context.organisationId, deviceId, operations);
+
+        // Regroupement des IDs référencés par type d'entité
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> saleIds = new HashSet<>();
+        Set<Long> movementIds = new HashSet<>();
+        for (SyncBatchRequest.SyncOperation operation : operations) {
+            if (operation.getEntityType() == null || operation.getOperationType() == null) {
+                continue;
+            }
+            if (context.idempotency.isApplied(operation)) {
+                continue;
+            }
+            String invalid = validatePayload(operation);
+            if (invalid != null) {
+                context.invalidPayloads.put(operation, invalid);
+                continue;
+            }
+            boolean create = operation.getOperationType() == SyncBatchRequest.OperationType.CREATE;
+            switch (operation.getEntityType()) {
+                case PRODUCT -> {
+                    if (!create) {
+                        addId(productIds, operation.getEntityId());
+                    }
+                }
+                case SALE -> {
+                    if (!create) {
+                        addId(saleIds, operation.getEntityId());
+                    }
+                }
+                case STOCK_MOVEMENT -> {
+                    if (!create) {
+                        addId(movementIds, operation.getEntityId());
+                    }
+                    if (operation.getEntityData() instanceof SyncEntityData.StockMovementData data
+                            && data.productId() != null) {
+                        productIds.add(data.productId());
+                    }
+                }
+            }
+        }
+
+        // Les mouvements d'abord: leurs produits doivent être vérifiés contre le tenant
+        if (!movementIds.isEmpty()) {
+            for (StockMovement movement : stockMovementRepository.findAllById(movementIds)) {
+                context.movements.put(movement.getId(), movement);
+                if (movement.getProductId() != null) {
+                    productIds.add(movement.getProductId());
+                }
+            }
+        }
+        if (!productIds.isEmpty()) {
+            for (Product product : productRepository.findByIdInAndOrganisation_Id(productIds, context.organisationId)) {
+                context.products.put(product.getId(), product);
+            }
+        }
+        if (!saleIds.isEmpty() && context.storeFailure == null) {
+            List<Sale> sales = context.elevated
+                    ? saleRepository.findByIdInAndOrganisation_Id(saleIds, context.organisationId)
+                    : saleRepository.findByIdInAndOrganisation_IdAndStore_Id(saleIds, context.organisationId,
+                            context.storeId);
+            for (Sale sale : sales) {
+                context.sales.put(sale.getId(), sale);
+            }
+        }
+        return context;
+    }
+
     /**
      * Traite une opération individuelle
      */
     private SyncBatchResponse.OperationResult processOperation(
             SyncBatchRequest.SyncOperation operation,
-            SyncBatchRequest request) {
+            BatchContext context) {
 
         SyncBatchResponse.OperationResult result = new SyncBatchResponse.OperationResult();
         result.setEntityId(operation.getEntityId());
@@ -182,19 +393,33 @@ public class SyncService {
         result.setOperationType(operation.getOperationType().getValue());
 
         try {
+            // rejeu d'une création déjà appliquée (lot précédent ou doublon dans ce lot)
+            SyncIdempotencyService.AppliedResult replayed = context.idempotency != null
+                    ? context.idempotency.replayOf(operation) : null;
+            if (replayed != null) {
+                // résultat du premier passage, à l'identique
+                result.setServerId(replayed.serverId());
+                result.setStatus(replayed.status());
+                result.setMessage(replayed.message());
+                return result;
+            }
+            String invalid = context.invalidPayloads.get(operation);
+            if (invalid != null) {
+                throw new BadRequestException(invalid);
+            }
             switch (operation.getEntityType()) {
                 case PRODUCT -> {
-                    result.setServerId(processProductOperation(operation));
+                    result.setServerId(processProductOperation(operation, context));
                     result.setStatus(SyncBatchResponse.OperationStatus.SUCCESS);
                     result.setMessage("Produit synchronisé avec succès");
                 }
                 case SALE -> {
-                    result.setServerId(processSaleOperation(operation));
+                    result.setServerId(processSaleOperation(operation, context));
                     result.setStatus(SyncBatchResponse.OperationStatus.SUCCESS);
                     result.setMessage("Vente synchronisée avec succès");
                 }
                 case STOCK_MOVEMENT -> {
-                    result.setServerId(processStockMovementOperation(operation));
+                    result.setServerId(processStockMovementOperation(operation, context));
                     result.setStatus(SyncBatchResponse.OperationStatus.SUCCESS);
                     result.setMessage("Mouvement de stock synchronisé avec succès");
                 }
@@ -203,6 +428,9 @@ public class SyncService {
                     result.setMessage("Type d'entité non supporté: " + operation.getEntityType());
                 }
             }
+            if (result.getStatus() == SyncBatchResponse.OperationStatus.SUCCESS && context.idempotency != null) {
+                context.idempotency.recordApplied(operation, result);
+            }
         } catch (ConflictException e) {
             result.setStatus(SyncBatchResponse.OperationStatus.CONFLICT);
             result.setMessage("Conflit détecté: " + e.getMessage());
@@ -217,44 +445,42 @@ public class SyncService {
     /**
      * Traite une opération sur un produit avec détection de conflits
      */
-    private String processProductOperation(SyncBatchRequest.SyncOperation operation) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) operation.getEntityData();
-        UUID organisationId = requireOrganisationId();
-        requireMembership(organisationId);
+    private String processProductOperation(SyncBatchRequest.SyncOperation operation, BatchContext context) {
+        // type et contraintes vérifiés par validatePayload (null possible pour un DELETE)
+        SyncEntityData.ProductData data = (SyncEntityData.ProductData) operation.getEntityData();
+        UUID organisationId = context.requireTenant();
+        context.productsChanged = true;
 
         switch (operation.getOperationType()) {
             case CREATE -> {
                 Product product = new Product();
-                product.setName((String) data.get("name"));
-                product.setDescription((String) data.get("description"));
-                product.setSellingPrice(new java.math.BigDecimal(data.get("price").toString()));
-                product.setCategory((String) data.get("category"));
-                product.setStockQuantity(Integer.parseInt(data.get("stock_quantity").toString()));
+                product.setName(data.name());
+                product.setDescription(data.description());
+                product.setSellingPrice(data.price());
+                product.setCategory(data.category());
+                product.setStockQuantity(data.stockQuantity());
                 product.setCreatedAt(LocalDateTime.now());
                 product.setUpdatedAt(LocalDateTime.now());
                 product.setOrganisation(entityManager.getReference(Organisation.class, organisationId));
 
-                Product saved = productRepository.save(product);
-                return saved.getId().toString();
+                validateEntity(product);
+                entityManager.persist(product);
+                context.products.put(product.getId(), product);
+                return product.getId().toString();
             }
             case UPDATE -> {
-                Optional<Product> existing = productRepository.findByIdAndOrganisation_Id(Long.parseLong(operation.getEntityId()), organisationId);
-                if (existing.isPresent()) {
-                    Product currentProduct = existing.get();
+                Product currentProduct = context.products.get(Long.parseLong(operation.getEntityId()));
+                if (currentProduct != null) {
 
                     // Détection de conflit : vérifier si updated_at est différent
-                    String clientUpdatedAt = (String) data.get("updated_at");
-                    if (clientUpdatedAt != null && !clientUpdatedAt.isEmpty()) {
-                        LocalDateTime clientTimestamp = LocalDateTime.parse(clientUpdatedAt);
+                    LocalDateTime clientTimestamp = data.updatedAt();
+                    if (clientTimestamp != null) {
                         LocalDateTime serverTimestamp = currentProduct.getUpdatedAt();
 
                         // Conflit détecté si les timestamps ne correspondent pas
                         if (serverTimestamp != null && !serverTimestamp.equals(clientTimestamp)) {
-                            System.out.println("[SYNC_SERVICE] Conflit détecté pour produit " +
-                                    operation.getEntityId() +
-                                    " - Server: " + serverTimestamp +
-                                    " vs Client: " + clientTimestamp);
+                            logger.debug("Conflit détecté pour produit {} - Server: {} vs Client: {}",
+                                    operation.getEntityId(), serverTimestamp, clientTimestamp);
 
                             // Créer et persister le conflit
                             SyncConflict conflict = createAndSaveConflict(
@@ -268,29 +494,28 @@ public class SyncService {
                         }
                     }
 
-                    // Pas de conflit, appliquer la mise à jour
-                    currentProduct.setName((String) data.get("name"));
-                    currentProduct.setDescription((String) data.get("description"));
-                    currentProduct.setSellingPrice(new java.math.BigDecimal(data.get("price").toString()));
-                    currentProduct.setCategory((String) data.get("category"));
-                    currentProduct.setStockQuantity(Integer.parseInt(data.get("stock_quantity").toString()));
+                    // Pas de conflit
+                    currentProduct.setName(data.name());
+                    currentProduct.setDescription(data.description());
+                    currentProduct.setSellingPrice(data.price());
+                    currentProduct.setCategory(data.category());
+                    currentProduct.setStockQuantity(data.stockQuantity());
                     currentProduct.setUpdatedAt(LocalDateTime.now());
 
-                    Product saved = productRepository.save(currentProduct);
-                    return saved.getId().toString();
+                    validateManagedEntity(currentProduct);
+                    return currentProduct.getId().toString();
                 } else {
                     throw new NotFoundException("Produit non trouvé: " + operation.getEntityId());
                 }
             }
             case DELETE -> {
-                Optional<Product> existing = productRepository.findByIdAndOrganisation_Id(Long.parseLong(operation.getEntityId()), organisationId);
-                if (existing.isPresent()) {
+                Long id = Long.parseLong(operation.getEntityId());
+                Product currentProduct = context.products.get(id);
+                if (currentProduct != null) {
                     // Vérifier si le produit a été modifié entre-temps (conflit UPDATE_DELETE)
-                    Product currentProduct = existing.get();
-                    String clientUpdatedAt = (String) data.get("updated_at");
+                    LocalDateTime clientTimestamp = data != null ? data.updatedAt() : null;
 
-                    if (clientUpdatedAt != null && !clientUpdatedAt.isEmpty()) {
-                        LocalDateTime clientTimestamp = LocalDateTime.parse(clientUpdatedAt);
+                    if (clientTimestamp != null) {
                         LocalDateTime serverTimestamp = currentProduct.getUpdatedAt();
 
                         if (serverTimestamp != null && serverTimestamp.isAfter(clientTimestamp)) {
@@ -306,7 +531,9 @@ public class SyncService {
                         }
                     }
 
-                    productRepository.delete(existing.get());
+                    entityManager.remove(currentProduct);
+                    context.products.remove(id);
+                    syncTombstoneService.recordDeletion(organisationId, null, "product", id);
                 }
                 return operation.getEntityId();
             }
@@ -317,18 +544,16 @@ public class SyncService {
     /**
      * Traite une opération sur une vente
      */
-    private String processSaleOperation(SyncBatchRequest.SyncOperation operation) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) operation.getEntityData();
-        UUID organisationId = requireOrganisationId();
-        requireMembership(organisationId);
-        UUID storeId = isElevated() ? TenantContext.getStoreId() : requireStoreId();
+    private String processSaleOperation(SyncBatchRequest.SyncOperation operation, BatchContext context) {
+        SyncEntityData.SaleData data = (SyncEntityData.SaleData) operation.getEntityData();
+        UUID organisationId = context.requireTenant();
+        UUID storeId = context.requireSaleStore();
 
         switch (operation.getOperationType()) {
             case CREATE -> {
                 Sale sale = new Sale();
-                sale.setTotalAmount(new java.math.BigDecimal(data.get("amount").toString()));
-                sale.setCustomerName((String) data.get("customer_name"));
+                sale.setTotalAmount(data.amount());
+                sale.setCustomerName(data.customerName());
                 sale.setSaleDate(LocalDateTime.now());
                 sale.setCreatedAt(LocalDateTime.now());
                 sale.setUpdatedAt(LocalDateTime.now());
@@ -340,31 +565,35 @@ public class SyncService {
                 UserDetailsImpl u = currentUserOrThrow();
                 sale.setCreatedBy(u.getUser());
 
-                Sale saved = saleRepository.save(sale);
-                return saved.getId().toString();
+                validateEntity(sale);
+                entityManager.persist(sale);
+                context.sales.put(sale.getId(), sale);
+                context.rollupChanges.add(SalesRollupService.contributionOf(sale));
+                return sale.getId().toString();
             }
             case UPDATE -> {
-                Optional<Sale> existing = isElevated()
-                        ? saleRepository.findByIdAndOrganisation_Id(Long.parseLong(operation.getEntityId()), organisationId)
-                        : saleRepository.findByIdAndOrganisation_IdAndStore_Id(Long.parseLong(operation.getEntityId()), organisationId, requireStoreId());
-                if (existing.isPresent()) {
-                    Sale sale = existing.get();
-                    sale.setTotalAmount(new java.math.BigDecimal(data.get("amount").toString()));
-                    sale.setCustomerName((String) data.get("customer_name"));
+                Sale sale = context.sales.get(Long.parseLong(operation.getEntityId()));
+                if (sale != null) {
+                    // montant brut et client: hors clés/mesures de l'agrégat journalier
+                    sale.setTotalAmount(data.amount());
+                    sale.setCustomerName(data.customerName());
                     sale.setUpdatedAt(LocalDateTime.now());
 
-                    Sale saved = saleRepository.save(sale);
-                    return saved.getId().toString();
+                    validateManagedEntity(sale);
+                    return sale.getId().toString();
                 } else {
                     throw new NotFoundException("Vente non trouvée: " + operation.getEntityId());
                 }
             }
             case DELETE -> {
                 Long id = Long.parseLong(operation.getEntityId());
-                Optional<Sale> existing = isElevated()
-                        ? saleRepository.findByIdAndOrganisation_Id(id, organisationId)
-                        : saleRepository.findByIdAndOrganisation_IdAndStore_Id(id, organisationId, requireStoreId());
-                existing.ifPresent(saleRepository::delete);
+                Sale existing = context.sales.remove(id);
+                if (existing != null) {
+                    context.rollupChanges.subtract(SalesRollupService.contributionOf(existing));
+                    entityManager.remove(existing);
+                    syncTombstoneService.recordDeletion(organisationId,
+                            existing.getStore() != null ? existing.getStore().getId() : null, "sale", id);
+                }
                 return operation.getEntityId();
             }
             default -> throw new IllegalArgumentException("Type d'opération non supporté");
@@ -374,45 +603,45 @@ public class SyncService {
     /**
      * Traite une opération sur un mouvement de stock
      */
-    private String processStockMovementOperation(SyncBatchRequest.SyncOperation operation) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) operation.getEntityData();
-        UUID organisationId = requireOrganisationId();
-        requireMembership(organisationId);
+    private String processStockMovementOperation(SyncBatchRequest.SyncOperation operation, BatchContext context) {
+        SyncEntityData.StockMovementData data = (SyncEntityData.StockMovementData) operation.getEntityData();
+        UUID organisationId = context.requireTenant();
 
         switch (operation.getOperationType()) {
             case CREATE -> {
                 StockMovement movement = new StockMovement();
-                Long productId = Long.parseLong(data.get("product_id").toString());
+                Long productId = data.productId();
                 // sécurité: le produit doit appartenir au tenant
-                productRepository.findByIdAndOrganisation_Id(productId, organisationId)
-                        .orElseThrow(() -> new NotFoundException("Produit non trouvé: " + productId));
+                if (!context.products.containsKey(productId)) {
+                    throw new NotFoundException("Produit non trouvé: " + productId);
+                }
                 movement.setProductId(productId);
-                movement.setQuantity(Integer.parseInt(data.get("quantity").toString()));
-                movement.setMovementType((String) data.get("movement_type"));
-                movement.setReason((String) data.get("reason"));
+                movement.setQuantity(data.quantity());
+                movement.setMovementType(data.movementType());
+                movement.setReason(data.reason());
                 movement.setCreatedAt(LocalDateTime.now());
                 movement.setUpdatedAt(LocalDateTime.now());
 
-                StockMovement saved = stockMovementRepository.save(movement);
-                return saved.getId().toString();
+                validateEntity(movement);
+                entityManager.persist(movement);
+                context.movements.put(movement.getId(), movement);
+                return movement.getId().toString();
             }
             case UPDATE -> {
-                Optional<StockMovement> existing = stockMovementRepository
-                        .findById(Long.parseLong(operation.getEntityId()));
-                if (existing.isPresent()) {
-                    StockMovement movement = existing.get();
-                    Long productId = Long.parseLong(data.get("product_id").toString());
-                    productRepository.findByIdAndOrganisation_Id(productId, organisationId)
-                            .orElseThrow(() -> new NotFoundException("Produit non trouvé: " + productId));
+                StockMovement movement = context.movements.get(Long.parseLong(operation.getEntityId()));
+                if (movement != null) {
+                    Long productId = data.productId();
+                    if (!context.products.containsKey(productId)) {
+                        throw new NotFoundException("Produit non trouvé: " + productId);
+                    }
                     movement.setProductId(productId);
-                    movement.setQuantity(Integer.parseInt(data.get("quantity").toString()));
-                    movement.setMovementType((String) data.get("movement_type"));
-                    movement.setReason((String) data.get("reason"));
+                    movement.setQuantity(data.quantity());
+                    movement.setMovementType(data.movementType());
+                    movement.setReason(data.reason());
                     movement.setUpdatedAt(LocalDateTime.now());
 
-                    StockMovement saved = stockMovementRepository.save(movement);
-                    return saved.getId().toString();
+                    validateManagedEntity(movement);
+                    return movement.getId().toString();
                 } else {
                     throw new NotFoundException("Mouvement de stock non trouvé: " + operation.getEntityId());
                 }
@@ -420,12 +649,14 @@ public class SyncService {
             case DELETE -> {
                 // pas de tenant_id -> on supprime uniquement si le mouvement pointe vers un produit du tenant
                 Long id = Long.parseLong(operation.getEntityId());
-                Optional<StockMovement> existing = stockMovementRepository.findById(id);
-                if (existing.isPresent()) {
-                    Long productId = existing.get().getProductId();
-                    productRepository.findByIdAndOrganisation_Id(productId, organisationId)
-                            .orElseThrow(() -> new ForbiddenException("Accès non autorisé à ce mouvement de stock"));
-                    stockMovementRepository.delete(existing.get());
+                StockMovement existing = context.movements.get(id);
+                if (existing != null) {
+                    if (!context.products.containsKey(existing.getProductId())) {
+                        throw new ForbiddenException("Accès non autorisé à ce mouvement de stock");
+                    }
+                    entityManager.remove(existing);
+                    context.movements.remove(id);
+                    syncTombstoneService.recordDeletion(organisationId, null, "stock_movement", id);
                 }
                 return operation.getEntityId();
             }
@@ -433,16 +664,128 @@ public class SyncService {
         }
     }
 
+    /**
+     * Validation Bean Validation avant persist: sans elle, une entité invalide ne
+     * serait détectée qu'au flush et ferait échouer tout le lot.
+     */
+    private void validateEntity(Object entity) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(violationMessage(violations));
+        }
+    }
+
+    /**
+     * Vérifie une fois, avant traitement, les données typées d'une opération
+     * (type cohérent avec entity_type, contraintes du payload pour CREATE / UPDATE).
+     *
+     * @return message d'erreur, ou null si l'opération peut être traitée
+     */
+    private String validatePayload(SyncBatchRequest.SyncOperation operation) {
+        if (operation.getEntityDataError() != null) {
+            return operation.getEntityDataError();
+        }
+        SyncEntityData data = operation.getEntityData();
+        if (data == null) {
+            return operation.getOperationType() == SyncBatchRequest.OperationType.DELETE
+                    ? null
+                    : "Données de l'entité manquantes";
+        }
+        if (!operation.getEntityType().getDataType().isInstance(data)) {
+            return "Données incompatibles avec le type d'entité " + operation.getEntityType().getValue();
+        }
+        if (operation.getOperationType() == SyncBatchRequest.OperationType.DELETE) {
+            return null;
+        }
+        Set<ConstraintViolation<SyncEntityData>> violations = validator.validate(data);
+        return violations.isEmpty() ? null : violationMessage(violations);
+    }
+
+    private static String violationMessage(Set<? extends ConstraintViolation<?>> violations) {
+        StringBuilder message = new StringBuilder("Données invalides:");
+        for (ConstraintViolation<?> violation : violations) {
+            message.append(' ').append(violation.getPropertyPath()).append(' ').append(violation.getMessage()).append(';');
+        }
+        return message.toString();
+    }
+
+    /**
+     * Variante pour une entité gérée déjà modifiée: l'état base est rechargé
+     * pour que la modification invalide ne parte pas au flush.
+     */
+    private void validateManagedEntity(Object entity) {
+        try {
+            validateEntity(entity);
+        } catch (BadRequestException e) {
+            entityManager.refresh(entity);
+            throw e;
+        }
+    }
+
+    private static void addId(Set<Long> ids, String value) {
+        if (value == null) {
+            return;
+        }
+        try {
+            ids.add(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            // ID invalide: l'opération concernée échouera individuellement
+        }
+    }
+
+    /**
+     * État d'un lot de synchronisation: tenant résolu une seule fois et entités
+     * pré-chargées indexées par ID (mises à jour au fil des créations/suppressions).
+     */
+    private static final class BatchContext {
+        private UUID organisationId;
+        private UUID storeId;
+        private boolean elevated;
+        private RuntimeException tenantFailure;
+        private RuntimeException storeFailure;
+        private boolean productsChanged;
+        // créations déjà appliquées (rejeux), null si le tenant n'a pas pu être résolu
+        private SyncIdempotencyService.Batch idempotency;
+        // opérations rejetées par validatePayload, avec leur message d'erreur
+        private final Map<SyncBatchRequest.SyncOperation, String> invalidPayloads = new IdentityHashMap<>();
+        // variations de l'agrégat journalier des ventes, appliquées une fois après le flush
+        private final SalesRollupService.Changes rollupChanges = new SalesRollupService.Changes();
+        private final Map<Long, Product> products = new HashMap<>();
+        private final Map<Long, Sale> sales = new HashMap<>();
+        private final Map<Long, StockMovement> movements = new HashMap<>();
+
+        UUID requireTenant() {
+            if (tenantFailure != null) {
+                throw tenantFailure;
+            }
+            return organisationId;
+        }
+
+        UUID requireSaleStore() {
+            requireTenant();
+            if (storeFailure != null) {
+                throw storeFailure;
+            }
+            return storeId;
+        }
+    }
+
     /**
      * Traite une synchronisation delta
-     * Récupère les modifications serveur depuis la dernière synchronisation
+     * Récupère les modifications serveur depuis la dernière synchronisation, par pages
+     * ordonnées sur la clé (updated_at, entity_type, id). Chaque type est lu avec un
+     * LIMIT en SQL à partir du curseur, puis les résultats sont fusionnés: la mémoire
+     * utilisée dépend de la taille de page, pas du volume de modifications en attente.
+     * Les requêtes par type partent en parallèle (pool sync.delta.parallel), chacune dans
+     * sa propre transaction en lecture seule: la latence est celle de la plus lente, pas
+     * leur somme. La méthode elle-même ne tient donc aucune transaction.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SyncDeltaResponse processDeltaSync(SyncDeltaRequest request) {
-        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
 
-        System.out.println("[SYNC_SERVICE] Début du traitement delta depuis: " +
-                request.getLastSyncTimestamp() +
-                " (device: " + request.getDeviceId() + ")");
+        logger.debug("Début du traitement delta depuis: {} (device: {})",
+                request.getLastSyncTimestamp(), request.getDeviceId());
 
         SyncDeltaResponse response = new SyncDeltaResponse();
         response.setSyncSessionId(UUID.randomUUID().toString());
@@ -450,8 +793,13 @@ public class SyncService {
         List<SyncDeltaResponse.ModifiedEntity> modifiedEntities = new ArrayList<>();
         List<SyncDeltaResponse.DeletedEntity> deletedEntities = new ArrayList<>();
 
-        LocalDateTime since = request.getLastSyncTimestamp();
+        SyncDeltaCursor cursor = request.getContinuationToken() != null && !request.getContinuationToken().isBlank()
+                ? SyncDeltaCursor.decode(request.getContinuationToken())
+                : SyncDeltaCursor.after(request.getLastSyncTimestamp());
         int limit = request.getLimit() != null ? request.getLimit() : 100;
+        limit = Math.max(1, Math.min(limit, deltaMaxLimit));
+        // une ligne de plus par type pour savoir s'il reste des modifications
+        Pageable page = PageRequest.of(0, limit + 1);
 
         // Statistiques pour le delta
         Map<String, Integer> byEntityType = new ConcurrentHashMap<>();
@@ -459,100 +807,124 @@ public class SyncService {
         LocalDateTime oldestModification = null;
         LocalDateTime newestModification = null;
 
-        // Récupération des entités modifiées par type
+        // Récupération des entités modifiées par type (au plus limit + 1 chacun), en parallèle
         UUID organisationId = requireOrganisationId();
         requireMembership(organisationId);
         UUID storeId = isElevated() ? null : requireStoreId();
+        List<CompletableFuture<List<DeltaRow>>> pages = new ArrayList<>();
         if (request.getEntityTypes() == null || request.getEntityTypes().contains("product")) {
-            List<Product> modifiedProducts = productRepository.findByOrganisation_IdAndUpdatedAtAfter(organisationId, since);
-            for (Product product : modifiedProducts) {
-                if (modifiedEntities.size() >= limit) {
-                    response.setHasMore(true);
-                    break;
-                }
-
-                SyncDeltaResponse.ModifiedEntity entity = new SyncDeltaResponse.ModifiedEntity();
-                entity.setEntityId(product.getId().toString());
-                entity.setEntityType("product");
-                entity.setEntityData(convertProductToMap(product));
-                entity.setLastModified(product.getUpdatedAt());
-                entity.setOperationType("update");
-                modifiedEntities.add(entity);
-
-                // Mise à jour des statistiques
-                byEntityType.merge("product", 1, Integer::sum);
-                byOperationType.merge("update", 1, Integer::sum);
-
-                // Tracking des dates
-                if (oldestModification == null || product.getUpdatedAt().isBefore(oldestModification)) {
-                    oldestModification = product.getUpdatedAt();
-                }
-                if (newestModification == null || product.getUpdatedAt().isAfter(newestModification)) {
-                    newestModification = product.getUpdatedAt();
+            pages.add(deltaQuery(() -> {
+                List<DeltaRow> rows = new ArrayList<>();
+                for (Product product : productRepository.findDeltaPage(organisationId, cursor.updatedAt(),
+                        cursor.afterIdFor("product"), page)) {
+                    rows.add(new DeltaRow("product", product.getId(), product.getUpdatedAt(),
+                            convertProductToMap(product)));
                 }
-            }
+                return rows;
+            }));
         }
 
         if (request.getEntityTypes() == null || request.getEntityTypes().contains("sale")) {
-            List<Sale> modifiedSales = (storeId == null)
-                    ? saleRepository.findByOrganisation_IdAndUpdatedAtAfter(organisationId, since)
-                    : saleRepository.findByOrganisation_IdAndStore_IdAndUpdatedAtAfter(organisationId, storeId, since);
-            for (Sale sale : modifiedSales) {
-                if (modifiedEntities.size() >= limit) {
-                    response.setHasMore(true);
-                    break;
-                }
-
-                SyncDeltaResponse.ModifiedEntity entity = new SyncDeltaResponse.ModifiedEntity();
-                entity.setEntityId(sale.getId().toString());
-                entity.setEntityType("sale");
-                entity.setEntityData(convertSaleToMap(sale));
-                entity.setLastModified(sale.getUpdatedAt());
-                entity.setOperationType("update");
-                modifiedEntities.add(entity);
-
-                // Mise à jour des statistiques
-                byEntityType.merge("sale", 1, Integer::sum);
-                byOperationType.merge("update", 1, Integer::sum);
-
-                // Tracking des dates
-                if (oldestModification == null || sale.getUpdatedAt().isBefore(oldestModification)) {
-                    oldestModification = sale.getUpdatedAt();
+            pages.add(deltaQuery(() -> {
+                List<Sale> sales = (storeId == null)
+                        ? saleRepository.findDeltaPage(organisationId, cursor.updatedAt(), cursor.afterIdFor("sale"), page)
+                        : saleRepository.findDeltaPageByStore(organisationId, storeId, cursor.updatedAt(),
+                                cursor.afterIdFor("sale"), page);
+                // quantités totales en une requête groupée plutôt qu'un chargement des lignes par vente
+                Map<Long, Integer> quantities = new HashMap<>();
+                if (!sales.isEmpty()) {
+                    for (Object[] total : saleItemRepository.sumQuantityBySaleIds(
+                            sales.stream().map(Sale::getId).toList())) {
+                        quantities.put((Long) total[0], ((Number) total[1]).intValue());
+                    }
                 }
-                if (newestModification == null || sale.getUpdatedAt().isAfter(newestModification)) {
-                    newestModification = sale.getUpdatedAt();
+                List<DeltaRow> rows = new ArrayList<>();
+                for (Sale sale : sales) {
+                    rows.add(new DeltaRow("sale", sale.getId(), sale.getUpdatedAt(),
+                            convertSaleToMap(sale, quantities.getOrDefault(sale.getId(), 0))));
                 }
-            }
+                return rows;
+            }));
         }
 
         if (request.getEntityTypes() == null || request.getEntityTypes().contains("stock_movement")) {
-            List<StockMovement> modifiedMovements = stockMovementRepository.findByOrganisationAndUpdatedAtAfter(organisationId, since);
-            for (StockMovement movement : modifiedMovements) {
-                if (modifiedEntities.size() >= limit) {
-                    response.setHasMore(true);
-                    break;
+            pages.add(deltaQuery(() -> {
+                List<DeltaRow> rows = new ArrayList<>();
+                for (StockMovement movement : stockMovementRepository.findDeltaPage(organisationId,
+                        cursor.updatedAt(), cursor.afterIdFor("stock_movement"), page)) {
+                    rows.add(new DeltaRow("stock_movement", movement.getId(), movement.getUpdatedAt(),
+                            convertStockMovementToMap(movement)));
                 }
+                return rows;
+            }));
+        }
 
-                SyncDeltaResponse.ModifiedEntity entity = new SyncDeltaResponse.ModifiedEntity();
-                entity.setEntityId(movement.getId().toString());
-                entity.setEntityType("stock_movement");
-                entity.setEntityData(convertStockMovementToMap(movement));
-                entity.setLastModified(movement.getUpdatedAt());
-                entity.setOperationType("update");
-                modifiedEntities.add(entity);
+        // Suppressions: même curseur, position (deleted_at, id du tombstone)
+        List<String> deletedTypes = request.getEntityTypes() == null
+                ? SyncDeltaCursor.ENTITY_TYPE_ORDER.subList(0, 3)
+                : request.getEntityTypes();
+        if (!deletedTypes.isEmpty()) {
+            pages.add(deltaQuery(() -> {
+                List<SyncTombstone> tombstones = (storeId == null)
+                        ? syncTombstoneRepository.findDeltaPage(organisationId, deletedTypes, cursor.updatedAt(),
+                                cursor.afterIdFor("tombstone"), page)
+                        : syncTombstoneRepository.findDeltaPageByStore(organisationId, storeId, deletedTypes,
+                                cursor.updatedAt(), cursor.afterIdFor("tombstone"), page);
+                List<DeltaRow> rows = new ArrayList<>();
+                for (SyncTombstone tombstone : tombstones) {
+                    SyncDeltaResponse.DeletedEntity deleted = new SyncDeltaResponse.DeletedEntity();
+                    deleted.setEntityId(tombstone.getEntityId().toString());
+                    deleted.setEntityType(tombstone.getEntityType());
+                    deleted.setDeletedAt(tombstone.getDeletedAt());
+                    rows.add(new DeltaRow("tombstone", tombstone.getId(), tombstone.getDeletedAt(), deleted));
+                }
+                return rows;
+            }));
+        }
 
-                // Mise à jour des statistiques
-                byEntityType.merge("stock_movement", 1, Integer::sum);
-                byOperationType.merge("update", 1, Integer::sum);
+        // Fusion des pages par type selon l'ordre global du curseur
+        List<DeltaRow> rows = new ArrayList<>();
+        for (CompletableFuture<List<DeltaRow>> typePage : pages) {
+            rows.addAll(awaitDeltaPage(typePage));
+        }
+        rows.sort(DeltaRow.ORDER);
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
 
-                // Tracking des dates
-                if (oldestModification == null || movement.getUpdatedAt().isBefore(oldestModification)) {
-                    oldestModification = movement.getUpdatedAt();
-                }
-                if (newestModification == null || movement.getUpdatedAt().isAfter(newestModification)) {
-                    newestModification = movement.getUpdatedAt();
+        for (DeltaRow row : rows) {
+            if (row.data() instanceof SyncDeltaResponse.DeletedEntity deleted) {
+                deletedEntities.add(deleted);
+
+                byEntityType.merge(deleted.getEntityType(), 1, Integer::sum);
+                byOperationType.merge("delete", 1, Integer::sum);
+                if (oldestModification == null) {
+                    oldestModification = row.updatedAt();
                 }
+                newestModification = row.updatedAt();
+                continue;
+            }
+
+            SyncDeltaResponse.ModifiedEntity entity = new SyncDeltaResponse.ModifiedEntity();
+            entity.setEntityId(row.id().toString());
+            entity.setEntityType(row.entityType());
+            @SuppressWarnings("unchecked")
+            Map<String, Object> entityData = (Map<String, Object>) row.data();
+            entity.setEntityData(entityData);
+            entity.setLastModified(row.updatedAt());
+            entity.setOperationType("update");
+            modifiedEntities.add(entity);
+
+            // Mise à jour des statistiques
+            byEntityType.merge(row.entityType(), 1, Integer::sum);
+            byOperationType.merge("update", 1, Integer::sum);
+
+            // Tracking des dates (les lignes sont triées par updated_at)
+            if (oldestModification == null) {
+                oldestModification = row.updatedAt();
             }
+            newestModification = row.updatedAt();
         }
 
         // Finalisation de la réponse
@@ -561,7 +933,15 @@ public class SyncService {
         response.setTotalModified(modifiedEntities.size());
         response.setTotalDeleted(deletedEntities.size());
         response.setServerTimestamp(LocalDateTime.now());
-        response.setNextSyncTimestamp(response.getServerTimestamp());
+        response.setHasMore(hasMore);
+        if (hasMore) {
+            // reprise exacte via le jeton; le timestamp reste utilisable par les anciens clients
+            DeltaRow last = rows.get(rows.size() - 1);
+            response.setContinuationToken(new SyncDeltaCursor(last.updatedAt(), last.entityType(), last.id()).encode());
+            response.setNextSyncTimestamp(last.updatedAt());
+        } else {
+            response.setNextSyncTimestamp(response.getServerTimestamp());
+        }
 
         // Création des statistiques delta
         SyncDeltaResponse.DeltaStatistics statistics = new SyncDeltaResponse.DeltaStatistics();
@@ -572,16 +952,54 @@ public class SyncService {
         statistics.setTotalDataSizeBytes(calculateDataSize(modifiedEntities));
         response.setStatistics(statistics);
 
+        // Position confirmée par le device (utilisée pour la compaction des tombstones)
+        syncTombstoneService.recordDevicePosition(organisationId, request.getDeviceId(), cursor.updatedAt());
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        syncMetrics.recordDelta(response.getTotalModified() + response.getTotalDeleted(), elapsedNanos);
+
         // Log de la synchronisation delta
-        logDeltaSync(request, response);
+        long processingTime = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        logDeltaSync(request, response, processingTime);
 
-        long processingTime = System.currentTimeMillis() - startTime;
-        System.out.println("[SYNC_SERVICE] Fin du traitement delta: " +
-                response.getTotalModified() + " entités modifiées en " + processingTime + "ms");
+        logger.debug("Fin du traitement delta: {} entités modifiées en {}ms", response.getTotalModified(), processingTime);
 
         return response;
     }
 
+    /**
+     * Lance la lecture d'une page delta sur le pool dédié, dans une transaction en lecture
+     * seule; les entités sont converties avant la fin de cette transaction (lignes de vente
+     * et autres associations paresseuses)
+     */
+    private CompletableFuture<List<DeltaRow>> deltaQuery(Supplier<List<DeltaRow>> query) {
+        return CompletableFuture.supplyAsync(() -> deltaReadTransaction.execute(status -> query.get()),
+                deltaExecutor);
+    }
+
+    private List<DeltaRow> awaitDeltaPage(CompletableFuture<List<DeltaRow>> typePage) {
+        try {
+            return typePage.join();
+        } catch (CompletionException e) {
+            // exception d'origine (accès aux données, etc.), comme en exécution séquentielle
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Ligne candidate d'une page delta: données déjà converties (Map d'une entité modifiée,
+     * ou DeletedEntity pour un tombstone)
+     */
+    private record DeltaRow(String entityType, Long id, LocalDateTime updatedAt, Object data) {
+
+        static final Comparator<DeltaRow> ORDER = Comparator.comparing(DeltaRow::updatedAt)
+                .thenComparingInt(row -> SyncDeltaCursor.ENTITY_TYPE_ORDER.indexOf(row.entityType()))
+                .thenComparing(DeltaRow::id);
+    }
+
     private UUID requireOrganisationId() {
         UUID orgId = TenantContext.getOrganisationId();
         if (orgId == null) {
@@ -634,9 +1052,7 @@ public class SyncService {
             return;
         }
         Long userId = currentUserOrThrow().getId();
-        boolean isMember = organisationMemberRepository.findByUser_Id(userId).stream()
-                .anyMatch(m -> organisationId.equals(m.getOrganisation().getId()));
-        if (!isMember) {
+        if (!authPrincipalCache.isMember(userId, organisationId)) {
             throw new ForbiddenException("Accès non autorisé à cette organisation");
         }
     }
@@ -664,7 +1080,7 @@ public class SyncService {
      * Force une synchronisation complète
      */
     public void forceSync() {
-        System.out.println("[SYNC_SERVICE] Synchronisation forcée déclenchée");
+        logger.info("Synchronisation forcée déclenchée");
         // Logique de synchronisation forcée
         // Peut inclure la réinitialisation des timestamps, etc.
     }
@@ -696,14 +1112,13 @@ public class SyncService {
      * Résout un conflit
      */
     public void resolveConflict(String conflictId, String resolution) {
-        System.out.println("[SYNC_SERVICE] Résolution conflit " + conflictId +
-                " avec stratégie: " + resolution);
+        logger.info("Résolution conflit {} avec stratégie: {}", conflictId, resolution);
 
         try {
             Long id = Long.parseLong(conflictId);
             resolveConflictWithStrategy(id, resolution, "system");
         } catch (NumberFormatException e) {
-            System.err.println("[SYNC_SERVICE] ID de conflit invalide: " + conflictId);
+            logger.warn("ID de conflit invalide: {}", conflictId);
         }
     }
 
@@ -712,7 +1127,8 @@ public class SyncService {
      */
     private SyncBatchResponse.SyncConflict createConflict(
             SyncBatchRequest.SyncOperation operation,
-            SyncBatchResponse.OperationResult result) {
+            SyncBatchResponse.OperationResult result,
+            BatchContext context) {
 
         SyncBatchResponse.SyncConflict conflict = new SyncBatchResponse.SyncConflict();
         conflict.setConflictId(UUID.randomUUID().toString());
@@ -723,21 +1139,19 @@ public class SyncService {
         conflict.setMessage(result.getMessage());
         conflict.setPriority(SyncBatchResponse.ConflictPriority.MEDIUM);
 
-        // Tenter de récupérer les données serveur pour comparaison
+        // Données serveur pour comparaison: déjà chargées par le lot
         try {
-            if ("product".equals(operation.getEntityType().getValue())) {
-                Optional<Product> product = productRepository.findById(Long.parseLong(operation.getEntityId()));
-                product.ifPresent(p -> conflict.setServerData(convertProductToMap(p)));
-            } else if ("sale".equals(operation.getEntityType().getValue())) {
-                Optional<Sale> sale = saleRepository.findById(Long.parseLong(operation.getEntityId()));
-                sale.ifPresent(s -> conflict.setServerData(convertSaleToMap(s)));
-            } else if ("stock_movement".equals(operation.getEntityType().getValue())) {
-                Optional<StockMovement> movement = stockMovementRepository
-                        .findById(Long.parseLong(operation.getEntityId()));
-                movement.ifPresent(m -> conflict.setServerData(convertStockMovementToMap(m)));
+            Long id = Long.parseLong(operation.getEntityId());
+            switch (operation.getEntityType()) {
+                case PRODUCT -> Optional.ofNullable(context.products.get(id))
+                        .ifPresent(p -> conflict.setServerData(convertProductToMap(p)));
+                case SALE -> Optional.ofNullable(context.sales.get(id))
+                        .ifPresent(s -> conflict.setServerData(convertSaleToMap(s)));
+                case STOCK_MOVEMENT -> Optional.ofNullable(context.movements.get(id))
+                        .ifPresent(m -> conflict.setServerData(convertStockMovementToMap(m)));
             }
         } catch (Exception e) {
-            System.err.println("[SYNC_SERVICE] Erreur récupération données serveur pour conflit: " + e.getMessage());
+            logger.warn("Erreur récupération données serveur pour conflit: {}", e.getMessage());
         }
 
         return conflict;
@@ -768,13 +1182,13 @@ public class SyncService {
             log.setProcessingTimeMs(Long.valueOf(response.getProcessingTimeMs()));
             log.setTimestamp(LocalDateTime.now());
 
-            syncLogRepository.save(log);
+            syncLogWriter.submit(log);
         } catch (Exception e) {
-            System.err.println("[SYNC_SERVICE] Erreur log synchronisation: " + e.getMessage());
+            logger.warn("Erreur log synchronisation: {}", e.getMessage());
         }
     }
 
-    private void logDeltaSync(SyncDeltaRequest request, SyncDeltaResponse response) {
+    private void logDeltaSync(SyncDeltaRequest request, SyncDeltaResponse response, long processingTimeMs) {
         try {
             SyncLog log = new SyncLog();
             log.setSyncType("DELTA");
@@ -783,12 +1197,12 @@ public class SyncService {
             log.setSuccessCount(response.getTotalModified());
             log.setErrorCount(0);
             log.setConflictCount(0);
-            log.setProcessingTimeMs(0L); // Calculer si nécessaire
+            log.setProcessingTimeMs(processingTimeMs);
             log.setTimestamp(LocalDateTime.now());
 
-            syncLogRepository.save(log);
+            syncLogWriter.submit(log);
         } catch (Exception e) {
-            System.err.println("[SYNC_SERVICE] Erreur log delta: " + e.getMessage());
+            logger.warn("Erreur log delta: {}", e.getMessage());
         }
     }
 
@@ -809,10 +1223,14 @@ public class SyncService {
     }
 
     private Map<String, Object> convertSaleToMap(Sale sale) {
+        return convertSaleToMap(sale, sale.getTotalQuantity());
+    }
+
+    private Map<String, Object> convertSaleToMap(Sale sale, int totalQuantity) {
         Map<String, Object> data = new HashMap<>();
         data.put("id", sale.getId());
         data.put("amount", sale.getTotalAmount());
-        data.put("total_quantity", sale.getTotalQuantity());
+        data.put("total_quantity", totalQuantity);
         data.put("customer_name", sale.getCustomerName());
         data.put("created_at", sale.getCreatedAt());
         data.put("updated_at", sale.getUpdatedAt());
@@ -867,10 +1285,8 @@ public class SyncService {
             }
 
             // Informations supplémentaires
-            @SuppressWarnings("unchecked")
-            Map<String, Object> localData = (Map<String, Object>) operation.getEntityData();
-            String userId = localData.get("user_id") != null ? localData.get("user_id").toString() : "0";
-            conflict.setUserId(Long.parseLong(userId));
+            SyncEntityData localData = operation.getEntityData();
+            conflict.setUserId(localData != null && localData.userId() != null ? localData.userId() : 0L);
 
             // Détails du conflit
             String details = String.format(
@@ -883,12 +1299,12 @@ public class SyncService {
             // Sauvegarder le conflit
             SyncConflict savedConflict = syncConflictRepository.save(conflict);
 
-            System.out.println("[SYNC_SERVICE] Conflit enregistré avec ID: " + savedConflict.getId());
+            logger.debug("Conflit enregistré avec ID: {}", savedConflict.getId());
 
             return savedConflict;
 
         } catch (JsonProcessingException e) {
-            System.err.println("[SYNC_SERVICE] Erreur sérialisation conflit: " + e.getMessage());
+            logger.warn("Erreur sérialisation conflit: {}", e.getMessage());
             throw new RuntimeException("Erreur lors de la création du conflit", e);
         }
     }
@@ -915,8 +1331,7 @@ public class SyncService {
 
             syncConflictRepository.save(conflict);
 
-            System.out.println("[SYNC_SERVICE] Conflit " + conflictId +
-                    " résolu avec stratégie: " + strategy);
+            logger.info("Conflit {} résolu avec stratégie: {}", conflictId, strategy);
         }
     }
 }
@@ -0,0 +1,84 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.SyncDeviceState;
+import com.salesmanager.entity.SyncTombstone;
+import com.salesmanager.repository.SyncDeviceStateRepository;
+import com.salesmanager.repository.SyncTombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Journal des suppressions (tombstones) pour la synchronisation delta
+ * Enregistre les suppressions, suit la position de chaque device et purge les
+ * tombstones que plus aucun device actif ne peut avoir besoin de recevoir
+ */
+@Service
+@Transactional
+public class SyncTombstoneService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncTombstoneService.class);
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private SyncDeviceStateRepository syncDeviceStateRepository;
+
+    // Au-delà de cette inactivité, un device n'est plus pris en compte et doit resynchroniser complètement
+    @Value("${sync.tombstones.device-inactivity-days:30}")
+    private int deviceInactivityDays;
+
+    /**
+     * Enregistre la suppression d'une entité (dans la transaction appelante)
+     *
+     * @param storeId magasin de l'entité, null pour les entités de niveau organisation
+     */
+    public void recordDeletion(UUID organisationId, UUID storeId, String entityType, Long entityId) {
+        syncTombstoneRepository.save(new SyncTombstone(organisationId, storeId, entityType, entityId));
+    }
+
+    /**
+     * Mémorise la position confirmée par un device lors d'une synchronisation delta
+     */
+    public void recordDevicePosition(UUID organisationId, String deviceId, LocalDateTime position) {
+        if (deviceId == null || deviceId.isBlank() || position == null) {
+            return;
+        }
+        SyncDeviceState state = syncDeviceStateRepository.findByOrganisationIdAndDeviceId(organisationId, deviceId)
+                .orElseGet(() -> {
+                    SyncDeviceState created = new SyncDeviceState();
+                    created.setOrganisationId(organisationId);
+                    created.setDeviceId(deviceId);
+                    return created;
+                });
+        state.setLastSyncPosition(position);
+        state.setLastSeenAt(LocalDateTime.now());
+        syncDeviceStateRepository.save(state);
+    }
+
+    /**
+     * Compaction: purge, par organisation, les tombstones antérieurs à la position
+     * du device actif le plus en retard (ou à la fenêtre d'inactivité sans device actif)
+     */
+    @Scheduled(cron = "${sync.tombstones.compaction-cron:0 30 3 * * *}")
+    public void compactTombstones() {
+        LocalDateTime activeSince = LocalDateTime.now().minusDays(deviceInactivityDays);
+        int purged = 0;
+        for (UUID organisationId : syncTombstoneRepository.findOrganisationIds()) {
+            LocalDateTime horizon = syncDeviceStateRepository.findOldestActivePosition(organisationId, activeSince);
+            if (horizon == null) {
+                horizon = activeSince;
+            }
+            purged += syncTombstoneRepository.deleteOlderThan(organisationId, horizon);
+        }
+        logger.info("Compaction des tombstones terminée: {} tombstones purgés", purged);
+    }
+}
@@ -1,16 +1,17 @@
 package com.salesmanager.util;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Variantes de code-barres pour recherche / stockage (EAN-13, GTIN-14, GS1 AI 01).
  * Aligné sur la logique mobile (gs1BarcodeParser).
+ * Appelé à chaque scan: parcours de caractères, sans expressions régulières.
  */
 public final class BarcodeNormalizer {
 
+    private static final int GTIN_LENGTH = 14;
+
     private BarcodeNormalizer() {
     }
 
@@ -20,47 +21,108 @@ public final class BarcodeNormalizer {
         return variants.isEmpty() ? "" : variants.get(0);
     }
 
+    /**
+     * Forme GTIN-14 (complétée par des zéros à gauche) d'un code EAN-8, UPC-A, EAN-13,
+     * GTIN-14 ou d'un élément GS1 AI (01). Null pour les codes non GTIN.
+     * Persistée dans products.barcode_canonical pour la recherche indexée.
+     */
+    public static String gtin14(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String digits = digitsOf(raw.trim());
+        int length = digits.length();
+        if (length >= 16 && digits.startsWith("01")) {
+            return digits.substring(2, 16);
+        }
+        if (length == 8 || length == 12 || length == 13 || length == GTIN_LENGTH) {
+            return length == GTIN_LENGTH ? digits : "0".repeat(GTIN_LENGTH - length) + digits;
+        }
+        return null;
+    }
+
     public static List<String> candidates(String raw) {
-        Set<String> out = new LinkedHashSet<>();
         if (raw == null) {
             return List.of();
         }
 
+        // au plus 6 variantes: une liste avec contrôle de doublons suffit
+        List<String> out = new ArrayList<>(6);
         String trimmed = raw.trim();
         if (!trimmed.isEmpty()) {
             out.add(trimmed);
         }
 
-        String digits = trimmed.replaceAll("\\D", "");
+        String digits = digitsOf(trimmed);
         if (digits.isEmpty()) {
-            return new ArrayList<>(out);
+            return out;
         }
 
-        out.add(digits);
+        addDistinct(out, digits);
 
         if (digits.startsWith("01") && digits.length() >= 16) {
             String gtin14 = digits.substring(2, 16);
-            out.add(gtin14);
-            if (gtin14.startsWith("0") && gtin14.length() == 14) {
-                out.add(gtin14.substring(1, 14));
+            addDistinct(out, gtin14);
+            if (gtin14.charAt(0) == '0') {
+                addDistinct(out, gtin14.substring(1, 14));
             }
         }
 
-        if (digits.length() == 14 && digits.startsWith("0")) {
-            out.add(digits.substring(1, 14));
+        if (digits.length() == 14 && digits.charAt(0) == '0') {
+            addDistinct(out, digits.substring(1, 14));
         }
 
         if (digits.length() == 13) {
-            out.add("0" + digits);
+            addDistinct(out, "0" + digits);
         }
 
         if (digits.length() >= 8 && digits.length() <= 13) {
-            String noLeadingZeros = digits.replaceFirst("^0+", "");
+            String noLeadingZeros = stripLeadingZeros(digits);
             if (!noLeadingZeros.isEmpty()) {
-                out.add(noLeadingZeros);
+                addDistinct(out, noLeadingZeros);
             }
         }
 
-        return new ArrayList<>(out);
+        return out;
+    }
+
+    /** Chiffres seuls; retourne la chaîne telle quelle si elle ne contient que des chiffres. */
+    private static String digitsOf(String value) {
+        int length = value.length();
+        int firstNonDigit = 0;
+        while (firstNonDigit < length && isDigit(value.charAt(firstNonDigit))) {
+            firstNonDigit++;
+        }
+        if (firstNonDigit == length) {
+            return value;
+        }
+        StringBuilder digits = new StringBuilder(length);
+        digits.append(value, 0, firstNonDigit);
+        for (int i = firstNonDigit + 1; i < length; i++) {
+            char c = value.charAt(i);
+            if (isDigit(c)) {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int start = 0;
+        while (start < digits.length() && digits.charAt(start) == '0') {
+            start++;
+        }
+        return start == 0 ? digits : digits.substring(start);
+    }
+
+    // ASCII uniquement, comme l'ancien \D (Character.isDigit accepterait d'autres écritures)
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void addDistinct(List<String> out, String value) {
+        if (!out.contains(value)) {
+            out.add(value);
+        }
     }
 }
@@ -0,0 +1,124 @@
+package com.salesmanager.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Table de hachage à clés long primitives (adressage ouvert, sondage linéaire):
+ * ni Long ni Map.Entry par élément, deux tableaux seulement.
+ * La clé 0 est réservée (case vide). Une suppression laisse la clé en place avec une
+ * valeur nulle, récupérée au prochain agrandissement: adapté à un index où les
+ * suppressions sont rares. Non synchronisée.
+ */
+public final class LongHashIndex<V> {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int used;
+    private int size;
+
+    public LongHashIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Associe value à key (value null: suppression)
+     */
+    public void put(long key, V value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("clé 0 réservée");
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                if (values[i] == null && value != null) {
+                    size++;
+                } else if (values[i] != null && value == null) {
+                    size--;
+                }
+                values[i] = value;
+                return;
+            }
+        }
+        if (value == null) {
+            return;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used++;
+        size++;
+        if (used > keys.length * LOAD_FACTOR) {
+            rehash();
+        }
+    }
+
+    public void remove(long key) {
+        put(key, null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    // capacité recalculée sur les valeurs présentes: les clés supprimées disparaissent
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (size * 2 / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = 0;
+        size = 0;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used++;
+                size++;
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        // mélange (constante de Fibonacci): ids et GTIN consécutifs répartis sur toute la table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongHashIndex[size=" + size + ", capacity=" + keys.length + "]";
+    }
+}
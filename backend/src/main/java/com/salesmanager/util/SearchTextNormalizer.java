@@ -0,0 +1,91 @@
+package com.salesmanager.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Forme de recherche d'un texte produit: minuscules, sans accents ni ligatures,
+ * ponctuation remplacée par un espace, espaces regroupés.
+ * "Crème brûlée – Œufs frais" -> "creme brulee oeufs frais".
+ * Appliquée à l'identique au nom / à la description (colonnes search_name, search_text)
+ * et aux termes saisis: la comparaison en base est un simple LIKE indexable.
+ */
+public final class SearchTextNormalizer {
+
+    private SearchTextNormalizer() {
+    }
+
+    /**
+     * Texte normalisé, tronqué à maxLength caractères; null si rien ne reste
+     */
+    public static String normalize(String raw, int maxLength) {
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        // NFD: les lettres accentuées deviennent lettre de base + diacritique combinant
+        String decomposed = Normalizer.normalize(raw, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(Math.min(decomposed.length(), maxLength));
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length() && out.length() < maxLength; i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = out.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+            }
+            appendFolded(out, Character.toLowerCase(c));
+        }
+        if (out.length() > maxLength) {
+            out.setLength(maxLength);
+        }
+        if (out.length() > 0 && out.charAt(out.length() - 1) == ' ') {
+            out.setLength(out.length() - 1);
+        }
+        return out.length() == 0 ? null : out.toString();
+    }
+
+    /**
+     * Termes d'une recherche (au plus maxTerms, sans doublons)
+     */
+    public static String[] terms(String query, int maxTerms) {
+        String normalized = normalize(query, 200);
+        if (normalized == null) {
+            return new String[0];
+        }
+        String[] words = normalized.split(" ");
+        String[] terms = new String[Math.min(words.length, maxTerms)];
+        int count = 0;
+        for (String word : words) {
+            if (count == terms.length) {
+                break;
+            }
+            boolean duplicate = false;
+            for (int i = 0; i < count && !duplicate; i++) {
+                duplicate = terms[i].equals(word);
+            }
+            if (!duplicate) {
+                terms[count++] = word;
+            }
+        }
+        return count == terms.length ? terms : Arrays.copyOf(terms, count);
+    }
+
+    // ligatures sans décomposition NFD
+    private static void appendFolded(StringBuilder out, char c) {
+        switch (c) {
+            case 'œ' -> out.append("oe");
+            case 'æ' -> out.append("ae");
+            case 'ß' -> out.append("ss");
+            case 'ø' -> out.append('o');
+            case 'đ' -> out.append('d');
+            case 'ł' -> out.append('l');
+            default -> out.append(c);
+        }
+    }
+}
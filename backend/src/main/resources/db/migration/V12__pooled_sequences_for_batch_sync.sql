@@ -0,0 +1,9 @@
+-- V12: Séquences "pooled" pour products, sales et stock_movements.
+-- Hibernate réserve désormais les IDs par blocs de 50 (allocationSize = 50) au lieu
+-- d'utiliser IDENTITY, ce qui permet le batching JDBC des INSERT (sync batch, ventes).
+-- Les colonnes BIGSERIAL gardent leur DEFAULT nextval(): les inserts hors Hibernate
+-- consomment simplement un bloc entier, sans risque de collision.
+
+ALTER SEQUENCE IF EXISTS products_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS sales_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS stock_movements_id_seq INCREMENT BY 50;
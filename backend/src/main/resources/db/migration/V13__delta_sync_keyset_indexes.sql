@@ -0,0 +1,19 @@
+-- V13: Index pour la synchronisation delta paginée par curseur (updated_at, id).
+-- Chaque type est lu avec "updated_at > ? OR (updated_at = ? AND id > ?) ORDER BY updated_at, id LIMIT n":
+-- ces index permettent de démarrer directement à la position du curseur.
+
+CREATE INDEX IF NOT EXISTS idx_products_org_updated_at_id
+    ON products (organisation_id, updated_at, id);
+
+-- Remplacé par idx_products_org_updated_at_id (même préfixe)
+DROP INDEX IF EXISTS idx_products_org_updated_at;
+
+CREATE INDEX IF NOT EXISTS idx_sales_org_updated_at_id
+    ON sales (organisation_id, updated_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_sales_org_store_updated_at_id
+    ON sales (organisation_id, store_id, updated_at, id);
+
+-- stock_movements n'a pas d'organisation_id: filtre via la jointure products
+CREATE INDEX IF NOT EXISTS idx_stock_movements_updated_at_id
+    ON stock_movements (updated_at, id);
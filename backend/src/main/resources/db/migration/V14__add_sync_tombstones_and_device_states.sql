@@ -0,0 +1,47 @@
+-- V14: Tombstones de synchronisation + position delta par device.
+-- Les suppressions (sync batch, suppression de vente, désactivation de produit) sont journalisées
+-- pour que la synchronisation delta les renvoie dans deleted_entities, avec le même curseur
+-- que les entités modifiées. La compaction purge les tombstones antérieurs à la position
+-- du device actif le plus en retard.
+
+CREATE TABLE IF NOT EXISTS sync_tombstones (
+    id BIGSERIAL PRIMARY KEY,
+    organisation_id UUID NOT NULL,
+    store_id UUID,
+    entity_type VARCHAR(50) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT fk_sync_tombstones_organisation
+        FOREIGN KEY (organisation_id)
+        REFERENCES organisations(id)
+        ON DELETE CASCADE
+);
+
+-- Séquence alignée sur l'allocationSize Hibernate (insertions en batch)
+ALTER SEQUENCE IF EXISTS sync_tombstones_id_seq INCREMENT BY 50;
+
+-- Pagination delta par curseur (deleted_at, id)
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_org_deleted_at_id
+    ON sync_tombstones (organisation_id, deleted_at, id);
+
+CREATE TABLE IF NOT EXISTS sync_device_states (
+    id BIGSERIAL PRIMARY KEY,
+    organisation_id UUID NOT NULL,
+    device_id VARCHAR(255) NOT NULL,
+    last_sync_position TIMESTAMP NOT NULL,
+    last_seen_at TIMESTAMP NOT NULL,
+
+    CONSTRAINT uk_sync_device_states_org_device UNIQUE (organisation_id, device_id),
+    CONSTRAINT fk_sync_device_states_organisation
+        FOREIGN KEY (organisation_id)
+        REFERENCES organisations(id)
+        ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_sync_device_states_org_last_seen
+    ON sync_device_states (organisation_id, last_seen_at);
+
+COMMENT ON TABLE sync_tombstones IS 'Suppressions à propager aux devices via la synchronisation delta';
+COMMENT ON COLUMN sync_tombstones.store_id IS 'Magasin de l''entité supprimée (ventes), NULL pour les entités de niveau organisation';
+COMMENT ON TABLE sync_device_states IS 'Dernière position delta confirmée par device (horizon de compaction des tombstones)';
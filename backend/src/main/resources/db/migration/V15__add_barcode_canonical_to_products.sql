@@ -0,0 +1,29 @@
+-- V15: Colonne barcode_canonical (forme GTIN-14) pour résoudre un scan en une seule requête indexée.
+-- Même règle que BarcodeNormalizer.gtin14 côté Java:
+--   - chiffres uniquement;
+--   - élément GS1 AI (01) (16 chiffres ou plus commençant par 01) -> les 14 chiffres du GTIN;
+--   - EAN-8, UPC-A, EAN-13, GTIN-14 -> complété à 14 chiffres par des zéros à gauche;
+--   - autres codes -> NULL (recherche par variantes brutes sur barcode).
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS barcode_canonical VARCHAR(14);
+
+-- Backfill des produits existants
+UPDATE products p
+SET barcode_canonical = CASE
+        WHEN length(d.digits) >= 16 AND d.digits LIKE '01%' THEN substring(d.digits FROM 3 FOR 14)
+        WHEN length(d.digits) IN (8, 12, 13, 14) THEN lpad(d.digits, 14, '0')
+        ELSE NULL
+    END
+FROM (
+    SELECT id, regexp_replace(trim(barcode), '[^0-9]', '', 'g') AS digits
+    FROM products
+    WHERE barcode IS NOT NULL
+) d
+WHERE p.id = d.id;
+
+-- Index par tenant (non unique: plusieurs saisies historiques peuvent partager un GTIN)
+CREATE INDEX IF NOT EXISTS idx_products_org_barcode_canonical
+    ON products (organisation_id, barcode_canonical)
+    WHERE barcode_canonical IS NOT NULL;
+
+COMMENT ON COLUMN products.barcode_canonical IS 'Code-barres normalisé GTIN-14 (dérivé de barcode), NULL pour les codes non GTIN';
@@ -0,0 +1,60 @@
+-- V16: Agrégat journalier des ventes pour /sales/analytics.
+-- Une ligne par (organisation, magasin, jour, moyen de paiement, statut) avec somme de
+-- final_amount, coût d'achat des lignes et nombre de ventes. Maintenu par l'application
+-- à chaque écriture de vente. Une seule ligne par clé: index unique sur la clé, les
+-- colonnes nullables (store_id, payment_method, status) ramenées à une valeur sentinelle,
+-- NULL n'étant pas comparable dans une contrainte d'unicité.
+
+CREATE TABLE IF NOT EXISTS sales_daily_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    organisation_id UUID NOT NULL,
+    store_id UUID,
+    sale_day DATE NOT NULL,
+    payment_method VARCHAR(50),
+    status VARCHAR(50),
+    total_amount NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    total_cost NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    sale_count BIGINT NOT NULL DEFAULT 0,
+
+    CONSTRAINT fk_sales_daily_rollups_organisation
+        FOREIGN KEY (organisation_id)
+        REFERENCES organisations(id)
+        ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sales_daily_rollups_key
+    ON sales_daily_rollups (organisation_id,
+                            COALESCE(store_id, '00000000-0000-0000-0000-000000000000'::uuid),
+                            sale_day,
+                            COALESCE(payment_method, ''),
+                            COALESCE(status, ''));
+
+CREATE INDEX IF NOT EXISTS idx_sales_daily_rollups_org_day
+    ON sales_daily_rollups (organisation_id, sale_day);
+
+CREATE INDEX IF NOT EXISTS idx_sales_daily_rollups_org_store_day
+    ON sales_daily_rollups (organisation_id, store_id, sale_day);
+
+-- Backfill depuis l'historique existant (équivalent de POST /sales/analytics/rollup/rebuild)
+INSERT INTO sales_daily_rollups
+    (organisation_id, store_id, sale_day, payment_method, status, total_amount, total_cost, sale_count)
+SELECT s.organisation_id,
+       s.store_id,
+       CAST(s.sale_date AS DATE),
+       s.payment_method,
+       s.status,
+       COALESCE(SUM(s.final_amount), 0),
+       COALESCE(SUM(c.cost), 0),
+       COUNT(*)
+FROM sales s
+LEFT JOIN (
+    SELECT sale_id, SUM(product_purchase_price * quantity) AS cost
+    FROM sale_items
+    WHERE product_purchase_price IS NOT NULL
+    GROUP BY sale_id
+) c ON c.sale_id = s.id
+WHERE s.organisation_id IS NOT NULL
+GROUP BY s.organisation_id, s.store_id, CAST(s.sale_date AS DATE), s.payment_method, s.status;
+
+COMMENT ON TABLE sales_daily_rollups IS 'Agrégat journalier des ventes (analytics), maintenu de façon incrémentale';
+COMMENT ON COLUMN sales_daily_rollups.total_cost IS 'Somme de sale_items.product_purchase_price * quantity';
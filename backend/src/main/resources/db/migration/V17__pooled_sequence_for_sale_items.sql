@@ -0,0 +1,6 @@
+-- V17: Séquence "pooled" pour sale_items.
+-- Comme V12 pour products/sales/stock_movements: Hibernate réserve les IDs par blocs
+-- de 50 (allocationSize = 50), les lignes d'une vente partent en un seul batch JDBC
+-- au lieu d'un INSERT ... RETURNING par ligne.
+
+ALTER SEQUENCE IF EXISTS sale_items_id_seq INCREMENT BY 50;
@@ -0,0 +1,18 @@
+-- V18: Compteurs de numérotation des ventes et des reçus par organisation / magasin.
+-- Remplace les numéros dérivés de currentTimeMillis() (collisions sur sales.sale_number
+-- et receipts.receipt_number en caisse simultanée). Chaque compteur a sa séquence
+-- document_number_seq_{id}, créée par l'application à la création du compteur
+-- (CREATE SEQUENCE IF NOT EXISTS, pas = documents.numbering.block-size): chaque nœud
+-- réserve un bloc de numéros par nextval, puis les attribue en mémoire. Les séquences ne
+-- sont jamais supprimées ni réinitialisées; une séquence existante garde son pas.
+-- scope_key = type:organisation:magasin ("-" sans magasin), NULL n'étant pas comparable
+-- dans une contrainte d'unicité.
+
+CREATE TABLE IF NOT EXISTS document_number_counters (
+    id BIGSERIAL PRIMARY KEY,
+    scope_key VARCHAR(100) NOT NULL UNIQUE,
+    kind VARCHAR(20) NOT NULL,
+    organisation_id UUID NOT NULL REFERENCES organisations(id) ON DELETE CASCADE,
+    store_id UUID REFERENCES stores(id) ON DELETE CASCADE,
+    updated_at TIMESTAMP
+);
@@ -0,0 +1,36 @@
+-- V19: Clés d'idempotence des opérations de synchronisation.
+-- Une caisse qui renvoie un lot après un timeout rejouait ses créations (ventes, mouvements
+-- de stock en double). Chaque création appliquée est enregistrée sous la clé
+-- (organisation, device, local_id, type d'entité, opération) avec son résultat initial
+-- (server_id, statut, message); un rejeu reçoit ce résultat à l'identique sans rien
+-- réécrire. Table compacte purgée après la rétention (sync.idempotency.retention).
+
+CREATE TABLE IF NOT EXISTS sync_idempotency_keys (
+    id BIGSERIAL PRIMARY KEY,
+    organisation_id UUID NOT NULL,
+    device_id VARCHAR(255) NOT NULL,
+    local_id VARCHAR(255) NOT NULL,
+    entity_type VARCHAR(50) NOT NULL,
+    operation_type VARCHAR(20) NOT NULL,
+    server_id VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    message VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+
+    -- deux rejeux concurrents: le second lot échoue au commit au lieu de dupliquer
+    CONSTRAINT uk_sync_idempotency_keys
+        UNIQUE (organisation_id, device_id, local_id, entity_type, operation_type),
+    CONSTRAINT fk_sync_idempotency_keys_organisation
+        FOREIGN KEY (organisation_id)
+        REFERENCES organisations(id)
+        ON DELETE CASCADE
+);
+
+-- Séquence alignée sur l'allocationSize Hibernate (insertions en batch)
+ALTER SEQUENCE IF EXISTS sync_idempotency_keys_id_seq INCREMENT BY 50;
+
+-- Purge par ancienneté
+CREATE INDEX IF NOT EXISTS idx_sync_idempotency_keys_created_at
+    ON sync_idempotency_keys (created_at);
+
+COMMENT ON TABLE sync_idempotency_keys IS 'Créations appliquées par device / local_id, pour renvoyer le même résultat aux rejeux';
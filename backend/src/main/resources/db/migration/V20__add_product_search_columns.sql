@@ -0,0 +1,26 @@
+-- V20: Recherche produit plein texte (ProductSearchService).
+-- search_name / search_text: nom et "nom description" sous forme normalisée (SearchTextNormalizer:
+-- minuscules, sans accents ni ligatures, ponctuation -> espace). Remplies par l'application:
+-- à l'écriture du produit, et au démarrage pour les lignes existantes (même normalisation Java,
+-- sans dépendre de l'extension unaccent).
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_name VARCHAR(200);
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_text VARCHAR(1000);
+
+-- Termes de recherche (LIKE '%terme%'): index trigrammes, utilisable dès 3 caractères
+CREATE INDEX IF NOT EXISTS idx_products_search_text_trgm
+    ON products USING gin (search_text gin_trgm_ops);
+
+-- Autocomplétion: préfixe du nom (LIKE 'saisie%') par tenant, indépendant de la collation
+CREATE INDEX IF NOT EXISTS idx_products_org_search_name
+    ON products (organisation_id, search_name text_pattern_ops)
+    WHERE is_active = true;
+
+-- Autocomplétion: début d'un mot du nom (LIKE '% saisie%')
+CREATE INDEX IF NOT EXISTS idx_products_search_name_trgm
+    ON products USING gin (search_name gin_trgm_ops);
+
+COMMENT ON COLUMN products.search_name IS 'Nom normalisé pour la recherche (minuscules, sans accents), dérivé de name';
+COMMENT ON COLUMN products.search_text IS 'Nom et description normalisés pour la recherche, dérivés de name / description';
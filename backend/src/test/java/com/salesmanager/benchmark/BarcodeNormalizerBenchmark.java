@@ -0,0 +1,99 @@
+package com.salesmanager.benchmark;
+
+import com.salesmanager.util.BarcodeNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH de BarcodeNormalizer.candidates (appelé à chaque scan).
+ * "legacy" reproduit l'ancienne implémentation (replaceAll("\\D") / replaceFirst("^0+"))
+ * pour comparer dans la même exécution.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.BarcodeNormalizerBenchmark
+ * Options JMH via -Dexec.args, ex. "BarcodeNormalizerBenchmark -prof gc" pour les allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class BarcodeNormalizerBenchmark {
+
+    // EAN-13, EAN-13 avec espaces, élément GS1 AI (01), EAN-8 avec zéros
+    @Param({"6194001234567", " 619 4001 234567 ", "0106194001234567", "00123456"})
+    public String barcode;
+
+    @Benchmark
+    public List<String> candidates() {
+        return BarcodeNormalizer.candidates(barcode);
+    }
+
+    @Benchmark
+    public List<String> legacyCandidates() {
+        return legacy(barcode);
+    }
+
+    @Benchmark
+    public String gtin14() {
+        return BarcodeNormalizer.gtin14(barcode);
+    }
+
+    private static List<String> legacy(String raw) {
+        Set<String> out = new LinkedHashSet<>();
+        if (raw == null) {
+            return List.of();
+        }
+        String trimmed = raw.trim();
+        if (!trimmed.isEmpty()) {
+            out.add(trimmed);
+        }
+        String digits = trimmed.replaceAll("\\D", "");
+        if (digits.isEmpty()) {
+            return new ArrayList<>(out);
+        }
+        out.add(digits);
+        if (digits.startsWith("01") && digits.length() >= 16) {
+            String gtin14 = digits.substring(2, 16);
+            out.add(gtin14);
+            if (gtin14.startsWith("0") && gtin14.length() == 14) {
+                out.add(gtin14.substring(1, 14));
+            }
+        }
+        if (digits.length() == 14 && digits.startsWith("0")) {
+            out.add(digits.substring(1, 14));
+        }
+        if (digits.length() == 13) {
+            out.add("0" + digits);
+        }
+        if (digits.length() >= 8 && digits.length() <= 13) {
+            String noLeadingZeros = digits.replaceFirst("^0+", "");
+            if (!noLeadingZeros.isEmpty()) {
+                out.add(noLeadingZeros);
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // options JMH en ligne de commande (-Dexec.args="..."), sinon ce benchmark seul
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {BarcodeNormalizerBenchmark.class.getSimpleName()});
+    }
+}
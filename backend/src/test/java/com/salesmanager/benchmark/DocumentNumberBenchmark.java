@@ -0,0 +1,72 @@
+package com.salesmanager.benchmark;
+
+import com.salesmanager.service.DocumentNumberService;
+import org.hibernate.dialect.H2Dialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH du débit de numérotation (DocumentNumberService.next) en caisse simultanée:
+ * 8 threads sur le même périmètre, base H2 en mémoire. Mesure le coût des numéros servis
+ * depuis le bloc en mémoire et la contention au renouvellement (un nextval par bloc).
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.DocumentNumberBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(0)
+public class DocumentNumberBenchmark {
+
+    @Param({"100", "1000"})
+    public int blockSize;
+
+    private DocumentNumberService documentNumberService;
+    private UUID organisationId;
+
+    @Setup
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:numbering-" + blockSize + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS document_number_counters ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, scope_key VARCHAR(100) NOT NULL UNIQUE, "
+                + "kind VARCHAR(20) NOT NULL, organisation_id UUID NOT NULL, store_id UUID, "
+                + "updated_at TIMESTAMP)");
+        documentNumberService = new DocumentNumberService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new H2Dialect().getSequenceSupport(), blockSize);
+        organisationId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public String next() {
+        return documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // options JMH en ligne de commande (-Dexec.args="..."), sinon ce benchmark seul
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {DocumentNumberBenchmark.class.getSimpleName()});
+    }
+}
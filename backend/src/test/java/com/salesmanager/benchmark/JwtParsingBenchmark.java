@@ -0,0 +1,91 @@
+package com.salesmanager.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.salesmanager.security.JwtClaims;
+import com.salesmanager.security.JwtUtils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH du traitement JWT par requête (JwtAuthenticationFilter + TenantContextResolver).
+ * "legacy" reproduit l'ancien enchaînement: validate + username dans le filtre, puis
+ * validate + orgId + storeId dans le résolveur, chaque appel reconstruisant clé et parser.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.JwtParsingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class JwtParsingBenchmark {
+
+    private static final String SECRET = "bXlTZWNyZXRLZXkxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTA=";
+
+    private JwtUtils jwtUtils;
+    private Cache<?, ?> claimsCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86_400_000);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheMaximumSize", 10_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        claimsCache = (Cache<?, ?>) ReflectionTestUtils.getField(jwtUtils, "claimsCache");
+        token = jwtUtils.generateTokenFromUsername("bench", UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    /** Cinq vérifications HMAC, clé et parser reconstruits à chaque fois. */
+    @Benchmark
+    public void legacyFiveParses(Blackhole bh) {
+        bh.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parse(token));
+        bh.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody().getSubject());
+        bh.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parse(token));
+        bh.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody().get("orgId"));
+        bh.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody().get("storeId"));
+    }
+
+    /** Parse unique avec clé/parser partagés, sans cache (premier passage d'un token). */
+    @Benchmark
+    public JwtClaims singleParseCacheMiss() {
+        claimsCache.invalidateAll();
+        return jwtUtils.parseToken(token).orElseThrow();
+    }
+
+    /** Requêtes suivantes avec le même token: claims servis par le cache. */
+    @Benchmark
+    public JwtClaims singleParseCacheHit() {
+        return jwtUtils.parseToken(token).orElseThrow();
+    }
+
+    private static Key legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {JwtParsingBenchmark.class.getSimpleName()});
+    }
+}
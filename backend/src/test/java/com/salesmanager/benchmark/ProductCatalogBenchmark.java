@@ -0,0 +1,162 @@
+package com.salesmanager.benchmark;
+
+import com.salesmanager.dto.ProductCatalogEntry;
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.service.ProductCatalogCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark JMH des lectures servies par le catalogue en mémoire (ProductCatalogCache)
+ * et mesure de sa mémoire: le setup affiche le tas retenu par le catalogue chargé
+ * (différence après GC), pour 1k, 10k et 100k produits d'une organisation.
+ * Produits générés: noms de 20 à 40 caractères, un tiers avec description, EAN-13,
+ * 40 catégories, prix et dates d'expiration répétés comme dans un vrai magasin.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.ProductCatalogBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class ProductCatalogBenchmark {
+
+    private static final String[] PRODUCTS = {"Riz parfumé", "Huile d'arachide", "Lait concentré", "Café moulu",
+            "Farine de maïs", "Sucre en poudre", "Savon de Marseille", "Pâtes alimentaires", "Thé à la menthe",
+            "Sardines à l'huile", "Chocolat noir", "Crème fraîche", "Bière blonde", "Eau minérale"};
+    private static final String[] BRANDS = {"Maggi", "Nido", "Lesieur", "Nescafé", "Panzani", "Jumbo",
+            "Délice", "Saveurs d'ici", "Kréyol", "Tropical"};
+    private static final String[] SIZES = {"250g", "500g", "1kg", "5kg", "25kg", "33cl", "1L", "1,5L", "x6", "x12"};
+    private static final String[] UNITS = {"pcs", "kg", "l"};
+
+    @Param({"1000", "10000", "100000"})
+    public int products;
+
+    private ProductCatalogCache catalog;
+    private final UUID organisationId = UUID.randomUUID();
+    private String[] barcodes;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.countByOrganisation_IdAndIsActiveTrue(any())).thenReturn((long) products);
+        // nouvelles instances à chaque chargement: seules celles retenues par le catalogue comptent
+        when(repository.findCatalog(any())).thenAnswer(invocation -> generate());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        catalog = new ProductCatalogCache(repository, transactionManager, new SimpleMeterRegistry(), true,
+                1_000_000, Duration.ofHours(1), Duration.ofSeconds(5));
+
+        long before = usedHeap();
+        catalog.findById(organisationId, 1L);
+        long retained = usedHeap() - before;
+        System.out.printf("Catalogue de %d produits: %.1f Mo retenus, %d octets par produit%n",
+                products, retained / 1024.0 / 1024.0, retained / products);
+
+        Random random = new Random(7);
+        barcodes = new String[1024];
+        ids = new long[1024];
+        for (int i = 0; i < barcodes.length; i++) {
+            int id = 1 + random.nextInt(products);
+            ids[i] = id;
+            barcodes[i] = ean13(id);
+        }
+    }
+
+    /** Scan caisse: EAN-13 -> produit */
+    @Benchmark
+    public Optional<ProductResponse> findByBarcode() {
+        return catalog.findByBarcode(organisationId, barcodes[next++ & 1023]);
+    }
+
+    @Benchmark
+    public Optional<ProductResponse> findById() {
+        return catalog.findById(organisationId, ids[next++ & 1023]);
+    }
+
+    /** Première page d'une catégorie (1/40 du catalogue), triée par nom */
+    @Benchmark
+    public Page<ProductResponse> findByCategory() {
+        return catalog.findByCategory(organisationId, "Rayon 7", PageRequest.of(0, 20, Sort.by("name")))
+                .orElseThrow();
+    }
+
+    @Benchmark
+    public List<ProductResponse> findLowStock() {
+        return catalog.findLowStock(organisationId).orElseThrow();
+    }
+
+    private List<ProductCatalogEntry> generate() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<ProductCatalogEntry> entries = new ArrayList<>(products);
+        for (int i = 1; i <= products; i++) {
+            String name = PRODUCTS[random.nextInt(PRODUCTS.length)] + " " + BRANDS[random.nextInt(BRANDS.length)]
+                    + " " + SIZES[random.nextInt(SIZES.length)];
+            String description = random.nextInt(3) == 0 ? "Produit importé, à conserver au sec " + i : null;
+            BigDecimal purchase = new BigDecimal((50 + random.nextInt(200)) * 25 + ".00");
+            BigDecimal selling = new BigDecimal((60 + random.nextInt(250)) * 25 + ".00");
+            LocalDate expiry = random.nextInt(4) == 0 ? null : LocalDate.now().plusDays(random.nextInt(365));
+            // createdAt / updatedAt propres à chaque ligne, comme en base
+            entries.add(new ProductCatalogEntry((long) i, name, description, ean13(i), purchase, selling,
+                    random.nextInt(200), 5, expiry, null, "Rayon " + random.nextInt(40),
+                    UNITS[random.nextInt(UNITS.length)], null, true, now.minusSeconds(i * 61L),
+                    now.minusSeconds(i * 7L), "caissier" + random.nextInt(5)));
+        }
+        return entries;
+    }
+
+    private static String ean13(long id) {
+        return String.format("3%012d", id);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // options JMH en ligne de commande (-Dexec.args="..."), sinon ce benchmark seul
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {ProductCatalogBenchmark.class.getSimpleName()});
+    }
+}
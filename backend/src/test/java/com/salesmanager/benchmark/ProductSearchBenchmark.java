@@ -0,0 +1,213 @@
+package com.salesmanager.benchmark;
+
+import com.salesmanager.util.SearchTextNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH d'une requête de recherche produit, pour un catalogue de 1k, 10k et 100k produits
+ * d'une organisation (plus autant de produits d'une autre organisation).
+ * "legacySearch" reproduit l'ancienne requête LOWER(name) LIKE '%terme%' OR LOWER(description) ...;
+ * "search" et "autocomplete" les requêtes de ProductSearchService sur les colonnes normalisées.
+ *
+ * Base: H2 en mémoire par défaut (index btree seulement: le préfixe est indexé, pas la sous-chaîne).
+ * Pour mesurer les index trigrammes de V20, pointer sur un PostgreSQL jetable (table products_bench
+ * recréée): -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench -Dbench.jdbc.user=... -Dbench.jdbc.password=...
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.ProductSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class ProductSearchBenchmark {
+
+    private static final String[] PRODUCTS = {"Riz parfumé", "Huile d'arachide", "Lait concentré", "Café moulu",
+            "Farine de maïs", "Sucre en poudre", "Savon de Marseille", "Pâtes alimentaires", "Thé à la menthe",
+            "Sardines à l'huile", "Pão de açúcar", "Feijão preto", "Manteiga", "Bannann peze", "Diri blan",
+            "Lwil palmis", "Chocolat noir", "Crème fraîche", "Bière blonde", "Eau minérale"};
+    private static final String[] BRANDS = {"Maggi", "Nido", "Lesieur", "Nescafé", "Panzani", "Jumbo",
+            "Délice", "Saveurs d'ici", "Kréyol", "Tropical"};
+    private static final String[] SIZES = {"250g", "500g", "1kg", "5kg", "25kg", "33cl", "1L", "1,5L", "x6", "x12"};
+
+    @Param({"1000", "10000", "100000"})
+    public int products;
+
+    private Connection connection;
+    private PreparedStatement legacySearch;
+    private PreparedStatement search;
+    private PreparedStatement autocomplete;
+    private PreparedStatement autocompleteWords;
+    private final UUID organisationId = UUID.randomUUID();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:h2:mem:product-search-" + products
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        connection = DriverManager.getConnection(url, System.getProperty("bench.jdbc.user", "sa"),
+                System.getProperty("bench.jdbc.password", ""));
+        boolean postgres = url.startsWith("jdbc:postgresql:");
+
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS products_bench");
+            ddl.execute("CREATE TABLE products_bench (id BIGINT PRIMARY KEY, organisation_id UUID NOT NULL, "
+                    + "name VARCHAR(100) NOT NULL, description VARCHAR(500), is_active BOOLEAN NOT NULL, "
+                    + "search_name VARCHAR(200), search_text VARCHAR(1000))");
+        }
+        // mêmes index que V20 sur PostgreSQL, équivalent btree (schéma Hibernate) sur H2
+        try (Statement ddl = connection.createStatement()) {
+            if (postgres) {
+                ddl.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+                ddl.execute("CREATE INDEX ON products_bench USING gin (search_text gin_trgm_ops)");
+                ddl.execute("CREATE INDEX ON products_bench USING gin (search_name gin_trgm_ops)");
+                ddl.execute("CREATE INDEX ON products_bench (organisation_id, search_name text_pattern_ops) "
+                        + "WHERE is_active = true");
+            } else {
+                ddl.execute("CREATE INDEX idx_bench_org_search_name ON products_bench (organisation_id, search_name)");
+            }
+            ddl.execute("CREATE INDEX idx_bench_org ON products_bench (organisation_id)");
+        }
+
+        Random random = new Random(42);
+        UUID otherOrganisation = UUID.randomUUID();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO products_bench VALUES (?, ?, ?, ?, true, ?, ?)")) {
+            for (int i = 0; i < products * 2; i++) {
+                String name = PRODUCTS[random.nextInt(PRODUCTS.length)] + " " + BRANDS[random.nextInt(BRANDS.length)]
+                        + " " + SIZES[random.nextInt(SIZES.length)];
+                String description = random.nextInt(3) == 0 ? "Idéal avec du riz et des épices" : null;
+                insert.setLong(1, i + 1);
+                insert.setObject(2, i % 2 == 0 ? organisationId : otherOrganisation);
+                insert.setString(3, name);
+                insert.setString(4, description);
+                insert.setString(5, SearchTextNormalizer.normalize(name, 200));
+                insert.setString(6, SearchTextNormalizer.normalize(description == null ? name : name + " " + description, 1000));
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        if (postgres) {
+            try (Statement analyze = connection.createStatement()) {
+                analyze.execute("ANALYZE products_bench");
+            }
+        }
+
+        legacySearch = connection.prepareStatement("SELECT id, name FROM products_bench "
+                + "WHERE organisation_id = ? AND is_active = true AND "
+                + "(LOWER(name) LIKE LOWER(CONCAT('%', ?, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', ?, '%'))) "
+                + "ORDER BY name LIMIT 20");
+        search = connection.prepareStatement("SELECT id, name FROM products_bench "
+                + "WHERE organisation_id = ? AND is_active = true AND search_text LIKE ? AND search_text LIKE ? "
+                + "ORDER BY CASE WHEN search_name = ? THEN 0 WHEN search_name LIKE ? THEN 1 "
+                + "WHEN search_name LIKE ? THEN 2 WHEN search_name LIKE ? THEN 3 ELSE 4 END, name, id LIMIT 20");
+        autocomplete = connection.prepareStatement("SELECT id, name FROM products_bench "
+                + "WHERE organisation_id = ? AND is_active = true AND search_name LIKE ? "
+                + "ORDER BY search_name, id LIMIT 10");
+        autocompleteWords = connection.prepareStatement("SELECT id, name FROM products_bench "
+                + "WHERE organisation_id = ? AND is_active = true AND search_name LIKE ? AND search_name NOT LIKE ? "
+                + "ORDER BY search_name, id LIMIT ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE products_bench");
+        }
+        connection.close();
+    }
+
+    /** Ancienne requête: "Sardines" saisi tel quel, sans index possible */
+    @Benchmark
+    public int legacySearch() throws SQLException {
+        legacySearch.setObject(1, organisationId);
+        legacySearch.setString(2, "sardines");
+        legacySearch.setString(3, "sardines");
+        return count(legacySearch);
+    }
+
+    /** "sardines huile", termes normalisés, classés */
+    @Benchmark
+    public int search() throws SQLException {
+        search.setObject(1, organisationId);
+        search.setString(2, "%sardines%");
+        search.setString(3, "%huile%");
+        search.setString(4, "sardines huile");
+        search.setString(5, "sardines huile%");
+        search.setString(6, "% sardines huile%");
+        search.setString(7, "%sardines%");
+        return count(search);
+    }
+
+    /** Saisie en cours "sard" (début de nom, 10 suggestions trouvées dès la première requête) */
+    @Benchmark
+    public int autocomplete() throws SQLException {
+        return autocomplete("sard");
+    }
+
+    /** Saisie en cours "blon" (début d'un mot seulement: seconde requête) */
+    @Benchmark
+    public int autocompleteWord() throws SQLException {
+        return autocomplete("blon");
+    }
+
+    private int autocomplete(String prefix) throws SQLException {
+        autocomplete.setObject(1, organisationId);
+        autocomplete.setString(2, prefix + "%");
+        int rows = count(autocomplete);
+        if (rows < 10) {
+            autocompleteWords.setObject(1, organisationId);
+            autocompleteWords.setString(2, "% " + prefix + "%");
+            autocompleteWords.setString(3, prefix + "%");
+            autocompleteWords.setInt(4, 10 - rows);
+            rows += count(autocompleteWords);
+        }
+        return rows;
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // options JMH en ligne de commande (-Dexec.args="..."), sinon ce benchmark seul
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {ProductSearchBenchmark.class.getSimpleName()});
+    }
+}
@@ -0,0 +1,220 @@
+package com.salesmanager.benchmark;
+
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Receipt;
+import com.salesmanager.entity.Sale;
+import com.salesmanager.entity.SaleItem;
+import com.salesmanager.service.ReceiptPdfService;
+import com.salesmanager.util.MessageHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH du téléchargement d'un reçu PDF pour des ventes longues.
+ * "legacy" reproduit l'ancien chemin: PDF rendu dans un ByteArrayOutputStream, copié
+ * par toByteArray(), puis recopié dans le tampon de sortie de la réponse.
+ * "streaming" écrit directement dans le flux de sortie (ici un flux qui jette les octets).
+ *
+ * Mémoire: lancer avec "-prof gc" (gc.alloc.rate.norm = octets alloués par téléchargement);
+ * le pic de tas vivant par téléchargement (GC forcé tous les 16 Ko écrits) est affiché
+ * au setup de chaque taille, hors mesure JMH.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.ReceiptPdfDownloadBenchmark \
+ *          -Dexec.args="ReceiptPdfDownloadBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class ReceiptPdfDownloadBenchmark {
+
+    @Param({ "20", "500", "2000" })
+    public int items;
+
+    private ReceiptPdfService receiptPdfService;
+    private Receipt receipt;
+
+    @Setup
+    public void setUp() throws IOException {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("i18n/messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setUseCodeAsDefaultMessage(true);
+        MessageHelper messageHelper = new MessageHelper();
+        ReflectionTestUtils.setField(messageHelper, "messageSource", messageSource);
+        receiptPdfService = new ReceiptPdfService();
+        ReflectionTestUtils.setField(receiptPdfService, "messageHelper", messageHelper);
+        receipt = longReceipt(items);
+
+        legacyDownload();
+        streamingDownload();
+        System.out.printf("%n[%d articles] PDF %d Ko, pic de tas vivant par téléchargement: legacy ~%d Ko, streaming ~%d Ko%n",
+                items, legacyDownload() / 1024, legacyPeakKb(), streamingPeakKb());
+    }
+
+    /** Ancien chemin: byte[] complet, puis copie dans la réponse. */
+    @Benchmark
+    public long legacyDownload() throws IOException {
+        byte[] pdf = receiptPdfService.generatePdf(receipt, Locale.FRENCH, "XOF");
+        CountingOutputStream response = new CountingOutputStream();
+        new ByteArrayInputStream(pdf).transferTo(response);
+        return response.count;
+    }
+
+    /** Nouveau chemin: rendu écrit directement dans la réponse. */
+    @Benchmark
+    public long streamingDownload() throws IOException {
+        CountingOutputStream response = new CountingOutputStream();
+        receiptPdfService.writePdf(receipt, Locale.FRENCH, "XOF", response);
+        return response.count;
+    }
+
+    // Tas vivant (après GC) pendant un téléchargement: sondé tous les 16 Ko écrits et en fin de téléchargement
+    private static final class LiveHeapProbe {
+        private long baseline;
+        private long max;
+        private long sinceProbe;
+
+        LiveHeapProbe() {
+            baseline = liveHeap();
+        }
+
+        void onWrite(int len) {
+            sinceProbe += len;
+            if (sinceProbe >= 16 * 1024) {
+                sinceProbe = 0;
+                probe();
+            }
+        }
+
+        void probe() {
+            max = Math.max(max, liveHeap() - baseline);
+        }
+
+        private static long liveHeap() {
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    private static final class ProbingOutputStream extends OutputStream {
+        private final OutputStream target;
+        private final LiveHeapProbe probe;
+
+        ProbingOutputStream(OutputStream target, LiveHeapProbe probe) {
+            this.target = target;
+            this.probe = probe;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            probe.onWrite(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            probe.onWrite(len);
+        }
+    }
+
+    // Ancien chemin instrumenté: même enchaînement que generatePdf() + écriture du byte[] dans la réponse
+    private long legacyPeakKb() throws IOException {
+        LiveHeapProbe probe = new LiveHeapProbe();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        receiptPdfService.writePdf(receipt, Locale.FRENCH, "XOF", new ProbingOutputStream(buffer, probe));
+        byte[] pdf = buffer.toByteArray();
+        probe.probe();
+        new ByteArrayInputStream(pdf).transferTo(new ProbingOutputStream(new CountingOutputStream(), probe));
+        probe.probe();
+        Reference.reachabilityFence(buffer);
+        Reference.reachabilityFence(pdf);
+        return probe.max / 1024;
+    }
+
+    private long streamingPeakKb() throws IOException {
+        LiveHeapProbe probe = new LiveHeapProbe();
+        receiptPdfService.writePdf(receipt, Locale.FRENCH, "XOF", new ProbingOutputStream(new CountingOutputStream(), probe));
+        probe.probe();
+        return probe.max / 1024;
+    }
+
+    private static Receipt longReceipt(int items) {
+        Sale sale = new Sale();
+        sale.setSaleDate(LocalDateTime.of(2026, 3, 1, 18, 45));
+        List<SaleItem> saleItems = new ArrayList<>(items);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            Product product = new Product();
+            product.setName("Article de fin de journée n°" + i);
+            SaleItem item = new SaleItem();
+            item.setProduct(product);
+            item.setQuantity(1 + i % 4);
+            item.setUnitPrice(BigDecimal.valueOf(500 + i));
+            item.setDiscount(BigDecimal.ZERO);
+            item.setSubtotal(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            total = total.add(item.getSubtotal());
+            saleItems.add(item);
+        }
+        sale.setSaleItems(saleItems);
+
+        Receipt receipt = new Receipt();
+        receipt.setId(1L);
+        receipt.setReceiptNumber("REC-1-000001");
+        receipt.setSale(sale);
+        receipt.setTotalAmount(total);
+        receipt.setFinalAmount(total);
+        receipt.setPaymentMethod(Sale.PaymentMethod.CASH);
+        receipt.setCompanyName("Mon Entreprise");
+        receipt.setCreatedAt(LocalDateTime.of(2026, 3, 1, 18, 46));
+        return receipt;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {ReceiptPdfDownloadBenchmark.class.getSimpleName()});
+    }
+}
@@ -0,0 +1,163 @@
+package com.salesmanager.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.salesmanager.dto.SyncBatchRequest;
+import com.salesmanager.dto.SyncEntityData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH de la lecture d'un lot de synchronisation de 100 opérations
+ * (désérialisation + extraction des champs, sans base de données).
+ * "legacy" reproduit l'ancien chemin: entity_data lié en Map puis chaque champ
+ * converti via toString() / new BigDecimal / Integer.parseInt / LocalDateTime.parse.
+ * "typed" lie directement les payloads SyncEntityData choisis par entity_type.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.salesmanager.benchmark.SyncPayloadBindingBenchmark \
+ *          -Dexec.args="SyncPayloadBindingBenchmark -prof gc"
+ * Comparer gc.alloc.rate.norm (octets alloués par lot) entre les deux méthodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class SyncPayloadBindingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] batch;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        StringBuilder json = new StringBuilder("{\"device_id\":\"bench\",\"operations\":[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            switch (i % 3) {
+                case 0 -> json.append("{\"entity_type\":\"PRODUCT\",\"operation_type\":\"UPDATE\",\"entity_id\":\"")
+                        .append(i).append("\",\"local_id\":\"p-").append(i)
+                        .append("\",\"entity_data\":{\"name\":\"Produit ").append(i)
+                        .append("\",\"description\":\"Riz parfumé 25kg\",\"price\":").append(1000 + i)
+                        .append(".50,\"category\":\"Alimentaire\",\"stock_quantity\":").append(i)
+                        .append(",\"updated_at\":\"2024-05-01T10:15:30\",\"user_id\":7}}");
+                case 1 -> json.append("{\"entity_type\":\"SALE\",\"operation_type\":\"CREATE\",\"entity_id\":\"s-")
+                        .append(i).append("\",\"local_id\":\"s-").append(i)
+                        .append("\",\"entity_data\":{\"amount\":").append(2500 + i)
+                        .append(",\"customer_name\":\"Client ").append(i).append("\"}}");
+                default -> json.append("{\"entity_type\":\"STOCK_MOVEMENT\",\"operation_type\":\"CREATE\",\"entity_id\":\"m-")
+                        .append(i).append("\",\"local_id\":\"m-").append(i)
+                        .append("\",\"entity_data\":{\"product_id\":").append(i)
+                        .append(",\"quantity\":3,\"movement_type\":\"OUT\",\"reason\":\"vente\"}}");
+            }
+        }
+        batch = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void typed(Blackhole blackhole) throws Exception {
+        SyncBatchRequest request = objectMapper.readValue(batch, SyncBatchRequest.class);
+        for (SyncBatchRequest.SyncOperation operation : request.getOperations()) {
+            SyncEntityData data = operation.getEntityData();
+            if (data instanceof SyncEntityData.ProductData product) {
+                blackhole.consume(product.name());
+                blackhole.consume(product.description());
+                blackhole.consume(product.price());
+                blackhole.consume(product.category());
+                blackhole.consume(product.stockQuantity().intValue());
+                blackhole.consume(product.updatedAt());
+            } else if (data instanceof SyncEntityData.SaleData sale) {
+                blackhole.consume(sale.amount());
+                blackhole.consume(sale.customerName());
+            } else if (data instanceof SyncEntityData.StockMovementData movement) {
+                blackhole.consume(movement.productId().longValue());
+                blackhole.consume(movement.quantity().intValue());
+                blackhole.consume(movement.movementType());
+                blackhole.consume(movement.reason());
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws Exception {
+        LegacyBatch request = objectMapper.readValue(batch, LegacyBatch.class);
+        for (LegacyOperation operation : request.operations) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) operation.entityData;
+            switch (operation.entityType) {
+                case PRODUCT -> {
+                    blackhole.consume((String) data.get("name"));
+                    blackhole.consume((String) data.get("description"));
+                    blackhole.consume(new BigDecimal(data.get("price").toString()));
+                    blackhole.consume((String) data.get("category"));
+                    blackhole.consume(Integer.parseInt(data.get("stock_quantity").toString()));
+                    blackhole.consume(LocalDateTime.parse((String) data.get("updated_at")));
+                }
+                case SALE -> {
+                    blackhole.consume(new BigDecimal(data.get("amount").toString()));
+                    blackhole.consume((String) data.get("customer_name"));
+                }
+                case STOCK_MOVEMENT -> {
+                    blackhole.consume(Long.parseLong(data.get("product_id").toString()));
+                    blackhole.consume(Integer.parseInt(data.get("quantity").toString()));
+                    blackhole.consume((String) data.get("movement_type"));
+                    blackhole.consume((String) data.get("reason"));
+                }
+            }
+        }
+    }
+
+    // Forme de l'ancien SyncBatchRequest (entity_data: Object)
+    public static class LegacyBatch {
+        @JsonProperty("operations")
+        public List<LegacyOperation> operations;
+        @JsonProperty("device_id")
+        public String deviceId;
+    }
+
+    public static class LegacyOperation {
+        @JsonProperty("entity_type")
+        public SyncBatchRequest.EntityType entityType;
+        @JsonProperty("operation_type")
+        public SyncBatchRequest.OperationType operationType;
+        @JsonProperty("entity_id")
+        public String entityId;
+        @JsonProperty("local_id")
+        public String localId;
+        @JsonProperty("entity_data")
+        public Object entityData;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // options JMH en ligne de commande (-Dexec.args="..."), sinon ce benchmark seul
+        org.openjdk.jmh.Main.main(args.length > 0
+                ? args
+                : new String[] {SyncPayloadBindingBenchmark.class.getSimpleName()});
+    }
+}
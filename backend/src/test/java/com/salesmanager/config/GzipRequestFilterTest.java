@@ -0,0 +1,93 @@
+package com.salesmanager.config;
+
+import com.salesmanager.exception.PayloadTooLargeException;
+import com.salesmanager.service.SyncMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GzipRequestFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GzipConfiguration.GzipRequestFilter filter = new GzipConfiguration.GzipRequestFilter(
+            new SyncMetrics(meterRegistry, Duration.ofSeconds(2), Duration.ofSeconds(10)),
+            List.of(new GzipRequestBodyDecoder(2, 512)), 1_000_000);
+
+    @Test
+    void gzipBodyIsDecodedWhileReading() throws Exception {
+        String json = "{\"operations\":[" + "{\"entityType\":\"product\",\"name\":\"Riz 25kg\"},".repeat(5000) + "{}]}";
+        byte[] gzipped = gzip(json.getBytes(StandardCharsets.UTF_8));
+
+        // plusieurs requêtes: l'Inflater et le tampon du pool sont réutilisés
+        for (int i = 0; i < 3; i++) {
+            AtomicReference<String> body = new AtomicReference<>();
+            filter.doFilter(syncRequest("gzip", gzipped), new MockHttpServletResponse(), (req, res) -> {
+                assertThat(req.getContentLength()).isEqualTo(-1);
+                assertThat(((HttpServletRequest) req).getHeader("Content-Encoding")).isNull();
+                body.set(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            });
+            assertThat(body.get()).isEqualTo(json);
+        }
+        assertThat(meterRegistry.get("sync.payload.bytes").tag("encoding", "decompressed").summary().totalAmount())
+                .isEqualTo(3.0 * json.length());
+    }
+
+    @Test
+    void concatenatedMembersAreDecoded() throws Exception {
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        concatenated.write(gzip("premier ".getBytes(StandardCharsets.UTF_8)));
+        concatenated.write(gzip("second".getBytes(StandardCharsets.UTF_8)));
+
+        AtomicReference<String> body = new AtomicReference<>();
+        filter.doFilter(syncRequest("x-gzip", concatenated.toByteArray()), new MockHttpServletResponse(),
+                (req, res) -> body.set(req.getReader().readLine()));
+        assertThat(body.get()).isEqualTo("premier second");
+    }
+
+    @Test
+    void decompressedSizeIsLimited() throws Exception {
+        // 10 Mo de zéros: quelques Ko compressés
+        byte[] bomb = gzip(new byte[10_000_000]);
+
+        assertThatThrownBy(() -> filter.doFilter(syncRequest("gzip", bomb), new MockHttpServletResponse(),
+                (req, res) -> req.getInputStream().readAllBytes()))
+                .isInstanceOf(PayloadTooLargeException.class);
+    }
+
+    @Test
+    void unknownEncodingIsRejected() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(syncRequest("br", new byte[] { 1, 2, 3 }), response,
+                (req, res) -> { throw new AssertionError("la requête ne doit pas être traitée"); });
+        assertThat(response.getStatus()).isEqualTo(415);
+    }
+
+    private static MockHttpServletRequest syncRequest(String encoding, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/sync/batch");
+        request.addHeader("Content-Encoding", encoding);
+        request.setContentType("application/json");
+        request.setContent(body);
+        return request;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
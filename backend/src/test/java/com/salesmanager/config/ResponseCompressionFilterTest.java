@@ -0,0 +1,112 @@
+package com.salesmanager.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressionFilterTest {
+
+    private static final String PAGE = "{\"entities\":[" + "{\"entityType\":\"product\",\"name\":\"Riz 25kg\"},".repeat(100) + "{}]}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCompressionConfiguration.ResponseCompressionFilter filter =
+            new ResponseCompressionConfiguration.ResponseCompressionFilter(meterRegistry, 1024,
+                    List.of("application/json", "text/plain"), 64 * 1024, 1024 * 1024, 6);
+
+    @Test
+    void getResponseIsCompressedOnceThenServedFromCache() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = send("GET", "gzip, deflate", "application/json", PAGE);
+            assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+            assertThat(response.getHeader("Vary")).isEqualTo("Accept-Encoding");
+            assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length)
+                    .isLessThan(PAGE.length());
+            assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(PAGE);
+        }
+        assertThat(counter("compressed")).isEqualTo(1);
+        assertThat(counter("precomputed")).isEqualTo(2);
+    }
+
+    @Test
+    void largeResponseIsStreamed() throws Exception {
+        String body = PAGE.repeat(40);
+        MockHttpServletResponse response = send("POST", "gzip", "application/json", body);
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(body);
+        assertThat(counter("streamed")).isEqualTo(1);
+    }
+
+    @Test
+    void smallOrUnlistedOrRefusedResponsesAreNotCompressed() throws Exception {
+        MockHttpServletResponse small = send("GET", "gzip", "application/json", "{\"success\":true}");
+        assertThat(small.getHeader("Content-Encoding")).isNull();
+        assertThat(small.getContentAsString()).isEqualTo("{\"success\":true}");
+
+        MockHttpServletResponse pdf = send("GET", "gzip", "application/pdf", PAGE);
+        assertThat(pdf.getHeader("Content-Encoding")).isNull();
+        assertThat(pdf.getHeader("Vary")).isNull();
+        assertThat(pdf.getContentAsString()).isEqualTo(PAGE);
+
+        MockHttpServletResponse refused = send("GET", "gzip;q=0, identity", "application/json", PAGE);
+        assertThat(refused.getHeader("Content-Encoding")).isNull();
+        assertThat(refused.getHeader("Vary")).isEqualTo("Accept-Encoding");
+        assertThat(refused.getContentAsString()).isEqualTo(PAGE);
+    }
+
+    @Test
+    void acceptEncodingQualityValues() {
+        assertThat(acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(acceptsGzip("deflate, gzip;q=0")).isFalse();
+        // gzip explicite prioritaire sur "*", quel que soit l'ordre
+        assertThat(acceptsGzip("*;q=0, gzip")).isTrue();
+        assertThat(acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(acceptsGzip("br, *")).isTrue();
+        assertThat(acceptsGzip("br, *;q=0")).isFalse();
+        // q illisible: traité comme 1, sans erreur 500
+        assertThat(acceptsGzip("gzip;q=")).isTrue();
+        assertThat(acceptsGzip("gzip;q=high")).isTrue();
+        assertThat(acceptsGzip("identity")).isFalse();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        request.addHeader("Accept-Encoding", acceptEncoding);
+        return ResponseCompressionConfiguration.ResponseCompressionFilter.acceptsGzip(request);
+    }
+
+    private MockHttpServletResponse send(String method, String acceptEncoding, String contentType, String body)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/sync/delta");
+        request.addHeader("Accept-Encoding", acceptEncoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType(contentType);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            // écritures fragmentées, comme Jackson
+            for (int offset = 0; offset < bytes.length; offset += 500) {
+                res.getOutputStream().write(bytes, offset, Math.min(500, bytes.length - offset));
+                res.getOutputStream().flush();
+            }
+        });
+        return response;
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("http.response.compression").tag("result", result).counter().count();
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
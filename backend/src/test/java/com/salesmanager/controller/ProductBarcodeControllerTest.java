@@ -49,9 +49,12 @@ class ProductBarcodeControllerTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    private Organisation org;
+    private User user;
+
     @BeforeEach
     void seedProductWithBarcode() {
-        Organisation org = organisationRepository.findById(DEFAULT_ORG_ID).orElseGet(() -> {
+        org = organisationRepository.findById(DEFAULT_ORG_ID).orElseGet(() -> {
             Organisation o = new Organisation();
             o.setId(DEFAULT_ORG_ID);
             o.setName("DEFAULT");
@@ -59,11 +62,7 @@ class ProductBarcodeControllerTest {
             return organisationRepository.save(o);
         });
 
-        if (productRepository.existsByBarcodeAndOrganisation_Id(TEST_BARCODE, DEFAULT_ORG_ID)) {
-            return;
-        }
-
-        User user = userRepository.findByUsername("admin").orElseGet(() -> {
+        user = userRepository.findByUsername("admin").orElseGet(() -> {
             User admin = new User();
             admin.setUsername("admin");
             admin.setEmail("admin@test.com");
@@ -76,17 +75,11 @@ class ProductBarcodeControllerTest {
             return userRepository.save(admin);
         });
 
-        Product product = new Product();
-        product.setName("Riz 5kg");
-        product.setBarcode(TEST_BARCODE);
-        product.setPurchasePrice(new BigDecimal("4000"));
-        product.setSellingPrice(new BigDecimal("5000"));
-        product.setStockQuantity(15);
-        product.setMinStockLevel(5);
-        product.setIsActive(true);
-        product.setCreatedBy(user);
-        product.setOrganisation(org);
-        productRepository.save(product);
+        if (productRepository.existsByBarcodeAndOrganisation_Id(TEST_BARCODE, DEFAULT_ORG_ID)) {
+            return;
+        }
+
+        productRepository.save(product("Riz 5kg", TEST_BARCODE, user, org));
     }
 
     @Test
@@ -111,4 +104,37 @@ class ProductBarcodeControllerTest {
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.data").doesNotExist());
     }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void findByBarcode_eachInputFormResolvesItsOwnProduct() throws Exception {
+        // EAN-13 et sa forme GTIN-14 enregistrés sur deux produits distincts (même GTIN)
+        String ean13 = "2" + String.format("%012d", Math.floorMod(UUID.randomUUID().getMostSignificantBits(), 1_000_000_000_000L));
+        String gtin14 = "0" + ean13;
+        productRepository.save(product("Huile 1L", ean13, user, org));
+        productRepository.save(product("Huile 1L (carton)", gtin14, user, org));
+
+        for (int pass = 0; pass < 2; pass++) {
+            mockMvc.perform(get("/api/v1/products/barcode/{barcode}", ean13))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.barcode").value(ean13));
+            mockMvc.perform(get("/api/v1/products/barcode/{barcode}", gtin14))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.barcode").value(gtin14));
+        }
+    }
+
+    private static Product product(String name, String barcode, User user, Organisation org) {
+        Product product = new Product();
+        product.setName(name);
+        product.setBarcode(barcode);
+        product.setPurchasePrice(new BigDecimal("4000"));
+        product.setSellingPrice(new BigDecimal("5000"));
+        product.setStockQuantity(15);
+        product.setMinStockLevel(5);
+        product.setIsActive(true);
+        product.setCreatedBy(user);
+        product.setOrganisation(org);
+        return product;
+    }
 }
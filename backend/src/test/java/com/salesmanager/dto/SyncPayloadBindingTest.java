@@ -0,0 +1,90 @@
+package com.salesmanager.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// ObjectMapper configuré par Spring (application.yml), comme pour POST /api/sync/batch
+@JsonTest
+class SyncPayloadBindingTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void entityDataIsBoundToTheTypeNamedByEntityType() throws Exception {
+        // entity_data avant entity_type, nombres en chaîne, champ inconnu, DELETE sans données
+        List<SyncBatchRequest.SyncOperation> operations = read("""
+                {"operations": [
+                  {"entity_data": {"name": "Riz", "price": "1500.50", "stock_quantity": "12",
+                                   "updated_at": "2024-05-01T10:15:30", "barcode": "6194001234567"},
+                   "entity_type": "PRODUCT", "operation_type": "UPDATE", "entity_id": "42"},
+                  {"entity_type": "SALE", "operation_type": "CREATE", "entity_id": "s-1",
+                   "entity_data": {"amount": 2500, "customer_name": "Awa", "user_id": 7}},
+                  {"entity_type": "STOCK_MOVEMENT", "operation_type": "CREATE", "entity_id": "m-1",
+                   "entity_data": {"product_id": 42, "quantity": 3, "movement_type": "OUT"}},
+                  {"entity_type": "PRODUCT", "operation_type": "DELETE", "entity_id": "43"}
+                ]}
+                """);
+
+        assertThat(operations.get(0).getEntityType()).isEqualTo(SyncBatchRequest.EntityType.PRODUCT);
+        assertThat(operations.get(0).getEntityData()).isEqualTo(new SyncEntityData.ProductData("Riz", null,
+                new BigDecimal("1500.50"), null, 12, LocalDateTime.of(2024, 5, 1, 10, 15, 30), null));
+        assertThat(operations.get(1).getEntityData())
+                .isEqualTo(new SyncEntityData.SaleData(new BigDecimal("2500"), "Awa", 7L));
+        assertThat(operations.get(2).getEntityData())
+                .isEqualTo(new SyncEntityData.StockMovementData(42L, 3, "OUT", null, null));
+        assertThat(operations.get(3).getEntityType()).isEqualTo(SyncBatchRequest.EntityType.PRODUCT);
+        assertThat(operations.get(3).getEntityData()).isNull();
+    }
+
+    @Test
+    void typeErrorInEntityDataFailsOnlyItsOperation() throws Exception {
+        // user_id en chaîne non numérique (entity_data mis en tampon), prix illisible, objet imbriqué
+        List<SyncBatchRequest.SyncOperation> operations = read("""
+                {"operations": [
+                  {"entity_data": {"amount": 2500, "user_id": "u-7", "customer_name": "Awa"},
+                   "entity_type": "SALE", "operation_type": "CREATE", "entity_id": "s-1"},
+                  {"entity_type": "PRODUCT", "operation_type": "UPDATE", "entity_id": "42",
+                   "entity_data": {"price": "abc", "name": "Riz", "extra": {"tags": [1, {"a": 2}]}},
+                   "local_id": "p-42"},
+                  {"entity_type": "STOCK_MOVEMENT", "operation_type": "CREATE", "entity_id": "m-1",
+                   "entity_data": {"product_id": {"id": 42}, "quantity": 3}},
+                  {"entity_type": "SALE", "operation_type": "CREATE", "entity_id": "s-2",
+                   "entity_data": {"amount": 1000, "user_id": 7}}
+                ]}
+                """);
+
+        assertThat(operations).hasSize(4);
+        assertThat(operations.get(0).getEntityData()).isNull();
+        assertThat(operations.get(0).getEntityDataError()).contains("user_id");
+        assertThat(operations.get(1).getEntityDataError()).contains("price");
+        // lecture reprise après entity_data: champs suivants de l'opération conservés
+        assertThat(operations.get(1).getLocalId()).isEqualTo("p-42");
+        assertThat(operations.get(2).getEntityDataError()).contains("product_id");
+        assertThat(operations.get(3).getEntityDataError()).isNull();
+        assertThat(operations.get(3).getEntityData())
+                .isEqualTo(new SyncEntityData.SaleData(new BigDecimal("1000"), null, 7L));
+    }
+
+    @Test
+    void unknownEntityTypeIsRejected() {
+        assertThatThrownBy(() -> read("""
+                {"operations": [{"entity_type": "CUSTOMER", "operation_type": "CREATE", "entity_id": "c-1",
+                                 "entity_data": {"name": "Awa"}}]}
+                """)).isInstanceOf(MismatchedInputException.class);
+    }
+
+    private List<SyncBatchRequest.SyncOperation> read(String json) throws Exception {
+        return objectMapper.readValue(json, SyncBatchRequest.class).getOperations();
+    }
+}
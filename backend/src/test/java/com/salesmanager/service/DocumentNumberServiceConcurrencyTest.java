@@ -0,0 +1,142 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.repository.OrganisationRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DocumentNumberServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int NUMBERS_PER_THREAD = 250_000;
+
+    @Autowired
+    private DocumentNumberService documentNumberService;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UUID organisationId;
+
+    @BeforeEach
+    void createOrganisation() {
+        Organisation org = new Organisation();
+        org.setId(UUID.randomUUID());
+        org.setName("Numérotation " + org.getId());
+        org.setIsActive(true);
+        organisationId = organisationRepository.save(org).getId();
+    }
+
+    @Test
+    void concurrentCheckouts_getUniqueNumbers() throws Exception {
+        int total = THREADS * NUMBERS_PER_THREAD;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<BitSet>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                BitSet seen = new BitSet();
+                int previous = 0;
+                start.await();
+                for (int i = 0; i < NUMBERS_PER_THREAD; i++) {
+                    String number = documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null);
+                    int value = Integer.parseInt(number.substring(number.lastIndexOf('-') + 1));
+                    // croissants pour un même nœud (et ici un même thread)
+                    assertThat(value).isGreaterThan(previous);
+                    assertThat(seen.get(value)).isFalse();
+                    seen.set(value);
+                    previous = value;
+                }
+                return seen;
+            }));
+        }
+
+        start.countDown();
+        BitSet all = new BitSet();
+        int collected = 0;
+        for (Future<BitSet> future : futures) {
+            BitSet seen = future.get(120, TimeUnit.SECONDS);
+            // aucun numéro attribué à deux threads
+            assertThat(all.intersects(seen)).isFalse();
+            all.or(seen);
+            collected += seen.cardinality();
+        }
+        pool.shutdown();
+
+        assertThat(collected).isEqualTo(total);
+    }
+
+    @Test
+    void scopes_doNotShareNumbers() {
+        Set<String> numbers = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null))).isTrue();
+            assertThat(numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, UUID.randomUUID()))).isTrue();
+            assertThat(numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.RECEIPT, organisationId, null))).isTrue();
+        }
+        assertThat(documentNumberService.next(DocumentNumberService.DocumentKind.RECEIPT, organisationId, null))
+                .matches("REC-\\d+-\\d{6,}");
+    }
+
+    @Test
+    void blocksReservedInsideRolledBackTransaction_areNotReused() {
+        Set<String> numbers = new HashSet<>();
+        // plusieurs renouvellements de bloc dans la transaction de l'appelant, puis annulation
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 1_000; i++) {
+                numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null));
+            }
+            status.setRollbackOnly();
+        });
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null))).isTrue();
+        }
+    }
+
+    @Test
+    void nodeWithAnotherBlockSize_keepsTheSequenceStep() {
+        Set<String> numbers = new HashSet<>();
+        assertThat(numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null))).isTrue();
+
+        // second nœud configuré autrement: la séquence existante n'est ni recréée ni réinterprétée
+        DocumentNumberService otherNode = new DocumentNumberService(jdbcTemplate, transactionManager,
+                entityManagerFactory, 1_000);
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(numbers.add(otherNode.next(DocumentNumberService.DocumentKind.SALE, organisationId, null))).isTrue();
+            assertThat(numbers.add(documentNumberService.next(DocumentNumberService.DocumentKind.SALE, organisationId, null))).isTrue();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.dto.SaleResponse;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Role;
+import com.salesmanager.entity.Sale;
+import com.salesmanager.entity.SaleItem;
+import com.salesmanager.entity.User;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.SaleRepository;
+import com.salesmanager.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coût SQL des listes paginées: nombre de requêtes fixe, indépendant de la taille de page
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ListingQueryCountTest {
+
+    private static final UUID DEFAULT_ORG_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final int ROWS = 12;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void createRows() {
+        Organisation org = organisationRepository.findById(DEFAULT_ORG_ID).orElseGet(() -> {
+            Organisation o = new Organisation();
+            o.setId(DEFAULT_ORG_ID);
+            o.setName("DEFAULT");
+            o.setIsActive(true);
+            return organisationRepository.save(o);
+        });
+        String category = "Listing " + UUID.randomUUID();
+        for (int i = 0; i < ROWS; i++) {
+            // un créateur différent par ligne: un chargement paresseux coûterait une requête par ligne
+            User user = createUser("listing-" + UUID.randomUUID());
+            Product product = new Product();
+            product.setName("Savon " + i);
+            product.setCategory(category);
+            product.setPurchasePrice(new BigDecimal("250"));
+            product.setSellingPrice(new BigDecimal("300"));
+            product.setStockQuantity(100);
+            product.setMinStockLevel(5);
+            product.setIsActive(true);
+            product.setCreatedBy(user);
+            product.setOrganisation(org);
+            product = productRepository.save(product);
+
+            Sale sale = new Sale();
+            sale.setSaleDate(LocalDateTime.now());
+            sale.setCreatedBy(user);
+            sale.setOrganisation(org);
+            for (int line = 1; line <= 2; line++) {
+                SaleItem item = new SaleItem();
+                item.setSale(sale);
+                item.setProduct(product);
+                item.setQuantity(line);
+                item.setUnitPrice(new BigDecimal("300"));
+                sale.getSaleItems().add(item);
+            }
+            saleRepository.save(sale);
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void productPagesCostAFixedNumberOfStatements() {
+        long small = statementsFor(() -> productService.getAllProducts(PageRequest.of(0, 2, Sort.by("id"))));
+        long large = statementsFor(() -> productService.getAllProducts(PageRequest.of(0, ROWS, Sort.by("id"))));
+
+        // page + count, aucune entité chargée
+        assertThat(large).isEqualTo(small).isLessThanOrEqualTo(2);
+
+        statistics.clear();
+        Page<ProductResponse> page = productService.getAllProducts(PageRequest.of(0, ROWS, Sort.by("id").descending()));
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(page.getContent()).hasSize(ROWS)
+                .allSatisfy(product -> assertThat(product.getCreatedByUsername()).startsWith("listing-"));
+    }
+
+    @Test
+    void salePagesCostAFixedNumberOfStatements() {
+        long small = statementsFor(() -> saleService.getAllSales(0, 2, "id", "desc"));
+        long large = statementsFor(() -> saleService.getAllSales(0, ROWS, "id", "desc"));
+
+        // page avec créateurs, count, lignes de la page
+        assertThat(large).isEqualTo(small).isLessThanOrEqualTo(3);
+
+        Page<SaleResponse> page = saleService.getAllSales(0, ROWS, "id", "desc");
+        assertThat(page.getContent()).hasSize(ROWS).allSatisfy(sale -> {
+            assertThat(sale.getCreatedByUsername()).startsWith("listing-");
+            assertThat(sale.getSaleItems()).hasSize(2);
+            assertThat(sale.getTotalQuantity()).isEqualTo(3);
+        });
+    }
+
+    private long statementsFor(Supplier<?> listing) {
+        statistics.clear();
+        listing.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createUser(String username) {
+        User u = new User();
+        u.setUsername(username);
+        u.setEmail(username + "@test.com");
+        u.setPassword("not-used");
+        u.setFirstName("Listing");
+        u.setLastName("User");
+        u.setEnabled(true);
+        u.setCreatedAt(LocalDateTime.now());
+        u.setRoles(Set.of(Role.ROLE_USER));
+        return userRepository.save(u);
+    }
+}
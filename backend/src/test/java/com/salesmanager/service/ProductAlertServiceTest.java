@@ -0,0 +1,150 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductAlertServiceTest {
+
+    @Autowired
+    private ProductAlertService productAlertService;
+
+    @Autowired
+    private ProductStockService productStockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Organisation org;
+
+    @BeforeEach
+    void createOrganisation() {
+        Organisation o = new Organisation();
+        o.setId(UUID.randomUUID());
+        o.setName("Alerts " + o.getId());
+        o.setIsActive(true);
+        org = organisationRepository.save(o);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void countsArePrecomputedAndHonourWarningDays() {
+        LocalDate today = LocalDate.now();
+        int warningDays = productAlertService.getWarningDays();
+        product("Yaourt", today.minusDays(2), 20, "Frais");
+        product("Lait", today, 20, "Frais");
+        product("Fromage", today.plusDays(warningDays), 3, "Frais");
+        product("Beurre", today.plusDays(warningDays + 1), 20, "Frais");
+        product("Riz", null, 1, "Épicerie");
+
+        productAlertService.counts(org.getId());
+
+        statistics.clear();
+        ProductAlertService.AlertCounts counts = productAlertService.counts(org.getId());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        // expirant: date <= aujourd'hui + délai, expirés compris (comme findExpiringProducts)
+        assertThat(counts.expired()).isEqualTo(1);
+        assertThat(counts.expiring()).isEqualTo(3);
+        assertThat(counts.lowStock()).isEqualTo(2);
+        assertThat(counts.categories()).isEqualTo(2);
+        assertThat(counts.evaluatedOn()).isEqualTo(today);
+    }
+
+    @Test
+    void pagedListsFollowExpiryOrder() {
+        LocalDate today = LocalDate.now();
+        product("Lait", today.plusDays(2), 20, null);
+        product("Yaourt", today.minusDays(1), 20, null);
+        product("Crème", today.plusDays(1), 20, null);
+        product("Beurre", today.plusDays(30), 20, null);
+
+        Page<ProductResponse> first = productAlertService.alerts(org.getId(), ProductAlertService.AlertType.EXPIRING,
+                PageRequest.of(0, 2));
+        Page<ProductResponse> second = productAlertService.alerts(org.getId(), ProductAlertService.AlertType.EXPIRING,
+                PageRequest.of(1, 2));
+
+        assertThat(first.getTotalElements()).isEqualTo(3);
+        assertThat(names(first.getContent())).containsExactly("Yaourt", "Crème");
+        assertThat(names(second.getContent())).containsExactly("Lait");
+        assertThat(names(productAlertService.alerts(org.getId(), ProductAlertService.AlertType.EXPIRED,
+                PageRequest.of(0, 10)).getContent())).containsExactly("Yaourt");
+    }
+
+    @Test
+    void stockAndProductWritesUpdateAlerts() throws Exception {
+        Product savon = product("Savon", null, 6, null);
+        Product yaourt = product("Yaourt", LocalDate.now().minusDays(1), 20, null);
+        assertThat(productAlertService.counts(org.getId()).lowStock()).isZero();
+
+        productStockService.decrement(org.getId(), List.of(
+                new ProductStockService.StockLine(1, savon.getId(), savon.getName(), 2)));
+        productAlertService.awaitQueuedRefreshes();
+        assertThat(names(productAlertService.alerts(org.getId(), ProductAlertService.AlertType.LOW_STOCK,
+                PageRequest.of(0, 10)).getContent())).containsExactly("Savon");
+
+        yaourt.setIsActive(false);
+        productRepository.save(yaourt);
+        productAlertService.refreshAfterCommit(org.getId());
+        productAlertService.awaitQueuedRefreshes();
+        assertThat(productAlertService.counts(org.getId()).expired()).isZero();
+
+        productStockService.increment(org.getId(), List.of(
+                new ProductStockService.StockLine(1, savon.getId(), savon.getName(), 5)));
+        productAlertService.awaitQueuedRefreshes();
+        assertThat(productAlertService.counts(org.getId()).lowStock()).isZero();
+    }
+
+    private Product product(String name, LocalDate expiryDate, int stock, String category) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setExpiryDate(expiryDate);
+        product.setPurchasePrice(new BigDecimal("100"));
+        product.setSellingPrice(new BigDecimal("150"));
+        product.setStockQuantity(stock);
+        product.setMinStockLevel(5);
+        product.setIsActive(true);
+        product.setOrganisation(org);
+        return productRepository.save(product);
+    }
+
+    private static List<String> names(List<ProductResponse> products) {
+        return products.stream().map(ProductResponse::getName).toList();
+    }
+}
@@ -0,0 +1,155 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "products.catalog.enabled=true")
+@ActiveProfiles("test")
+class ProductCatalogCacheTest {
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Organisation org;
+
+    @BeforeEach
+    void createOrganisation() {
+        Organisation o = new Organisation();
+        o.setId(UUID.randomUUID());
+        o.setName("Catalog " + o.getId());
+        o.setIsActive(true);
+        org = organisationRepository.save(o);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void readsAreServedFromMemoryOnceLoaded() {
+        Product nutella = product("Pâte à tartiner", "3017620422003", "Épicerie", "2500", 3, 5);
+        product("Riz 5kg", "RIZ-5", "Épicerie", "4000", 20, 5);
+        product("Savon", null, "Hygiène", "500", 2, 5);
+
+        // premier accès: chargement du catalogue
+        productCatalogCache.findById(org.getId(), nutella.getId());
+
+        statistics.clear();
+        assertThat(productCatalogCache.findById(org.getId(), nutella.getId()))
+                .map(ProductResponse::getName).contains("Pâte à tartiner");
+        // variantes GTIN-14 / GS1 du même code, code non GTIN tel quel
+        assertThat(productCatalogCache.findByBarcode(org.getId(), "03017620422003"))
+                .map(ProductResponse::getId).contains(nutella.getId());
+        assertThat(productCatalogCache.findByBarcode(org.getId(), "0103017620422003"))
+                .map(ProductResponse::getId).contains(nutella.getId());
+        assertThat(productCatalogCache.findByBarcode(org.getId(), " RIZ-5 "))
+                .map(ProductResponse::getName).contains("Riz 5kg");
+        assertThat(names(productCatalogCache.findByCategory(org.getId(), "Épicerie",
+                PageRequest.of(0, 10, Sort.by("sellingPrice").descending())).orElseThrow().getContent()))
+                .containsExactly("Riz 5kg", "Pâte à tartiner");
+        Page<ProductResponse> cheap = productCatalogCache.findByPriceRange(org.getId(), new BigDecimal("500"),
+                new BigDecimal("2500"), PageRequest.of(1, 1, Sort.by("name"))).orElseThrow();
+        assertThat(cheap.getTotalElements()).isEqualTo(2);
+        assertThat(names(cheap.getContent())).containsExactly("Savon");
+        assertThat(names(productCatalogCache.findLowStock(org.getId()).orElseThrow()))
+                .containsExactly("Pâte à tartiner", "Savon");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void writesAreAppliedIncrementally() {
+        Product riz = product("Riz 5kg", "3017620422003", "Épicerie", "4000", 20, 5);
+        Product savon = product("Savon", null, "Hygiène", "500", 2, 5);
+        assertThat(productCatalogCache.findLowStock(org.getId()).orElseThrow()).hasSize(1);
+
+        riz.setStockQuantity(1);
+        riz.setBarcode("5449000000996");
+        productRepository.save(riz);
+        savon.setIsActive(false);
+        productRepository.save(savon);
+        product("Sucre", null, "Épicerie", "800", 50, 5);
+        productCatalogCache.refreshAfterCommit(org.getId());
+
+        assertThat(names(productCatalogCache.findLowStock(org.getId()).orElseThrow())).containsExactly("Riz 5kg");
+        assertThat(productCatalogCache.findById(org.getId(), savon.getId())).isEmpty();
+        assertThat(productCatalogCache.findByBarcode(org.getId(), "3017620422003")).isEmpty();
+        assertThat(productCatalogCache.findByBarcode(org.getId(), "5449000000996"))
+                .map(ProductResponse::getId).contains(riz.getId());
+        assertThat(names(productCatalogCache.findByCategory(org.getId(), "Épicerie", Pageable.unpaged())
+                .orElseThrow().getContent())).containsExactly("Riz 5kg", "Sucre");
+    }
+
+    @Test
+    void unsupportedSortAndOversizedOrganisationFallBackToDatabase() {
+        product("Savon", null, "Hygiène", "500", 2, 5);
+        product("Sucre", null, "Épicerie", "800", 50, 5);
+
+        assertThat(productCatalogCache.findByCategory(org.getId(), "Hygiène",
+                PageRequest.of(0, 10, Sort.by("description")))).isEmpty();
+
+        ProductCatalogCache bounded = new ProductCatalogCache(productRepository, transactionManager,
+                new SimpleMeterRegistry(), true, 1, Duration.ofMinutes(1), Duration.ofSeconds(5));
+        assertThat(bounded.findLowStock(org.getId())).isEmpty();
+    }
+
+    private Product product(String name, String barcode, String category, String sellingPrice,
+                            int stock, int minStock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setBarcode(barcode);
+        product.setCategory(category);
+        product.setPurchasePrice(new BigDecimal("100"));
+        product.setSellingPrice(new BigDecimal(sellingPrice));
+        product.setStockQuantity(stock);
+        product.setMinStockLevel(minStock);
+        product.setIsActive(true);
+        product.setOrganisation(org);
+        return productRepository.save(product);
+    }
+
+    private static List<String> names(List<ProductResponse> products) {
+        return products.stream().map(ProductResponse::getName).toList();
+    }
+}
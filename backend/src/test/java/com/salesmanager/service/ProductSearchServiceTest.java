@@ -0,0 +1,150 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.ProductResponse;
+import com.salesmanager.dto.ProductSuggestionDto;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.exception.BadRequestException;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.util.SearchTextNormalizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchServiceTest {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Organisation org;
+
+    @BeforeEach
+    void createOrganisation() {
+        Organisation o = new Organisation();
+        o.setId(UUID.randomUUID());
+        o.setName("Search " + o.getId());
+        o.setIsActive(true);
+        org = organisationRepository.save(o);
+    }
+
+    @Test
+    void normalizesAccentsLigaturesAndPunctuation() {
+        assertThat(SearchTextNormalizer.normalize("Crème brûlée – Œufs frais", 200)).isEqualTo("creme brulee oeufs frais");
+        assertThat(SearchTextNormalizer.normalize("  Coca-Cola  1,5L ", 200)).isEqualTo("coca cola 1 5l");
+        assertThat(SearchTextNormalizer.normalize("Pão de açúcar", 200)).isEqualTo("pao de acucar");
+        assertThat(SearchTextNormalizer.normalize("-- ", 200)).isNull();
+        assertThat(SearchTextNormalizer.terms("riz Riz parfumé", 5)).containsExactly("riz", "parfume");
+    }
+
+    @Test
+    void searchIsAccentInsensitiveAndRanked() {
+        product("Riz parfumé 5kg", null);
+        product("Riz", null);
+        product("Sac de riz brisé", null);
+        product("Farine de maïs", "Idéale avec du riz");
+        product("Rizière sauce", null);
+        product("Sucre", null);
+
+        List<String> names = names(productSearchService.search(org.getId(), "RIZ", PageRequest.of(0, 10, Sort.by("name"))).getContent());
+
+        // nom exact, nom commençant par "riz", mot commençant par "riz", description seule
+        assertThat(names).containsExactly("Riz", "Riz parfumé 5kg", "Rizière sauce", "Sac de riz brisé", "Farine de maïs");
+
+        assertThat(names(productSearchService.search(org.getId(), "mais", PageRequest.of(0, 10)).getContent()))
+                .containsExactly("Farine de maïs");
+        // tous les termes doivent apparaître, dans n'importe quel ordre
+        assertThat(names(productSearchService.search(org.getId(), "brise riz", PageRequest.of(0, 10)).getContent()))
+                .containsExactly("Sac de riz brisé");
+    }
+
+    @Test
+    void searchPagesKeepRankingAndTotal() {
+        for (int i = 0; i < 7; i++) {
+            product("Savon " + i, null);
+        }
+        product("Savon", null);
+
+        var first = productSearchService.search(org.getId(), "savon", PageRequest.of(0, 3, Sort.by("name")));
+        var last = productSearchService.search(org.getId(), "savon", PageRequest.of(2, 3, Sort.by("name")));
+
+        assertThat(first.getTotalElements()).isEqualTo(8);
+        assertThat(names(first.getContent())).containsExactly("Savon", "Savon 0", "Savon 1");
+        assertThat(names(last.getContent())).containsExactly("Savon 5", "Savon 6");
+        assertThatThrownBy(() -> productSearchService.search(org.getId(), "savon",
+                PageRequest.of(0, 3, Sort.by("description")))).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void autocompleteMatchesNamePrefixThenWordPrefix() {
+        product("Lait concentré sucré", null);
+        product("Lait en poudre", null);
+        product("Café au lait", null);
+        product("Laitue", null);
+        product("Chocolat", "Au lait");
+
+        assertThat(productSearchService.autocomplete(org.getId(), "LAIT", 10))
+                .extracting(ProductSuggestionDto::name)
+                .containsExactly("Lait concentré sucré", "Lait en poudre", "Laitue", "Café au lait");
+        // moins de 3 caractères: préfixe du nom seulement
+        assertThat(productSearchService.autocomplete(org.getId(), "la", 10))
+                .extracting(ProductSuggestionDto::name)
+                .containsExactly("Lait concentré sucré", "Lait en poudre", "Laitue");
+        assertThat(productSearchService.autocomplete(org.getId(), "cafe", 1))
+                .extracting(ProductSuggestionDto::name)
+                .containsExactly("Café au lait");
+    }
+
+    @Test
+    void backfillFillsRowsWrittenWithoutSearchColumns() {
+        Product product = product("Thé à la menthe", null);
+        jdbcTemplate.update("UPDATE products SET search_name = NULL, search_text = NULL WHERE id = ?", product.getId());
+
+        productSearchService.backfillSearchColumns();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT search_name FROM products WHERE id = ?", String.class,
+                product.getId())).isEqualTo("the a la menthe");
+        assertThat(names(productSearchService.search(org.getId(), "the menthe", PageRequest.of(0, 10)).getContent()))
+                .containsExactly("Thé à la menthe");
+    }
+
+    private Product product(String name, String description) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPurchasePrice(new BigDecimal("100"));
+        product.setSellingPrice(new BigDecimal("150"));
+        product.setStockQuantity(10);
+        product.setMinStockLevel(1);
+        product.setIsActive(true);
+        product.setOrganisation(org);
+        return productRepository.save(product);
+    }
+
+    private static List<String> names(List<ProductResponse> products) {
+        return products.stream().map(ProductResponse::getName).toList();
+    }
+}
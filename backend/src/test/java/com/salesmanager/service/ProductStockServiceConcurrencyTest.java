@@ -0,0 +1,171 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Role;
+import com.salesmanager.entity.User;
+import com.salesmanager.exception.InsufficientStockException;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductStockServiceConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10;
+
+    @Autowired
+    private ProductStockService productStockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID organisationId;
+
+    @BeforeEach
+    void createOrganisation() {
+        Organisation org = new Organisation();
+        org.setId(UUID.randomUUID());
+        org.setName("Stock " + org.getId());
+        org.setIsActive(true);
+        organisationId = organisationRepository.save(org).getId();
+    }
+
+    @Test
+    void concurrentSalesOfOneSku_neverDriveStockNegative() throws Exception {
+        Product product = createProduct("SKU concurrent", INITIAL_STOCK);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        productStockService.decrement(organisationId, List.of(
+                                new ProductStockService.StockLine(1, product.getId(), product.getName(), 1)));
+                        sold.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        refused.incrementAndGet();
+                    }
+                    assertThat(stockOf(product.getId())).isGreaterThanOrEqualTo(0);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(sold.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(refused.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK);
+        assertThat(stockOf(product.getId())).isZero();
+    }
+
+    @Test
+    void shortLine_isReportedAndWholeSaleIsRolledBack() {
+        Product plenty = createProduct("Riz 5kg", 10);
+        Product scarce = createProduct("Huile 1L", 1);
+
+        assertThatThrownBy(() -> productStockService.decrement(organisationId, List.of(
+                new ProductStockService.StockLine(1, plenty.getId(), plenty.getName(), 2),
+                new ProductStockService.StockLine(2, scarce.getId(), scarce.getName(), 3))))
+                .isInstanceOfSatisfying(InsufficientStockException.class, e -> {
+                    assertThat(e.getShortages()).containsExactly(
+                            new InsufficientStockException.Shortage(2, scarce.getId(), "Huile 1L", 3, 1));
+                    assertThat(e.getMessage()).contains("ligne 2 'Huile 1L'");
+                });
+
+        assertThat(stockOf(plenty.getId())).isEqualTo(10);
+        assertThat(stockOf(scarce.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void sameProductOnTwoLines_isReportedOnceWithTotalQuantity() {
+        Product product = createProduct("Sucre 1kg", 5);
+
+        assertThatThrownBy(() -> productStockService.decrement(organisationId, List.of(
+                new ProductStockService.StockLine(1, product.getId(), product.getName(), 3),
+                new ProductStockService.StockLine(2, product.getId(), product.getName(), 3))))
+                .isInstanceOfSatisfying(InsufficientStockException.class, e -> {
+                    assertThat(e.getShortages()).containsExactly(
+                            new InsufficientStockException.Shortage(1, product.getId(), "Sucre 1kg", 6, 5));
+                    assertThat(e.getMessage()).isEqualTo("Stock insuffisant: ligne 1 'Sucre 1kg' (demandé 6, disponible 5)");
+                });
+
+        assertThat(stockOf(product.getId())).isEqualTo(5);
+    }
+
+    private Product createProduct(String name, int stock) {
+        User user = userRepository.findByUsername("admin").orElseGet(() -> {
+            User admin = new User();
+            admin.setUsername("admin");
+            admin.setEmail("admin@test.com");
+            admin.setPassword(passwordEncoder.encode("admin123"));
+            admin.setFirstName("Admin");
+            admin.setLastName("User");
+            admin.setEnabled(true);
+            admin.setCreatedAt(LocalDateTime.now());
+            admin.setRoles(Set.of(Role.ROLE_ADMIN));
+            return userRepository.save(admin);
+        });
+
+        Product product = new Product();
+        product.setName(name);
+        product.setPurchasePrice(new BigDecimal("4000"));
+        product.setSellingPrice(new BigDecimal("5000"));
+        product.setStockQuantity(stock);
+        product.setMinStockLevel(0);
+        product.setIsActive(true);
+        product.setCreatedBy(user);
+        product.setOrganisation(organisationRepository.getReferenceById(organisationId));
+        return productRepository.save(product);
+    }
+
+    private int stockOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
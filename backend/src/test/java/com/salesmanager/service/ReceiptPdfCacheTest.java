@@ -0,0 +1,69 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.Receipt;
+import com.salesmanager.entity.Sale;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "receipts.pdf-cache.max-memory-bytes=4096")
+@ActiveProfiles("test")
+class ReceiptPdfCacheTest {
+
+    @Autowired
+    private ReceiptPdfCache receiptPdfCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void renderedPdfIsReused_andSpilledToDiskBeyondMemoryLimit() throws Exception {
+        Receipt first = receipt(9001L, LocalDateTime.of(2026, 3, 1, 10, 0));
+        byte[] rendered = receiptPdfCache.get(first, Locale.FRENCH, "EUR");
+        assertThat(new String(rendered, 0, 5)).isEqualTo("%PDF-");
+        assertThat(receiptPdfCache.get(first, Locale.FRENCH, "EUR")).isSameAs(rendered);
+
+        // un reçu modifié (updatedAt) ou une autre devise est rendu à nouveau
+        Receipt updated = receipt(9001L, LocalDateTime.of(2026, 3, 1, 11, 0));
+        assertThat(receiptPdfCache.get(updated, Locale.FRENCH, "EUR")).isNotSameAs(rendered);
+        receiptPdfCache.get(first, Locale.FRENCH, "XOF");
+
+        // plus de PDF que la mémoire n'en contient: les premiers reviennent du disque
+        for (long id = 9002; id < 9010; id++) {
+            receiptPdfCache.get(receipt(id, LocalDateTime.of(2026, 3, 1, 10, 0)), Locale.FRENCH, "EUR");
+        }
+        Thread.sleep(200);
+        double misses = count("miss");
+        assertThat(receiptPdfCache.get(first, Locale.FRENCH, "EUR")).isEqualTo(rendered);
+        assertThat(count("miss")).isEqualTo(misses);
+        assertThat(count("disk")).isGreaterThanOrEqualTo(1);
+        assertThat(count("memory")).isGreaterThanOrEqualTo(1);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("receipts.pdf.cache").tag("result", result).counter().count();
+    }
+
+    private static Receipt receipt(Long id, LocalDateTime updatedAt) {
+        Sale sale = new Sale();
+        sale.setSaleDate(LocalDateTime.of(2026, 3, 1, 9, 30));
+        Receipt receipt = new Receipt();
+        receipt.setId(id);
+        receipt.setReceiptNumber("REC-1-" + id);
+        receipt.setSale(sale);
+        receipt.setTotalAmount(new BigDecimal("15000"));
+        receipt.setFinalAmount(new BigDecimal("15000"));
+        receipt.setPaymentMethod(Sale.PaymentMethod.CASH);
+        receipt.setCreatedAt(LocalDateTime.of(2026, 3, 1, 9, 31));
+        receipt.setUpdatedAt(updatedAt);
+        return receipt;
+    }
+}
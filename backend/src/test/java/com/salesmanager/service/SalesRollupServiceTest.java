@@ -0,0 +1,326 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.SaleItemRequest;
+import com.salesmanager.dto.SaleRequest;
+import com.salesmanager.dto.SaleResponse;
+import com.salesmanager.dto.SyncBatchRequest;
+import com.salesmanager.dto.SyncBatchResponse;
+import com.salesmanager.dto.SyncEntityData;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Role;
+import com.salesmanager.entity.Sale;
+import com.salesmanager.entity.SalesDailyRollup;
+import com.salesmanager.entity.User;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.SaleRepository;
+import com.salesmanager.repository.SalesDailyRollupRepository;
+import com.salesmanager.repository.UserRepository;
+import com.salesmanager.security.TenantContext;
+import com.salesmanager.security.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SalesRollupServiceTest {
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SalesDailyRollupRepository salesDailyRollupRepository;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID organisationId;
+    private Product product;
+    private LocalDate firstDay;
+
+    @BeforeEach
+    void authenticate() {
+        Organisation org = new Organisation();
+        org.setId(UUID.randomUUID());
+        org.setName("Rollup " + org.getId());
+        org.setIsActive(true);
+        organisationId = organisationRepository.save(org).getId();
+        TenantContext.setOrganisationId(organisationId);
+
+        User user = userRepository.findByUsername("sales-rollup").orElseGet(() -> {
+            User u = new User();
+            u.setUsername("sales-rollup");
+            u.setEmail("sales-rollup@test.com");
+            u.setPassword("not-used");
+            u.setFirstName("Rollup");
+            u.setLastName("Manager");
+            u.setEnabled(true);
+            u.setCreatedAt(LocalDateTime.now());
+            u.setRoles(Set.of(Role.ROLE_PLATFORM_ADMIN));
+            return userRepository.save(u);
+        });
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        Product p = new Product();
+        p.setName("Riz 5kg");
+        p.setPurchasePrice(new BigDecimal("2100.50"));
+        p.setSellingPrice(new BigDecimal("3000"));
+        p.setStockQuantity(1_000);
+        p.setMinStockLevel(5);
+        p.setIsActive(true);
+        p.setOrganisation(org);
+        product = productRepository.save(p);
+
+        firstDay = LocalDate.now().minusDays(10);
+
+        // équivalent H2 de l'index unique de V16 (schéma de test généré par Hibernate, sans Flyway)
+        jdbcTemplate.execute("ALTER TABLE sales_daily_rollups ADD CONSTRAINT IF NOT EXISTS uk_sales_daily_rollups_key "
+                + "UNIQUE NULLS NOT DISTINCT (organisation_id, store_id, sale_day, payment_method, status)");
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+        TenantContext.clear();
+    }
+
+    @Test
+    void writesKeepRollupConsistentWithRawTables() {
+        List<Long> ids = new ArrayList<>();
+        ids.add(sale(firstDay.atTime(10, 0), Sale.PaymentMethod.CASH, 2));
+        ids.add(sale(firstDay.atTime(18, 0), Sale.PaymentMethod.CARD, 1));
+        ids.add(sale(firstDay.plusDays(1).atTime(8, 0), Sale.PaymentMethod.CASH, 3));
+        ids.add(sale(firstDay.plusDays(1).atTime(12, 30), Sale.PaymentMethod.MOBILE_MONEY, 1));
+        ids.add(sale(firstDay.plusDays(2).atTime(9, 30), Sale.PaymentMethod.CASH, 4));
+        ids.add(sale(firstDay.plusDays(2).atTime(23, 59, 59), Sale.PaymentMethod.CARD, 1));
+
+        // changement de statut: la vente change de case dans l'agrégat
+        saleService.updateSaleStatus(ids.get(1), Sale.SaleStatus.CANCELLED);
+        saleService.updateSaleStatus(ids.get(3), Sale.SaleStatus.REFUNDED);
+        saleService.deleteSale(ids.get(2));
+
+        // synchronisation: création, mise à jour (montant brut hors agrégat), suppression
+        SyncBatchResponse response = syncService.processBatchSync(new SyncBatchRequest(List.of(
+                syncSale(SyncBatchRequest.OperationType.CREATE, "s-1", new BigDecimal("1500")),
+                syncSale(SyncBatchRequest.OperationType.CREATE, "s-2", new BigDecimal("800")),
+                syncSale(SyncBatchRequest.OperationType.UPDATE, ids.get(0).toString(), new BigDecimal("9999")),
+                syncSale(SyncBatchRequest.OperationType.DELETE, ids.get(4).toString(), null)),
+                "till-" + UUID.randomUUID(), "1.0"));
+        assertThat(response.getSuccessCount()).isEqualTo(4);
+
+        assertThat(salesRollupService.check(organisationId)).isEmpty();
+        assertAnalyticsMatchRawTables();
+    }
+
+    @Test
+    void concurrentSalesOnANewKeyShareOneRow() throws Exception {
+        LocalDate day = firstDay.plusDays(5);
+        SalesRollupService.Contribution contribution = new SalesRollupService.Contribution(
+                new SalesRollupService.Key(organisationId, null, day, Sale.PaymentMethod.CASH, Sale.SaleStatus.COMPLETED),
+                new BigDecimal("1500.50"), new BigDecimal("1000"));
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    salesRollupService.apply(null, contribution);
+                    // ligne insérée mais pas encore validée: les autres threads tentent aussi l'insertion
+                    sleep(100);
+                });
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<SalesDailyRollup> rows = rowsFor(day, Sale.PaymentMethod.CASH);
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getSaleCount()).isEqualTo(threads);
+        assertThat(rows.get(0).getTotalAmount()).isEqualByComparingTo(new BigDecimal("1500.50").multiply(BigDecimal.valueOf(threads)));
+        assertThat(rows.get(0).getTotalCost()).isEqualByComparingTo(new BigDecimal("1000").multiply(BigDecimal.valueOf(threads)));
+    }
+
+    @Test
+    void driftIsReportedAndRepairedByRebuild() {
+        LocalDateTime saleDate = firstDay.atTime(10, 0);
+        sale(saleDate, Sale.PaymentMethod.CASH, 2);
+        sale(saleDate.plusHours(1), Sale.PaymentMethod.CASH, 1);
+        sale(firstDay.plusDays(1).atTime(15, 0), Sale.PaymentMethod.CARD, 1);
+        assertThat(rowsFor(saleDate.toLocalDate(), Sale.PaymentMethod.CASH)).hasSize(1);
+
+        // dérive: le contrôle la signale, la reconstruction corrige
+        jdbcTemplate.update("UPDATE sales_daily_rollups SET total_amount = total_amount + 10, sale_count = sale_count + 1 "
+                + "WHERE id = ?", rowsFor(saleDate.toLocalDate(), Sale.PaymentMethod.CASH).get(0).getId());
+        List<SalesRollupService.Mismatch> mismatches = salesRollupService.check(organisationId);
+        assertThat(mismatches).hasSize(1);
+        assertThat(mismatches.get(0).key().saleDay()).isEqualTo(saleDate.toLocalDate());
+        assertThat(mismatches.get(0).actual().count()).isEqualTo(mismatches.get(0).expected().count() + 1);
+
+        assertThat(salesRollupService.rebuild(organisationId)).isEqualTo(2);
+        assertThat(rowsFor(saleDate.toLocalDate(), Sale.PaymentMethod.CASH)).hasSize(1);
+        assertThat(salesRollupService.check(organisationId)).isEmpty();
+        assertAnalyticsMatchRawTables();
+    }
+
+    /**
+     * Chaque chiffre de /sales/analytics/* égal à l'agrégat brut de SaleRepository:
+     * jours complets (agrégat), bords partiels et journée partielle (table sales)
+     */
+    private void assertAnalyticsMatchRawTables() {
+        LocalDate today = LocalDate.now();
+        List<LocalDateTime[]> ranges = List.of(
+                range(firstDay.atStartOfDay(), today.atTime(23, 59, 59)),
+                range(firstDay.atTime(12, 0), firstDay.plusDays(2).atTime(10, 0)),
+                range(firstDay.plusDays(1).atTime(9, 0), firstDay.plusDays(1).atTime(17, 0)),
+                range(firstDay.plusDays(1).atStartOfDay(), firstDay.plusDays(1).atTime(23, 59, 59)),
+                range(firstDay.minusDays(1).atTime(LocalTime.NOON), today.atTime(LocalTime.MAX)));
+        for (LocalDateTime[] range : ranges) {
+            LocalDateTime start = range[0];
+            LocalDateTime end = range[1];
+
+            assertThat(saleService.getTotalSalesAmount(start, end))
+                    .isEqualByComparingTo(orZero(saleRepository.getTotalSalesAmount(organisationId, start, end)));
+            assertThat(saleService.getTotalSalesCount(start, end))
+                    .isEqualTo(saleRepository.getTotalSalesCount(organisationId, start, end));
+            BigDecimal average = saleRepository.getAverageSaleAmount(organisationId, start, end);
+            assertThat(saleService.getAverageSaleAmount(start, end))
+                    .isEqualByComparingTo(average == null ? BigDecimal.ZERO : average.setScale(2, RoundingMode.HALF_UP));
+            assertThat(normalize(saleService.getPaymentMethodStats(start, end)))
+                    .containsExactlyInAnyOrderElementsOf(normalize(saleRepository.getPaymentMethodStats(organisationId, start, end)));
+            assertThat(normalize(saleService.getDailySalesStats(start, end)))
+                    .containsExactlyElementsOf(normalize(rawDailyStats(start, end)));
+            assertThat(normalize(saleService.getMonthlySalesStats(start, end)))
+                    .containsExactlyElementsOf(normalize(saleRepository.getMonthlySalesStats(organisationId, start, end)));
+        }
+    }
+
+    // getDailySalesStats brut utilise DATE() (PostgreSQL, absent de H2): mêmes chiffres jour par jour
+    private List<Object[]> rawDailyStats(LocalDateTime start, LocalDateTime end) {
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate day = start.toLocalDate(); !day.isAfter(end.toLocalDate()); day = day.plusDays(1)) {
+            LocalDateTime from = day.equals(start.toLocalDate()) ? start : day.atStartOfDay();
+            LocalDateTime to = day.equals(end.toLocalDate()) ? end : day.atTime(LocalTime.MAX);
+            Long count = saleRepository.getTotalSalesCount(organisationId, from, to);
+            if (count > 0) {
+                rows.add(new Object[] {day, orZero(saleRepository.getTotalSalesAmount(organisationId, from, to)), count});
+            }
+        }
+        return rows;
+    }
+
+    private Long sale(LocalDateTime saleDate, Sale.PaymentMethod paymentMethod, int quantity) {
+        SaleRequest request = new SaleRequest(saleDate, paymentMethod,
+                List.of(new SaleItemRequest(product.getId(), quantity, new BigDecimal("3000.25"))));
+        SaleResponse response = saleService.createSale(request);
+        return response.getId();
+    }
+
+    private static SyncBatchRequest.SyncOperation syncSale(SyncBatchRequest.OperationType type, String entityId,
+                                                           BigDecimal amount) {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                SyncBatchRequest.EntityType.SALE, type, entityId,
+                amount == null ? null : new SyncEntityData.SaleData(amount, "Awa", null));
+        if (type == SyncBatchRequest.OperationType.CREATE) {
+            operation.setLocalId(entityId);
+        }
+        return operation;
+    }
+
+    private List<SalesDailyRollup> rowsFor(LocalDate day, Sale.PaymentMethod paymentMethod) {
+        return salesDailyRollupRepository.findAll().stream()
+                .filter(row -> organisationId.equals(row.getOrganisationId()))
+                .filter(row -> day.equals(row.getSaleDay()) && paymentMethod == row.getPaymentMethod())
+                .toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LocalDateTime[] range(LocalDateTime start, LocalDateTime end) {
+        return new LocalDateTime[] {start, end};
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    // jour (Date ou LocalDate), montants à l'échelle près, compteurs en long
+    private static List<String> normalize(List<Object[]> rows) {
+        List<String> normalized = new ArrayList<>();
+        for (Object[] row : rows) {
+            StringBuilder line = new StringBuilder();
+            for (Object value : row) {
+                if (value instanceof BigDecimal amount) {
+                    line.append(amount.stripTrailingZeros().toPlainString());
+                } else if (value instanceof Number number) {
+                    line.append(number.longValue());
+                } else {
+                    line.append(value);
+                }
+                line.append('|');
+            }
+            normalized.add(line.toString());
+        }
+        return normalized;
+    }
+}
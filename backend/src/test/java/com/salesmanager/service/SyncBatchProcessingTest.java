@@ -0,0 +1,231 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.SyncBatchRequest;
+import com.salesmanager.dto.SyncBatchResponse;
+import com.salesmanager.dto.SyncEntityData;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Role;
+import com.salesmanager.entity.Sale;
+import com.salesmanager.entity.StockMovement;
+import com.salesmanager.entity.User;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.SaleRepository;
+import com.salesmanager.repository.StockMovementRepository;
+import com.salesmanager.repository.UserRepository;
+import com.salesmanager.security.TenantContext;
+import com.salesmanager.security.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Moteur de lot de bout en bout: lot mixte, échec isolé, rejeu
+ * Les ventes synchronisées ne portent pas de lignes: dans un lot, le stock n'évolue que par
+ * les mises à jour de produit (les mouvements n'en sont que la trace).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SyncBatchProcessingTest {
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    private UUID organisationId;
+    private Long productId;
+
+    @BeforeEach
+    void authenticate() {
+        Organisation org = new Organisation();
+        org.setId(UUID.randomUUID());
+        org.setName("Batch " + org.getId());
+        org.setIsActive(true);
+        organisationId = organisationRepository.save(org).getId();
+        TenantContext.setOrganisationId(organisationId);
+
+        User user = userRepository.findByUsername("sync-batch").orElseGet(() -> {
+            User u = new User();
+            u.setUsername("sync-batch");
+            u.setEmail("sync-batch@test.com");
+            u.setPassword("not-used");
+            u.setFirstName("Sync");
+            u.setLastName("Batch");
+            u.setEnabled(true);
+            u.setCreatedAt(LocalDateTime.now());
+            u.setRoles(Set.of(Role.ROLE_PLATFORM_ADMIN));
+            return userRepository.save(u);
+        });
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        Product product = new Product();
+        product.setName("Farine 1kg");
+        product.setPurchasePrice(new BigDecimal("500"));
+        product.setSellingPrice(new BigDecimal("700"));
+        product.setStockQuantity(40);
+        product.setMinStockLevel(5);
+        product.setIsActive(true);
+        product.setCreatedBy(user);
+        product.setOrganisation(org);
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+        TenantContext.clear();
+    }
+
+    @Test
+    void mixedBatchAppliesEachOperationAndIsolatesTheFailure() {
+        long movementsBefore = stockMovementRepository.findByProductId(productId).size();
+
+        SyncBatchResponse response = syncService.processBatchSync(new SyncBatchRequest(List.of(
+                sale("s-1", "1500"),
+                product(productId.toString(), "Farine 1kg", "750", 38),
+                movement("m-1", productId, 2),
+                // produit inconnu: seule cette opération échoue
+                product("999999999", "Inconnu", "100", 1),
+                // seconde mise à jour de la même entité dans le lot: la dernière l'emporte au flush
+                product(productId.toString(), "Farine T55 1kg", "800", 35),
+                movement("m-2", productId, 3),
+                sale("s-2", "700")), "till-" + UUID.randomUUID(), "1.0"));
+
+        assertThat(response.getSuccessCount()).isEqualTo(6);
+        assertThat(response.getErrorCount()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(SyncBatchResponse.OperationResult::getStatus).containsExactly(
+                SyncBatchResponse.OperationStatus.SUCCESS, SyncBatchResponse.OperationStatus.SUCCESS,
+                SyncBatchResponse.OperationStatus.SUCCESS, SyncBatchResponse.OperationStatus.FAILED,
+                SyncBatchResponse.OperationStatus.SUCCESS, SyncBatchResponse.OperationStatus.SUCCESS,
+                SyncBatchResponse.OperationStatus.SUCCESS);
+        assertThat(response.getResults().get(3).getMessage())
+                .isEqualTo("Erreur de traitement: Produit non trouvé: 999999999");
+
+        // les opérations voisines de l'échec sont bien écrites
+        Product updated = productRepository.findById(productId).orElseThrow();
+        assertThat(updated.getName()).isEqualTo("Farine T55 1kg");
+        assertThat(updated.getSellingPrice()).isEqualByComparingTo("800");
+        assertThat(updated.getStockQuantity()).isEqualTo(35);
+
+        List<StockMovement> movements = stockMovementRepository.findByProductId(productId);
+        assertThat(movements).hasSize((int) movementsBefore + 2);
+        assertThat(movements).extracting(StockMovement::getQuantity).contains(2, 3);
+
+        for (int i : new int[]{0, 6}) {
+            Sale sale = saleRepository.findById(Long.parseLong(response.getResults().get(i).getServerId()))
+                    .orElseThrow();
+            assertThat(sale.getOrganisation().getId()).isEqualTo(organisationId);
+        }
+        assertThat(salesRollupService.check(organisationId)).isEmpty();
+    }
+
+    @Test
+    void createThenUpdateOfTheSameSaleAcrossBatchesAndReplay() {
+        String deviceId = "till-" + UUID.randomUUID();
+        List<SyncBatchRequest.SyncOperation> firstBatch = List.of(
+                sale("s-1", "900"),
+                movement("m-1", productId, 2));
+
+        SyncBatchResponse first = syncService.processBatchSync(new SyncBatchRequest(firstBatch, deviceId, "1.0"));
+        assertThat(first.getSuccessCount()).isEqualTo(2);
+        String saleId = first.getResults().get(0).getServerId();
+        long salesAfterCreate = saleRepository.count();
+        long movementsAfterCreate = stockMovementRepository.findByProductId(productId).size();
+
+        // réponse perdue: la caisse renvoie ses créations avec la suite de son journal,
+        // dont la mise à jour de la vente créée
+        SyncBatchResponse second = syncService.processBatchSync(new SyncBatchRequest(List.of(
+                firstBatch.get(0),
+                firstBatch.get(1),
+                saleUpdate(saleId, "1200"),
+                product(productId.toString(), "Farine 1kg", "700", 38)), deviceId, "1.0"));
+
+        assertThat(second.getSuccessCount()).isEqualTo(4);
+        // rejeu: résultat du premier passage à l'identique, sans nouvelle écriture
+        assertThat(second.getResults().subList(0, 2)).extracting(SyncBatchResponse.OperationResult::getServerId,
+                        SyncBatchResponse.OperationResult::getStatus, SyncBatchResponse.OperationResult::getMessage)
+                .containsExactlyElementsOf(first.getResults().stream()
+                        .map(r -> tuple(r.getServerId(), r.getStatus(), r.getMessage())).toList());
+        assertThat(saleRepository.count()).isEqualTo(salesAfterCreate);
+        assertThat(stockMovementRepository.findByProductId(productId)).hasSize((int) movementsAfterCreate);
+
+        Sale sale = saleRepository.findById(Long.parseLong(saleId)).orElseThrow();
+        assertThat(sale.getTotalAmount()).isEqualByComparingTo("1200");
+        assertThat(productRepository.findById(productId).orElseThrow().getStockQuantity()).isEqualTo(38);
+        // la vente rejouée n'est comptée qu'une fois dans l'agrégat
+        assertThat(salesRollupService.check(organisationId)).isEmpty();
+
+        // troisième envoi des créations: toujours les mêmes identifiants serveur
+        SyncBatchResponse third = syncService.processBatchSync(new SyncBatchRequest(firstBatch, deviceId, "1.0"));
+        assertThat(third.getResults()).extracting(SyncBatchResponse.OperationResult::getServerId)
+                .containsExactlyElementsOf(first.getResults().stream()
+                        .map(SyncBatchResponse.OperationResult::getServerId).toList());
+        assertThat(saleRepository.count()).isEqualTo(salesAfterCreate);
+    }
+
+    private static SyncBatchRequest.SyncOperation product(String productId, String name, String price, int stock) {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                SyncBatchRequest.EntityType.PRODUCT, SyncBatchRequest.OperationType.UPDATE, productId,
+                new SyncEntityData.ProductData(name, null, new BigDecimal(price), "Épicerie", stock, null, null));
+        operation.setLocalId(productId);
+        return operation;
+    }
+
+    private static SyncBatchRequest.SyncOperation movement(String localId, Long productId, int quantity) {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                SyncBatchRequest.EntityType.STOCK_MOVEMENT, SyncBatchRequest.OperationType.CREATE, localId,
+                new SyncEntityData.StockMovementData(productId, quantity, "OUT", "vente", null));
+        operation.setLocalId(localId);
+        return operation;
+    }
+
+    private static SyncBatchRequest.SyncOperation sale(String localId, String amount) {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                SyncBatchRequest.EntityType.SALE, SyncBatchRequest.OperationType.CREATE, localId,
+                new SyncEntityData.SaleData(new BigDecimal(amount), "Client comptoir", null));
+        operation.setLocalId(localId);
+        return operation;
+    }
+
+    private static SyncBatchRequest.SyncOperation saleUpdate(String saleId, String amount) {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                SyncBatchRequest.EntityType.SALE, SyncBatchRequest.OperationType.UPDATE, saleId,
+                new SyncEntityData.SaleData(new BigDecimal(amount), "Client comptoir", null));
+        operation.setLocalId(saleId);
+        return operation;
+    }
+}
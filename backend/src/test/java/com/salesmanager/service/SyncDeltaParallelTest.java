@@ -0,0 +1,172 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.SyncBatchRequest;
+import com.salesmanager.dto.SyncDeltaRequest;
+import com.salesmanager.dto.SyncDeltaResponse;
+import com.salesmanager.dto.SyncEntityData;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Role;
+import com.salesmanager.entity.User;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.UserRepository;
+import com.salesmanager.security.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SyncDeltaParallelTest {
+
+    private static final UUID DEFAULT_ORG_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    private User user;
+    private Organisation org;
+
+    @BeforeEach
+    void authenticate() {
+        org = organisationRepository.findById(DEFAULT_ORG_ID).orElseGet(() -> {
+            Organisation o = new Organisation();
+            o.setId(DEFAULT_ORG_ID);
+            o.setName("DEFAULT");
+            o.setIsActive(true);
+            return organisationRepository.save(o);
+        });
+        user = userRepository.findByUsername("sync-delta").orElseGet(() -> {
+            User u = new User();
+            u.setUsername("sync-delta");
+            u.setEmail("sync-delta@test.com");
+            u.setPassword("not-used");
+            u.setFirstName("Sync");
+            u.setLastName("Delta");
+            u.setEnabled(true);
+            u.setCreatedAt(LocalDateTime.now());
+            u.setRoles(Set.of(Role.ROLE_PLATFORM_ADMIN));
+            return userRepository.save(u);
+        });
+
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void parallelPagesAreMergedInCursorOrderWithinLimit() {
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            products.add(productRepository.save(product("Riz 25kg " + i)));
+        }
+        List<SyncBatchRequest.SyncOperation> movements = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                    SyncBatchRequest.EntityType.STOCK_MOVEMENT, SyncBatchRequest.OperationType.CREATE, "d-" + i,
+                    new SyncEntityData.StockMovementData(products.get(i % 4).getId(), 1, "OUT", "vente", null));
+            operation.setLocalId("d-" + i);
+            movements.add(operation);
+        }
+        assertThat(syncService.processBatchSync(
+                new SyncBatchRequest(movements, "till-" + UUID.randomUUID(), "1.0")).getSuccessCount()).isEqualTo(5);
+
+        List<String> everything = keys(syncService.processDeltaSync(request(since, null, 1000)));
+        assertThat(everything).hasSizeGreaterThanOrEqualTo(9).doesNotHaveDuplicates();
+
+        // pages de 3 via le jeton de continuation: mêmes lignes, même ordre, aucune perdue
+        List<String> paged = new ArrayList<>();
+        String token = null;
+        SyncDeltaResponse page;
+        do {
+            page = syncService.processDeltaSync(request(since, token, 3));
+            assertThat(page.getTotalModified() + page.getTotalDeleted()).isLessThanOrEqualTo(3);
+            paged.addAll(keys(page));
+            token = page.getContinuationToken();
+        } while (page.isHasMore());
+
+        assertThat(paged).containsExactlyElementsOf(everything);
+    }
+
+    @Test
+    void softDeletedProductIsOnlyReportedAsDeleted() {
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+        Product kept = productRepository.save(product("Savon"));
+        Product deleted = productRepository.save(product("Huile 5L"));
+        productService.deleteProduct(deleted.getId());
+
+        SyncDeltaResponse delta = syncService.processDeltaSync(request(since, null, 1000));
+        assertThat(keys(delta)).contains("product:" + kept.getId()).doesNotContain("product:" + deleted.getId());
+        assertThat(delta.getDeletedEntities())
+                .extracting(SyncDeltaResponse.DeletedEntity::getEntityType, SyncDeltaResponse.DeletedEntity::getEntityId)
+                .contains(tuple("product", deleted.getId().toString()));
+    }
+
+    private SyncDeltaRequest request(LocalDateTime since, String token, int limit) {
+        SyncDeltaRequest request = new SyncDeltaRequest(since);
+        request.setDeviceId("till-delta");
+        request.setLimit(limit);
+        request.setContinuationToken(token);
+        return request;
+    }
+
+    private List<String> keys(SyncDeltaResponse response) {
+        List<String> keys = new ArrayList<>();
+        LocalDateTime previous = null;
+        for (SyncDeltaResponse.ModifiedEntity entity : response.getModifiedEntities()) {
+            if (previous != null) {
+                assertThat(entity.getLastModified()).isAfterOrEqualTo(previous);
+            }
+            previous = entity.getLastModified();
+            keys.add(entity.getEntityType() + ":" + entity.getEntityId());
+        }
+        return keys;
+    }
+
+    private Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPurchasePrice(new BigDecimal("15000"));
+        product.setSellingPrice(new BigDecimal("17500"));
+        product.setStockQuantity(40);
+        product.setMinStockLevel(5);
+        product.setIsActive(true);
+        product.setCreatedBy(user);
+        product.setOrganisation(org);
+        return product;
+    }
+}
@@ -0,0 +1,157 @@
+package com.salesmanager.service;
+
+import com.salesmanager.dto.SyncBatchRequest;
+import com.salesmanager.dto.SyncBatchResponse;
+import com.salesmanager.dto.SyncEntityData;
+import com.salesmanager.entity.Organisation;
+import com.salesmanager.entity.Product;
+import com.salesmanager.entity.Role;
+import com.salesmanager.entity.User;
+import com.salesmanager.repository.OrganisationRepository;
+import com.salesmanager.repository.ProductRepository;
+import com.salesmanager.repository.StockMovementRepository;
+import com.salesmanager.repository.SyncIdempotencyKeyRepository;
+import com.salesmanager.repository.UserRepository;
+import com.salesmanager.security.UserDetailsImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SyncIdempotencyTest {
+
+    private static final UUID DEFAULT_ORG_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private OrganisationRepository organisationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private SyncIdempotencyKeyRepository syncIdempotencyKeyRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long productId;
+
+    @BeforeEach
+    void authenticate() {
+        Organisation org = organisationRepository.findById(DEFAULT_ORG_ID).orElseGet(() -> {
+            Organisation o = new Organisation();
+            o.setId(DEFAULT_ORG_ID);
+            o.setName("DEFAULT");
+            o.setIsActive(true);
+            return organisationRepository.save(o);
+        });
+        User user = userRepository.findByUsername("sync-idempotency").orElseGet(() -> {
+            User u = new User();
+            u.setUsername("sync-idempotency");
+            u.setEmail("sync-idempotency@test.com");
+            u.setPassword("not-used");
+            u.setFirstName("Sync");
+            u.setLastName("Device");
+            u.setEnabled(true);
+            u.setCreatedAt(LocalDateTime.now());
+            u.setRoles(Set.of(Role.ROLE_PLATFORM_ADMIN));
+            return userRepository.save(u);
+        });
+
+        Product product = new Product();
+        product.setName("Huile 1L");
+        product.setPurchasePrice(new BigDecimal("900"));
+        product.setSellingPrice(new BigDecimal("1200"));
+        product.setStockQuantity(50);
+        product.setMinStockLevel(5);
+        product.setIsActive(true);
+        product.setCreatedBy(user);
+        product.setOrganisation(org);
+        productId = productRepository.save(product).getId();
+
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void retriedBatchReturnsOriginalResultsWithoutWriting() {
+        String deviceId = "till-" + UUID.randomUUID();
+        List<SyncBatchRequest.SyncOperation> operations = List.of(movement("m-1", 2), movement("m-2", 3));
+        long movementsBefore = stockMovementRepository.count();
+        double replaysBefore = meterRegistry.counter("sync.idempotency.replays").count();
+
+        SyncBatchResponse first = syncService.processBatchSync(new SyncBatchRequest(operations, deviceId, "1.0"));
+        // timeout côté caisse: le même lot est renvoyé
+        SyncBatchResponse retry = syncService.processBatchSync(new SyncBatchRequest(operations, deviceId, "1.0"));
+
+        assertThat(first.getSuccessCount()).isEqualTo(2);
+        assertThat(retry.getSuccessCount()).isEqualTo(2);
+        // résultat du premier passage renvoyé à l'identique: server_id, statut et message
+        assertThat(retry.getResults()).extracting(SyncBatchResponse.OperationResult::getServerId,
+                        SyncBatchResponse.OperationResult::getStatus, SyncBatchResponse.OperationResult::getMessage)
+                .containsExactlyElementsOf(first.getResults().stream()
+                        .map(r -> tuple(r.getServerId(), r.getStatus(), r.getMessage())).toList());
+        assertThat(stockMovementRepository.count()).isEqualTo(movementsBefore + 2);
+        assertThat(syncIdempotencyKeyRepository.findApplied(DEFAULT_ORG_ID, deviceId, List.of("m-1", "m-2")))
+                .hasSize(2);
+        assertThat(meterRegistry.counter("sync.idempotency.replays").count()).isEqualTo(replaysBefore + 2);
+
+        // autre device, même local_id: opération distincte
+        SyncBatchResponse otherDevice = syncService.processBatchSync(
+                new SyncBatchRequest(List.of(movement("m-1", 2)), "till-" + UUID.randomUUID(), "1.0"));
+        assertThat(otherDevice.getResults().get(0).getServerId()).isNotEqualTo(first.getResults().get(0).getServerId());
+        assertThat(stockMovementRepository.count()).isEqualTo(movementsBefore + 3);
+    }
+
+    @Test
+    void duplicateInsideBatchIsAppliedOnce() {
+        long movementsBefore = stockMovementRepository.count();
+
+        SyncBatchResponse response = syncService.processBatchSync(new SyncBatchRequest(
+                List.of(movement("m-dup", 1), movement("m-dup", 1)), "till-" + UUID.randomUUID(), "1.0"));
+
+        assertThat(response.getSuccessCount()).isEqualTo(2);
+        assertThat(response.getResults().get(1).getServerId()).isEqualTo(response.getResults().get(0).getServerId());
+        assertThat(response.getResults().get(1).getMessage()).isEqualTo(response.getResults().get(0).getMessage());
+        assertThat(stockMovementRepository.count()).isEqualTo(movementsBefore + 1);
+    }
+
+    private SyncBatchRequest.SyncOperation movement(String localId, int quantity) {
+        SyncBatchRequest.SyncOperation operation = new SyncBatchRequest.SyncOperation(
+                SyncBatchRequest.EntityType.STOCK_MOVEMENT, SyncBatchRequest.OperationType.CREATE, localId,
+                new SyncEntityData.StockMovementData(productId, quantity, "OUT", "vente", null));
+        operation.setLocalId(localId);
+        return operation;
+    }
+}
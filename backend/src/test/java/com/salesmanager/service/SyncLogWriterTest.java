@@ -0,0 +1,47 @@
+package com.salesmanager.service;
+
+import com.salesmanager.entity.SyncLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SyncLogWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void queuedLogsAreWrittenInBatches_andFlushedOnShutdown() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // intervalle long: sans l'arrêt propre, les derniers logs resteraient en file
+        SyncLogWriter writer = new SyncLogWriter(jdbcTemplate, meterRegistry, 5000, 100,
+                Duration.ofSeconds(5), SyncLogWriter.OverflowPolicy.BLOCK, Duration.ofSeconds(1), Duration.ofSeconds(30));
+        String deviceId = "device-" + UUID.randomUUID();
+
+        for (int i = 0; i < 1234; i++) {
+            SyncLog log = new SyncLog();
+            log.setSyncType("BATCH");
+            log.setDeviceId(deviceId);
+            log.setOperationsCount(i);
+            log.setProcessingTimeMs(1L);
+            writer.submit(log);
+        }
+        writer.shutdown();
+
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sync_logs WHERE device_id = ?",
+                Integer.class, deviceId);
+        assertThat(rows).isEqualTo(1234);
+        assertThat(meterRegistry.get("sync.logs.written").counter().count()).isEqualTo(1234);
+        assertThat(meterRegistry.get("sync.logs.dropped").counter().count()).isZero();
+    }
+}
@@ -177,7 +177,7 @@ if (fs.existsSync(servicePath)) {
     "convertSaleToMap",
     "convertStockMovementToMap",
     "calculateDataSize",
-    "findByUpdatedAtAfter",
+    "findDeltaPage",
     "DeltaStatistics",
     "byEntityType",
     "byOperationType",